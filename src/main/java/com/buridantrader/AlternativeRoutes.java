@@ -0,0 +1,82 @@
+package com.buridantrader;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Loop-free routes with the fewest steps between pairs of currencies, to fall back to when a route can't be
+ * traded.
+ * The graph of the currencies is built once for a version of the symbols. The routes of a pair are searched
+ * the first time they're needed, and cached afterwards.
+ */
+@ThreadSafe
+class AlternativeRoutes {
+
+    private final Map<Currency, Integer> currencyIds;
+    private final Symbol[] symbols;
+    private final CurrencyGraph graph;
+    private final int maxNumRoutes;
+
+    // Routes indexed by the source and the target currency
+    private final ConcurrentMap<Currency, ConcurrentMap<Currency, List<List<OrderSpec>>>> routes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param symbols      Symbols to trade.
+     * @param maxNumRoutes Max number of routes between each pair of currencies.
+     */
+    AlternativeRoutes(@Nonnull Collection<Symbol> symbols, @Nonnegative int maxNumRoutes) {
+        this.symbols = symbols.toArray(new Symbol[0]);
+        this.currencyIds = new HashMap<>();
+        for (Symbol symbol : this.symbols) {
+            currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> currencyIds.size());
+            currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> currencyIds.size());
+        }
+        this.graph = new CurrencyGraph(currencyIds.size(), this.symbols, currencyIds);
+        this.maxNumRoutes = maxNumRoutes;
+    }
+
+    /**
+     * Gets the loop-free routes from the source currency to the target currency.
+     *
+     * @param sourceCurrency Source currency.
+     * @param targetCurrency Target currency.
+     * @return Unmodifiable list of the routes, with the fewest steps first. It's empty if there's no route, or
+     *         the currencies are the same.
+     */
+    @Nonnull
+    List<List<OrderSpec>> getRoutes(@Nonnull Currency sourceCurrency, @Nonnull Currency targetCurrency) {
+        return routes.computeIfAbsent(sourceCurrency, (c) -> new ConcurrentHashMap<>())
+                .computeIfAbsent(targetCurrency, (c) -> searchRoutes(sourceCurrency, targetCurrency));
+    }
+
+    @Nonnull
+    private List<List<OrderSpec>> searchRoutes(@Nonnull Currency sourceCurrency, @Nonnull Currency targetCurrency) {
+        Integer sourceId = currencyIds.get(sourceCurrency);
+        Integer targetId = currencyIds.get(targetCurrency);
+        if (sourceId == null || targetId == null || sourceId.equals(targetId)) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<List<OrderSpec>> result = ImmutableList.builder();
+        for (int[] path : graph.searchLoopFreePaths(sourceId, targetId, maxNumRoutes)) {
+            ImmutableList.Builder<OrderSpec> route = ImmutableList.builder();
+            Currency nowCurrency = sourceCurrency;
+            for (int symbolId : path) {
+                Symbol symbol = symbols[symbolId];
+                route.add(TradingPathFinder.createOrderSpec(nowCurrency, symbol));
+                nowCurrency = symbol.getBaseCurrency().equals(nowCurrency)
+                        ? symbol.getQuoteCurrency() : symbol.getBaseCurrency();
+            }
+            result.add(route.build());
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,553 @@
+package com.buridantrader;
+
+import com.buridantrader.services.symbol.PriceSnapshot;
+import com.buridantrader.services.symbol.SymbolPriceService;
+import com.buridantrader.services.system.SystemService;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Resolves the paths with the best rates between all pairs of currencies.
+ * Trading along a symbol is an edge weighted by {@code -log(rate * (1 - fee))}, so the path with the
+ * smallest total weight gives the most of the target currency. The rate of selling the base currency is
+ * the best bid price, and the rate of buying it is the inverse of the best ask price, as the market orders
+ * are filled at them. The last price is used for both if the order book of the symbol is empty.
+ * The weights of the last resolution are kept. When the symbols aren't changed, the paths are kept until the
+ * weight of some edge moves past the tolerance, so that the prices jittering every second don't make the
+ * routes found from the paths searched again. After that, only the edges whose prices are changed are
+ * repaired:
+ * <ul>
+ * <li>The paths to the targets that some more expensive edge is on are searched again. The earlier weights
+ * of those paths are used as the potentials of Dijkstra's algorithm, so it works with negative weights.</li>
+ * <li>The cheaper edges are relaxed into the paths between all pairs of currencies one by one.</li>
+ * </ul>
+ * If the prices make a cycle of trades profitable even after the fees, the best rates aren't well-defined,
+ * and the paths with the fewest steps are resolved instead until the prices are changed again.
+ */
+@ThreadSafe
+public class BestRatePathsResolver implements PathsResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BestRatePathsResolver.class);
+    private static final double NO_EDGE = Double.POSITIVE_INFINITY;
+    public static final BigDecimal DEFAULT_TOLERANCE = new BigDecimal("0.001");
+    private final double feeWeight;
+
+    // Max change of the weight of an edge that the paths aren't repaired for
+    private final double maxWeightChange;
+    private final SymbolPriceService symbolPriceService;
+    private final SystemService system;
+
+    // Null before the paths are resolved for the first time
+    @GuardedBy("this")
+    private WeightedPaths lastPaths;
+
+    public BestRatePathsResolver(
+            @Nonnull BigDecimal tradingFeeRate,
+            @Nonnull SymbolPriceService symbolPriceService) throws IllegalArgumentException {
+        this(tradingFeeRate, DEFAULT_TOLERANCE, symbolPriceService, new SystemService());
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param tradingFeeRate     Fee rate of a trade.
+     * @param tolerance          Max relative move of a price since the paths are resolved, for example 0.001
+     *                           for 0.1%, that the paths aren't repaired for. A zero tolerance repairs the
+     *                           paths after every change.
+     * @param symbolPriceService Service of the prices to resolve the paths at.
+     * @param system             System service.
+     * @throws IllegalArgumentException The fee rate isn't in [0, 1), or the tolerance is negative.
+     */
+    public BestRatePathsResolver(
+            @Nonnull BigDecimal tradingFeeRate,
+            @Nonnull BigDecimal tolerance,
+            @Nonnull SymbolPriceService symbolPriceService,
+            @Nonnull SystemService system) throws IllegalArgumentException {
+        Preconditions.checkArgument(tradingFeeRate.signum() >= 0 && tradingFeeRate.compareTo(BigDecimal.ONE) < 0,
+                "Trading fee rate must be in [0, 1)");
+        Preconditions.checkArgument(tolerance.signum() >= 0, "Tolerance must not be negative");
+        this.feeWeight = -Math.log1p(-tradingFeeRate.doubleValue());
+        this.maxWeightChange = Math.log1p(tolerance.doubleValue());
+        this.symbolPriceService = symbolPriceService;
+        this.system = system;
+    }
+
+    @Override
+    @Nonnull
+    public DenseTradingPaths resolvePaths(@Nonnull List<Symbol> symbols, @Nullable TradingPaths oldPaths)
+            throws IOException {
+        return resolvePaths(symbols, symbolPriceService.getPriceSnapshot());
+    }
+
+    @Override
+    public boolean isOutdated(@Nonnull Instant resolveTime) {
+        return symbolPriceService.isUpdatedSince(resolveTime);
+    }
+
+    /**
+     * Resolves the paths with the best rates at the given prices, which are used for both selling and buying.
+     * If the symbols aren't changed since the last resolution, and the weights of their edges haven't moved
+     * past the tolerance, the paths of the last resolution are returned.
+     *
+     * @param symbols Symbols to trade. A symbol without a positive price can't be traded.
+     * @param prices  Map from symbol to its latest price.
+     * @return Paths with the best rates.
+     */
+    @Nonnull
+    public DenseTradingPaths resolvePaths(
+            @Nonnull Collection<Symbol> symbols,
+            @Nonnull Map<Symbol, BigDecimal> prices) {
+        return resolvePaths(symbols, prices::get, prices::get);
+    }
+
+    /**
+     * Resolves the paths with the best rates at the best bid and ask prices of the given snapshot.
+     * If the symbols aren't changed since the last resolution, and the weights of their edges haven't moved
+     * past the tolerance, the paths of the last resolution are returned.
+     *
+     * @param symbols Symbols to trade. A symbol without a positive price can't be traded.
+     * @param prices  Latest prices.
+     * @return Paths with the best rates.
+     */
+    @Nonnull
+    public DenseTradingPaths resolvePaths(
+            @Nonnull Collection<Symbol> symbols,
+            @Nonnull PriceSnapshot prices) {
+        return resolvePaths(symbols,
+                (symbol) -> getPriceForSide(prices, symbol, OrderSide.SELL),
+                (symbol) -> getPriceForSide(prices, symbol, OrderSide.BUY));
+    }
+
+    /**
+     * Resolves the paths with the best rates.
+     *
+     * @param symbols    Symbols to trade.
+     * @param sellPrices Function from symbol to the price its base currency is sold at, or null if it has none.
+     * @param buyPrices  Function from symbol to the price its base currency is bought at, or null if it has none.
+     */
+    @Nonnull
+    private synchronized DenseTradingPaths resolvePaths(
+            @Nonnull Collection<Symbol> symbols,
+            @Nonnull Function<Symbol, BigDecimal> sellPrices,
+            @Nonnull Function<Symbol, BigDecimal> buyPrices) {
+        long startTimeMs = system.currentTimeMillis();
+        WeightedPaths paths = lastPaths;
+        if (paths == null || !paths.graph.symbols.equals(new HashSet<>(symbols))) {
+            LOGGER.debug("Resolving all the best rate paths of {} symbols...", symbols.size());
+            EdgeGraph graph = new EdgeGraph(symbols.toArray(new Symbol[0]));
+            paths = resolveAll(graph, getEdgeWeights(graph, sellPrices, buyPrices));
+        } else {
+            paths = resolveChangedPrices(paths, getEdgeWeights(paths.graph, sellPrices, buyPrices));
+        }
+        if (paths != lastPaths) {
+            LOGGER.debug("Best rate paths resolved. Elapsed time: {} ms",
+                    system.currentTimeMillis() - startTimeMs);
+        }
+        lastPaths = paths;
+        return paths.tradingPaths;
+    }
+
+    @Nonnull
+    private WeightedPaths resolveAll(@Nonnull EdgeGraph graph, @Nonnull double[] edgeWeights) {
+        int size = graph.size;
+        double[] weights = new double[size * size];
+        int[] lengths = new int[size * size];
+        int[] nextSymbolIds = new int[size * size];
+        boolean bestRates = relaxAll(graph, edgeWeights, weights, lengths, nextSymbolIds);
+        if (!bestRates) {
+            LOGGER.warn("A cycle of trades is profitable after fees. Resolving the paths with the fewest steps");
+            double[] unitWeights = new double[edgeWeights.length];
+            for (int edge = 0; edge < edgeWeights.length; ++edge) {
+                unitWeights[edge] = edgeWeights[edge] == NO_EDGE ? NO_EDGE : 1;
+            }
+            relaxAll(graph, unitWeights, weights, lengths, nextSymbolIds);
+        }
+        return new WeightedPaths(
+                new DenseTradingPaths(graph.currencyIds, graph.symbolTable, lengths, nextSymbolIds),
+                graph, edgeWeights, weights, bestRates);
+    }
+
+    /**
+     * Floyd-Warshall over the weights of the edges.
+     *
+     * @return False if there's a cycle with negative weight.
+     */
+    private static boolean relaxAll(
+            @Nonnull EdgeGraph graph,
+            @Nonnull double[] edgeWeights,
+            @Nonnull double[] weights,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds) {
+        int size = graph.size;
+        Arrays.fill(weights, NO_EDGE);
+        Arrays.fill(lengths, 0);
+        Arrays.fill(nextSymbolIds, DenseTradingPaths.NO_PATH);
+        for (int edge = 0; edge < edgeWeights.length; ++edge) {
+            int index = graph.getFromId(edge) * size + graph.getToId(edge);
+            if (edgeWeights[edge] < weights[index]) {
+                weights[index] = edgeWeights[edge];
+                lengths[index] = 1;
+                nextSymbolIds[index] = edge / 2;
+            }
+        }
+        for (int midId = 0; midId < size; ++midId) {
+            int midRow = midId * size;
+            for (int sourceId = 0; sourceId < size; ++sourceId) {
+                int sourceRow = sourceId * size;
+                double firstWeight = weights[sourceRow + midId];
+                if (firstWeight == NO_EDGE) {
+                    continue;
+                }
+                int firstLength = lengths[sourceRow + midId];
+                int firstNextSymbolId = nextSymbolIds[sourceRow + midId];
+                for (int targetId = 0; targetId < size; ++targetId) {
+                    double newWeight = firstWeight + weights[midRow + targetId];
+                    int index = sourceRow + targetId;
+                    if (newWeight < weights[index]) {
+                        weights[index] = newWeight;
+                        lengths[index] = firstLength + lengths[midRow + targetId];
+                        nextSymbolIds[index] = firstNextSymbolId;
+                    }
+                }
+            }
+        }
+        for (int id = 0; id < size; ++id) {
+            if (weights[id * size + id] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private WeightedPaths resolveChangedPrices(
+            @Nonnull WeightedPaths paths,
+            @Nonnull double[] edgeWeights) {
+        EdgeGraph graph = paths.graph;
+        int size = graph.size;
+        // The weights the paths are resolved with are kept, so that a slow drift is repaired once it adds up
+        // to the tolerance
+        if (!isMovedPastTolerance(paths.edgeWeights, edgeWeights)) {
+            return paths;
+        }
+        if (!paths.bestRates) {
+            LOGGER.debug("Prices are changed. Resolving all the paths again");
+            return resolveAll(graph, edgeWeights);
+        }
+
+        // Weights with only the more expensive edges changed, under which the earlier weights of the paths
+        // are lower bounds
+        double[] raisedEdgeWeights = paths.edgeWeights.clone();
+        List<Integer> cheaperEdges = new ArrayList<>();
+        boolean[] affectedTargets = new boolean[size];
+        int numAffectedTargets = 0;
+        int[] oldNextSymbolIds = paths.tradingPaths.getNextSymbolIds();
+        for (int edge = 0; edge < edgeWeights.length; ++edge) {
+            if (edgeWeights[edge] < paths.edgeWeights[edge]) {
+                cheaperEdges.add(edge);
+            } else if (edgeWeights[edge] > paths.edgeWeights[edge]) {
+                raisedEdgeWeights[edge] = edgeWeights[edge];
+                // The paths to a target form a tree, so the edge is on a path to the target if and only if
+                // it's the next step from its source currency to the target
+                int row = graph.getFromId(edge) * size;
+                for (int targetId = 0; targetId < size; ++targetId) {
+                    if (!affectedTargets[targetId] && oldNextSymbolIds[row + targetId] == edge / 2) {
+                        affectedTargets[targetId] = true;
+                        ++numAffectedTargets;
+                    }
+                }
+            }
+        }
+        if (cheaperEdges.isEmpty() && numAffectedTargets == 0) {
+            return new WeightedPaths(paths.tradingPaths, graph, edgeWeights, paths.weights, true);
+        }
+
+        double[] weights = paths.weights.clone();
+        int[] lengths = paths.tradingPaths.getLengths().clone();
+        int[] nextSymbolIds = oldNextSymbolIds.clone();
+        for (int targetId = 0; targetId < size; ++targetId) {
+            if (affectedTargets[targetId]) {
+                searchTarget(graph, targetId, raisedEdgeWeights, weights, lengths, nextSymbolIds);
+            }
+        }
+        for (int edge : cheaperEdges) {
+            if (!relaxEdge(graph, edge, edgeWeights[edge], weights, lengths, nextSymbolIds)) {
+                LOGGER.debug("A cheaper edge closes a cycle with negative weight. Resolving all the paths again");
+                return resolveAll(graph, edgeWeights);
+            }
+        }
+        LOGGER.debug("Paths to {} targets are searched again, and {} cheaper edges are relaxed",
+                numAffectedTargets, cheaperEdges.size());
+        return new WeightedPaths(
+                new DenseTradingPaths(graph.currencyIds, graph.symbolTable, lengths, nextSymbolIds),
+                graph, edgeWeights, weights, true);
+    }
+
+    /**
+     * Searches the paths to the target backwards from it with Dijkstra's algorithm.
+     * The given edge weights must be no less than the ones the paths are resolved with, so that the earlier
+     * weights of the paths to the target are valid potentials: the reduced weight
+     * {@code weight(a -> b) - potential(a) + potential(b)} of every edge isn't negative. A currency that
+     * couldn't reach the target earlier can't reach it now either.
+     */
+    private static void searchTarget(
+            @Nonnull EdgeGraph graph,
+            int targetId,
+            @Nonnull double[] edgeWeights,
+            @Nonnull double[] weights,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds) {
+        int size = graph.size;
+        double[] potentials = new double[size];
+        double[] pathWeights = new double[size];
+        int[] pathLengths = new int[size];
+        int[] pathSymbolIds = new int[size];
+        boolean[] settled = new boolean[size];
+        for (int id = 0; id < size; ++id) {
+            potentials[id] = getWeight(weights, size, id, targetId);
+            pathWeights[id] = NO_EDGE;
+            pathSymbolIds[id] = DenseTradingPaths.NO_PATH;
+            int index = id * size + targetId;
+            weights[index] = NO_EDGE;
+            lengths[index] = 0;
+            nextSymbolIds[index] = DenseTradingPaths.NO_PATH;
+        }
+        pathWeights[targetId] = 0;
+        int cycleIndex = targetId * size + targetId;
+        while (true) {
+            int nowId = -1;
+            double minKey = NO_EDGE;
+            for (int id = 0; id < size; ++id) {
+                if (!settled[id] && pathWeights[id] != NO_EDGE && pathWeights[id] - potentials[id] < minKey) {
+                    nowId = id;
+                    minKey = pathWeights[id] - potentials[id];
+                }
+            }
+            if (nowId < 0) {
+                break;
+            }
+            settled[nowId] = true;
+            if (nowId != targetId) {
+                int index = nowId * size + targetId;
+                weights[index] = pathWeights[nowId];
+                lengths[index] = pathLengths[nowId];
+                nextSymbolIds[index] = pathSymbolIds[nowId];
+            }
+            for (int offset = graph.inEdgeOffsets[nowId]; offset < graph.inEdgeOffsets[nowId + 1]; ++offset) {
+                int edge = graph.inEdges[offset];
+                int fromId = graph.getFromId(edge);
+                double newWeight = edgeWeights[edge] + pathWeights[nowId];
+                if (fromId == targetId) {
+                    // A cycle from the target back to itself
+                    if (newWeight < weights[cycleIndex]) {
+                        weights[cycleIndex] = newWeight;
+                        lengths[cycleIndex] = pathLengths[nowId] + 1;
+                        nextSymbolIds[cycleIndex] = edge / 2;
+                    }
+                } else if (!settled[fromId] && potentials[fromId] != NO_EDGE && newWeight < pathWeights[fromId]) {
+                    pathWeights[fromId] = newWeight;
+                    pathLengths[fromId] = pathLengths[nowId] + 1;
+                    pathSymbolIds[fromId] = edge / 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Relaxes all the paths through an edge that gets cheaper.
+     * A path can use the edge at most once, so the best path through it is the best path to its source
+     * currency, the edge, and the best path from its target currency.
+     *
+     * @return False if the edge closes a cycle with negative weight.
+     */
+    private static boolean relaxEdge(
+            @Nonnull EdgeGraph graph,
+            int edge,
+            double edgeWeight,
+            @Nonnull double[] weights,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds) {
+        int size = graph.size;
+        int symbolId = edge / 2;
+        int fromId = graph.getFromId(edge);
+        int toId = graph.getToId(edge);
+        if (edgeWeight + getWeight(weights, size, toId, fromId) < 0) {
+            return false;
+        }
+        double[] weightsFromTo = new double[size];
+        int[] lengthsFromTo = new int[size];
+        for (int targetId = 0; targetId < size; ++targetId) {
+            weightsFromTo[targetId] = getWeight(weights, size, toId, targetId);
+            lengthsFromTo[targetId] = toId == targetId ? 0 : lengths[toId * size + targetId];
+        }
+        for (int sourceId = 0; sourceId < size; ++sourceId) {
+            double firstWeight = getWeight(weights, size, sourceId, fromId);
+            if (firstWeight == NO_EDGE) {
+                continue;
+            }
+            int sourceRow = sourceId * size;
+            int firstLength = sourceId == fromId ? 0 : lengths[sourceRow + fromId];
+            int firstNextSymbolId = sourceId == fromId ? symbolId : nextSymbolIds[sourceRow + fromId];
+            double throughWeight = firstWeight + edgeWeight;
+            for (int targetId = 0; targetId < size; ++targetId) {
+                double newWeight = throughWeight + weightsFromTo[targetId];
+                int index = sourceRow + targetId;
+                if (newWeight < weights[index]) {
+                    weights[index] = newWeight;
+                    lengths[index] = firstLength + 1 + lengthsFromTo[targetId];
+                    nextSymbolIds[index] = firstNextSymbolId;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the weight of the best path from the source to the target, where staying at the same currency
+     * weighs nothing.
+     */
+    private static double getWeight(@Nonnull double[] weights, int size, int sourceId, int targetId) {
+        return sourceId == targetId ? 0 : weights[sourceId * size + targetId];
+    }
+
+    private boolean isMovedPastTolerance(@Nonnull double[] oldEdgeWeights, @Nonnull double[] edgeWeights) {
+        for (int edge = 0; edge < edgeWeights.length; ++edge) {
+            double oldWeight = oldEdgeWeights[edge];
+            double weight = edgeWeights[edge];
+            if (oldWeight != weight
+                    && (oldWeight == NO_EDGE || weight == NO_EDGE || Math.abs(weight - oldWeight) > maxWeightChange)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the weights of selling and buying the base currency of each symbol at the given prices.
+     */
+    @Nonnull
+    private double[] getEdgeWeights(
+            @Nonnull EdgeGraph graph,
+            @Nonnull Function<Symbol, BigDecimal> sellPrices,
+            @Nonnull Function<Symbol, BigDecimal> buyPrices) {
+        double[] edgeWeights = new double[graph.symbolTable.length * 2];
+        for (int symbolId = 0; symbolId < graph.symbolTable.length; ++symbolId) {
+            Symbol symbol = graph.symbolTable[symbolId];
+            BigDecimal sellPrice = sellPrices.apply(symbol);
+            BigDecimal buyPrice = buyPrices.apply(symbol);
+            edgeWeights[symbolId * 2] = sellPrice == null || sellPrice.signum() <= 0
+                    ? NO_EDGE : -Math.log(sellPrice.doubleValue()) + feeWeight;
+            edgeWeights[symbolId * 2 + 1] = buyPrice == null || buyPrice.signum() <= 0
+                    ? NO_EDGE : Math.log(buyPrice.doubleValue()) + feeWeight;
+        }
+        return edgeWeights;
+    }
+
+    /**
+     * Gets the price a market order of the symbol is expected to be filled at: the best bid price for a sell
+     * order, or the best ask price for a buy order. The last price is used if the order book is empty.
+     */
+    @Nullable
+    private static BigDecimal getPriceForSide(
+            @Nonnull PriceSnapshot prices,
+            @Nonnull Symbol symbol,
+            @Nonnull OrderSide orderSide) {
+        Optional<BookPrice> optBookPrice = prices.getBookPrice(symbol);
+        if (optBookPrice.isPresent()) {
+            return optBookPrice.get().getPrice(orderSide);
+        }
+        return prices.getPrice(symbol).orElse(null);
+    }
+
+    /**
+     * Currencies and symbols as a graph.
+     * Each symbol has two edges. The edge {@code 2 * symbolId} sells the base currency, and the edge
+     * {@code 2 * symbolId + 1} buys it.
+     */
+    @Immutable
+    private static class EdgeGraph {
+        private final Symbol[] symbolTable;
+        private final Set<Symbol> symbols;
+        private final Map<Currency, Integer> currencyIds = new HashMap<>();
+        private final int size;
+        private final int[] baseIds;
+        private final int[] quoteIds;
+        // Edges to each currency are inEdges[inEdgeOffsets[currencyId]] to inEdges[inEdgeOffsets[currencyId + 1] - 1]
+        private final int[] inEdgeOffsets;
+        private final int[] inEdges;
+
+        EdgeGraph(@Nonnull Symbol[] symbolTable) {
+            this.symbolTable = symbolTable;
+            this.symbols = new HashSet<>(Arrays.asList(symbolTable));
+            for (Symbol symbol : symbolTable) {
+                currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> currencyIds.size());
+                currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> currencyIds.size());
+            }
+            this.size = currencyIds.size();
+            this.baseIds = new int[symbolTable.length];
+            this.quoteIds = new int[symbolTable.length];
+            for (int symbolId = 0; symbolId < symbolTable.length; ++symbolId) {
+                baseIds[symbolId] = currencyIds.get(symbolTable[symbolId].getBaseCurrency());
+                quoteIds[symbolId] = currencyIds.get(symbolTable[symbolId].getQuoteCurrency());
+            }
+            this.inEdgeOffsets = new int[size + 1];
+            for (int edge = 0; edge < symbolTable.length * 2; ++edge) {
+                ++inEdgeOffsets[getToId(edge) + 1];
+            }
+            for (int id = 0; id < size; ++id) {
+                inEdgeOffsets[id + 1] += inEdgeOffsets[id];
+            }
+            this.inEdges = new int[symbolTable.length * 2];
+            int[] nextOffsets = Arrays.copyOf(inEdgeOffsets, size);
+            for (int edge = 0; edge < symbolTable.length * 2; ++edge) {
+                inEdges[nextOffsets[getToId(edge)]++] = edge;
+            }
+        }
+
+        int getFromId(int edge) {
+            return edge % 2 == 0 ? baseIds[edge / 2] : quoteIds[edge / 2];
+        }
+
+        int getToId(int edge) {
+            return edge % 2 == 0 ? quoteIds[edge / 2] : baseIds[edge / 2];
+        }
+    }
+
+    /**
+     * Paths with the weights they're resolved from.
+     */
+    private static class WeightedPaths {
+        private final DenseTradingPaths tradingPaths;
+        private final EdgeGraph graph;
+        private final double[] edgeWeights;
+        // Weights of the paths between all pairs of currencies
+        private final double[] weights;
+        // False if the paths are the ones with the fewest steps instead
+        private final boolean bestRates;
+
+        WeightedPaths(
+                @Nonnull DenseTradingPaths tradingPaths,
+                @Nonnull EdgeGraph graph,
+                @Nonnull double[] edgeWeights,
+                @Nonnull double[] weights,
+                boolean bestRates) {
+            this.tradingPaths = tradingPaths;
+            this.graph = graph;
+            this.edgeWeights = edgeWeights;
+            this.weights = weights;
+            this.bestRates = bestRates;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.buridantrader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Best bid and ask prices of a symbol in the order book.
+ */
+@ThreadSafe
+@Immutable
+public class BookPrice {
+    private final BigDecimal bidPrice;
+    private final BigDecimal askPrice;
+
+    public BookPrice(@Nonnull BigDecimal bidPrice, @Nonnull BigDecimal askPrice) {
+        this.bidPrice = bidPrice;
+        this.askPrice = askPrice;
+    }
+
+    @Nonnull
+    public BigDecimal getBidPrice() {
+        return bidPrice;
+    }
+
+    @Nonnull
+    public BigDecimal getAskPrice() {
+        return askPrice;
+    }
+
+    /**
+     * Gets the price a market order of the given side is filled at.
+     *
+     * @param orderSide Side of the order.
+     * @return The ask price for a buy order, or the bid price for a sell order.
+     */
+    @Nonnull
+    public BigDecimal getPrice(@Nonnull OrderSide orderSide) {
+        return OrderSide.BUY.equals(orderSide) ? askPrice : bidPrice;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || !getClass().equals(other.getClass())) {
+            return false;
+        }
+
+        BookPrice that = (BookPrice) other;
+        return bidPrice.equals(that.bidPrice)
+                && askPrice.equals(that.askPrice);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bidPrice, askPrice);
+    }
+
+    @Override
+    public String toString() {
+        return "BookPrice{bidPrice=" + bidPrice + ", askPrice=" + askPrice + "}";
+    }
+}
@@ -1,45 +1,140 @@
 package com.buridantrader;
 
+import com.binance.api.client.BinanceApiClientFactory;
 import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.BinanceApiWebSocketClient;
 import com.binance.api.client.impl.BinanceApiRestClientImpl;
+import com.buridantrader.services.binance.RateLimitBinanceClient;
+import com.buridantrader.services.symbol.CandlestickStore;
 import com.buridantrader.services.symbol.SymbolFetcher;
 import com.buridantrader.services.symbol.SymbolPriceViewer;
 import com.buridantrader.services.symbol.SymbolService;
 import com.buridantrader.services.symbol.SymbolPriceService;
+import com.buridantrader.services.system.SystemService;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 public class BuridanTrader {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuridanTrader.class);
+    private static final String TRADING_PATHS_FILE_NAME = "trading-paths.bin";
+
     private final PlanConsumer planConsumer;
 
+    // Null if the trader is constructed from a plan consumer
+    private final SymbolPriceService symbolPriceService;
+
+    // Null if the paths aren't resolved in parallel
+    private final ForkJoinPool pathFindingPool;
+
+    // Null if the price history isn't persisted
+    private final CandlestickStore candlestickStore;
+
+    // Executors of the components, which are shut down when the trader stops
+    private final List<ExecutorService> executors;
+
     public BuridanTrader(@Nonnull TraderConfig config) throws IOException {
 
         BinanceApiRestClient client = new BinanceApiRestClientImpl(
                 config.getApiKey(),
                 config.getApiSecret()
         );
-        PlanWorkerFactory planWorkerFactory = new PlanWorkerFactory(client);
-        SymbolPriceViewer symbolPriceViewer = new SymbolPriceViewer(client);
+        SystemService systemService = new SystemService();
+        CandlestickStore candlestickStore = config.getPriceHistoryDataDir().map(CandlestickStore::new).orElse(null);
+        int maxConcurrentPriceFetches = config.getMaxConcurrentPriceFetches();
+        // The pages are prefetched by as many threads as the price history is fetched with
+        ExecutorService prefetchExecutor =
+                Executors.newFixedThreadPool(maxConcurrentPriceFetches, new DaemonThreadFactory());
+        SymbolPriceViewer symbolPriceViewer = new SymbolPriceViewer(
+                new RateLimitBinanceClient(client),
+                SymbolPriceViewer.DEFAULT_MAX_CACHED_CANDLESTICKS,
+                prefetchExecutor,
+                config.getPricePrefetchDepth(),
+                candlestickStore,
+                systemService);
         SymbolFetcher symbolFetcher = new SymbolFetcher(client);
         AssetViewer assetViewer = new AssetViewer(client);
         SymbolService symbolService = new SymbolService(symbolFetcher);
-        SymbolPriceService symbolPriceService = new SymbolPriceService(client, symbolService);
-        TradingPathFinder tradingPathFinder = new TradingPathFinder(symbolService, symbolPriceService);
-        CurrencyPriceViewer currencyPriceViewer = new CurrencyPriceViewer(symbolPriceViewer, tradingPathFinder);
+        BinanceApiWebSocketClient webSocketClient = config.isPriceStreaming()
+                ? BinanceApiClientFactory.newInstance(config.getApiKey(), config.getApiSecret()).newWebSocketClient()
+                : null;
+        SymbolPriceService symbolPriceService = new SymbolPriceService(
+                client, symbolService, webSocketClient, systemService);
+        PathsResolver pathsResolver;
+        ForkJoinPool pathFindingPool = null;
+        if (config.isLazyPathFinding()) {
+            pathsResolver = new LazyPathsResolver(config.getMaxCachedPathSources());
+        } else if (config.isBestRatePathFinding()) {
+            pathsResolver = new BestRatePathsResolver(
+                    config.getTradingConfig().getTradingFeeRate(),
+                    config.getBestRateTolerance(),
+                    symbolPriceService,
+                    systemService);
+        } else if (config.isHubLabelPathFinding()) {
+            pathsResolver = new HubLabelPathsResolver(systemService);
+        } else {
+            TradingPathsStore pathsStore = config.getPathFindingDataDir()
+                    .map((dataDir) -> new TradingPathsStore(new File(dataDir, TRADING_PATHS_FILE_NAME)))
+                    .orElse(null);
+            int parallelism = config.getPathFindingParallelism();
+            if (parallelism > 1) {
+                pathFindingPool = new ForkJoinPool(parallelism);
+            }
+            pathsResolver = new DensePathsResolver(
+                    new ShortestPathsResolver(systemService, pathFindingPool),
+                    new IncrementalPathsResolver(systemService),
+                    pathsStore);
+        }
+        ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+        TradingPathFinder tradingPathFinder = new TradingPathFinder(
+                symbolService,
+                symbolPriceService,
+                pathsResolver,
+                rebuildExecutor,
+                systemService);
+        PlanWorkerFactory planWorkerFactory = new PlanWorkerFactory(client, tradingPathFinder);
+        ExecutorService priceFetchExecutor =
+                Executors.newFixedThreadPool(maxConcurrentPriceFetches, new DaemonThreadFactory());
+        CurrencyPriceViewer currencyPriceViewer = new CurrencyPriceViewer(
+                symbolPriceViewer,
+                tradingPathFinder,
+                priceFetchExecutor,
+                config.getPriceGapHandling());
         PricePredictor pricePredictor = new PricePredictor(currencyPriceViewer);
         PriceConverter priceConverter = new PriceConverter(tradingPathFinder);
+        ExecutorService predictionExecutor =
+                Executors.newFixedThreadPool(maxConcurrentPriceFetches, new DaemonThreadFactory());
         CandidateAssetProducer candidateAssetProducer = new CandidateAssetProducer(
-                config.getTradingConfig(), assetViewer, pricePredictor, priceConverter);
+                config.getTradingConfig(),
+                assetViewer,
+                pricePredictor,
+                priceConverter,
+                predictionExecutor);
         PlanProducer planProducer = new PlanProducer(config.getTradingConfig(), tradingPathFinder, candidateAssetProducer);
         TradingPlanner tradingPlanner = new TradingPlanner(planProducer);
         this.planConsumer = new PlanConsumer(tradingPlanner, planWorkerFactory);
+        this.symbolPriceService = symbolPriceService;
+        this.pathFindingPool = pathFindingPool;
+        this.candlestickStore = candlestickStore;
+        this.executors = ImmutableList.of(rebuildExecutor, priceFetchExecutor, predictionExecutor, prefetchExecutor);
     }
 
     public BuridanTrader(@Nonnull PlanConsumer planConsumer) {
         this.planConsumer = planConsumer;
+        this.symbolPriceService = null;
+        this.pathFindingPool = null;
+        this.candlestickStore = null;
+        this.executors = ImmutableList.of();
     }
 
     public void start() {
@@ -48,5 +143,21 @@ public class BuridanTrader {
 
     public void stop(long timeout, @Nonnull TimeUnit timeUnit) throws InterruptedException {
         planConsumer.stop(timeout, timeUnit);
+        if (symbolPriceService != null) {
+            symbolPriceService.close();
+        }
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        if (pathFindingPool != null) {
+            pathFindingPool.shutdown();
+        }
+        if (candlestickStore != null) {
+            try {
+                candlestickStore.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Fail to close the candlestick store", ex);
+            }
+        }
     }
 }
@@ -2,16 +2,22 @@ package com.buridantrader;
 
 import com.buridantrader.config.TradingConfig;
 import com.buridantrader.exceptions.NoSuchPathException;
-import com.buridantrader.exceptions.ValueLimitException;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class CandidateAssetProducer {
 
@@ -20,42 +26,85 @@ public class CandidateAssetProducer {
     private final PricePredictor pricePredictor;
     private final PriceConverter priceConverter;
     private final TradingConfig config;
+    private final Executor predictionExecutor;
 
     public CandidateAssetProducer(
             @Nonnull TradingConfig config,
             @Nonnull AssetViewer assetViewer,
             @Nonnull PricePredictor pricePredictor,
             @Nonnull PriceConverter priceConverter) {
+        this(config, assetViewer, pricePredictor, priceConverter, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param config             Trading config.
+     * @param assetViewer        Viewer of the account assets.
+     * @param pricePredictor     Price predictor.
+     * @param priceConverter     Price converter.
+     * @param predictionExecutor Bounded executor to predict the prices of the assets with concurrently. A
+     *                           prediction waits for the price history it fetches, so it shouldn't be the
+     *                           executor the price history is fetched with.
+     */
+    public CandidateAssetProducer(
+            @Nonnull TradingConfig config,
+            @Nonnull AssetViewer assetViewer,
+            @Nonnull PricePredictor pricePredictor,
+            @Nonnull PriceConverter priceConverter,
+            @Nonnull Executor predictionExecutor) {
         this.config = config;
         this.assetViewer = assetViewer;
         this.pricePredictor = pricePredictor;
         this.priceConverter = priceConverter;
+        this.predictionExecutor = predictionExecutor;
     }
 
+    /**
+     * Gets the candidate assets valued with the given market snapshot.
+     *
+     * @param market Market snapshot.
+     * @return The candidates.
+     * @throws IOException Fail to get the assets or the price history.
+     */
     @Nonnull
-    public List<CandidateAsset> getCandidates() throws IOException {
+    public List<CandidateAsset> getCandidates(@Nonnull MarketSnapshot market) throws IOException {
         List<CandidateAsset> candidates = new ArrayList<>();
-        for (Asset asset : assetViewer.getAccountAssets()) {
-
-            BigDecimal freeQuantity = calFreeQuantity(asset);
-            BigDecimal freeValue;
-            try {
-                freeValue = calValue(asset, freeQuantity);
-            } catch (NoSuchPathException ex) {
-                LOGGER.debug("The balance of asset {} is ignored because: {}",
-                        asset.getCurrency(), ex.getMessage());
+        List<Asset> assets = assetViewer.getAccountAssets();
+        Map<Currency, BigDecimal> freeQuantities = new LinkedHashMap<>();
+        for (Asset asset : assets) {
+            freeQuantities.put(asset.getCurrency(), calFreeQuantity(asset));
+        }
+        Map<Currency, BigDecimal> freeValues =
+                priceConverter.getRelativePrices(market, freeQuantities, config.getQuoteCurrency());
+
+        // The predictions of the assets are made at once, and they're collected in the order of the assets
+        Map<Currency, CompletableFuture<Optional<PricePrediction>>> predictions = new LinkedHashMap<>();
+        for (Asset asset : assets) {
+            if (freeValues.containsKey(asset.getCurrency())) {
+                predictions.put(asset.getCurrency(), CompletableFuture.supplyAsync(
+                        () -> predict(market, asset.getCurrency()), predictionExecutor));
+            }
+        }
+
+        for (Asset asset : assets) {
+
+            BigDecimal freeQuantity = freeQuantities.get(asset.getCurrency());
+            BigDecimal freeValue = freeValues.get(asset.getCurrency());
+            if (freeValue == null) {
+                LOGGER.debug("The balance of asset {} is ignored because there's no trading path to {}",
+                        asset.getCurrency(), config.getQuoteCurrency());
                 continue;
             }
 
-            PricePrediction prediction;
-            try {
-                prediction = pricePredictor.getPrediction(asset.getCurrency(), config.getQuoteCurrency());
-            } catch (NoSuchPathException ex) {
+            Optional<PricePrediction> optionalPrediction = join(predictions.get(asset.getCurrency()));
+            if (!optionalPrediction.isPresent()) {
                 LOGGER.info("Unable to get prediction for {} relative to {}. Skipping it",
                         asset.getCurrency(),
                         config.getQuoteCurrency());
                 continue;
             }
+            PricePrediction prediction = optionalPrediction.get();
 
             LOGGER.debug("For asset {}, growth per sec: {}, profitable: {}, free quantity: {}, "
                             + "free value relative to {}: {}",
@@ -72,6 +121,32 @@ public class CandidateAssetProducer {
         return candidates;
     }
 
+    @Nonnull
+    private Optional<PricePrediction> predict(@Nonnull MarketSnapshot market, @Nonnull Currency currency) {
+        try {
+            return Optional.of(pricePredictor.getPrediction(market, currency, config.getQuoteCurrency()));
+        } catch (NoSuchPathException ex) {
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Nonnull
+    private static <T> T join(@Nonnull CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
     private boolean isEligibleForSource(@Nonnull CandidateAsset candidateAsset) {
         return candidateAsset.getFreeValue().compareTo(config.getMinTradingValue()) >= 0;
     }
@@ -87,15 +162,4 @@ public class CandidateAssetProducer {
             return balance.subtract(minPreferredQuantity);
         }
     }
-
-    @Nonnull
-    private BigDecimal calValue(@Nonnull Asset asset, @Nonnull BigDecimal quantity)
-            throws IOException, NoSuchPathException {
-        try {
-            return priceConverter.getRelativePrice(
-                    asset.getCurrency(), config.getQuoteCurrency(), quantity);
-        } catch (ValueLimitException ex) {
-            return BigDecimal.ZERO;
-        }
-    }
 }
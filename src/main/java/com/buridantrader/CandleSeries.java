@@ -0,0 +1,260 @@
+package com.buridantrader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Series of candlesticks in the order of the open time, which is stored as a structure of arrays.
+ * It doesn't create any object per candlestick, and the loops over the prices run over primitive arrays.
+ */
+@ThreadSafe
+@Immutable
+public class CandleSeries {
+
+    private static final CandleSeries EMPTY = new CandleSeries(new long[0], new long[0], new double[0], 0);
+    private static final double PRICE_UNIT = Math.pow(10, FixedPointDecimal.SCALE);
+
+    private final long[] openTimes;
+    private final long[] closeTimes;
+    private final double[] averagePrices;
+    private final int size;
+
+    private CandleSeries(
+            @Nonnull long[] openTimes,
+            @Nonnull long[] closeTimes,
+            @Nonnull double[] averagePrices,
+            int size) {
+        this.openTimes = openTimes;
+        this.closeTimes = closeTimes;
+        this.averagePrices = averagePrices;
+        this.size = size;
+    }
+
+    @Nonnull
+    public static CandleSeries empty() {
+        return EMPTY;
+    }
+
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the open time of a candlestick.
+     *
+     * @param index Index of the candlestick.
+     * @return Open time in epoch milliseconds.
+     */
+    public long getOpenTimeMs(int index) {
+        checkIndex(index);
+        return openTimes[index];
+    }
+
+    /**
+     * Gets the close time of a candlestick.
+     *
+     * @param index Index of the candlestick.
+     * @return Close time in epoch milliseconds.
+     */
+    public long getCloseTimeMs(int index) {
+        checkIndex(index);
+        return closeTimes[index];
+    }
+
+    public double getAveragePrice(int index) {
+        checkIndex(index);
+        return averagePrices[index];
+    }
+
+    /**
+     * Gets the first candlesticks of the series.
+     * The arrays are shared with this series, so it doesn't copy anything.
+     *
+     * @param newSize Number of the candlesticks to keep.
+     * @return The series of the first candlesticks.
+     */
+    @Nonnull
+    public CandleSeries head(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Size " + newSize + " is out of 0 to " + size);
+        }
+        return newSize == size ? this : new CandleSeries(openTimes, closeTimes, averagePrices, newSize);
+    }
+
+    /**
+     * Converts a price mantissa with {@link FixedPointDecimal#SCALE} digits after the point to a price.
+     *
+     * @param mantissa Mantissa.
+     * @return Price.
+     */
+    public static double toPrice(long mantissa) {
+        return mantissa / PRICE_UNIT;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of 0 to " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || !other.getClass().equals(getClass())) {
+            return false;
+        }
+        CandleSeries that = (CandleSeries) other;
+        if (size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; ++i) {
+            if (openTimes[i] != that.openTimes[i]
+                    || closeTimes[i] != that.closeTimes[i]
+                    || Double.compare(averagePrices[i], that.averagePrices[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = size;
+        for (int i = 0; i < size; ++i) {
+            hashCode = 31 * hashCode + Long.hashCode(openTimes[i]);
+            hashCode = 31 * hashCode + Long.hashCode(closeTimes[i]);
+            hashCode = 31 * hashCode + Double.hashCode(averagePrices[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CandleSeries[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(openTimes[i]).append('-').append(closeTimes[i]).append(':').append(averagePrices[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Builder of a series, which appends the candlesticks to growing arrays.
+     */
+    @NotThreadSafe
+    public static class Builder {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] openTimes = new long[INITIAL_CAPACITY];
+        private long[] closeTimes = new long[INITIAL_CAPACITY];
+        private double[] averagePrices = new double[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private Builder() {
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets the open time of the last added candlestick.
+         *
+         * @return Open time in epoch milliseconds.
+         * @throws IllegalStateException Nothing is added.
+         */
+        public long getLastOpenTimeMs() throws IllegalStateException {
+            if (size == 0) {
+                throw new IllegalStateException("No candlestick is added");
+            }
+            return openTimes[size - 1];
+        }
+
+        /**
+         * Adds a candlestick.
+         *
+         * @param openTimeMs   Open time in epoch milliseconds.
+         * @param closeTimeMs  Close time in epoch milliseconds.
+         * @param averagePrice Average price.
+         * @return This builder.
+         */
+        @Nonnull
+        public Builder add(long openTimeMs, long closeTimeMs, double averagePrice) {
+            if (size == openTimes.length) {
+                int capacity = size * 2;
+                openTimes = Arrays.copyOf(openTimes, capacity);
+                closeTimes = Arrays.copyOf(closeTimes, capacity);
+                averagePrices = Arrays.copyOf(averagePrices, capacity);
+            }
+            openTimes[size] = openTimeMs;
+            closeTimes[size] = closeTimeMs;
+            averagePrices[size] = averagePrice;
+            ++size;
+            return this;
+        }
+
+        /**
+         * Adds a candlestick fetched from Binance.
+         * The average price is the average of the high and the low price, rounded half up to
+         * {@link FixedPointDecimal#SCALE} digits after the point.
+         *
+         * @param candlestick Candlestick.
+         * @return This builder.
+         * @throws NumberFormatException The prices can't be parsed.
+         * @throws ArithmeticException The prices are too large.
+         */
+        @Nonnull
+        public Builder add(@Nonnull com.binance.api.client.domain.market.Candlestick candlestick)
+                throws NumberFormatException, ArithmeticException {
+            long highPrice = FixedPointDecimal.toMantissa(candlestick.getHigh());
+            long lowPrice = FixedPointDecimal.toMantissa(candlestick.getLow());
+            long averagePrice = (highPrice + lowPrice + 1) / 2;
+            return add(candlestick.getOpenTime(), candlestick.getCloseTime(), toPrice(averagePrice));
+        }
+
+        /**
+         * Adds the candlesticks of a series.
+         *
+         * @param series Series.
+         * @param from   Index of the first candlestick to add.
+         * @param to     Index after the last candlestick to add.
+         * @return This builder.
+         */
+        @Nonnull
+        public Builder addAll(@Nonnull CandleSeries series, int from, int to) {
+            for (int i = from; i < to; ++i) {
+                add(series.openTimes[i], series.closeTimes[i], series.averagePrices[i]);
+            }
+            return this;
+        }
+
+        @Nonnull
+        public CandleSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new CandleSeries(
+                    Arrays.copyOf(openTimes, size),
+                    Arrays.copyOf(closeTimes, size),
+                    Arrays.copyOf(averagePrices, size),
+                    size);
+        }
+    }
+}
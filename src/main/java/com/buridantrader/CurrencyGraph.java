@@ -0,0 +1,257 @@
+package com.buridantrader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjacency lists of the currencies, in compressed sparse row format.
+ * Each symbol connects its base and quote currencies in both directions.
+ */
+@ThreadSafe
+@Immutable
+class CurrencyGraph {
+
+    private static final int UNVISITED = -1;
+    private final int size;
+    private final int[] baseIds;
+    private final int[] quoteIds;
+    private final int[] offsets;
+    private final int[] neighborIds;
+    private final int[] symbolIds;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param size        Number of currencies.
+     * @param symbols     Symbols indexed by symbol id.
+     * @param currencyIds Dense ids of the currencies, from 0 to {@code size - 1}.
+     */
+    CurrencyGraph(int size, @Nonnull Symbol[] symbols, @Nonnull Map<Currency, Integer> currencyIds) {
+        this.size = size;
+        this.baseIds = new int[symbols.length];
+        this.quoteIds = new int[symbols.length];
+        this.offsets = new int[size + 1];
+        for (int symbolId = 0; symbolId < symbols.length; ++symbolId) {
+            baseIds[symbolId] = currencyIds.get(symbols[symbolId].getBaseCurrency());
+            quoteIds[symbolId] = currencyIds.get(symbols[symbolId].getQuoteCurrency());
+            ++offsets[baseIds[symbolId] + 1];
+            ++offsets[quoteIds[symbolId] + 1];
+        }
+        for (int currencyId = 0; currencyId < size; ++currencyId) {
+            offsets[currencyId + 1] += offsets[currencyId];
+        }
+        this.neighborIds = new int[symbols.length * 2];
+        this.symbolIds = new int[symbols.length * 2];
+        int[] ends = Arrays.copyOf(offsets, size);
+        for (int symbolId = 0; symbolId < symbols.length; ++symbolId) {
+            addEdge(ends, baseIds[symbolId], quoteIds[symbolId], symbolId);
+            addEdge(ends, quoteIds[symbolId], baseIds[symbolId], symbolId);
+        }
+    }
+
+    private void addEdge(@Nonnull int[] ends, int fromId, int toId, int symbolId) {
+        int index = ends[fromId]++;
+        neighborIds[index] = toId;
+        symbolIds[index] = symbolId;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of symbols of the currency.
+     */
+    int getDegree(int currencyId) {
+        return offsets[currencyId + 1] - offsets[currencyId];
+    }
+
+    /**
+     * Gets the id of the currency on the other side of a symbol of the currency.
+     *
+     * @param currencyId Id of the currency.
+     * @param index      Index of the symbol among the symbols of the currency, less than its degree.
+     */
+    int getNeighborId(int currencyId, int index) {
+        return neighborIds[offsets[currencyId] + index];
+    }
+
+    /**
+     * Gets the id of a symbol of the currency.
+     *
+     * @param currencyId Id of the currency.
+     * @param index      Index of the symbol among the symbols of the currency, less than its degree.
+     */
+    int getSymbolId(int currencyId, int index) {
+        return symbolIds[offsets[currencyId] + index];
+    }
+
+    /**
+     * Searches the shortest paths from the source with a breadth-first search.
+     * The length and the id of the symbol of the first step of the path to each target are written to
+     * {@code lengths[offset + targetId]} and {@code nextSymbolIds[offset + targetId]}. The entries of
+     * unreachable targets are left untouched.
+     * Like the paths resolved by Floyd-Warshall, the path from the source to itself goes to a
+     * neighbor and comes back.
+     *
+     * @param sourceId      Id of the source currency.
+     * @param lengths       Array to write the path lengths to.
+     * @param nextSymbolIds Array to write the symbol ids of the first steps to.
+     * @param offset        Index of the entry of the target with id 0.
+     */
+    void search(int sourceId, @Nonnull int[] lengths, @Nonnull int[] nextSymbolIds, int offset) {
+        int[] queue = new int[size];
+        int[] firstSymbolIds = new int[size];
+        int[] visitedLengths = new int[size];
+        Arrays.fill(visitedLengths, UNVISITED);
+        visitedLengths[sourceId] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = sourceId;
+        while (head < tail) {
+            int currencyId = queue[head++];
+            int length = visitedLengths[currencyId] + 1;
+            for (int index = offsets[currencyId]; index < offsets[currencyId + 1]; ++index) {
+                int neighborId = neighborIds[index];
+                if (visitedLengths[neighborId] != UNVISITED) {
+                    continue;
+                }
+                visitedLengths[neighborId] = length;
+                firstSymbolIds[neighborId] = currencyId == sourceId
+                        ? symbolIds[index] : firstSymbolIds[currencyId];
+                lengths[offset + neighborId] = length;
+                nextSymbolIds[offset + neighborId] = firstSymbolIds[neighborId];
+                queue[tail++] = neighborId;
+            }
+        }
+        if (offsets[sourceId] < offsets[sourceId + 1]) {
+            lengths[offset + sourceId] = 2;
+            nextSymbolIds[offset + sourceId] = symbolIds[offsets[sourceId]];
+        }
+    }
+
+    /**
+     * Searches the loop-free paths from the source to the target with the fewest steps, with Yen's algorithm.
+     * Each path after the first one branches off an earlier path at some currency, and the rest of it is
+     * searched with a breadth-first search that avoids the earlier part of the path and the next steps the
+     * earlier paths take from there.
+     *
+     * @param sourceId    Id of the source currency.
+     * @param targetId    Id of the target currency. It must be different from the source.
+     * @param maxNumPaths Max number of paths to search.
+     * @return Paths as the ids of their symbols, with the fewest steps first.
+     */
+    @Nonnull
+    List<int[]> searchLoopFreePaths(int sourceId, int targetId, int maxNumPaths) {
+        List<int[]> paths = new ArrayList<>();
+        boolean[] blockedCurrencies = new boolean[size];
+        boolean[] blockedSymbols = new boolean[baseIds.length];
+        int[] firstPath = searchPath(sourceId, targetId, blockedCurrencies, blockedSymbols);
+        if (firstPath == null) {
+            return paths;
+        }
+        paths.add(firstPath);
+        List<int[]> candidates = new ArrayList<>();
+        while (paths.size() < maxNumPaths) {
+            int[] lastPath = paths.get(paths.size() - 1);
+            int spurId = sourceId;
+            for (int spurIndex = 0; spurIndex < lastPath.length; ++spurIndex) {
+                for (int[] path : paths) {
+                    if (path.length > spurIndex && Arrays.equals(
+                            Arrays.copyOf(path, spurIndex), Arrays.copyOf(lastPath, spurIndex))) {
+                        blockedSymbols[path[spurIndex]] = true;
+                    }
+                }
+                int[] spurPath = searchPath(spurId, targetId, blockedCurrencies, blockedSymbols);
+                if (spurPath != null) {
+                    int[] candidate = Arrays.copyOf(lastPath, spurIndex + spurPath.length);
+                    System.arraycopy(spurPath, 0, candidate, spurIndex, spurPath.length);
+                    if (!containsPath(paths, candidate) && !containsPath(candidates, candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+                Arrays.fill(blockedSymbols, false);
+                blockedCurrencies[spurId] = true;
+                spurId = getOtherCurrencyId(lastPath[spurIndex], spurId);
+            }
+            Arrays.fill(blockedCurrencies, false);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            int[] shortest = candidates.get(0);
+            for (int[] candidate : candidates) {
+                if (candidate.length < shortest.length) {
+                    shortest = candidate;
+                }
+            }
+            candidates.remove(shortest);
+            paths.add(shortest);
+        }
+        return paths;
+    }
+
+    /**
+     * Searches a path from the source to the target with the fewest steps, without passing the blocked
+     * currencies or trading the blocked symbols.
+     *
+     * @return Ids of the symbols of the path, or null if there's no path.
+     */
+    @Nullable
+    private int[] searchPath(
+            int sourceId,
+            int targetId,
+            @Nonnull boolean[] blockedCurrencies,
+            @Nonnull boolean[] blockedSymbols) {
+        int[] queue = new int[size];
+        int[] previousSymbolIds = new int[size];
+        int[] visitedLengths = new int[size];
+        Arrays.fill(visitedLengths, UNVISITED);
+        visitedLengths[sourceId] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = sourceId;
+        while (head < tail && visitedLengths[targetId] == UNVISITED) {
+            int currencyId = queue[head++];
+            for (int index = offsets[currencyId]; index < offsets[currencyId + 1]; ++index) {
+                int neighborId = neighborIds[index];
+                if (visitedLengths[neighborId] != UNVISITED
+                        || blockedCurrencies[neighborId]
+                        || blockedSymbols[symbolIds[index]]) {
+                    continue;
+                }
+                visitedLengths[neighborId] = visitedLengths[currencyId] + 1;
+                previousSymbolIds[neighborId] = symbolIds[index];
+                queue[tail++] = neighborId;
+            }
+        }
+        if (visitedLengths[targetId] == UNVISITED) {
+            return null;
+        }
+        int[] path = new int[visitedLengths[targetId]];
+        int currencyId = targetId;
+        for (int index = path.length - 1; index >= 0; --index) {
+            path[index] = previousSymbolIds[currencyId];
+            currencyId = getOtherCurrencyId(path[index], currencyId);
+        }
+        return path;
+    }
+
+    private int getOtherCurrencyId(int symbolId, int currencyId) {
+        return baseIds[symbolId] == currencyId ? quoteIds[symbolId] : baseIds[symbolId];
+    }
+
+    private static boolean containsPath(@Nonnull List<int[]> paths, @Nonnull int[] path) {
+        for (int[] otherPath : paths) {
+            if (Arrays.equals(otherPath, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
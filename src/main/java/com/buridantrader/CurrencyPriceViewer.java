@@ -2,131 +2,188 @@ package com.buridantrader;
 
 import com.buridantrader.exceptions.NoSuchPathException;
 import com.buridantrader.exceptions.ValueLimitException;
-import com.buridantrader.services.binance.CandlestickIterator;
 import com.buridantrader.services.symbol.SymbolPriceViewer;
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class CurrencyPriceViewer {
 
-    // TODO Make it configurable
-    private final int ADDITIONAL_SCALE = 6;
+    public static final int DEFAULT_MAX_CONCURRENT_FETCHES = 4;
+    public static final PriceGapHandling DEFAULT_GAP_HANDLING = PriceGapHandling.FORWARD_FILL;
+
     private final SymbolPriceViewer symbolPriceViewer;
     private final TradingPathFinder tradingPathFinder;
+    private final Executor fetchExecutor;
+    private final PriceGapHandling gapHandling;
 
     public CurrencyPriceViewer(
             @Nonnull SymbolPriceViewer symbolPriceViewer,
             @Nonnull TradingPathFinder tradingPathFinder) {
+        this(symbolPriceViewer, tradingPathFinder, MoreExecutors.directExecutor());
+    }
+
+    public CurrencyPriceViewer(
+            @Nonnull SymbolPriceViewer symbolPriceViewer,
+            @Nonnull TradingPathFinder tradingPathFinder,
+            @Nonnull Executor fetchExecutor) {
+        this(symbolPriceViewer, tradingPathFinder, fetchExecutor, DEFAULT_GAP_HANDLING);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param symbolPriceViewer Viewer of the price history of the symbols.
+     * @param tradingPathFinder Trading path finder.
+     * @param fetchExecutor     Bounded executor to fetch the price history of the steps of a path with
+     *                          concurrently. It should only run the fetches, which never wait for each other.
+     * @param gapHandling       How a minute is priced when some steps have no candlestick opened at that minute.
+     */
+    public CurrencyPriceViewer(
+            @Nonnull SymbolPriceViewer symbolPriceViewer,
+            @Nonnull TradingPathFinder tradingPathFinder,
+            @Nonnull Executor fetchExecutor,
+            @Nonnull PriceGapHandling gapHandling) {
         this.symbolPriceViewer = symbolPriceViewer;
         this.tradingPathFinder = tradingPathFinder;
+        this.fetchExecutor = fetchExecutor;
+        this.gapHandling = gapHandling;
     }
 
     @Nonnull
-    public List<Candlestick> getPriceHistoryPerMinute(
+    public CandleSeries getPriceHistoryPerMinute(
+            @Nonnull MarketSnapshot market,
             @Nonnull Currency baseCurrency,
             @Nonnull Currency quoteCurrency,
             @Nonnull Instant startTime,
             @Nonnull Instant endTime) throws IOException, ValueLimitException, NoSuchPathException {
 
         List<OrderSpec> orderSpecs =
-                tradingPathFinder.findPathOfOrderSpecs(baseCurrency, quoteCurrency);
-
-        List<Candlestick> finalCandlesticks = null;
-
-        List<List<Candlestick>> candlesticksForOrders =
-                collectCandlesticks(orderSpecs, startTime, endTime);
-
-        for (List<Candlestick> candlesticks: candlesticksForOrders) {
-            if (finalCandlesticks == null) {
-                finalCandlesticks = candlesticks;
-            } else {
-                finalCandlesticks = calRelativeCandlesticks(finalCandlesticks, candlesticks);
-            }
-        }
+                tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency);
 
-        if (finalCandlesticks == null) {
+        if (orderSpecs.isEmpty()) {
             throw new IOException("Expecting at least one order spec, but see 0");
         }
 
-        return finalCandlesticks;
+        return joinCandlesticks(orderSpecs, collectCandlesticks(orderSpecs, startTime, endTime));
     }
 
     @Nonnull
-    private List<List<Candlestick>> collectCandlesticks(
+    private List<CandleSeries> collectCandlesticks(
             @Nonnull List<OrderSpec> orderSpecs,
             @Nonnull Instant startTime,
             @Nonnull Instant endTime) {
-        List<List<Candlestick>> candlesticksForOrders = new ArrayList<>();
-        int minSize = Integer.MAX_VALUE;
+        // The steps are fetched at once, so a path costs the slowest fetch instead of the sum of them
+        List<CompletableFuture<CandleSeries>> futures = new ArrayList<>(orderSpecs.size());
         for (OrderSpec orderSpec : orderSpecs) {
-            Symbol symbol = orderSpec.getSymbol();
-            Iterator<Candlestick> candlesticksItr = symbolPriceViewer.getPriceHistoryPerMinute(symbol, startTime, endTime);
-            List<Candlestick> convertedCandlesticks = convertCandlesticksForOrder(candlesticksItr, orderSpec);
-            candlesticksForOrders.add(convertedCandlesticks);
-            minSize = Math.min(convertedCandlesticks.size(), minSize);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                Symbol symbol = orderSpec.getSymbol();
+                return symbolPriceViewer.getPriceHistoryPerMinute(symbol, startTime, endTime);
+            }, fetchExecutor));
         }
 
-        // For unknown reason, Binance API sometimes return different number of candlesticks with the same
-        // set of query parameters
-        // Therefore, we drop the trailing candlesticks if the number mismatch
-        List<List<Candlestick>> result = new ArrayList<>(candlesticksForOrders.size());
-        for (List<Candlestick> candlesticks : candlesticksForOrders) {
-            if (candlesticks.size() == minSize) {
-                result.add(candlesticks);
-            } else {
-                result.add(candlesticks.subList(0, minSize));
-            }
+        List<CandleSeries> candlesticksForOrders = new ArrayList<>(futures.size());
+        for (CompletableFuture<CandleSeries> future : futures) {
+            candlesticksForOrders.add(join(future));
         }
-
-        return result;
+        return candlesticksForOrders;
     }
 
     @Nonnull
-    private List<Candlestick> calRelativeCandlesticks(
-            @Nonnull List<Candlestick> oriCandlesticks,
-            @Nonnull List<Candlestick> newCandlesticks) {
-        List<Candlestick> result = new ArrayList<>(newCandlesticks.size());
-        Iterator<Candlestick> oriItr = oriCandlesticks.iterator();
-        Iterator<Candlestick> newItr = newCandlesticks.iterator();
-        oriItr.forEachRemaining((c) -> result.add(new Candlestick(
-                c.getOpenTime(),
-                c.getCloseTime(),
-                c.getAveragePrice().multiply(newItr.next().getAveragePrice())
-        )));
-        return result;
+    private static <T> T join(@Nonnull CompletableFuture<T> future) throws RuntimeException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
     }
 
+    /**
+     * Joins the candlesticks of the steps on the open time, and multiplies the prices of the steps of each minute.
+     * Binance sometimes returns different numbers of candlesticks for the steps, so they're merged in one pass
+     * over the open times instead of being paired by their positions.
+     *
+     * @param orderSpecs            Order specs of the steps.
+     * @param candlesticksForOrders Candlesticks of the symbols of the steps, in the order of the open time.
+     * @return The candlesticks with the prices of the whole path.
+     * @throws ValueLimitException The price of a step to buy is 0.
+     */
     @Nonnull
-    private List<Candlestick> convertCandlesticksForOrder(
-            @Nonnull Iterator<Candlestick> candlestickItr,
-            @Nonnull OrderSpec orderSpec) throws ValueLimitException {
-        List<Candlestick> candlesticks = Lists.newArrayList(candlestickItr);
-        if (OrderSide.SELL.equals(orderSpec.getOrderSide())) {
-            return candlesticks;
+    private CandleSeries joinCandlesticks(
+            @Nonnull List<OrderSpec> orderSpecs,
+            @Nonnull List<CandleSeries> candlesticksForOrders) throws ValueLimitException {
+        int numSteps = orderSpecs.size();
+        CandleSeries[] steps = candlesticksForOrders.toArray(new CandleSeries[numSteps]);
+        boolean[] inverted = new boolean[numSteps];
+        for (int step = 0; step < numSteps; ++step) {
+            inverted[step] = OrderSide.BUY.equals(orderSpecs.get(step).getOrderSide());
         }
-        try {
-            return candlesticks.stream()
-                    .map((c) -> {
-                        int scale = c.getAveragePrice().toBigInteger().toString().length() + ADDITIONAL_SCALE;
-                        return new Candlestick(
-                                c.getOpenTime(),
-                                c.getCloseTime(),
-                                BigDecimal.ONE.divide(c.getAveragePrice(), scale, RoundingMode.HALF_UP));
-                    })
-                    .collect(Collectors.toList());
-        } catch (ArithmeticException ex) {
-            throw new ValueLimitException("Price cannot be 0", ex);
+        // Index of the next candlestick, and the last price of each step
+        int[] indexes = new int[numSteps];
+        double[] prices = new double[numSteps];
+        int numPricedSteps = 0;
+
+        CandleSeries.Builder result = CandleSeries.builder();
+        while (true) {
+            long openTimeMs = Long.MAX_VALUE;
+            boolean exhausted = false;
+            for (int step = 0; step < numSteps; ++step) {
+                if (indexes[step] < steps[step].size()) {
+                    openTimeMs = Math.min(steps[step].getOpenTimeMs(indexes[step]), openTimeMs);
+                } else {
+                    exhausted = true;
+                }
+            }
+            if (openTimeMs == Long.MAX_VALUE || (exhausted && gapHandling == PriceGapHandling.SKIP)) {
+                break;
+            }
+
+            long closeTimeMs = Long.MIN_VALUE;
+            boolean aligned = true;
+            for (int step = 0; step < numSteps; ++step) {
+                CandleSeries candlesticks = steps[step];
+                int index = indexes[step];
+                if (index >= candlesticks.size() || candlesticks.getOpenTimeMs(index) != openTimeMs) {
+                    aligned = false;
+                    continue;
+                }
+                if (index == 0) {
+                    ++numPricedSteps;
+                }
+                prices[step] = getPriceForOrder(candlesticks.getAveragePrice(index), inverted[step]);
+                closeTimeMs = Math.max(candlesticks.getCloseTimeMs(index), closeTimeMs);
+                indexes[step] = index + 1;
+            }
+
+            if (aligned || (gapHandling == PriceGapHandling.FORWARD_FILL && numPricedSteps == numSteps)) {
+                double price = prices[0];
+                for (int step = 1; step < numSteps; ++step) {
+                    price *= prices[step];
+                }
+                result.add(openTimeMs, closeTimeMs, price);
+            }
+        }
+        return result.build();
+    }
+
+    private static double getPriceForOrder(double averagePrice, boolean inverted) throws ValueLimitException {
+        if (!inverted) {
+            return averagePrice;
+        }
+        if (averagePrice == 0) {
+            throw new ValueLimitException("Price cannot be 0");
         }
+        return 1 / averagePrice;
     }
 
 }
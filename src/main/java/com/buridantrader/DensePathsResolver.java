@@ -0,0 +1,127 @@
+package com.buridantrader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the paths with the fewest steps between all pairs of currencies up front.
+ * The earlier paths are repaired incrementally when only a few symbols are changed, and the paths can be
+ * persisted, so that they can be used right after a restart.
+ */
+@ThreadSafe
+@Immutable
+public class DensePathsResolver implements PathsResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DensePathsResolver.class);
+
+    // If more than this fraction of the symbols are changed, all the paths are resolved again
+    // instead of being repaired incrementally
+    private static final double MAX_INCREMENTAL_CHANGE_RATIO = 0.1;
+    private final ShortestPathsResolver shortestPathsResolver;
+    private final IncrementalPathsResolver incrementalPathsResolver;
+
+    // Null if the paths shouldn't be persisted
+    private final TradingPathsStore pathsStore;
+
+    public DensePathsResolver(
+            @Nonnull ShortestPathsResolver shortestPathsResolver,
+            @Nonnull IncrementalPathsResolver incrementalPathsResolver) {
+        this(shortestPathsResolver, incrementalPathsResolver, null);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param shortestPathsResolver    Resolver of the paths between all pairs of currencies.
+     * @param incrementalPathsResolver Resolver to repair the paths after a few symbols are changed.
+     * @param pathsStore               Store of the paths, or null if the paths shouldn't be persisted. The
+     *                                 paths are saved again whenever they're changed.
+     */
+    public DensePathsResolver(
+            @Nonnull ShortestPathsResolver shortestPathsResolver,
+            @Nonnull IncrementalPathsResolver incrementalPathsResolver,
+            @Nullable TradingPathsStore pathsStore) {
+        this.shortestPathsResolver = shortestPathsResolver;
+        this.incrementalPathsResolver = incrementalPathsResolver;
+        this.pathsStore = pathsStore;
+    }
+
+    @Override
+    @Nonnull
+    public DenseTradingPaths resolvePaths(@Nonnull List<Symbol> symbols, @Nullable TradingPaths oldPaths) {
+        DenseTradingPaths tradingPaths = oldPaths instanceof DenseTradingPaths
+                ? resolveChanges((DenseTradingPaths) oldPaths, symbols)
+                : shortestPathsResolver.resolveAllShortestPaths(symbols);
+        if (pathsStore != null && tradingPaths != oldPaths) {
+            try {
+                pathsStore.save(tradingPaths);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.warn("Fail to save the trading paths", ex);
+            }
+        }
+        return tradingPaths;
+    }
+
+    @Override
+    @Nonnull
+    public Optional<TradingPaths> loadSavedPaths(@Nonnull Collection<Symbol> symbols) {
+        if (pathsStore == null) {
+            return Optional.empty();
+        }
+        Optional<DenseTradingPaths> optTradingPaths;
+        try {
+            optTradingPaths = pathsStore.load(TradingPathsStore.hashSymbols(symbols));
+        } catch (IOException | RuntimeException ex) {
+            // The paths are resolved again, instead of failing every lookup because of a bad file
+            LOGGER.warn("Fail to load the saved trading paths", ex);
+            return Optional.empty();
+        }
+        optTradingPaths.ifPresent((tradingPaths) -> LOGGER.info(
+                "Saved trading paths of {} symbols are loaded", tradingPaths.getSymbols().length));
+        return optTradingPaths.map((tradingPaths) -> tradingPaths);
+    }
+
+    /**
+     * Repairs the old paths after the changes of the symbols, unless many symbols are changed or any currency
+     * is gone. The incremental repair keeps the ids of the gone currencies, so the paths would otherwise only
+     * grow.
+     */
+    @Nonnull
+    private DenseTradingPaths resolveChanges(
+            @Nonnull DenseTradingPaths oldPaths,
+            @Nonnull List<Symbol> newSymbols) {
+        Set<Symbol> symbols = new HashSet<>(Arrays.asList(oldPaths.getSymbols()));
+        Set<Symbol> newSymbolSet = new HashSet<>(newSymbols);
+        List<Symbol> addedSymbols = newSymbols.stream()
+                .filter((symbol) -> !symbols.contains(symbol))
+                .collect(Collectors.toList());
+        List<Symbol> removedSymbols = symbols.stream()
+                .filter((symbol) -> !newSymbolSet.contains(symbol))
+                .collect(Collectors.toList());
+        int numChanges = addedSymbols.size() + removedSymbols.size();
+        if (numChanges > symbols.size() * MAX_INCREMENTAL_CHANGE_RATIO) {
+            LOGGER.debug("{} symbols are changed. Resolving all the paths again", numChanges);
+            return shortestPathsResolver.resolveAllShortestPaths(newSymbols);
+        }
+        if (!removedSymbols.isEmpty()) {
+            Set<Currency> currencies = new HashSet<>();
+            for (Symbol symbol : newSymbols) {
+                currencies.add(symbol.getBaseCurrency());
+                currencies.add(symbol.getQuoteCurrency());
+            }
+            if (!currencies.containsAll(oldPaths.getCurrencyIds().keySet())) {
+                LOGGER.debug("Some currencies are gone. Resolving all the paths again");
+                return shortestPathsResolver.resolveAllShortestPaths(newSymbols);
+            }
+        }
+        return incrementalPathsResolver.resolveChanges(oldPaths, addedSymbols, removedSymbols);
+    }
+}
@@ -0,0 +1,150 @@
+package com.buridantrader;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Shortest trading paths between all pairs of currencies.
+ * The paths are kept in dense matrices indexed by currency ids, where each entry holds the length of the
+ * path and the id of the symbol to trade for the first step.
+ */
+@ThreadSafe
+@Immutable
+public class DenseTradingPaths implements TradingPaths {
+
+    /**
+     * Value of an entry in the next symbol matrix if there's no path between the currencies.
+     */
+    static final int NO_PATH = -1;
+
+    private final Map<Currency, Integer> currencyIds;
+    private final Symbol[] symbols;
+    private final int[] lengths;
+    private final int[] nextSymbolIds;
+
+    // Shared first steps, indexed by symbolId * stepStride + length
+    private final Optional<PathStep>[] steps;
+    private final int stepStride;
+
+    /**
+     * Constructs a new instance.
+     * The ownership of the arrays is transferred to the constructed instance, and the caller must not
+     * modify them afterwards.
+     *
+     * @param currencyIds   Dense ids of the currencies, from 0 to the number of currencies - 1.
+     * @param symbols       Symbols indexed by symbol id.
+     * @param lengths       Path lengths, indexed by {@code sourceId * numCurrencies + targetId}.
+     * @param nextSymbolIds Ids of the symbols of the first steps, or {@link #NO_PATH}, indexed in the
+     *                      same way as {@code lengths}.
+     */
+    DenseTradingPaths(
+            @Nonnull Map<Currency, Integer> currencyIds,
+            @Nonnull Symbol[] symbols,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds) {
+        this.currencyIds = ImmutableMap.copyOf(currencyIds);
+        this.symbols = symbols;
+        this.lengths = lengths;
+        this.nextSymbolIds = nextSymbolIds;
+
+        int maxLength = 0;
+        for (int index = 0; index < nextSymbolIds.length; ++index) {
+            if (nextSymbolIds[index] != NO_PATH) {
+                maxLength = Math.max(maxLength, lengths[index]);
+            }
+        }
+        this.stepStride = maxLength + 1;
+        this.steps = createSteps(symbols, lengths, nextSymbolIds, stepStride);
+    }
+
+    /**
+     * Creates a step for each pair of symbol and length appearing in the paths, so that the paths with the
+     * same first step share the same instance.
+     */
+    @Nonnull
+    private static Optional<PathStep>[] createSteps(
+            @Nonnull Symbol[] symbols,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds,
+            int stepStride) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Optional<PathStep>[] steps = new Optional[symbols.length * stepStride];
+        for (int index = 0; index < nextSymbolIds.length; ++index) {
+            int nextSymbolId = nextSymbolIds[index];
+            if (nextSymbolId == NO_PATH) {
+                continue;
+            }
+            int stepIndex = nextSymbolId * stepStride + lengths[index];
+            if (steps[stepIndex] == null) {
+                steps[stepIndex] = Optional.of(new PathStep(symbols[nextSymbolId], lengths[index]));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Gets the dense ids of the currencies.
+     *
+     * @return Map from currency to id.
+     */
+    @Nonnull
+    Map<Currency, Integer> getCurrencyIds() {
+        return currencyIds;
+    }
+
+    /**
+     * Gets the symbols indexed by symbol id.
+     * The returned array is shared, and must not be modified.
+     *
+     * @return Symbols.
+     */
+    @Nonnull
+    Symbol[] getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the path lengths, indexed by {@code sourceId * numCurrencies + targetId}.
+     * The returned array is shared, and must not be modified.
+     *
+     * @return Path lengths.
+     */
+    @Nonnull
+    int[] getLengths() {
+        return lengths;
+    }
+
+    /**
+     * Gets the ids of the symbols of the first steps, indexed in the same way as {@link #getLengths()}.
+     * The returned array is shared, and must not be modified.
+     *
+     * @return Symbol ids, or {@link #NO_PATH} if there's no path.
+     */
+    @Nonnull
+    int[] getNextSymbolIds() {
+        return nextSymbolIds;
+    }
+
+    @Override
+    @Nonnull
+    public Optional<PathStep> getNextStep(
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) {
+        Integer sourceId = currencyIds.get(sourceCurrency);
+        Integer targetId = currencyIds.get(targetCurrency);
+        if (sourceId == null || targetId == null) {
+            return Optional.empty();
+        }
+        int index = sourceId * currencyIds.size() + targetId;
+        int nextSymbolId = nextSymbolIds[index];
+        if (nextSymbolId == NO_PATH) {
+            return Optional.empty();
+        }
+        return steps[nextSymbolId * stepStride + lengths[index]];
+    }
+}
@@ -0,0 +1,103 @@
+package com.buridantrader;
+
+import javax.annotation.Nonnull;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between decimals and the mantissas of fixed-point decimals with {@link #SCALE} digits after the
+ * point, which is the precision of the prices of Binance. The prices are stored as mantissas in flat arrays,
+ * so that they don't create any object per price.
+ */
+public final class FixedPointDecimal {
+
+    public static final int SCALE = 8;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L
+    };
+
+    private FixedPointDecimal() {
+    }
+
+    /**
+     * Converts the decimal to a mantissa, without creating any object unless the decimal is in scientific
+     * notation.
+     *
+     * @param value Decimal string, for example a price of a ticker.
+     * @return The mantissa. The digits after {@link #SCALE} digits after the point are rounded half up.
+     * @throws NumberFormatException The string isn't a decimal.
+     * @throws ArithmeticException   The decimal is too large.
+     */
+    public static long toMantissa(@Nonnull String value) {
+        int length = value.length();
+        int index = 0;
+        boolean negative = false;
+        if (index < length && (value.charAt(index) == '-' || value.charAt(index) == '+')) {
+            negative = value.charAt(index) == '-';
+            ++index;
+        }
+        long mantissa = 0;
+        int scale = -1;
+        int numDigits = 0;
+        boolean roundUp = false;
+        for (; index < length; ++index) {
+            char ch = value.charAt(index);
+            if (ch == '.' && scale < 0) {
+                scale = 0;
+            } else if (ch >= '0' && ch <= '9') {
+                ++numDigits;
+                if (scale < SCALE) {
+                    mantissa = Math.addExact(Math.multiplyExact(mantissa, 10), ch - '0');
+                    if (scale >= 0) {
+                        ++scale;
+                    }
+                } else if (scale == SCALE) {
+                    // The first digit past the scale decides the rounding, and the rest are dropped
+                    roundUp = ch >= '5';
+                    ++scale;
+                }
+            } else if (ch == 'e' || ch == 'E') {
+                return toMantissa(new BigDecimal(value));
+            } else {
+                throw new NumberFormatException("Not a decimal: " + value);
+            }
+        }
+        if (numDigits == 0) {
+            throw new NumberFormatException("Not a decimal: " + value);
+        }
+        int digitsAfterPoint = Math.min(Math.max(scale, 0), SCALE);
+        mantissa = Math.multiplyExact(mantissa, POWERS_OF_TEN[SCALE - digitsAfterPoint]);
+        if (roundUp) {
+            mantissa = Math.addExact(mantissa, 1);
+        }
+        return negative ? -mantissa : mantissa;
+    }
+
+    /**
+     * Converts the decimal to a mantissa.
+     *
+     * @param value Decimal.
+     * @return The mantissa. The digits after {@link #SCALE} digits after the point are rounded half up.
+     * @throws ArithmeticException The decimal is too large.
+     */
+    public static long toMantissa(@Nonnull BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts the mantissa to a decimal without the trailing zeros after the point.
+     *
+     * @param mantissa Mantissa.
+     * @return The decimal.
+     */
+    @Nonnull
+    public static BigDecimal toBigDecimal(long mantissa) {
+        int scale = SCALE;
+        while (scale > 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            --scale;
+        }
+        return BigDecimal.valueOf(mantissa, scale);
+    }
+}
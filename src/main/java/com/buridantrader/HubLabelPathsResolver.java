@@ -0,0 +1,192 @@
+package com.buridantrader;
+
+import com.buridantrader.services.system.SystemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.buridantrader.HubLabelTradingPaths.ENTRY_SIZE;
+import static com.buridantrader.HubLabelTradingPaths.HUB_SYMBOL_ID;
+import static com.buridantrader.HubLabelTradingPaths.LENGTH;
+import static com.buridantrader.HubLabelTradingPaths.RANK;
+import static com.buridantrader.HubLabelTradingPaths.SYMBOL_ID;
+
+/**
+ * Resolves trading paths answered from hub labels, which take memory about linear in the number of
+ * currencies when most of the paths pass through a few hub currencies, instead of resolving the paths
+ * between all pairs of currencies.
+ * The labels are built with pruned breadth-first searches from the currencies in the order of their numbers
+ * of symbols. A search doesn't go past a currency whose path to the hub is already covered by the labels of
+ * the earlier hubs, so the searches from all but the first few hubs end early.
+ */
+@ThreadSafe
+@Immutable
+public class HubLabelPathsResolver implements PathsResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HubLabelPathsResolver.class);
+    private static final int UNVISITED = -1;
+    private static final int NO_LENGTH = Integer.MAX_VALUE / 2;
+    private static final int INITIAL_LABEL_CAPACITY = 4 * ENTRY_SIZE;
+
+    private final SystemService system;
+
+    public HubLabelPathsResolver() {
+        this(new SystemService());
+    }
+
+    public HubLabelPathsResolver(@Nonnull SystemService system) {
+        this.system = system;
+    }
+
+    @Override
+    @Nonnull
+    public HubLabelTradingPaths resolvePaths(@Nonnull List<Symbol> symbols, @Nullable TradingPaths oldPaths) {
+        return resolvePaths(symbols);
+    }
+
+    /**
+     * Resolves the trading paths of the given symbols.
+     *
+     * @param symbols Symbols.
+     * @return Trading paths.
+     */
+    @Nonnull
+    public HubLabelTradingPaths resolvePaths(@Nonnull Collection<Symbol> symbols) {
+        long startTimeMs = system.currentTimeMillis();
+        Map<Currency, Integer> currencyIds = new HashMap<>();
+        symbols.forEach((symbol) -> {
+            currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> currencyIds.size());
+            currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> currencyIds.size());
+        });
+        Symbol[] symbolTable = symbols.toArray(new Symbol[0]);
+        int size = currencyIds.size();
+        CurrencyGraph graph = new CurrencyGraph(size, symbolTable, currencyIds);
+
+        // The currencies with the most symbols are the hubs of the most paths
+        int[] hubIds = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer currencyId) -> -graph.getDegree(currencyId))
+                        .thenComparingInt((currencyId) -> currencyId))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int[][] labels = new int[size][];
+        int[] labelSizes = new int[size];
+        int[] hubLengths = new int[size];
+        Arrays.fill(hubLengths, NO_LENGTH);
+        int[] visitedLengths = new int[size];
+        Arrays.fill(visitedLengths, UNVISITED);
+        int[] symbolIdsToHub = new int[size];
+        int[] symbolIdsFromHub = new int[size];
+        int[] queue = new int[size];
+        for (int rank = 0; rank < size; ++rank) {
+            int hubId = hubIds[rank];
+            for (int index = 0; index < labelSizes[hubId]; index += ENTRY_SIZE) {
+                hubLengths[labels[hubId][index + RANK]] = labels[hubId][index + LENGTH];
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = hubId;
+            visitedLengths[hubId] = 0;
+            symbolIdsToHub[hubId] = DenseTradingPaths.NO_PATH;
+            symbolIdsFromHub[hubId] = DenseTradingPaths.NO_PATH;
+            while (head < tail) {
+                int currencyId = queue[head++];
+                int length = visitedLengths[currencyId];
+                if (getCoveredLength(labels[currencyId], labelSizes[currencyId], hubLengths) <= length) {
+                    continue;
+                }
+                addLabel(labels, labelSizes, currencyId, rank, length,
+                        symbolIdsToHub[currencyId], symbolIdsFromHub[currencyId]);
+                for (int index = 0; index < graph.getDegree(currencyId); ++index) {
+                    int neighborId = graph.getNeighborId(currencyId, index);
+                    if (visitedLengths[neighborId] != UNVISITED) {
+                        continue;
+                    }
+                    int symbolId = graph.getSymbolId(currencyId, index);
+                    visitedLengths[neighborId] = length + 1;
+                    symbolIdsToHub[neighborId] = symbolId;
+                    symbolIdsFromHub[neighborId] = currencyId == hubId ? symbolId : symbolIdsFromHub[currencyId];
+                    queue[tail++] = neighborId;
+                }
+            }
+            for (int index = 0; index < tail; ++index) {
+                visitedLengths[queue[index]] = UNVISITED;
+            }
+            for (int index = 0; index < labelSizes[hubId]; index += ENTRY_SIZE) {
+                hubLengths[labels[hubId][index + RANK]] = NO_LENGTH;
+            }
+        }
+
+        int[] labelOffsets = new int[size + 1];
+        for (int currencyId = 0; currencyId < size; ++currencyId) {
+            labelOffsets[currencyId + 1] = labelOffsets[currencyId] + labelSizes[currencyId];
+        }
+        int[] packedLabels = new int[labelOffsets[size]];
+        for (int currencyId = 0; currencyId < size; ++currencyId) {
+            if (labelSizes[currencyId] > 0) {
+                System.arraycopy(labels[currencyId], 0, packedLabels, labelOffsets[currencyId],
+                        labelSizes[currencyId]);
+            }
+        }
+        int[] cycleSymbolIds = new int[size];
+        for (int currencyId = 0; currencyId < size; ++currencyId) {
+            cycleSymbolIds[currencyId] = graph.getDegree(currencyId) > 0
+                    ? graph.getSymbolId(currencyId, 0) : DenseTradingPaths.NO_PATH;
+        }
+        long endTimeMs = system.currentTimeMillis();
+        LOGGER.debug("Hub labels of {} currencies and {} symbols resolved. Label entries: {}. Elapsed time: {} ms",
+                size, symbolTable.length, packedLabels.length / ENTRY_SIZE, endTimeMs - startTimeMs);
+        return new HubLabelTradingPaths(currencyIds, symbolTable, labelOffsets, packedLabels, cycleSymbolIds);
+    }
+
+    /**
+     * Gets the length of the shortest path between the currency and the hub through the earlier hubs.
+     *
+     * @param label      Label of the currency.
+     * @param labelSize  Number of ints of the label.
+     * @param hubLengths Lengths of the paths between the hub and the earlier hubs, indexed by their ranks.
+     * @return The length, or {@link #NO_LENGTH} if there's no such path.
+     */
+    private static int getCoveredLength(@Nullable int[] label, int labelSize, @Nonnull int[] hubLengths) {
+        int coveredLength = NO_LENGTH;
+        for (int index = 0; index < labelSize; index += ENTRY_SIZE) {
+            coveredLength = Math.min(coveredLength, hubLengths[label[index + RANK]] + label[index + LENGTH]);
+        }
+        return coveredLength;
+    }
+
+    private static void addLabel(
+            @Nonnull int[][] labels,
+            @Nonnull int[] labelSizes,
+            int currencyId,
+            int rank,
+            int length,
+            int symbolIdToHub,
+            int symbolIdFromHub) {
+        int[] label = labels[currencyId];
+        int labelSize = labelSizes[currencyId];
+        if (label == null) {
+            label = new int[INITIAL_LABEL_CAPACITY];
+        } else if (labelSize == label.length) {
+            label = Arrays.copyOf(label, labelSize * 2);
+        }
+        label[labelSize + RANK] = rank;
+        label[labelSize + LENGTH] = length;
+        label[labelSize + SYMBOL_ID] = symbolIdToHub;
+        label[labelSize + HUB_SYMBOL_ID] = symbolIdFromHub;
+        labels[currencyId] = label;
+        labelSizes[currencyId] = labelSize + ENTRY_SIZE;
+    }
+}
@@ -0,0 +1,147 @@
+package com.buridantrader;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Shortest trading paths answered from hub labels, instead of a table of the paths between all pairs of
+ * currencies.
+ * Each currency is labeled with the lengths of the shortest paths to a few hub currencies, so that a shortest
+ * path between any two currencies passes through a hub in both of their labels. The first step of a path is
+ * found by intersecting the two labels, which are sorted by the rank of the hubs. Among the paths with the
+ * same length, the one through the highest ranked hub is chosen.
+ */
+@ThreadSafe
+@Immutable
+public class HubLabelTradingPaths implements TradingPaths {
+
+    // Number of ints of a label entry: rank of the hub, length of the path between the currency and the hub,
+    // id of the symbol of the first step from the currency to the hub, and id of the symbol of the first
+    // step from the hub to the currency. The symbol ids are NO_PATH if the currency is the hub itself.
+    static final int ENTRY_SIZE = 4;
+    static final int RANK = 0;
+    static final int LENGTH = 1;
+    static final int SYMBOL_ID = 2;
+    static final int HUB_SYMBOL_ID = 3;
+
+    private final Map<Currency, Integer> currencyIds;
+    private final Symbol[] symbols;
+    private final int[] labelOffsets;
+    private final int[] labels;
+
+    // Ids of the symbols to leave each currency and come back with, or NO_PATH if it hasn't any symbol
+    private final int[] cycleSymbolIds;
+
+    // Shared first steps, indexed by symbolId * stepStride + length
+    private final Optional<PathStep>[] steps;
+    private final int stepStride;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param currencyIds    Dense ids of the currencies, from 0 to the number of currencies - 1.
+     * @param symbols        Symbols indexed by symbol id. The caller must not modify it afterwards.
+     * @param labelOffsets   Index of the first label entry of each currency in {@code labels}, indexed by the
+     *                       currency id, followed by the end of the entries of the last currency.
+     * @param labels         Label entries of {@link #ENTRY_SIZE} ints, sorted by the rank of the hub within
+     *                       each currency. The caller must not modify it afterwards.
+     * @param cycleSymbolIds Ids of the symbols of the paths from each currency to itself.
+     */
+    HubLabelTradingPaths(
+            @Nonnull Map<Currency, Integer> currencyIds,
+            @Nonnull Symbol[] symbols,
+            @Nonnull int[] labelOffsets,
+            @Nonnull int[] labels,
+            @Nonnull int[] cycleSymbolIds) {
+        this.currencyIds = ImmutableMap.copyOf(currencyIds);
+        this.symbols = symbols;
+        this.labelOffsets = labelOffsets;
+        this.labels = labels;
+        this.cycleSymbolIds = cycleSymbolIds;
+
+        // A path joins two label entries, and a path from a currency to itself has two steps
+        int maxLabelLength = 0;
+        for (int index = 0; index < labels.length; index += ENTRY_SIZE) {
+            maxLabelLength = Math.max(maxLabelLength, labels[index + LENGTH]);
+        }
+        this.stepStride = Math.max(2 * maxLabelLength, 2) + 1;
+        this.steps = createSteps(symbols, stepStride);
+    }
+
+    /**
+     * Creates a step for each pair of symbol and length a path can have, so that the lookups don't allocate.
+     * Unlike the dense paths, the lengths of the paths aren't known up front, so the steps of all the lengths
+     * up to the longest possible path are created.
+     */
+    @Nonnull
+    private static Optional<PathStep>[] createSteps(@Nonnull Symbol[] symbols, int stepStride) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Optional<PathStep>[] steps = new Optional[symbols.length * stepStride];
+        for (int symbolId = 0; symbolId < symbols.length; ++symbolId) {
+            for (int length = 1; length < stepStride; ++length) {
+                steps[symbolId * stepStride + length] = Optional.of(new PathStep(symbols[symbolId], length));
+            }
+        }
+        return steps;
+    }
+
+    @Override
+    @Nonnull
+    public Optional<PathStep> getNextStep(
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) {
+        Integer sourceId = currencyIds.get(sourceCurrency);
+        Integer targetId = currencyIds.get(targetCurrency);
+        if (sourceId == null || targetId == null) {
+            return Optional.empty();
+        }
+        if (sourceId.equals(targetId)) {
+            // Like the other paths, the path from a currency to itself goes to a neighbor and comes back
+            int symbolId = cycleSymbolIds[sourceId];
+            return symbolId == DenseTradingPaths.NO_PATH ? Optional.empty() : steps[symbolId * stepStride + 2];
+        }
+
+        int bestLength = Integer.MAX_VALUE;
+        int bestSymbolId = DenseTradingPaths.NO_PATH;
+        int sourceIndex = labelOffsets[sourceId];
+        int sourceEnd = labelOffsets[sourceId + 1];
+        int targetIndex = labelOffsets[targetId];
+        int targetEnd = labelOffsets[targetId + 1];
+        while (sourceIndex < sourceEnd && targetIndex < targetEnd) {
+            int sourceRank = labels[sourceIndex + RANK];
+            int targetRank = labels[targetIndex + RANK];
+            if (sourceRank < targetRank) {
+                sourceIndex += ENTRY_SIZE;
+            } else if (sourceRank > targetRank) {
+                targetIndex += ENTRY_SIZE;
+            } else {
+                int sourceLength = labels[sourceIndex + LENGTH];
+                int length = sourceLength + labels[targetIndex + LENGTH];
+                if (length < bestLength) {
+                    bestLength = length;
+                    // If the source is the hub, the path starts with the first step from the hub to the target
+                    bestSymbolId = sourceLength == 0
+                            ? labels[targetIndex + HUB_SYMBOL_ID] : labels[sourceIndex + SYMBOL_ID];
+                }
+                sourceIndex += ENTRY_SIZE;
+                targetIndex += ENTRY_SIZE;
+            }
+        }
+        if (bestSymbolId == DenseTradingPaths.NO_PATH) {
+            return Optional.empty();
+        }
+        return steps[bestSymbolId * stepStride + bestLength];
+    }
+
+    /**
+     * Gets the total number of label entries of all the currencies.
+     */
+    int getNumLabels() {
+        return labels.length / ENTRY_SIZE;
+    }
+}
@@ -0,0 +1,198 @@
+package com.buridantrader;
+
+import com.buridantrader.services.system.SystemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+
+/**
+ * Repairs resolved trading paths after some symbols are added or removed, without resolving all the
+ * paths again.
+ * Because every step of a path has the same length, a source currency only needs its row of paths
+ * recomputed if a removed symbol is on one of its shortest paths, or an added symbol makes some of its
+ * paths shorter. Each of those rows is recomputed with a breadth-first search, and the other rows are
+ * kept as they are.
+ */
+@ThreadSafe
+@Immutable
+public class IncrementalPathsResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalPathsResolver.class);
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private final SystemService system;
+
+    public IncrementalPathsResolver() {
+        this(new SystemService());
+    }
+
+    public IncrementalPathsResolver(@Nonnull SystemService system) {
+        this.system = system;
+    }
+
+    /**
+     * Resolves the shortest paths after the given changes of the symbols.
+     * The given paths aren't modified. The currencies which are no longer in any symbol keep their ids, so
+     * the paths should be resolved again from scratch to drop them.
+     *
+     * @param tradingPaths   Shortest paths before the changes.
+     * @param addedSymbols   Symbols that are added.
+     * @param removedSymbols Symbols that are removed.
+     * @return Shortest paths after the changes.
+     */
+    @Nonnull
+    public DenseTradingPaths resolveChanges(
+            @Nonnull DenseTradingPaths tradingPaths,
+            @Nonnull Collection<Symbol> addedSymbols,
+            @Nonnull Collection<Symbol> removedSymbols) {
+        if (addedSymbols.isEmpty() && removedSymbols.isEmpty()) {
+            return tradingPaths;
+        }
+
+        long startTimeMs = system.currentTimeMillis();
+        LOGGER.debug("Resolving shortest paths for {} added and {} removed symbols...",
+                addedSymbols.size(), removedSymbols.size());
+
+        Map<Currency, Integer> oldCurrencyIds = tradingPaths.getCurrencyIds();
+        Symbol[] oldSymbols = tradingPaths.getSymbols();
+        int oldSize = oldCurrencyIds.size();
+
+        // Build the new symbol table, and the mapping from the old symbol ids to the new ones
+        Set<Symbol> removedSymbolSet = new HashSet<>(removedSymbols);
+        Map<Symbol, Integer> symbolIds = new LinkedHashMap<>();
+        int[] symbolIdMapping = new int[oldSymbols.length];
+        for (int oldSymbolId = 0; oldSymbolId < oldSymbols.length; ++oldSymbolId) {
+            Symbol symbol = oldSymbols[oldSymbolId];
+            if (removedSymbolSet.contains(symbol)) {
+                symbolIdMapping[oldSymbolId] = DenseTradingPaths.NO_PATH;
+            } else {
+                symbolIdMapping[oldSymbolId] = symbolIds.computeIfAbsent(symbol, (s) -> symbolIds.size());
+            }
+        }
+        List<Symbol> newSymbols = new ArrayList<>();
+        for (Symbol symbol : addedSymbols) {
+            if (!symbolIds.containsKey(symbol)) {
+                symbolIds.put(symbol, symbolIds.size());
+                newSymbols.add(symbol);
+            }
+        }
+        Symbol[] symbolTable = symbolIds.keySet().toArray(new Symbol[0]);
+
+        Map<Currency, Integer> currencyIds = new HashMap<>(oldCurrencyIds);
+        for (Symbol symbol : newSymbols) {
+            currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> currencyIds.size());
+            currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> currencyIds.size());
+        }
+        int size = currencyIds.size();
+
+        // Find the rows that may be changed
+        boolean[] affectedRows = new boolean[size];
+        Arrays.fill(affectedRows, oldSize, size, true);
+        for (Symbol symbol : removedSymbolSet) {
+            Integer baseId = oldCurrencyIds.get(symbol.getBaseCurrency());
+            Integer quoteId = oldCurrencyIds.get(symbol.getQuoteCurrency());
+            if (baseId == null || quoteId == null) {
+                continue;
+            }
+            for (int sourceId = 0; sourceId < oldSize; ++sourceId) {
+                if (!affectedRows[sourceId]
+                        && isOnShortestPath(tradingPaths, sourceId, baseId, quoteId)) {
+                    affectedRows[sourceId] = true;
+                }
+            }
+        }
+        for (Symbol symbol : newSymbols) {
+            int baseId = currencyIds.get(symbol.getBaseCurrency());
+            int quoteId = currencyIds.get(symbol.getQuoteCurrency());
+            for (int sourceId = 0; sourceId < oldSize; ++sourceId) {
+                if (!affectedRows[sourceId]
+                        && isShortcut(tradingPaths, sourceId, baseId, quoteId)) {
+                    affectedRows[sourceId] = true;
+                }
+            }
+        }
+
+        // Copy the unaffected rows, and search the affected rows again
+        int[] lengths = new int[size * size];
+        int[] nextSymbolIds = new int[size * size];
+        Arrays.fill(nextSymbolIds, DenseTradingPaths.NO_PATH);
+        int[] oldLengths = tradingPaths.getLengths();
+        int[] oldNextSymbolIds = tradingPaths.getNextSymbolIds();
+        CurrencyGraph graph = new CurrencyGraph(size, symbolTable, currencyIds);
+        int numAffectedRows = 0;
+        for (int sourceId = 0; sourceId < size; ++sourceId) {
+            if (affectedRows[sourceId]) {
+                graph.search(sourceId, lengths, nextSymbolIds, sourceId * size);
+                ++numAffectedRows;
+                continue;
+            }
+            int oldRow = sourceId * oldSize;
+            int row = sourceId * size;
+            for (int targetId = 0; targetId < oldSize; ++targetId) {
+                int oldNextSymbolId = oldNextSymbolIds[oldRow + targetId];
+                if (oldNextSymbolId != DenseTradingPaths.NO_PATH) {
+                    lengths[row + targetId] = oldLengths[oldRow + targetId];
+                    nextSymbolIds[row + targetId] = symbolIdMapping[oldNextSymbolId];
+                }
+            }
+        }
+
+        long endTimeMs = system.currentTimeMillis();
+        LOGGER.debug("Shortest paths resolved. {} of {} rows are updated. Elapsed time: {} ms",
+                numAffectedRows, size, endTimeMs - startTimeMs);
+        return new DenseTradingPaths(currencyIds, symbolTable, lengths, nextSymbolIds);
+    }
+
+    /**
+     * Whether the direct path between two currencies is on a shortest path from the source.
+     */
+    private static boolean isOnShortestPath(
+            @Nonnull DenseTradingPaths tradingPaths,
+            int sourceId,
+            int currencyId1,
+            int currencyId2) {
+        int length1 = getLength(tradingPaths, sourceId, currencyId1);
+        int length2 = getLength(tradingPaths, sourceId, currencyId2);
+        if (length1 == UNREACHABLE || length2 == UNREACHABLE) {
+            return false;
+        }
+        return length1 + 1 == length2 || length2 + 1 == length1;
+    }
+
+    /**
+     * Whether a direct path between two currencies makes a path from the source shorter.
+     */
+    private static boolean isShortcut(
+            @Nonnull DenseTradingPaths tradingPaths,
+            int sourceId,
+            int currencyId1,
+            int currencyId2) {
+        int length1 = getLength(tradingPaths, sourceId, currencyId1);
+        int length2 = getLength(tradingPaths, sourceId, currencyId2);
+        return (length1 != UNREACHABLE && length1 + 1 < length2)
+                || (length2 != UNREACHABLE && length2 + 1 < length1);
+    }
+
+    /**
+     * Gets the length of the shortest path from the source to the target.
+     * The length from a currency to itself is 0, and {@link #UNREACHABLE} is returned if the target is a
+     * currency added after the paths are resolved, or there's no path to the target.
+     */
+    private static int getLength(@Nonnull DenseTradingPaths tradingPaths, int sourceId, int targetId) {
+        if (sourceId == targetId) {
+            return 0;
+        }
+        int size = tradingPaths.getCurrencyIds().size();
+        if (targetId >= size) {
+            return UNREACHABLE;
+        }
+        int index = sourceId * size + targetId;
+        if (tradingPaths.getNextSymbolIds()[index] == DenseTradingPaths.NO_PATH) {
+            return UNREACHABLE;
+        }
+        return tradingPaths.getLengths()[index];
+    }
+}
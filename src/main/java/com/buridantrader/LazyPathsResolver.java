@@ -0,0 +1,78 @@
+package com.buridantrader;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves trading paths whose paths are searched on demand, instead of resolving the paths between all
+ * pairs of currencies up front.
+ * It's suitable when the paths are only needed from a few source currencies.
+ */
+@ThreadSafe
+public class LazyPathsResolver implements PathsResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyPathsResolver.class);
+    public static final int DEFAULT_MAX_CACHED_SOURCES = 64;
+    private final Cache<LazyTradingPaths.SourceKey, LazyTradingPaths.SourcePaths> cache;
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    public LazyPathsResolver() {
+        this(DEFAULT_MAX_CACHED_SOURCES);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param maxCachedSources Max number of source currencies whose paths are cached.
+     * @throws IllegalArgumentException The max number of cached sources is less than 1.
+     */
+    public LazyPathsResolver(@Nonnegative int maxCachedSources) throws IllegalArgumentException {
+        Preconditions.checkArgument(maxCachedSources >= 1, "Max number of cached sources must be at least 1");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedSources)
+                .build();
+    }
+
+    /**
+     * Resolves the trading paths of the given symbols.
+     * The paths resolved from the earlier symbols are evicted from the cache, and will be searched again
+     * without being cached if they're still used.
+     *
+     * @param symbols Symbols.
+     * @return Trading paths.
+     */
+    @Nonnull
+    public LazyTradingPaths resolvePaths(@Nonnull Collection<Symbol> symbols) {
+        Map<Currency, Integer> currencyIds = new HashMap<>();
+        symbols.forEach((symbol) -> {
+            currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> currencyIds.size());
+            currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> currencyIds.size());
+        });
+        Symbol[] symbolTable = symbols.toArray(new Symbol[0]);
+        CurrencyGraph graph = new CurrencyGraph(currencyIds.size(), symbolTable, currencyIds);
+        long version = lastVersion.incrementAndGet();
+        cache.asMap().keySet().removeIf((key) -> key.getVersion() < version);
+        LOGGER.debug("Trading paths of {} currencies and {} symbols are prepared. Version: {}",
+                currencyIds.size(), symbolTable.length, version);
+        return new LazyTradingPaths(version, lastVersion::get, currencyIds, symbolTable, graph, cache);
+    }
+
+    @Override
+    @Nonnull
+    public LazyTradingPaths resolvePaths(@Nonnull List<Symbol> symbols, @Nullable TradingPaths oldPaths) {
+        return resolvePaths(symbols);
+    }
+}
@@ -0,0 +1,169 @@
+package com.buridantrader;
+
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Shortest trading paths that are searched only when they're needed.
+ * The first time a path from a source currency is requested, the paths from the source to all the other
+ * currencies are searched with a breadth-first search, and kept in a cache shared by all the paths resolved
+ * by the same {@link LazyPathsResolver}. The cache is bounded, so the paths from the least recently used
+ * sources may be evicted and searched again later.
+ * Once newer paths are resolved, the paths searched from this version aren't cached anymore, so that the
+ * readers still holding this version don't evict the paths of the newer one.
+ */
+@ThreadSafe
+public class LazyTradingPaths implements TradingPaths {
+
+    private final long version;
+    private final LongSupplier latestVersion;
+    private final Map<Currency, Integer> currencyIds;
+    private final Symbol[] symbols;
+    private final CurrencyGraph graph;
+    private final Cache<SourceKey, SourcePaths> cache;
+
+    // Keys of the cached paths, indexed by the id of the source
+    private final SourceKey[] sourceKeys;
+
+    // Shared first steps, keyed by symbolId << 32 | length
+    private final ConcurrentMap<Long, Optional<PathStep>> steps = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param version       Version of the symbols. It must be unique among the paths sharing the cache.
+     * @param latestVersion Supplier of the version of the latest paths sharing the cache.
+     * @param currencyIds   Dense ids of the currencies, from 0 to the number of currencies - 1.
+     * @param symbols       Symbols indexed by symbol id. The caller must not modify it afterwards.
+     * @param graph         Graph of the currencies.
+     * @param cache         Cache of the paths from the sources.
+     */
+    LazyTradingPaths(
+            long version,
+            @Nonnull LongSupplier latestVersion,
+            @Nonnull Map<Currency, Integer> currencyIds,
+            @Nonnull Symbol[] symbols,
+            @Nonnull CurrencyGraph graph,
+            @Nonnull Cache<SourceKey, SourcePaths> cache) {
+        this.version = version;
+        this.latestVersion = latestVersion;
+        this.currencyIds = ImmutableMap.copyOf(currencyIds);
+        this.symbols = symbols;
+        this.graph = graph;
+        this.cache = cache;
+        this.sourceKeys = new SourceKey[currencyIds.size()];
+        for (int sourceId = 0; sourceId < sourceKeys.length; ++sourceId) {
+            sourceKeys[sourceId] = new SourceKey(version, sourceId);
+        }
+    }
+
+    @Override
+    @Nonnull
+    public Optional<PathStep> getNextStep(
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) {
+        Integer sourceId = currencyIds.get(sourceCurrency);
+        Integer targetId = currencyIds.get(targetCurrency);
+        if (sourceId == null || targetId == null) {
+            return Optional.empty();
+        }
+        return getSourcePaths(sourceId).steps[targetId];
+    }
+
+    @Nonnull
+    private SourcePaths getSourcePaths(int sourceId) {
+        SourceKey key = sourceKeys[sourceId];
+        SourcePaths sourcePaths = cache.getIfPresent(key);
+        if (sourcePaths != null) {
+            return sourcePaths;
+        }
+        if (version < latestVersion.getAsLong()) {
+            return searchSourcePaths(sourceId);
+        }
+        try {
+            return cache.get(key, () -> searchSourcePaths(sourceId));
+        } catch (ExecutionException ex) {
+            // The search doesn't throw any checked exception
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Nonnull
+    private SourcePaths searchSourcePaths(int sourceId) {
+        int size = graph.getSize();
+        int[] lengths = new int[size];
+        int[] nextSymbolIds = new int[size];
+        Arrays.fill(nextSymbolIds, DenseTradingPaths.NO_PATH);
+        graph.search(sourceId, lengths, nextSymbolIds, 0);
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Optional<PathStep>[] sourceSteps = new Optional[size];
+        for (int targetId = 0; targetId < size; ++targetId) {
+            int nextSymbolId = nextSymbolIds[targetId];
+            if (nextSymbolId == DenseTradingPaths.NO_PATH) {
+                sourceSteps[targetId] = Optional.empty();
+                continue;
+            }
+            int length = lengths[targetId];
+            sourceSteps[targetId] = steps.computeIfAbsent(((long) nextSymbolId << 32) | length,
+                    (key) -> Optional.of(new PathStep(symbols[nextSymbolId], length)));
+        }
+        return new SourcePaths(sourceSteps);
+    }
+
+    /**
+     * Key of the cached paths from a source currency.
+     */
+    static class SourceKey {
+        private final long version;
+        private final int sourceId;
+
+        SourceKey(long version, int sourceId) {
+            this.version = version;
+            this.sourceId = sourceId;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SourceKey that = (SourceKey) o;
+            return version == that.version && sourceId == that.sourceId;
+        }
+
+        @Override
+        public int hashCode() {
+            // Not Objects.hash, which boxes the fields on every read of the cache
+            return 31 * Long.hashCode(version) + sourceId;
+        }
+    }
+
+    /**
+     * First steps of the paths from a source currency to all the currencies, indexed by the id of the target.
+     */
+    static class SourcePaths {
+        private final Optional<PathStep>[] steps;
+
+        SourcePaths(@Nonnull Optional<PathStep>[] steps) {
+            this.steps = steps;
+        }
+    }
+}
@@ -2,8 +2,6 @@ package com.buridantrader;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
@@ -13,52 +11,50 @@ import javax.annotation.concurrent.ThreadSafe;
 @Immutable
 public class LinearRegressionFinder {
 
-    private final MeanCalculator meanCalculator;
     private final MathContext mathContext;
 
     public LinearRegressionFinder(
         @Nonnull MathContext mathContext) {
-        this(mathContext, new MeanCalculator(mathContext));
-    }
-
-    public LinearRegressionFinder(
-        @Nonnull MathContext mathContext,
-        @Nonnull MeanCalculator meanCalculator) {
         this.mathContext = mathContext;
-        this.meanCalculator = meanCalculator;
     }
 
     /**
-     * Find the simple regression line for the given points.
-     * Unless the line is vertical, the line will have the coefficient of y being 1.
+     * Find the simple regression line for the points given as the arrays of their coordinates.
+     * It's calculated with doubles, so it doesn't create any object per point.
      *
-     * @param points Points.
+     * @param xs   X values of the points.
+     * @param ys   Y values of the points.
+     * @param from Index of the first point.
+     * @param to   Index after the last point.
      * @return Line.
-     * @throws ArithmeticException Fail to calculate the line.
      * @throws IllegalArgumentException The linear regression line is vertical.
      */
     @Nonnull
-    public RegressionLine findLinearRegression(@Nonnull List<Point> points)
-        throws ArithmeticException, IllegalArgumentException {
-        BigDecimal xMean = meanCalculator.calMean(points.stream().map(Point::getX).collect(Collectors.toList()));
-        BigDecimal yMean = meanCalculator.calMean(points.stream().map(Point::getY).collect(Collectors.toList()));
-        BigDecimal numerator = BigDecimal.ZERO;
-        BigDecimal denominator = BigDecimal.ZERO;
-        for (Point point : points) {
-            BigDecimal xDiff = point.getX().subtract(xMean, mathContext);
-            BigDecimal yDiff = point.getY().subtract(yMean, mathContext);
-            numerator = numerator.add(xDiff.multiply(yDiff, mathContext), mathContext);
-            denominator = denominator.add(xDiff.pow(2, mathContext));
+    public RegressionLine findLinearRegression(@Nonnull double[] xs, @Nonnull double[] ys, int from, int to)
+        throws IllegalArgumentException {
+        double xSum = 0;
+        double ySum = 0;
+        for (int i = from; i < to; ++i) {
+            xSum += xs[i];
+            ySum += ys[i];
+        }
+        double xMean = xSum / (to - from);
+        double yMean = ySum / (to - from);
+        double numerator = 0;
+        double denominator = 0;
+        for (int i = from; i < to; ++i) {
+            double xDiff = xs[i] - xMean;
+            numerator += xDiff * (ys[i] - yMean);
+            denominator += xDiff * xDiff;
         }
-        if (denominator.signum() == 0) {
+        if (denominator == 0) {
             // Vertical line
             throw new IllegalArgumentException("The linear regression line of the points is vertical");
         }
-        BigDecimal slope = numerator.divide(denominator, mathContext);
-        BigDecimal intercept = yMean.subtract(slope.multiply(xMean, mathContext), mathContext);
-        // y = (slope) x + (intercept)
-        // -> -(slope) x + y = (intercept)
-        return new RegressionLine(slope, intercept, mathContext);
+        double slope = numerator / denominator;
+        double intercept = yMean - slope * xMean;
+        return new RegressionLine(
+            new BigDecimal(slope, mathContext), new BigDecimal(intercept, mathContext), mathContext);
     }
 
 }
@@ -0,0 +1,61 @@
+package com.buridantrader;
+
+import com.buridantrader.services.symbol.PriceSnapshot;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Symbols, prices and trading paths of the market captured at once, for example at the start of a planning
+ * cycle.
+ * Everything planned with the same snapshot sees the same market, even if the symbols, the prices or the
+ * paths are refreshed in the meantime, and the lookups are plain reads of the captured maps without taking
+ * any lock. A snapshot is captured with {@link TradingPathFinder#captureMarketSnapshot()}.
+ */
+@ThreadSafe
+@Immutable
+public class MarketSnapshot {
+    private final Map<Symbol, SymbolInfo> symbolInfos;
+    private final PriceSnapshot prices;
+    private final TradingPathFinder.PathsSnapshot paths;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param symbolInfos Unmodifiable map from symbol to its info.
+     * @param prices      Prices of the symbols.
+     * @param paths       Trading paths, and the routes found from them.
+     */
+    MarketSnapshot(
+            @Nonnull Map<Symbol, SymbolInfo> symbolInfos,
+            @Nonnull PriceSnapshot prices,
+            @Nonnull TradingPathFinder.PathsSnapshot paths) {
+        this.symbolInfos = symbolInfos;
+        this.prices = prices;
+        this.paths = paths;
+    }
+
+    @Nonnull
+    public Optional<SymbolInfo> getSymbolInfo(@Nonnull Symbol symbol) {
+        return Optional.ofNullable(symbolInfos.get(symbol));
+    }
+
+    @Nonnull
+    public Optional<BigDecimal> getPrice(@Nonnull Symbol symbol) {
+        return prices.getPrice(symbol);
+    }
+
+    @Nonnull
+    public Optional<BookPrice> getBookPrice(@Nonnull Symbol symbol) {
+        return prices.getBookPrice(symbol);
+    }
+
+    @Nonnull
+    TradingPathFinder.PathsSnapshot getPaths() {
+        return paths;
+    }
+}
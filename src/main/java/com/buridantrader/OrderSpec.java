@@ -28,6 +28,26 @@ public class OrderSpec {
         return orderSide;
     }
 
+    /**
+     * Gets the currency given by the order.
+     *
+     * @return The base currency if it's a sell order, or the quote currency if it's a buy order.
+     */
+    @Nonnull
+    public Currency getSourceCurrency() {
+        return OrderSide.SELL.equals(orderSide) ? symbol.getBaseCurrency() : symbol.getQuoteCurrency();
+    }
+
+    /**
+     * Gets the currency got by the order.
+     *
+     * @return The quote currency if it's a sell order, or the base currency if it's a buy order.
+     */
+    @Nonnull
+    public Currency getTargetCurrency() {
+        return OrderSide.SELL.equals(orderSide) ? symbol.getQuoteCurrency() : symbol.getBaseCurrency();
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) {
@@ -1,10 +1,20 @@
 package com.buridantrader;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Objects;
 
+/**
+ * A step of a trading path.
+ * The instances are immutable, so the same instance may be shared by the paths whose first steps trade the
+ * same symbol and have the same length.
+ */
+@ThreadSafe
+@Immutable
 public class PathStep {
-    private Symbol symbolToNext;
-    private int length;
+    private final Symbol symbolToNext;
+    private final int length;
 
     public PathStep(@Nonnull Symbol symbolToNext, int length) {
         this.symbolToNext = symbolToNext;
@@ -16,18 +26,10 @@ public class PathStep {
         return symbolToNext;
     }
 
-    public void setSymbolToNext(@Nonnull Symbol symbolToNext) {
-        this.symbolToNext = symbolToNext;
-    }
-
     public int getLength() {
         return length;
     }
 
-    public void setLength(int length) {
-        this.length = length;
-    }
-
     /**
      * Gets the next currency on the path.
      *
@@ -48,4 +50,24 @@ public class PathStep {
                     + " isn't base nor quote currency of the symbol");
         }
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || !getClass().equals(other.getClass())) {
+            return false;
+        }
+
+        PathStep that = (PathStep) other;
+        return symbolToNext.equals(that.symbolToNext)
+                && length == that.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbolToNext, length);
+    }
 }
@@ -0,0 +1,54 @@
+package com.buridantrader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Strategy of {@link TradingPathFinder} to resolve the trading paths of the symbols.
+ */
+@ThreadSafe
+public interface PathsResolver {
+
+    /**
+     * Resolves the trading paths of the given symbols.
+     *
+     * @param symbols  Symbols.
+     * @param oldPaths Paths resolved earlier by this resolver, which may be repaired instead of resolving all
+     *                 the paths again, or null if there aren't any.
+     * @return Trading paths. The old paths are returned if they're still valid.
+     * @throws IOException Fail to get what the paths depend on other than the symbols.
+     */
+    @Nonnull
+    TradingPaths resolvePaths(@Nonnull List<Symbol> symbols, @Nullable TradingPaths oldPaths) throws IOException;
+
+    /**
+     * Checks whether the paths resolved at the given time should be resolved again even if the symbols
+     * aren't updated.
+     *
+     * @param resolveTime Time the paths are resolved.
+     * @return True if the paths should be resolved again.
+     */
+    default boolean isOutdated(@Nonnull Instant resolveTime) {
+        return false;
+    }
+
+    /**
+     * Loads the paths saved by an earlier run from the same symbols, which can be used before the paths are
+     * resolved.
+     * They may be resolved from earlier prices, and should be revalidated by passing them to
+     * {@link #resolvePaths(List, TradingPaths)}.
+     *
+     * @param symbols Symbols.
+     * @return The saved paths, or empty if there aren't any saved from the same symbols.
+     */
+    @Nonnull
+    default Optional<TradingPaths> loadSavedPaths(@Nonnull Collection<Symbol> symbols) {
+        return Optional.empty();
+    }
+}
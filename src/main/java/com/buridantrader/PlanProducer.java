@@ -1,8 +1,6 @@
 package com.buridantrader;
 
 import com.buridantrader.config.TradingConfig;
-import com.buridantrader.exceptions.NoSuchPathException;
-import com.buridantrader.exceptions.ValueLimitException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,7 +9,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class PlanProducer {
@@ -32,16 +30,25 @@ public class PlanProducer {
         this.candidateAssetProducer = candidateAssetProducer;
     }
 
+    /**
+     * Produces a plan.
+     * The market is captured once at the start, so that all the candidates and the orders of the plan are
+     * valued with the same symbols and prices.
+     *
+     * @return The plan.
+     * @throws IOException Fail to get the assets, the symbols or the prices.
+     */
     @Nonnull
     public TradingPlan get() throws IOException {
         TradingPlan plan = new TradingPlan();
-        List<CandidateAsset> candidates = candidateAssetProducer.getCandidates();
+        MarketSnapshot market = tradingPathFinder.captureMarketSnapshot();
+        List<CandidateAsset> candidates = candidateAssetProducer.getCandidates(market);
         List<CandidateAsset> sources = candidates.stream()
                 .filter(CandidateAsset::isEligibleForSource)
                 .collect(Collectors.toList());
         for (CandidateAsset source : sources) {
             LOGGER.debug("Source asset: {}", source.getAsset().getCurrency());
-            buildMostProfitableOrders(source, candidates)
+            buildMostProfitableOrders(market, source, candidates)
                 .forEach(plan::addOrder);
         }
         LOGGER.debug("Producing a plan with {} orders", plan.getOrders().size());
@@ -50,6 +57,7 @@ public class PlanProducer {
 
     @Nonnull
     private List<Order> buildMostProfitableOrders(
+        @Nonnull MarketSnapshot market,
         @Nonnull CandidateAsset source, @Nonnull List<CandidateAsset> candidates) throws IOException {
         Asset sourceAsset = source.getAsset();
         Currency sourceCurrency = sourceAsset.getCurrency();
@@ -59,23 +67,25 @@ public class PlanProducer {
                 .filter(c -> !c.getAsset().getCurrency().equals(sourceCurrency)
                         && c.getPricePrediction().isProfitable())
                 .collect(Collectors.toList());
+        if (targets.isEmpty()) {
+            return mostProfitableOrders;
+        }
+        Map<Currency, List<Order>> ordersOfTargets = tradingPathFinder.findPathsOfOrders(
+                market,
+                sourceCurrency,
+                targets.stream()
+                        .map(t -> t.getAsset().getCurrency())
+                        .collect(Collectors.toList()),
+                source.getFreeQuantity());
         for (CandidateAsset target : targets) {
-            Asset targetAsset = target.getAsset();
-
-            Currency targetCurrency = targetAsset.getCurrency();
-            List<Order> orders;
-            try {
-                BigDecimal freeQuantity = source.getFreeQuantity();
-                orders = tradingPathFinder.findPathOfOrders(
-                        sourceCurrency,
-                        targetCurrency,
-                        freeQuantity);
-            } catch (IllegalArgumentException ex) {
+            Currency targetCurrency = target.getAsset().getCurrency();
+            List<Order> orders = ordersOfTargets.get(targetCurrency);
+            if (orders == null) {
                 LOGGER.debug("Unable to find path of orders from {} to {}",
-                        sourceCurrency, targetCurrency, ex);
+                        sourceCurrency, targetCurrency);
                 continue;
             }
-            BigDecimal growthDiff = calGrowthRateDiff(source, target, orders);
+            BigDecimal growthDiff = calGrowthRateDiff(market, source, target, orders);
             LOGGER.debug("Growth rate diff {} relative to {} is {}",
                     target.getAsset().getCurrency(),
                     source.getAsset().getCurrency(),
@@ -90,6 +100,7 @@ public class PlanProducer {
 
     @Nonnull
     private BigDecimal calGrowthRateDiff(
+            @Nonnull MarketSnapshot market,
             @Nonnull CandidateAsset source,
             @Nonnull CandidateAsset target,
             @Nonnull List<Order> orders) throws IOException {
@@ -106,7 +117,7 @@ public class PlanProducer {
         // If convert, after time t, the value will be:
         // sourcePrice * sourceQuantity - transactionFeeRate * sourcePrice * sourceQuantity
         // + targetGrowthRate * t * targetQuantity
-        BigDecimal targetQuantity = tradingPathFinder.getOrderTargetQuantity(lastOrder);
+        BigDecimal targetQuantity = tradingPathFinder.getOrderTargetQuantity(market, lastOrder);
         BigDecimal growthAfterConvert = targetGrowthRate.multiply(measuringSec)
                 .multiply(targetQuantity);
 
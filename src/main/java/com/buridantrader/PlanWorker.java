@@ -1,15 +1,26 @@
 package com.buridantrader;
 
+import com.binance.api.client.BinanceApiError;
 import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.domain.OrderStatus;
 import com.binance.api.client.domain.OrderType;
 import com.binance.api.client.domain.account.NewOrder;
+import com.binance.api.client.domain.account.request.OrderStatusRequest;
+import com.binance.api.client.exception.BinanceApiException;
+import com.buridantrader.exceptions.NoSuchPathException;
+import com.buridantrader.exceptions.OrderRejectedException;
 import com.buridantrader.services.system.SystemService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 public class PlanWorker implements Runnable {
 
@@ -17,12 +28,25 @@ public class PlanWorker implements Runnable {
 
     private static final long FAILURE_DELAY_MS = 3000;
 
+    // Max number of times to reroute the rest of a plan after its orders fail
+    private static final int MAX_NUM_REROUTES = 3;
+
+    // Binance error codes of the orders rejected before they reach the matching engine: the order is rejected,
+    // the order fails a filter of the symbol, and the request issues from -1100 to -1199
+    private static final int NEW_ORDER_REJECTED = -2010;
+    private static final int INVALID_MESSAGE = -1013;
+    private static final int MIN_REQUEST_ISSUE = -1199;
+    private static final int MAX_REQUEST_ISSUE = -1100;
+
     private final TradingPlanner planner;
 
     private final BinanceApiRestClient client;
 
     private final SystemService system;
 
+    // Null if the plan shouldn't be rerouted when an order fails
+    private final TradingPathFinder tradingPathFinder;
+
     public PlanWorker(
             @Nonnull TradingPlanner planner,
             @Nonnull BinanceApiRestClient client) {
@@ -33,8 +57,30 @@ public class PlanWorker implements Runnable {
             @Nonnull TradingPlanner planner,
             @Nonnull BinanceApiRestClient client,
             @Nonnull SystemService system) {
+        this(planner, client, null, system);
+    }
+
+    /**
+     * Constructs a new instance.
+     * If Binance rejects an order of a plan, the quantity to trade by the order is traded to the target currency
+     * of the plan along another route without the symbols of the rejected orders, instead of abandoning the
+     * plan. If it's unknown whether an order is placed, such as when the request times out, the plan isn't
+     * rerouted, because the order may have been filled.
+     *
+     * @param planner           Trading planner.
+     * @param client            Binance client.
+     * @param tradingPathFinder Finder of the routes to reroute the plan, or null if the plan shouldn't be
+     *                          rerouted.
+     * @param system            System service.
+     */
+    public PlanWorker(
+            @Nonnull TradingPlanner planner,
+            @Nonnull BinanceApiRestClient client,
+            @Nullable TradingPathFinder tradingPathFinder,
+            @Nonnull SystemService system) {
         this.planner = planner;
         this.client = client;
+        this.tradingPathFinder = tradingPathFinder;
         this.system = system;
     }
 
@@ -66,29 +112,134 @@ public class PlanWorker implements Runnable {
     }
 
     private void executePlan(@Nonnull TradingPlan plan) throws IOException {
-        for (Order order : plan.getOrders()) {
-            executeOrder(order);
+        List<Order> orders = plan.getOrders();
+        Set<Symbol> failedSymbols = new HashSet<>();
+        int index = 0;
+        while (index < orders.size()) {
+            Order order = orders.get(index);
+            try {
+                executeOrder(order);
+                ++index;
+            } catch (OrderRejectedException ex) {
+                if (tradingPathFinder == null || failedSymbols.size() >= MAX_NUM_REROUTES) {
+                    throw ex;
+                }
+                failedSymbols.add(order.getOrderSpec().getSymbol());
+                orders = reroute(order, orders.get(orders.size() - 1), failedSymbols, ex);
+                index = 0;
+            }
+        }
+    }
+
+    /**
+     * Finds the orders to trade the quantity of a failed order to the target currency of the plan, without
+     * trading the symbols of the failed orders.
+     *
+     * @param failedOrder   The failed order.
+     * @param lastOrder     Last order of the plan.
+     * @param failedSymbols Symbols of the failed orders.
+     * @param failure       Rejection of the order.
+     * @return The orders.
+     * @throws IOException There's no other route, or fail to find it.
+     */
+    @Nonnull
+    private List<Order> reroute(
+            @Nonnull Order failedOrder,
+            @Nonnull Order lastOrder,
+            @Nonnull Set<Symbol> failedSymbols,
+            @Nonnull OrderRejectedException failure) throws IOException {
+        Currency sourceCurrency = failedOrder.getOrderSpec().getSourceCurrency();
+        Currency targetCurrency = lastOrder.getOrderSpec().getTargetCurrency();
+        try {
+            MarketSnapshot market = tradingPathFinder.captureMarketSnapshot();
+            List<Order> orders = tradingPathFinder.findAlternativePathOfOrders(
+                    market,
+                    sourceCurrency,
+                    targetCurrency,
+                    tradingPathFinder.getOrderSourceQuantity(market, failedOrder),
+                    failedSymbols);
+            LOGGER.warn("Order of symbol {} failed. Rerouting from {} to {} with {} orders",
+                    failedOrder.getOrderSpec().getSymbol(), sourceCurrency, targetCurrency, orders.size(), failure);
+            return orders;
+        } catch (NoSuchPathException | IOException ex) {
+            failure.addSuppressed(ex);
+            throw failure;
         }
     }
 
-    private void executeOrder(@Nonnull Order order) throws IOException {
+    /**
+     * Executes an order.
+     *
+     * @param order Order.
+     * @throws OrderRejectedException Binance rejects the order.
+     * @throws IOException The order isn't filled, or it's unknown whether it's filled.
+     */
+    private void executeOrder(@Nonnull Order order) throws OrderRejectedException, IOException {
         OrderSpec orderSpec = order.getOrderSpec();
         Symbol symbol = orderSpec.getSymbol();
         com.binance.api.client.domain.OrderSide orderSide = createOrderSide(orderSpec.getOrderSide());
         String quantity = order.getQuantity().toPlainString();
+        // The order is looked up with the client order ID if it's unknown whether the order is placed
+        String clientOrderId = UUID.randomUUID().toString();
         NewOrder newOrder = new NewOrder(
             symbol.getName(),
             orderSide,
             OrderType.MARKET,
             null,
             quantity
-        );
+        ).newClientOrderId(clientOrderId);
         try {
-            LOGGER.info("Placing an order. symbol={}, orderSide={}, quantity={}", symbol, orderSide, quantity);
+            LOGGER.info("Placing an order. symbol={}, orderSide={}, quantity={}, clientOrderId={}",
+                    symbol, orderSide, quantity, clientOrderId);
             client.newOrder(newOrder);
+        } catch (BinanceApiException ex) {
+            if (isRejection(ex)) {
+                throw new OrderRejectedException("Order is rejected", ex);
+            }
+            confirmOrder(symbol, clientOrderId, ex);
         } catch (Exception ex) {
-            throw new IOException("Fail to execute order", ex);
+            confirmOrder(symbol, clientOrderId, ex);
+        }
+    }
+
+    private static boolean isRejection(@Nonnull BinanceApiException ex) {
+        BinanceApiError error = ex.getError();
+        if (error == null) {
+            // The request failed without a response from Binance
+            return false;
+        }
+        int code = error.getCode();
+        return code == NEW_ORDER_REJECTED
+                || code == INVALID_MESSAGE
+                || (code >= MIN_REQUEST_ISSUE && code <= MAX_REQUEST_ISSUE);
+    }
+
+    /**
+     * Confirms that an order is filled after placing it failed without a rejection, so the order may have
+     * been placed.
+     *
+     * @param symbol        Symbol of the order.
+     * @param clientOrderId Client order ID of the order.
+     * @param failure       Failure of placing the order.
+     * @throws IOException The order isn't filled, or its status is unknown.
+     */
+    private void confirmOrder(
+            @Nonnull Symbol symbol,
+            @Nonnull String clientOrderId,
+            @Nonnull Exception failure) throws IOException {
+        com.binance.api.client.domain.account.Order placedOrder;
+        try {
+            placedOrder = client.getOrderStatus(new OrderStatusRequest(symbol.getName(), clientOrderId));
+        } catch (Exception ex) {
+            IOException exception = new IOException("Fail to execute order, and its status is unknown", failure);
+            exception.addSuppressed(ex);
+            throw exception;
+        }
+        OrderStatus status = placedOrder == null ? null : placedOrder.getStatus();
+        if (status != OrderStatus.FILLED) {
+            throw new IOException("Fail to execute order, and its status is " + status, failure);
         }
+        LOGGER.warn("Placing the order {} of symbol {} failed, but it's filled", clientOrderId, symbol, failure);
     }
 
     @Nonnull
@@ -2,18 +2,31 @@ package com.buridantrader;
 
 import com.binance.api.client.BinanceApiRestClient;
 
+import com.buridantrader.services.system.SystemService;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public class PlanWorkerFactory {
 
     private final BinanceApiRestClient client;
 
+    // Null if the plans shouldn't be rerouted when an order fails
+    private final TradingPathFinder tradingPathFinder;
+
     public PlanWorkerFactory(@Nonnull BinanceApiRestClient client) {
+        this(client, null);
+    }
+
+    public PlanWorkerFactory(
+            @Nonnull BinanceApiRestClient client,
+            @Nullable TradingPathFinder tradingPathFinder) {
         this.client = client;
+        this.tradingPathFinder = tradingPathFinder;
     }
 
     @Nonnull
     public PlanWorker createPlanWorker(@Nonnull TradingPlanner planner) {
-        return new PlanWorker(planner, client);
+        return new PlanWorker(planner, client, tradingPathFinder, new SystemService());
     }
 }
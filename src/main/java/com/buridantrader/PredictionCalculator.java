@@ -3,7 +3,6 @@ package com.buridantrader;
 import javax.annotation.Nonnull;
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.List;
 
 public class PredictionCalculator {
 
@@ -21,14 +20,35 @@ public class PredictionCalculator {
         this.linearRegressionFinder = linearRegressionFinder;
     }
 
+    /**
+     * Calculates the prediction for the points given as the arrays of their coordinates.
+     *
+     * @param xs X values of the points.
+     * @param ys Y values of the points.
+     * @return Prediction.
+     * @throws IllegalArgumentException The arrays have different lengths.
+     */
     @Nonnull
-    public PricePrediction calPrediction(@Nonnull List<Point> points) {
-        RegressionLine longTermRegressionLine = linearRegressionFinder.findLinearRegression(points);
-        BigDecimal longTermVolatility = longTermRegressionLine.getVolatilityForPoints(points);
-        int numPoints = points.size();
-        List<Point> recentPoints = points.subList(numPoints / 2, numPoints);
-        RegressionLine shortTermRegressionLine = linearRegressionFinder.findLinearRegression(recentPoints);
-        BigDecimal shortTermVolatility = shortTermRegressionLine.getVolatilityForPoints(recentPoints);
+    public PricePrediction calPrediction(@Nonnull double[] xs, @Nonnull double[] ys) throws IllegalArgumentException {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Expecting the same number of x and y values");
+        }
+        int numPoints = xs.length;
+        RegressionLine longTermRegressionLine = linearRegressionFinder.findLinearRegression(xs, ys, 0, numPoints);
+        BigDecimal longTermVolatility = longTermRegressionLine.getVolatility(xs, ys, 0, numPoints);
+        int recentFrom = numPoints / 2;
+        RegressionLine shortTermRegressionLine =
+                linearRegressionFinder.findLinearRegression(xs, ys, recentFrom, numPoints);
+        BigDecimal shortTermVolatility = shortTermRegressionLine.getVolatility(xs, ys, recentFrom, numPoints);
+        return toPrediction(longTermRegressionLine, longTermVolatility, shortTermRegressionLine, shortTermVolatility);
+    }
+
+    @Nonnull
+    private PricePrediction toPrediction(
+            @Nonnull RegressionLine longTermRegressionLine,
+            @Nonnull BigDecimal longTermVolatility,
+            @Nonnull RegressionLine shortTermRegressionLine,
+            @Nonnull BigDecimal shortTermVolatility) {
         boolean profitable = true;
         if (longTermRegressionLine.getSlope().compareTo(BigDecimal.ZERO) < 0
                 || longTermVolatility.compareTo(MAX_LONG_TERM_VOLATILITY) > 0
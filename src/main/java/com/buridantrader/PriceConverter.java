@@ -6,8 +6,9 @@ import com.buridantrader.exceptions.ValueLimitException;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 public class PriceConverter {
     private final TradingPathFinder tradingPathFinder;
@@ -28,12 +29,51 @@ public class PriceConverter {
         }
         List<Order> orders;
 
+        // Both the orders and the quantity of their target are valued with the same prices
+        MarketSnapshot market = tradingPathFinder.captureMarketSnapshot();
         orders = tradingPathFinder.findPathOfOrders(
+                market,
                 baseCurrency,
                 quoteCurrency,
                 quantity);
 
         Order lastOrder = orders.get(orders.size() - 1);
-        return tradingPathFinder.getOrderTargetQuantity(lastOrder);
+        return tradingPathFinder.getOrderTargetQuantity(market, lastOrder);
+    }
+
+    /**
+     * Gets the values of the quantities of the currencies relative to the quote currency.
+     * All the values are calculated in one pass over the paths to the quote currency, instead of finding the
+     * orders for each currency. Unlike {@link #getRelativePrice(Currency, Currency, BigDecimal)}, the
+     * quantities to trade aren't formalized, but a quantity below the min quantity of the first order to the
+     * quote currency is dust, and is valued zero.
+     *
+     * @param market        Market snapshot.
+     * @param quantities    Map from currency to its quantity.
+     * @param quoteCurrency Quote currency.
+     * @return Map from currency to the value of its quantity. A currency without a path to the quote currency
+     *         isn't in the map. The value is zero if the quantity can't be traded.
+     * @throws IOException Fail to get the symbols or the prices.
+     */
+    @Nonnull
+    public Map<Currency, BigDecimal> getRelativePrices(
+            @Nonnull MarketSnapshot market,
+            @Nonnull Map<Currency, BigDecimal> quantities,
+            @Nonnull Currency quoteCurrency) throws IOException {
+        Map<Currency, BigDecimal> unitValues = tradingPathFinder.getUnitValues(
+                market, quantities.keySet(), quoteCurrency);
+        Map<Currency, BigDecimal> values = new HashMap<>();
+        for (Map.Entry<Currency, BigDecimal> entry : unitValues.entrySet()) {
+            Currency currency = entry.getKey();
+            BigDecimal quantity = quantities.get(currency);
+            if (currency.equals(quoteCurrency)) {
+                values.put(currency, quantity);
+            } else if (tradingPathFinder.isTradable(market, currency, quoteCurrency, quantity)) {
+                values.put(currency, quantity.multiply(entry.getValue()));
+            } else {
+                values.put(currency, BigDecimal.ZERO);
+            }
+        }
+        return values;
     }
 }
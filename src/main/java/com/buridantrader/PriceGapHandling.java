@@ -0,0 +1,16 @@
+package com.buridantrader;
+
+/**
+ * How a minute is priced when some steps of a trading path have no candlestick opened at that minute.
+ */
+public enum PriceGapHandling {
+    /**
+     * The minute is dropped.
+     */
+    SKIP,
+    /**
+     * The last price of the steps without the candlestick is used, as nothing was traded in the minute.
+     * The minutes before every step has a price are still dropped.
+     */
+    FORWARD_FILL
+}
@@ -8,8 +8,6 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.Instant;
-import java.util.*;
-import java.util.stream.Collectors;
 
 public class PricePredictor {
 
@@ -35,6 +33,7 @@ public class PricePredictor {
 
     @Nonnull
     public PricePrediction getPrediction(
+            @Nonnull MarketSnapshot market,
             @Nonnull Currency baseCurrency,
             @Nonnull Currency quoteCurrency) throws IOException, NoSuchPathException {
 
@@ -45,17 +44,18 @@ public class PricePredictor {
         Instant endTime = Instant.ofEpochMilli(system.currentTimeMillis());
         Instant startTime = endTime.minusMillis(PREDICTION_PERIOD_MS);
 
-        List<Candlestick> candlesticks = currencyPriceViewer.getPriceHistoryPerMinute(
-                baseCurrency, quoteCurrency, startTime, endTime);
+        CandleSeries candlesticks = currencyPriceViewer.getPriceHistoryPerMinute(
+                market, baseCurrency, quoteCurrency, startTime, endTime);
 
-        List<Point> points = candlesticks.stream()
-                .map((c) -> {
-                    long openEpochSec = c.getOpenTime().getEpochSecond();
-                    long closeEpochSec = c.getCloseTime().getEpochSecond();
-                    double avgEpochSec = (openEpochSec + closeEpochSec) / 2.0;
-                    return new Point(new BigDecimal(avgEpochSec), c.getAveragePrice());
-                }).collect(Collectors.toList());
+        double[] xs = new double[candlesticks.size()];
+        double[] ys = new double[candlesticks.size()];
+        for (int i = 0; i < candlesticks.size(); ++i) {
+            long openEpochSec = Math.floorDiv(candlesticks.getOpenTimeMs(i), 1000);
+            long closeEpochSec = Math.floorDiv(candlesticks.getCloseTimeMs(i), 1000);
+            xs[i] = (openEpochSec + closeEpochSec) / 2.0;
+            ys[i] = candlesticks.getAveragePrice(i);
+        }
 
-        return predictionCalculator.calPrediction(points);
+        return predictionCalculator.calPrediction(xs, ys);
     }
 }
@@ -2,9 +2,6 @@ package com.buridantrader;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
@@ -15,8 +12,6 @@ public class RegressionLine {
     private final BigDecimal slope;
     private final BigDecimal interceptOfY;
     private final MathContext mathContext;
-    private final VarianceCalculator varianceCalculator;
-    private final MeanCalculator meanCalculator;
 
    /**
      * Constructs a regression line.
@@ -29,31 +24,9 @@ public class RegressionLine {
         @Nonnull BigDecimal slope,
         @Nonnull BigDecimal interceptOfY,
         @Nonnull MathContext mathContext) {
-        this(slope,
-                interceptOfY,
-                mathContext,
-                new VarianceCalculator(mathContext),
-                new MeanCalculator(mathContext));
-    }
-
-    /**
-     * Constructs a regression line.
-     * The line is represented by the formula: y = ax + b
-     *
-     * @param slope Slope of the line; that is, "a".
-     * @param interceptOfY Constant; that is "b".
-     */
-    public RegressionLine(
-            @Nonnull BigDecimal slope,
-            @Nonnull BigDecimal interceptOfY,
-            @Nonnull MathContext mathContext,
-            @Nonnull VarianceCalculator varianceCalculator,
-            @Nonnull MeanCalculator meanCalculator) {
         this.slope = slope;
         this.interceptOfY = interceptOfY;
         this.mathContext = mathContext;
-        this.varianceCalculator = varianceCalculator;
-        this.meanCalculator = meanCalculator;
     }
 
     @Nonnull
@@ -85,31 +58,44 @@ public class RegressionLine {
     }
 
     /**
-     * Gets the volatility for points for this line.
+     * Gets the volatility for the points given as the arrays of their coordinates.
      * The volatility is defined as below:
      * Let ð to be the variance of the difference between
      * the given points and the points on the line for a same X.
      * Let Θ be the mean of the Y values on this line for the X values of the points.
      * The volatility is calculated as ð / Θ.
      * If Θ = 0, {@link ArithmeticException} is thrown.
+     * It's calculated with doubles, so it doesn't create any object per point.
      *
-     * @param points Points.
+     * @param xs   X values of the points.
+     * @param ys   Y values of the points.
+     * @param from Index of the first point.
+     * @param to   Index after the last point.
      * @return Volatility.
      * @throws ArithmeticException Arithmetic error occurs. E.g. Θ = 0.
      */
     @Nonnull
-    public BigDecimal getVolatilityForPoints(@Nonnull List<Point> points) throws ArithmeticException {
-        List<BigDecimal> ysOnLine = new ArrayList<>();
-        List<BigDecimal> residuals = points.stream()
-                .map((point) -> {
-                    BigDecimal yOnLine = getYForX(point.getX());
-                    ysOnLine.add(yOnLine);
-                    return point.getY().subtract(yOnLine);
-                })
-                .collect(Collectors.toList());
-        BigDecimal variance = varianceCalculator.calVariance(residuals);
-        BigDecimal meanOfYOnLine = meanCalculator.calMean(ysOnLine);
-        return variance.divide(meanOfYOnLine, mathContext);
+    public BigDecimal getVolatility(@Nonnull double[] xs, @Nonnull double[] ys, int from, int to)
+            throws ArithmeticException {
+        double slopeValue = slope.doubleValue();
+        double interceptValue = interceptOfY.doubleValue();
+        double residualSum = 0;
+        double residualSquareSum = 0;
+        double yOnLineSum = 0;
+        for (int i = from; i < to; ++i) {
+            double yOnLine = xs[i] * slopeValue + interceptValue;
+            double residual = ys[i] - yOnLine;
+            residualSum += residual;
+            residualSquareSum += residual * residual;
+            yOnLineSum += yOnLine;
+        }
+        int numPoints = to - from;
+        if (numPoints <= 0 || yOnLineSum == 0) {
+            throw new ArithmeticException("Mean of the y values on the line is 0");
+        }
+        double residualMean = residualSum / numPoints;
+        double variance = residualSquareSum / numPoints - residualMean * residualMean;
+        return new BigDecimal(variance / (yOnLineSum / numPoints), mathContext);
     }
 
 }
@@ -5,82 +5,239 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 @ThreadSafe
 @Immutable
 public class ShortestPathsResolver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ShortestPathsResolver.class);
+
+    // Number of currencies on each side of a tile of the blocked Floyd-Warshall.
+    // A tile of lengths and next symbol ids takes 2 * 64 * 64 * 4 bytes = 32 KB, which fits in L1/L2 cache.
+    static final int BLOCK_SIZE = 64;
+
     private final SystemService system;
 
+    // Null if the paths should be resolved sequentially
+    private final ForkJoinPool pool;
+
     public ShortestPathsResolver() {
         this(new SystemService());
     }
 
     public ShortestPathsResolver(@Nonnull SystemService system) {
+        this(system, null);
+    }
+
+    /**
+     * Constructs a new instance.
+     * If a pool is given, the independent tiles of a blocked Floyd-Warshall are resolved concurrently in it.
+     * Paths of the same length may then be chosen differently from the sequential resolution.
+     *
+     * @param system System service.
+     * @param pool   Pool to resolve the paths in, or null to resolve them sequentially. It's owned by the caller,
+     *               which should shut it down once the paths aren't resolved anymore.
+     */
+    public ShortestPathsResolver(@Nonnull SystemService system, @Nullable ForkJoinPool pool) {
         this.system = system;
+        this.pool = pool;
     }
 
     @Nonnull
-    public TradingPaths resolveAllShortestPaths(@Nonnull Collection<Symbol> symbols) {
+    public DenseTradingPaths resolveAllShortestPaths(@Nonnull Collection<Symbol> symbols) {
 
         long startTimeMs = system.currentTimeMillis();
         LOGGER.debug("Resolving all shortest paths...");
 
-        Map<Currency, Map<Currency, PathStep>> newPathGraph = buildInitialGraph(symbols);
+        Map<Currency, Integer> currencyIds = internCurrencies(symbols);
+        Symbol[] symbolTable = symbols.toArray(new Symbol[0]);
+        int size = currencyIds.size();
+        int[] lengths = new int[size * size];
+        int[] nextSymbolIds = new int[size * size];
+        Arrays.fill(nextSymbolIds, DenseTradingPaths.NO_PATH);
+        for (int symbolId = 0; symbolId < symbolTable.length; ++symbolId) {
+            Symbol symbol = symbolTable[symbolId];
+            int baseId = currencyIds.get(symbol.getBaseCurrency());
+            int quoteId = currencyIds.get(symbol.getQuoteCurrency());
+            addDirectPath(lengths, nextSymbolIds, baseId * size + quoteId, symbolId);
+            addDirectPath(lengths, nextSymbolIds, quoteId * size + baseId, symbolId);
+        }
 
-        // Floyd-Warshall
-        Set<Currency> currencies = newPathGraph.keySet();
-        for (Currency midCurrency : currencies) {
-            for (Currency sourceCurrency : currencies) {
-                for (Currency targetCurrency : currencies) {
-                    PathStep firstPathStep = newPathGraph.get(sourceCurrency).get(midCurrency);
-                    PathStep secondPathStep = newPathGraph.get(midCurrency).get(targetCurrency);
-                    if (firstPathStep == null || secondPathStep == null) {
-                        continue;
+        if (pool == null || size <= BLOCK_SIZE) {
+            relax(new Tile(size, lengths, nextSymbolIds, 0, size, 0, size, 0, size));
+        } else {
+            resolveBlocked(size, lengths, nextSymbolIds, pool);
+        }
+        long endTimeMs = system.currentTimeMillis();
+        LOGGER.debug("All shortest path resolved. Elapsed time: {} ms", endTimeMs - startTimeMs);
+        return new DenseTradingPaths(currencyIds, symbolTable, lengths, nextSymbolIds);
+    }
+
+    /**
+     * Blocked Floyd-Warshall.
+     * For each diagonal tile, the tile itself is relaxed first, then the tiles on the same row and column, and
+     * finally all the remaining tiles. The tiles within the last two phases don't depend on each other, so
+     * they are relaxed concurrently.
+     */
+    private static void resolveBlocked(
+            int size,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds,
+            @Nonnull ForkJoinPool pool) {
+        int numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (int midBlock = 0; midBlock < numBlocks; ++midBlock) {
+            relax(createTile(size, lengths, nextSymbolIds, midBlock, midBlock, midBlock));
+
+            List<Tile> tiles = new ArrayList<>();
+            for (int block = 0; block < numBlocks; ++block) {
+                if (block != midBlock) {
+                    tiles.add(createTile(size, lengths, nextSymbolIds, midBlock, block, midBlock));
+                    tiles.add(createTile(size, lengths, nextSymbolIds, block, midBlock, midBlock));
+                }
+            }
+            pool.invoke(new RelaxTilesAction(tiles, 0, tiles.size()));
+
+            tiles.clear();
+            for (int sourceBlock = 0; sourceBlock < numBlocks; ++sourceBlock) {
+                for (int targetBlock = 0; targetBlock < numBlocks; ++targetBlock) {
+                    if (sourceBlock != midBlock && targetBlock != midBlock) {
+                        tiles.add(createTile(size, lengths, nextSymbolIds, sourceBlock, targetBlock, midBlock));
                     }
-                    Map<Currency, PathStep> map = newPathGraph.get(sourceCurrency);
-                    PathStep oriPathStep = map.get(targetCurrency);
-                    int newLength = firstPathStep.getLength() + secondPathStep.getLength();
-                    if (oriPathStep == null) {
-                        oriPathStep = new PathStep(firstPathStep.getSymbolToNext(), newLength);
-                        map.put(targetCurrency, oriPathStep);
+                }
+            }
+            pool.invoke(new RelaxTilesAction(tiles, 0, tiles.size()));
+        }
+    }
+
+    @Nonnull
+    private static Tile createTile(
+            int size,
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds,
+            int sourceBlock,
+            int targetBlock,
+            int midBlock) {
+        return new Tile(size, lengths, nextSymbolIds,
+                midBlock * BLOCK_SIZE, Math.min(size, (midBlock + 1) * BLOCK_SIZE),
+                sourceBlock * BLOCK_SIZE, Math.min(size, (sourceBlock + 1) * BLOCK_SIZE),
+                targetBlock * BLOCK_SIZE, Math.min(size, (targetBlock + 1) * BLOCK_SIZE));
+    }
+
+    /**
+     * Relaxes the paths from the sources to the targets of the tile through its middle currencies.
+     */
+    private static void relax(@Nonnull Tile tile) {
+        int size = tile.size;
+        int[] lengths = tile.lengths;
+        int[] nextSymbolIds = tile.nextSymbolIds;
+        for (int midId = tile.midFrom; midId < tile.midTo; ++midId) {
+            int midRow = midId * size;
+            for (int sourceId = tile.sourceFrom; sourceId < tile.sourceTo; ++sourceId) {
+                int sourceRow = sourceId * size;
+                int firstNextSymbolId = nextSymbolIds[sourceRow + midId];
+                if (firstNextSymbolId == DenseTradingPaths.NO_PATH) {
+                    continue;
+                }
+                int firstLength = lengths[sourceRow + midId];
+                for (int targetId = tile.targetFrom; targetId < tile.targetTo; ++targetId) {
+                    if (nextSymbolIds[midRow + targetId] == DenseTradingPaths.NO_PATH) {
                         continue;
                     }
-                    if (newLength < oriPathStep.getLength()) {
-                        oriPathStep.setLength(newLength);
-                        oriPathStep.setSymbolToNext(firstPathStep.getSymbolToNext());
+                    int newLength = firstLength + lengths[midRow + targetId];
+                    int index = sourceRow + targetId;
+                    if (nextSymbolIds[index] == DenseTradingPaths.NO_PATH || newLength < lengths[index]) {
+                        lengths[index] = newLength;
+                        nextSymbolIds[index] = firstNextSymbolId;
                     }
                 }
             }
         }
-        long endTimeMs = system.currentTimeMillis();
-        LOGGER.debug("All shortest path resolved. Elapsed time: {} ms", endTimeMs - startTimeMs);
-        return new TradingPaths(newPathGraph);
     }
 
+    /**
+     * Assigns dense ids to the currencies of the symbols.
+     * The ids follow the iteration order of a hash map filled in the order the currencies are
+     * seen, which decides how ties between paths of the same length are broken.
+     */
     @Nonnull
-    private static Map<Currency, Map<Currency, PathStep>> buildInitialGraph(
-            @Nonnull Collection<Symbol> symbols) {
-        Map<Currency, Map<Currency, PathStep>> pathGraph = new HashMap<>();
+    private static Map<Currency, Integer> internCurrencies(@Nonnull Collection<Symbol> symbols) {
+        Map<Currency, Integer> currencyIds = new HashMap<>();
         symbols.forEach((symbol) -> {
-            Currency baseCurrency = symbol.getBaseCurrency();
-            Currency quoteCurrency = symbol.getQuoteCurrency();
-            addDirectPath(pathGraph, baseCurrency, quoteCurrency, symbol);
-            addDirectPath(pathGraph, quoteCurrency, baseCurrency, symbol);
+            currencyIds.computeIfAbsent(symbol.getBaseCurrency(), (c) -> 0);
+            currencyIds.computeIfAbsent(symbol.getQuoteCurrency(), (c) -> 0);
         });
-        return pathGraph;
+        int nextId = 0;
+        for (Map.Entry<Currency, Integer> entry : currencyIds.entrySet()) {
+            entry.setValue(nextId++);
+        }
+        return currencyIds;
     }
 
     private static void addDirectPath(
-            @Nonnull Map<Currency, Map<Currency, PathStep>> pathGraph,
-            @Nonnull Currency currency1,
-            @Nonnull Currency currency2,
-            @Nonnull Symbol symbol) {
-        pathGraph.computeIfAbsent(currency1, (c) -> new HashMap<>())
-                .put(currency2, new PathStep(symbol, 1));
+            @Nonnull int[] lengths,
+            @Nonnull int[] nextSymbolIds,
+            int index,
+            int symbolId) {
+        lengths[index] = 1;
+        nextSymbolIds[index] = symbolId;
+    }
+
+    /**
+     * Ranges of the source, target and middle currency ids to relax.
+     */
+    private static class Tile {
+        private final int size;
+        private final int[] lengths;
+        private final int[] nextSymbolIds;
+        private final int midFrom, midTo;
+        private final int sourceFrom, sourceTo;
+        private final int targetFrom, targetTo;
+
+        Tile(int size,
+             @Nonnull int[] lengths,
+             @Nonnull int[] nextSymbolIds,
+             int midFrom, int midTo,
+             int sourceFrom, int sourceTo,
+             int targetFrom, int targetTo) {
+            this.size = size;
+            this.lengths = lengths;
+            this.nextSymbolIds = nextSymbolIds;
+            this.midFrom = midFrom;
+            this.midTo = midTo;
+            this.sourceFrom = sourceFrom;
+            this.sourceTo = sourceTo;
+            this.targetFrom = targetFrom;
+            this.targetTo = targetTo;
+        }
+    }
+
+    private static class RelaxTilesAction extends RecursiveAction {
+        private final List<Tile> tiles;
+        private final int from;
+        private final int to;
+
+        RelaxTilesAction(@Nonnull List<Tile> tiles, int from, int to) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    relax(tiles.get(from));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RelaxTilesAction(tiles, from, mid), new RelaxTilesAction(tiles, mid, to));
+        }
     }
 }
@@ -3,7 +3,6 @@ package com.buridantrader;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
-import java.util.Objects;
 
 @ThreadSafe
 @Immutable
@@ -11,16 +10,23 @@ public class Symbol {
     private final Currency baseCurrency;
     private final Currency quoteCurrency;
 
+    // The symbols are looked up in hash tables on every price lookup, so the name and the hash code are
+    // computed only once
+    private final String name;
+    private final int hashCode;
+
     public Symbol(
             @Nonnull Currency baseCurrency,
             @Nonnull Currency quoteCurrency) {
         this.baseCurrency = baseCurrency;
         this.quoteCurrency = quoteCurrency;
+        this.name = baseCurrency.getName() + quoteCurrency.getName();
+        this.hashCode = 31 * baseCurrency.hashCode() + quoteCurrency.hashCode();
     }
 
     @Nonnull
     public String getName() {
-        return baseCurrency.getName() + quoteCurrency.getName();
+        return name;
     }
 
     @Nonnull
@@ -48,7 +54,7 @@ public class Symbol {
 
     @Override
     public int hashCode() {
-        return Objects.hash(baseCurrency, quoteCurrency);
+        return hashCode;
     }
 
     @Override
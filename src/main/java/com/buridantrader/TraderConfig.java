@@ -2,12 +2,16 @@ package com.buridantrader;
 
 import com.buridantrader.config.TradingConfig;
 import com.buridantrader.config.TradingConfigImpl;
+import com.buridantrader.services.binance.CandlestickIterator;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
 import javax.annotation.Nonnull;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Optional;
 import java.util.Properties;
 
 public class TraderConfig {
@@ -39,11 +43,150 @@ public class TraderConfig {
         return result;
     }
 
+    /**
+     * Whether the prices should be streamed with the all-market ticker stream, instead of only being polled.
+     *
+     * @return True if the prices should be streamed.
+     */
+    public boolean isPriceStreaming() {
+        return config.hasPath("binance.priceStream") && config.getBoolean("binance.priceStream");
+    }
+
+    /**
+     * Gets the max number of the price history fetched from Binance at once.
+     *
+     * @return Max number of concurrent fetches.
+     */
+    public int getMaxConcurrentPriceFetches() {
+        if (!config.hasPath("binance.maxConcurrentPriceFetches")) {
+            return CurrencyPriceViewer.DEFAULT_MAX_CONCURRENT_FETCHES;
+        }
+        return config.getInt("binance.maxConcurrentPriceFetches");
+    }
+
+    /**
+     * Gets the max number of pages of a long price history fetched ahead of the reader.
+     *
+     * @return Prefetch depth.
+     */
+    public int getPricePrefetchDepth() {
+        if (!config.hasPath("binance.pricePrefetchDepth")) {
+            return CandlestickIterator.DEFAULT_PREFETCH_DEPTH;
+        }
+        return config.getInt("binance.pricePrefetchDepth");
+    }
+
+    /**
+     * Gets how a minute of the price history of a trading path is priced when some steps have no candlestick.
+     *
+     * @return Gap handling.
+     */
+    @Nonnull
+    public PriceGapHandling getPriceGapHandling() {
+        if (!config.hasPath("binance.priceGapHandling")) {
+            return CurrencyPriceViewer.DEFAULT_GAP_HANDLING;
+        }
+        return config.getEnum(PriceGapHandling.class, "binance.priceGapHandling");
+    }
+
+    /**
+     * Gets the directory to store the price history in, so that it survives restarts without fetching it again.
+     *
+     * @return The directory, or empty if the price history shouldn't be stored.
+     */
+    @Nonnull
+    public Optional<File> getPriceHistoryDataDir() {
+        if (!config.hasPath("binance.priceHistoryDataDir")) {
+            return Optional.empty();
+        }
+        return Optional.of(new File(config.getString("binance.priceHistoryDataDir")));
+    }
+
     @Nonnull
     public TradingConfig getTradingConfig() {
         return tradingConfig;
     }
 
+    /**
+     * Whether the trading paths from a source currency should be searched only when they're needed,
+     * instead of resolving the paths between all pairs of currencies up front.
+     *
+     * @return True if the paths should be searched lazily.
+     */
+    public boolean isLazyPathFinding() {
+        return config.hasPath("pathFinding.lazy") && config.getBoolean("pathFinding.lazy");
+    }
+
+    /**
+     * Whether the trading paths with the best rates after fees at the latest prices should be resolved,
+     * instead of the paths with the fewest steps.
+     *
+     * @return True if the paths with the best rates should be resolved.
+     */
+    public boolean isBestRatePathFinding() {
+        return config.hasPath("pathFinding.bestRate") && config.getBoolean("pathFinding.bestRate");
+    }
+
+    /**
+     * Gets the max relative move of a price that the paths with the best rates aren't repaired for.
+     *
+     * @return The tolerance, for example 0.001 for 0.1%.
+     */
+    @Nonnull
+    public BigDecimal getBestRateTolerance() {
+        if (!config.hasPath("pathFinding.bestRateTolerance")) {
+            return BestRatePathsResolver.DEFAULT_TOLERANCE;
+        }
+        return new BigDecimal(config.getString("pathFinding.bestRateTolerance"));
+    }
+
+    /**
+     * Whether the trading paths should be answered from hub labels, instead of resolving the paths between
+     * all pairs of currencies up front. It takes far less memory when there are many currencies.
+     *
+     * @return True if the paths should be answered from hub labels.
+     */
+    public boolean isHubLabelPathFinding() {
+        return config.hasPath("pathFinding.hubLabels") && config.getBoolean("pathFinding.hubLabels");
+    }
+
+    /**
+     * Gets the number of threads used to resolve the paths between all pairs of currencies up front.
+     *
+     * @return Parallelism. The paths are resolved sequentially if it's 1.
+     */
+    public int getPathFindingParallelism() {
+        if (!config.hasPath("pathFinding.parallelism")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return config.getInt("pathFinding.parallelism");
+    }
+
+    /**
+     * Gets the max number of source currencies whose paths are cached if the paths are searched lazily.
+     *
+     * @return Max number of cached sources.
+     */
+    public int getMaxCachedPathSources() {
+        if (!config.hasPath("pathFinding.maxCachedSources")) {
+            return LazyPathsResolver.DEFAULT_MAX_CACHED_SOURCES;
+        }
+        return config.getInt("pathFinding.maxCachedSources");
+    }
+
+    /**
+     * Gets the directory to save the resolved trading paths to, so that they can be used right after a restart.
+     *
+     * @return The directory, or empty if the paths shouldn't be saved.
+     */
+    @Nonnull
+    public Optional<File> getPathFindingDataDir() {
+        if (!config.hasPath("pathFinding.dataDir")) {
+            return Optional.empty();
+        }
+        return Optional.of(new File(config.getString("pathFinding.dataDir")));
+    }
+
     private void loadSecret() throws IOException {
         if (secret != null) {
             return;
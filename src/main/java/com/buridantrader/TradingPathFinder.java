@@ -5,63 +5,175 @@ import com.buridantrader.exceptions.ValueLimitException;
 import com.buridantrader.services.symbol.SymbolService;
 import com.buridantrader.services.symbol.SymbolPriceService;
 import com.buridantrader.services.system.SystemService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @ThreadSafe
 public class TradingPathFinder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TradingPathFinder.class);
-    private final ShortestPathsResolver shortestPathsResolver;
+
+    // Max number of loop-free routes between a pair of currencies to fall back to
+    private static final int MAX_NUM_ALTERNATIVE_ROUTES = 3;
+    private final PathsResolver pathsResolver;
     private final SymbolPriceService symbolPriceService;
     private final SymbolService symbolService;
     private final SystemService system;
 
-    // Be careful the referenced instance may be changed by other threads
-    private Instant lastUpdateTime;
-    private TradingPaths tradingPaths;
+    private final Executor rebuildExecutor;
 
-    public TradingPathFinder(
-            @Nonnull SymbolService symbolService,
-            @Nonnull SymbolPriceService symbolPriceService) {
-        this(symbolService,
-                symbolPriceService,
-            new ShortestPathsResolver(),
-            new SystemService());
-    }
+    // Null before the paths are resolved for the first time
+    private final AtomicReference<PathsSnapshot> snapshot = new AtomicReference<>();
+
+    // Whether a rebuild of the paths is submitted and not finished yet
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
 
+    /**
+     * Constructs a new instance.
+     * The paths are resolved in the calling thread the first time they're needed, unless the resolver has
+     * saved paths to use in the meantime. After that, they're rebuilt with the given executor when the
+     * symbols are updated or the resolver finds them outdated, and the callers keep using the earlier paths
+     * until the rebuilt paths are published.
+     *
+     * @param symbolService      Symbol service.
+     * @param symbolPriceService Symbol price service.
+     * @param pathsResolver      Resolver of the paths.
+     * @param rebuildExecutor    Executor to rebuild the paths.
+     * @param system             System service.
+     */
     public TradingPathFinder(
             @Nonnull SymbolService symbolService,
             @Nonnull SymbolPriceService symbolPriceService,
-            @Nonnull ShortestPathsResolver shortestPathsResolver,
+            @Nonnull PathsResolver pathsResolver,
+            @Nonnull Executor rebuildExecutor,
             @Nonnull SystemService system) {
         this.symbolPriceService = symbolPriceService;
         this.symbolService = symbolService;
-        this.shortestPathsResolver = shortestPathsResolver;
+        this.pathsResolver = pathsResolver;
+        this.rebuildExecutor = rebuildExecutor;
         this.system = system;
     }
 
+    /**
+     * Captures the latest symbols, prices and trading paths at once.
+     * The symbol infos are the ones the paths are resolved from, so every symbol on the paths has its info.
+     * The orders and the values found with the snapshot are consistent with each other, and don't change
+     * when the market is refreshed in the meantime.
+     *
+     * @return The snapshot.
+     * @throws IOException Fail to get the symbols or the prices.
+     */
+    @Nonnull
+    public MarketSnapshot captureMarketSnapshot() throws IOException {
+        PathsSnapshot nowSnapshot = getSnapshot();
+        return new MarketSnapshot(
+                nowSnapshot.getSymbolInfos(), symbolPriceService.getPriceSnapshot(), nowSnapshot);
+    }
+
+    /**
+     * Finds the orders to trade from the source currency to the target currency.
+     * The routes are cached until the paths are rebuilt, so the same instance may be returned for the same
+     * currencies.
+     *
+     * @param sourceCurrency Source currency.
+     * @param targetCurrency Target currency.
+     * @return Unmodifiable list of the order specs.
+     * @throws IOException         Fail to get the symbols.
+     * @throws NoSuchPathException There's no path from the source currency to the target currency.
+     */
     @Nonnull
     public List<OrderSpec> findPathOfOrderSpecs(
             @Nonnull final Currency sourceCurrency,
             @Nonnull final Currency targetCurrency
     ) throws IOException, NoSuchPathException {
-        checkFreshness();
+        return findPathOfOrderSpecs(getSnapshot(), sourceCurrency, targetCurrency);
+    }
+
+    /**
+     * Finds the orders to trade from the source currency to the target currency with the paths of the
+     * market snapshot.
+     *
+     * @param market         Market snapshot.
+     * @param sourceCurrency Source currency.
+     * @param targetCurrency Target currency.
+     * @return Unmodifiable list of the order specs.
+     * @throws NoSuchPathException There's no path from the source currency to the target currency.
+     */
+    @Nonnull
+    public List<OrderSpec> findPathOfOrderSpecs(
+            @Nonnull final MarketSnapshot market,
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Currency targetCurrency
+    ) throws NoSuchPathException {
+        return findPathOfOrderSpecs(market.getPaths(), sourceCurrency, targetCurrency);
+    }
+
+    @Nonnull
+    private List<OrderSpec> findPathOfOrderSpecs(
+            @Nonnull PathsSnapshot nowSnapshot,
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) throws NoSuchPathException {
+        List<OrderSpec> path = getRoute(nowSnapshot, sourceCurrency, targetCurrency);
+        if (path.isEmpty()) {
+            throw new NoSuchPathException("No trading path from " +sourceCurrency + " to " + targetCurrency);
+        }
+        return path;
+    }
+
+    /**
+     * Gets the route from the source currency to the target currency from the route cache of the snapshot,
+     * and walks the paths if it isn't cached yet.
+     *
+     * @return Order specs of the path, or an empty list if there's no path.
+     */
+    @Nonnull
+    private List<OrderSpec> getRoute(
+            @Nonnull PathsSnapshot nowSnapshot,
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) {
+        List<OrderSpec> path = nowSnapshot.getRoute(sourceCurrency, targetCurrency);
+        if (path == null) {
+            path = walkPath(nowSnapshot.getTradingPaths(), sourceCurrency, targetCurrency);
+            nowSnapshot.putRoute(sourceCurrency, targetCurrency, path);
+        }
+        return path;
+    }
+
+    /**
+     * Walks the path from the source currency to the target currency.
+     *
+     * @return Order specs of the path, or an empty list if there's no path.
+     */
+    @Nonnull
+    private List<OrderSpec> walkPath(
+            @Nonnull TradingPaths tradingPaths,
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency) {
         Optional<PathStep> optPathEntry = tradingPaths.getNextStep(sourceCurrency, targetCurrency);
-        List<OrderSpec> path = new ArrayList<>();
+        ImmutableList.Builder<OrderSpec> path = ImmutableList.builder();
         Currency nowCurrency = sourceCurrency;
         do {
             if (!optPathEntry.isPresent()) {
-                throw new NoSuchPathException("No trading path from " +sourceCurrency + " to " + targetCurrency);
+                return ImmutableList.of();
             }
             PathStep pathStep = optPathEntry.get();
             path.add(createOrderSpec(nowCurrency, pathStep.getSymbolToNext()));
@@ -69,7 +181,7 @@ public class TradingPathFinder {
             optPathEntry = tradingPaths.getNextStep(nextCurrency, targetCurrency);
             nowCurrency = nextCurrency;
         } while (!nowCurrency.equals(targetCurrency));
-        return path;
+        return path.build();
     }
 
     @Nonnull
@@ -77,29 +189,335 @@ public class TradingPathFinder {
             @Nonnull final Currency sourceCurrency,
             @Nonnull final Currency targetCurrency,
             @Nonnull final BigDecimal quantity) throws IOException, ValueLimitException, NoSuchPathException {
-        List<OrderSpec> orderSpecs = findPathOfOrderSpecs(sourceCurrency, targetCurrency);
+        return findPathOfOrders(captureMarketSnapshot(), sourceCurrency, targetCurrency, quantity);
+    }
+
+    @Nonnull
+    public List<Order> findPathOfOrders(
+            @Nonnull final MarketSnapshot market,
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Currency targetCurrency,
+            @Nonnull final BigDecimal quantity) throws IOException, ValueLimitException, NoSuchPathException {
+        return createOrders(market, findPathOfOrderSpecs(market, sourceCurrency, targetCurrency), quantity);
+    }
+
+    /**
+     * Finds the loop-free routes from the source currency to the target currency with the fewest steps.
+     * They're searched on the graph of the currencies built with the latest paths, and cached until the
+     * symbols are changed.
+     *
+     * @param sourceCurrency Source currency.
+     * @param targetCurrency Target currency.
+     * @return Unmodifiable list of the routes, with the fewest steps first. It's empty if there's no route.
+     * @throws IOException Fail to get the symbols.
+     */
+    @Nonnull
+    public List<List<OrderSpec>> findAlternativePathsOfOrderSpecs(
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Currency targetCurrency) throws IOException {
+        return getSnapshot().getAlternativeRoutes().getRoutes(sourceCurrency, targetCurrency);
+    }
+
+    /**
+     * Finds the orders to trade from the source currency to the target currency without trading the given
+     * symbols, for example after an order of them fails.
+     * The route of {@link #findPathOfOrderSpecs(Currency, Currency)} is used if it doesn't trade the given
+     * symbols. Otherwise, the routes of {@link #findAlternativePathsOfOrderSpecs(Currency, Currency)} are
+     * tried in order.
+     *
+     * @param sourceCurrency  Source currency.
+     * @param targetCurrency  Target currency.
+     * @param quantity        Quantity of the source currency.
+     * @param excludedSymbols Symbols not to trade.
+     * @return The orders.
+     * @throws IOException         Fail to get the symbols or the prices.
+     * @throws NoSuchPathException There's no route without the given symbols whose orders are within the
+     *                             limits.
+     */
+    @Nonnull
+    public List<Order> findAlternativePathOfOrders(
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Currency targetCurrency,
+            @Nonnull final BigDecimal quantity,
+            @Nonnull final Collection<Symbol> excludedSymbols) throws IOException, NoSuchPathException {
+        return findAlternativePathOfOrders(
+                captureMarketSnapshot(), sourceCurrency, targetCurrency, quantity, excludedSymbols);
+    }
+
+    @Nonnull
+    public List<Order> findAlternativePathOfOrders(
+            @Nonnull final MarketSnapshot market,
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Currency targetCurrency,
+            @Nonnull final BigDecimal quantity,
+            @Nonnull final Collection<Symbol> excludedSymbols) throws IOException, NoSuchPathException {
+        PathsSnapshot nowSnapshot = market.getPaths();
+        List<List<OrderSpec>> routes = new ArrayList<>();
+        routes.add(getRoute(nowSnapshot, sourceCurrency, targetCurrency));
+        routes.addAll(nowSnapshot.getAlternativeRoutes().getRoutes(sourceCurrency, targetCurrency));
+        for (List<OrderSpec> route : routes) {
+            if (route.isEmpty()
+                    || route.stream().anyMatch((orderSpec) -> excludedSymbols.contains(orderSpec.getSymbol()))) {
+                continue;
+            }
+            try {
+                return createOrders(market, route, quantity);
+            } catch (ValueLimitException ex) {
+                LOGGER.debug("Orders of route {} are out of limits", route, ex);
+            }
+        }
+        throw new NoSuchPathException("No trading path from " + sourceCurrency + " to " + targetCurrency
+                + " without symbols " + excludedSymbols);
+    }
+
+    @Nonnull
+    private List<Order> createOrders(
+            @Nonnull MarketSnapshot market,
+            @Nonnull List<OrderSpec> orderSpecs,
+            @Nonnull BigDecimal quantity) throws IOException, ValueLimitException {
         List<Order> orders = new ArrayList<>(orderSpecs.size());
-        BigDecimal nowQuantity = quantity;
+        OrderNode node = new OrderNode(null, quantity);
         for (OrderSpec orderSpec : orderSpecs) {
-            BigDecimal price = getPriceForSymbol(orderSpec.getSymbol());
-            SymbolInfo symbolInfo = getSymbolInfo(orderSpec.getSymbol());
-            BigDecimal orderQuantity = calOrderQuantity(nowQuantity, orderSpec, symbolInfo, price);
+            node = createOrderNode(market, node.getQuantity(), orderSpec);
+            orders.add(node.getOrder());
+        }
+        return orders;
+    }
+
+    /**
+     * Finds the orders from the source currency to each of the target currencies.
+     * The routes to the targets form a tree rooted at the source currency. Each order on the tree is
+     * calculated only once, so the targets whose routes share the same first steps share the prices, the
+     * symbol info and the quantities of those steps.
+     *
+     * @param sourceCurrency   Source currency.
+     * @param targetCurrencies Target currencies.
+     * @param quantity         Quantity of the source currency.
+     * @return Map from target currency to the orders, in the order of the given target currencies. A target
+     *         currency without a trading path, or whose orders are out of the limits of their symbols, isn't in
+     *         the map.
+     * @throws IOException Fail to get the symbols or the prices.
+     */
+    @Nonnull
+    public Map<Currency, List<Order>> findPathsOfOrders(
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Collection<Currency> targetCurrencies,
+            @Nonnull final BigDecimal quantity) throws IOException {
+        return findPathsOfOrders(captureMarketSnapshot(), sourceCurrency, targetCurrencies, quantity);
+    }
 
-            BigDecimal formalizedQuantity = symbolInfo.getQuantityFormalizer()
-                    .formalize(orderQuantity, RoundingMode.DOWN);
-            Order order = new Order(orderSpec, formalizedQuantity);
+    @Nonnull
+    public Map<Currency, List<Order>> findPathsOfOrders(
+            @Nonnull final MarketSnapshot market,
+            @Nonnull final Currency sourceCurrency,
+            @Nonnull final Collection<Currency> targetCurrencies,
+            @Nonnull final BigDecimal quantity) throws IOException {
+        PathsSnapshot nowSnapshot = market.getPaths();
+        OrderNode root = new OrderNode(null, quantity);
+        Map<Currency, List<Order>> result = new LinkedHashMap<>();
+        for (Currency targetCurrency : targetCurrencies) {
+            List<OrderSpec> orderSpecs = getRoute(nowSnapshot, sourceCurrency, targetCurrency);
+            if (orderSpecs.isEmpty()) {
+                LOGGER.debug("No trading path from {} to {}", sourceCurrency, targetCurrency);
+                continue;
+            }
+            List<Order> orders = new ArrayList<>(orderSpecs.size());
+            OrderNode node = root;
+            for (OrderSpec orderSpec : orderSpecs) {
+                node = node.getChild(orderSpec,
+                        (nowQuantity, nowOrderSpec) -> createOrderNode(market, nowQuantity, nowOrderSpec));
+                if (node.getOrder() == null) {
+                    break;
+                }
+                orders.add(node.getOrder());
+            }
+            if (orders.size() < orderSpecs.size()) {
+                LOGGER.debug("Orders from {} to {} are out of limits", sourceCurrency, targetCurrency);
+                continue;
+            }
+            result.put(targetCurrency, orders);
+        }
+        return result;
+    }
 
-            orders.add(order);
+    /**
+     * Creates the order trading the given quantity with the given order spec.
+     *
+     * @return Node of the order, and the quantity of the target currency of the order.
+     * @throws ValueLimitException The price or the quantity of the order is out of limits.
+     */
+    @Nonnull
+    private OrderNode createOrderNode(
+            @Nonnull MarketSnapshot market,
+            @Nonnull BigDecimal nowQuantity,
+            @Nonnull OrderSpec orderSpec) throws IOException, ValueLimitException {
+        BigDecimal price = getPriceForOrder(market, orderSpec);
+        SymbolInfo symbolInfo = getSymbolInfo(market, orderSpec.getSymbol());
+        BigDecimal orderQuantity = calOrderQuantity(nowQuantity, orderSpec, symbolInfo, price);
 
-            nowQuantity = calTargetQuantity(order, symbolInfo, price);
+        BigDecimal formalizedQuantity = symbolInfo.getQuantityFormalizer()
+                .formalize(orderQuantity, RoundingMode.DOWN);
+        Order order = new Order(orderSpec, formalizedQuantity);
+
+        return new OrderNode(order, calTargetQuantity(order, symbolInfo, price));
+    }
+
+    /**
+     * Checks whether the quantity of the source currency can be traded toward the target currency.
+     * Only the first order of the route is checked, because the quantity of the source currency is what's
+     * left as dust when it's below the min quantity of the symbol.
+     *
+     * @param market         Market snapshot.
+     * @param sourceCurrency Source currency.
+     * @param targetCurrency Target currency.
+     * @param quantity       Quantity of the source currency.
+     * @return True if the first order is within the limits of its symbol. False if it isn't, or if there's no
+     *         path to the target currency.
+     * @throws IOException Fail to get the symbols or the prices.
+     */
+    public boolean isTradable(
+            @Nonnull MarketSnapshot market,
+            @Nonnull Currency sourceCurrency,
+            @Nonnull Currency targetCurrency,
+            @Nonnull BigDecimal quantity) throws IOException {
+        if (sourceCurrency.equals(targetCurrency)) {
+            return true;
+        }
+        List<OrderSpec> orderSpecs = getRoute(market.getPaths(), sourceCurrency, targetCurrency);
+        if (orderSpecs.isEmpty()) {
+            return false;
+        }
+        OrderSpec orderSpec = orderSpecs.get(0);
+        SymbolInfo symbolInfo = getSymbolInfo(market, orderSpec.getSymbol());
+        try {
+            BigDecimal orderQuantity = calOrderQuantity(
+                    quantity, orderSpec, symbolInfo, getPriceForOrder(market, orderSpec));
+            // A quantity slightly below the min quantity is rounded up to it, which is more than what's held
+            return symbolInfo.getQuantityFormalizer()
+                    .formalize(orderQuantity, RoundingMode.DOWN)
+                    .compareTo(orderQuantity) <= 0;
+        } catch (ValueLimitException ex) {
+            LOGGER.debug("Quantity {} of {} is out of limits", quantity, sourceCurrency);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the values of one unit of the given currencies relative to the target currency.
+     * The values are calculated along the shortest paths to the target currency, which form a tree rooted at
+     * the target currency. The value of each currency on the tree is calculated only once, so the paths
+     * sharing the same tail share the calculation.
+     * The prices are formalized as {@link #findPathOfOrders(Currency, Currency, BigDecimal)} does, but the
+     * quantities aren't, so the values don't depend on the quantities to trade.
+     *
+     * @param currencies     Currencies to get the values of.
+     * @param targetCurrency Target currency.
+     * @return Map from currency to the value of one unit. A currency without a path to the target currency
+     *         isn't in the map. The value is zero if any price on the path is out of its limits.
+     * @throws IOException Fail to get the symbols or the prices.
+     */
+    @Nonnull
+    public Map<Currency, BigDecimal> getUnitValues(
+            @Nonnull Collection<Currency> currencies,
+            @Nonnull Currency targetCurrency) throws IOException {
+        return getUnitValues(captureMarketSnapshot(), currencies, targetCurrency);
+    }
+
+    @Nonnull
+    public Map<Currency, BigDecimal> getUnitValues(
+            @Nonnull MarketSnapshot market,
+            @Nonnull Collection<Currency> currencies,
+            @Nonnull Currency targetCurrency) throws IOException {
+        TradingPaths tradingPaths = market.getPaths().getTradingPaths();
+        Map<Currency, BigDecimal> unitValues = new HashMap<>();
+        unitValues.put(targetCurrency, BigDecimal.ONE);
+        Set<Currency> unreachableCurrencies = new HashSet<>();
+        Map<Currency, BigDecimal> result = new HashMap<>();
+        for (Currency currency : currencies) {
+            BigDecimal unitValue = resolveUnitValue(
+                    market, tradingPaths, currency, targetCurrency, unitValues, unreachableCurrencies);
+            if (unitValue != null) {
+                result.put(currency, unitValue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the value of one unit of the currency by walking its path until a currency whose value is
+     * already resolved, and then resolving the values of the currencies on the way back.
+     *
+     * @return The value, or null if there's no path to the target currency.
+     */
+    @Nullable
+    private BigDecimal resolveUnitValue(
+            @Nonnull MarketSnapshot market,
+            @Nonnull TradingPaths tradingPaths,
+            @Nonnull Currency currency,
+            @Nonnull Currency targetCurrency,
+            @Nonnull Map<Currency, BigDecimal> unitValues,
+            @Nonnull Set<Currency> unreachableCurrencies) throws IOException {
+        Deque<Currency> walkedCurrencies = new ArrayDeque<>();
+        Deque<BigDecimal> rates = new ArrayDeque<>();
+        Currency nowCurrency = currency;
+        BigDecimal unitValue = unitValues.get(nowCurrency);
+        while (unitValue == null) {
+            Optional<PathStep> optPathStep = unreachableCurrencies.contains(nowCurrency)
+                    ? Optional.empty() : tradingPaths.getNextStep(nowCurrency, targetCurrency);
+            if (!optPathStep.isPresent()) {
+                unreachableCurrencies.add(nowCurrency);
+                unreachableCurrencies.addAll(walkedCurrencies);
+                return null;
+            }
+            Symbol symbol = optPathStep.get().getSymbolToNext();
+            walkedCurrencies.push(nowCurrency);
+            rates.push(getUnitRate(market, createOrderSpec(nowCurrency, symbol)));
+            nowCurrency = optPathStep.get().getNextCurrency(nowCurrency);
+            unitValue = unitValues.get(nowCurrency);
+        }
+        while (!walkedCurrencies.isEmpty()) {
+            unitValue = rates.pop().multiply(unitValue, MathContext.DECIMAL128);
+            unitValues.put(walkedCurrencies.pop(), unitValue);
+        }
+        return unitValue;
+    }
+
+    /**
+     * Gets the quantity of the target currency of the order got by trading one unit of the source currency.
+     *
+     * @return The quantity, or zero if the price is out of its limits.
+     */
+    @Nonnull
+    private BigDecimal getUnitRate(@Nonnull MarketSnapshot market, @Nonnull OrderSpec orderSpec)
+            throws IOException {
+        SymbolInfo symbolInfo = getSymbolInfo(market, orderSpec.getSymbol());
+        BigDecimal price = getPriceForOrder(market, orderSpec);
+        try {
+            if (OrderSide.SELL.equals(orderSpec.getOrderSide())) {
+                return symbolInfo.getPriceFormalizer().formalize(price, RoundingMode.DOWN);
+            } else {
+                BigDecimal formalizedPrice = symbolInfo.getPriceFormalizer().formalize(price, RoundingMode.UP);
+                return BigDecimal.ONE.divide(formalizedPrice, MathContext.DECIMAL128);
+            }
+        } catch (ValueLimitException ex) {
+            LOGGER.debug("Price {} of symbol {} is out of limits", price, orderSpec.getSymbol());
+            return BigDecimal.ZERO;
+        } catch (ArithmeticException ex) {
+            LOGGER.debug("Price of symbol {} is zero", orderSpec.getSymbol());
+            return BigDecimal.ZERO;
         }
-        return orders;
     }
 
     @Nonnull
     public BigDecimal getOrderTargetQuantity(@Nonnull Order order) throws IOException {
+        return getOrderTargetQuantity(captureMarketSnapshot(), order);
+    }
+
+    @Nonnull
+    public BigDecimal getOrderTargetQuantity(@Nonnull MarketSnapshot market, @Nonnull Order order)
+            throws IOException {
         if (OrderSide.SELL.equals(order.getOrderSpec().getOrderSide())) {
-            return calOrderQuoteQuantity(order, RoundingMode.DOWN);
+            return calOrderQuoteQuantity(market, order, RoundingMode.DOWN);
         } else {
             return order.getQuantity();
         }
@@ -107,8 +525,14 @@ public class TradingPathFinder {
 
     @Nonnull
     public BigDecimal getOrderSourceQuantity(@Nonnull Order order) throws IOException {
+        return getOrderSourceQuantity(captureMarketSnapshot(), order);
+    }
+
+    @Nonnull
+    public BigDecimal getOrderSourceQuantity(@Nonnull MarketSnapshot market, @Nonnull Order order)
+            throws IOException {
         if (OrderSide.BUY.equals(order.getOrderSpec().getOrderSide())) {
-            return calOrderQuoteQuantity(order, RoundingMode.UP);
+            return calOrderQuoteQuantity(market, order, RoundingMode.UP);
         } else {
             return order.getQuantity();
         }
@@ -116,11 +540,13 @@ public class TradingPathFinder {
 
     @Nonnull
     private BigDecimal calOrderQuoteQuantity(
-            @Nonnull Order order, @Nonnull RoundingMode roundingMode) throws IOException {
+            @Nonnull MarketSnapshot market,
+            @Nonnull Order order,
+            @Nonnull RoundingMode roundingMode) throws IOException {
         BigDecimal orderQuantity = order.getQuantity();
         OrderSpec orderSpec = order.getOrderSpec();
-        SymbolInfo symbolInfo = getSymbolInfo(orderSpec.getSymbol());
-        BigDecimal price = getPriceForSymbol(orderSpec.getSymbol());
+        SymbolInfo symbolInfo = getSymbolInfo(market, orderSpec.getSymbol());
+        BigDecimal price = getPriceForOrder(market, orderSpec);
         BigDecimal formalizedPrice = symbolInfo.getPriceFormalizer()
                 .formalize(price, roundingMode);
         return orderQuantity.multiply(formalizedPrice);
@@ -167,29 +593,146 @@ public class TradingPathFinder {
     }
 
     @Nonnull
-    private SymbolInfo getSymbolInfo(@Nonnull Symbol symbol) throws IOException {
-        return symbolService.getSymbolInfo(symbol)
+    private SymbolInfo getSymbolInfo(@Nonnull MarketSnapshot market, @Nonnull Symbol symbol)
+            throws IOException {
+        return market.getSymbolInfo(symbol)
                 .orElseThrow(() -> new IOException("Fail to get symbol info of " + symbol));
     }
 
+    /**
+     * Gets the price the market order is expected to be filled at: the best ask price for a buy order, or the
+     * best bid price for a sell order. The last price is used if the order book of the symbol is empty.
+     */
+    @Nonnull
+    private BigDecimal getPriceForOrder(@Nonnull MarketSnapshot market, @Nonnull OrderSpec orderSpec)
+            throws IOException {
+        Optional<BookPrice> optBookPrice = market.getBookPrice(orderSpec.getSymbol());
+        if (optBookPrice.isPresent()) {
+            return optBookPrice.get().getPrice(orderSpec.getOrderSide());
+        }
+        return getPriceForSymbol(market, orderSpec.getSymbol());
+    }
+
     @Nonnull
-    private BigDecimal getPriceForSymbol(@Nonnull Symbol symbol) throws IOException {
-        return symbolPriceService.getPrice(symbol)
+    private BigDecimal getPriceForSymbol(@Nonnull MarketSnapshot market, @Nonnull Symbol symbol)
+            throws IOException {
+        return market.getPrice(symbol)
                 .orElseThrow(() -> new IOException("Fail to get current price of symbol " + symbol));
     }
 
-    private synchronized void checkFreshness() throws IOException {
-        if (lastUpdateTime == null || symbolService.isUpdatedSince(lastUpdateTime)) {
-            tradingPaths = shortestPathsResolver.resolveAllShortestPaths(
-                    symbolService.getAllSymbolInfos().stream()
-                            .map(SymbolInfo::getSymbol)
-                            .collect(Collectors.toList()));
-            lastUpdateTime = Instant.ofEpochMilli(system.currentTimeMillis());
+    /**
+     * Gets the latest published snapshot of the trading paths.
+     * If the symbols are updated since the paths are resolved, or the resolver finds the paths outdated,
+     * a rebuild of the paths is submitted, and the earlier snapshot is returned unless the rebuild is
+     * already done.
+     */
+    @Nonnull
+    private PathsSnapshot getSnapshot() throws IOException {
+        PathsSnapshot nowSnapshot = snapshot.get();
+        if (nowSnapshot == null) {
+            return resolveFirstSnapshot();
+        }
+        Instant updateTime = nowSnapshot.getUpdateTime();
+        if (symbolService.isUpdatedSince(updateTime) || pathsResolver.isOutdated(updateTime)) {
+            submitRebuild();
         }
+        return snapshot.get();
+    }
+
+    private void submitRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(this::rebuildSnapshot);
+        } catch (RejectedExecutionException ex) {
+            rebuilding.set(false);
+            LOGGER.error("Fail to submit the rebuild of the trading paths", ex);
+        }
+    }
+
+    /**
+     * Resolves the paths for the first time.
+     * The callers are blocked until the first paths are resolved, because there aren't any earlier paths to
+     * use. If there are paths saved from the latest symbols, they're used instead, and a rebuild is submitted to
+     * revalidate them.
+     */
+    @Nonnull
+    private synchronized PathsSnapshot resolveFirstSnapshot() throws IOException {
+        PathsSnapshot nowSnapshot = snapshot.get();
+        if (nowSnapshot == null) {
+            Map<Symbol, SymbolInfo> symbolInfos = getSymbolInfos();
+            nowSnapshot = loadSnapshot(symbolInfos);
+            if (nowSnapshot == null) {
+                nowSnapshot = createSnapshot(null, symbolInfos);
+                snapshot.set(nowSnapshot);
+            } else {
+                snapshot.set(nowSnapshot);
+                submitRebuild();
+            }
+        }
+        return nowSnapshot;
+    }
+
+    @Nullable
+    private PathsSnapshot loadSnapshot(@Nonnull Map<Symbol, SymbolInfo> symbolInfos) {
+        // The saved paths are only used if they're resolved from the same symbols, so that every symbol on
+        // the paths has its info
+        Optional<TradingPaths> optTradingPaths = pathsResolver.loadSavedPaths(symbolInfos.keySet());
+        if (!optTradingPaths.isPresent()) {
+            return null;
+        }
+        return new PathsSnapshot(optTradingPaths.get(), symbolInfos, Instant.EPOCH, new ConcurrentHashMap<>(),
+                new AlternativeRoutes(symbolInfos.keySet(), MAX_NUM_ALTERNATIVE_ROUTES));
+    }
+
+    private void rebuildSnapshot() {
+        try {
+            snapshot.set(createSnapshot(snapshot.get()));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Fail to rebuild the trading paths", ex);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Nonnull
+    private PathsSnapshot createSnapshot(@Nullable PathsSnapshot oldSnapshot) throws IOException {
+        // The symbols and their infos are taken from the same version, so that they match each other
+        return createSnapshot(oldSnapshot, getSymbolInfos());
+    }
+
+    @Nonnull
+    private PathsSnapshot createSnapshot(
+            @Nullable PathsSnapshot oldSnapshot,
+            @Nonnull Map<Symbol, SymbolInfo> symbolInfos) throws IOException {
+        List<Symbol> newSymbols = ImmutableList.copyOf(symbolInfos.keySet());
+        TradingPaths tradingPaths = pathsResolver.resolvePaths(
+                newSymbols, oldSnapshot == null ? null : oldSnapshot.getTradingPaths());
+        Instant updateTime = Instant.ofEpochMilli(system.currentTimeMillis());
+        Set<Symbol> newSymbolSet = symbolInfos.keySet();
+
+        // The routes are still valid if neither the symbols nor the paths are changed
+        ConcurrentMap<Currency, ConcurrentMap<Currency, List<OrderSpec>>> routes =
+                oldSnapshot != null
+                        && oldSnapshot.getTradingPaths() == tradingPaths
+                        && oldSnapshot.getSymbols().equals(newSymbolSet)
+                        ? oldSnapshot.getRoutes() : new ConcurrentHashMap<>();
+        // The alternative routes only depend on the symbols
+        AlternativeRoutes alternativeRoutes = oldSnapshot != null && oldSnapshot.getSymbols().equals(newSymbolSet)
+                ? oldSnapshot.getAlternativeRoutes()
+                : new AlternativeRoutes(newSymbols, MAX_NUM_ALTERNATIVE_ROUTES);
+        return new PathsSnapshot(tradingPaths, symbolInfos, updateTime, routes, alternativeRoutes);
     }
 
     @Nonnull
-    private OrderSpec createOrderSpec(
+    private Map<Symbol, SymbolInfo> getSymbolInfos() throws IOException {
+        return symbolService.getAllSymbolInfos().stream()
+                .collect(ImmutableMap.toImmutableMap(SymbolInfo::getSymbol, (info) -> info));
+    }
+
+    @Nonnull
+    static OrderSpec createOrderSpec(
             @Nonnull Currency sourceCurrency,
             @Nonnull Symbol symbol) {
         OrderSide orderSide;
@@ -206,4 +749,135 @@ public class TradingPathFinder {
         return symbolInfo.getQuantityStepSize().stripTrailingZeros().scale();
     }
 
-}
\ No newline at end of file
+    /**
+     * Node of the tree of orders from a source currency.
+     * A node is the order of a step, and the quantity of the currency reached after the order.
+     */
+    private static class OrderNode {
+        // Null if this is the root, or the order of the step is out of limits
+        private final Order order;
+        private final BigDecimal quantity;
+        private final Map<OrderSpec, OrderNode> children = new HashMap<>();
+
+        OrderNode(@Nullable Order order, @Nonnull BigDecimal quantity) {
+            this.order = order;
+            this.quantity = quantity;
+        }
+
+        @Nullable
+        Order getOrder() {
+            return order;
+        }
+
+        @Nonnull
+        BigDecimal getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Gets the child node of the given order spec, and creates it if it's not created yet.
+         * If the order is out of limits, the child node is a node without order, so that every route through
+         * it fails without trading it again.
+         */
+        @Nonnull
+        OrderNode getChild(
+                @Nonnull OrderSpec orderSpec,
+                @Nonnull OrderNodeFactory factory) throws IOException {
+            OrderNode child = children.get(orderSpec);
+            if (child == null) {
+                try {
+                    child = factory.create(quantity, orderSpec);
+                } catch (ValueLimitException ex) {
+                    child = new OrderNode(null, BigDecimal.ZERO);
+                }
+                children.put(orderSpec, child);
+            }
+            return child;
+        }
+    }
+
+    @FunctionalInterface
+    private interface OrderNodeFactory {
+        @Nonnull
+        OrderNode create(@Nonnull BigDecimal quantity, @Nonnull OrderSpec orderSpec)
+                throws IOException, ValueLimitException;
+    }
+
+    /**
+     * Trading paths resolved from a version of the symbols, the infos of those symbols, and the routes found
+     * from them.
+     */
+    @ThreadSafe
+    static class PathsSnapshot {
+        private final TradingPaths tradingPaths;
+        private final Map<Symbol, SymbolInfo> symbolInfos;
+        private final Instant updateTime;
+
+        // Routes indexed by the source and the target currency. An empty route means there's no path.
+        private final ConcurrentMap<Currency, ConcurrentMap<Currency, List<OrderSpec>>> routes;
+        private final AlternativeRoutes alternativeRoutes;
+
+        PathsSnapshot(
+                @Nonnull TradingPaths tradingPaths,
+                @Nonnull Map<Symbol, SymbolInfo> symbolInfos,
+                @Nonnull Instant updateTime,
+                @Nonnull ConcurrentMap<Currency, ConcurrentMap<Currency, List<OrderSpec>>> routes,
+                @Nonnull AlternativeRoutes alternativeRoutes) {
+            this.tradingPaths = tradingPaths;
+            this.symbolInfos = Collections.unmodifiableMap(symbolInfos);
+            this.updateTime = updateTime;
+            this.routes = routes;
+            this.alternativeRoutes = alternativeRoutes;
+        }
+
+        @Nonnull
+        TradingPaths getTradingPaths() {
+            return tradingPaths;
+        }
+
+        @Nonnull
+        Set<Symbol> getSymbols() {
+            return symbolInfos.keySet();
+        }
+
+        // Unmodifiable map from symbol to its info
+        @Nonnull
+        Map<Symbol, SymbolInfo> getSymbolInfos() {
+            return symbolInfos;
+        }
+
+        @Nonnull
+        Instant getUpdateTime() {
+            return updateTime;
+        }
+
+        @Nonnull
+        ConcurrentMap<Currency, ConcurrentMap<Currency, List<OrderSpec>>> getRoutes() {
+            return routes;
+        }
+
+        @Nonnull
+        AlternativeRoutes getAlternativeRoutes() {
+            return alternativeRoutes;
+        }
+
+        /**
+         * Gets the cached route.
+         *
+         * @return The route, or null if it isn't cached.
+         */
+        @Nullable
+        List<OrderSpec> getRoute(@Nonnull Currency sourceCurrency, @Nonnull Currency targetCurrency) {
+            Map<Currency, List<OrderSpec>> routesFromSource = routes.get(sourceCurrency);
+            return routesFromSource == null ? null : routesFromSource.get(targetCurrency);
+        }
+
+        void putRoute(
+                @Nonnull Currency sourceCurrency,
+                @Nonnull Currency targetCurrency,
+                @Nonnull List<OrderSpec> route) {
+            routes.computeIfAbsent(sourceCurrency, (c) -> new ConcurrentHashMap<>())
+                    .put(targetCurrency, route);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.buridantrader;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Persists resolved trading paths to a local file, so that they can be used right after a restart without
+ * resolving them again.
+ * The file is tagged with a hash of the symbols of the paths, and it's ignored if the hash doesn't match either
+ * the symbols to load the paths for, or the symbols read back from it.
+ * <p>
+ * Format, in big endian:
+ * <pre>
+ * int    magic
+ * int    format version
+ * long   hash of the symbols
+ * int    number of currencies
+ * (short length, UTF-8 bytes) name of each currency, in the order of the ids
+ * int    number of symbols
+ * (int, int) ids of the base and the quote currency of each symbol, in the order of the ids
+ * int[numCurrencies * numCurrencies] path lengths
+ * int[numCurrencies * numCurrencies] ids of the symbols of the first steps
+ * </pre>
+ */
+@ThreadSafe
+public class TradingPathsStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TradingPathsStore.class);
+    private static final int MAGIC = 0x42545054;
+    private static final int FORMAT_VERSION = 1;
+    private final File file;
+
+    public TradingPathsStore(@Nonnull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Saves the trading paths.
+     * The file is replaced atomically, so a concurrent or interrupted save never leaves a partially written
+     * file behind.
+     *
+     * @param tradingPaths Trading paths.
+     * @throws IOException Fail to write the file.
+     */
+    public synchronized void save(@Nonnull DenseTradingPaths tradingPaths) throws IOException {
+        Currency[] currencies = getCurrenciesById(tradingPaths.getCurrencyIds());
+        Symbol[] symbols = tradingPaths.getSymbols();
+        Map<Currency, Integer> currencyIds = tradingPaths.getCurrencyIds();
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(hashSymbols(Arrays.asList(symbols)));
+                output.writeInt(currencies.length);
+                for (Currency currency : currencies) {
+                    byte[] name = currency.getName().getBytes(StandardCharsets.UTF_8);
+                    output.writeShort(name.length);
+                    output.write(name);
+                }
+                output.writeInt(symbols.length);
+                for (Symbol symbol : symbols) {
+                    output.writeInt(currencyIds.get(symbol.getBaseCurrency()));
+                    output.writeInt(currencyIds.get(symbol.getQuoteCurrency()));
+                }
+                for (int length : tradingPaths.getLengths()) {
+                    output.writeInt(length);
+                }
+                for (int nextSymbolId : tradingPaths.getNextSymbolIds()) {
+                    output.writeInt(nextSymbolId);
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+        LOGGER.debug("Trading paths of {} currencies are saved to {}", currencies.length, file);
+    }
+
+    /**
+     * Loads the saved trading paths.
+     * The file is memory-mapped, so the paths are copied to the heap without going through a stream.
+     *
+     * @param symbolsHash Hash of the symbols to load the paths for, given by {@link #hashSymbols(Collection)}.
+     * @return Trading paths, or empty if there's no file, the file isn't valid, or the paths are saved from
+     * other symbols.
+     * @throws IOException Fail to read the file.
+     */
+    @Nonnull
+    public synchronized Optional<DenseTradingPaths> load(long symbolsHash) throws IOException {
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, symbolsHash);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+            LOGGER.warn("Trading paths file {} is corrupted", file, ex);
+            return Optional.empty();
+        }
+    }
+
+    @Nonnull
+    private Optional<DenseTradingPaths> read(@Nonnull MappedByteBuffer buffer, long symbolsHash) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            LOGGER.warn("Trading paths file {} has an unknown format", file);
+            return Optional.empty();
+        }
+        long hash = buffer.getLong();
+        if (hash != symbolsHash) {
+            // The symbols are listed or delisted since the paths are saved
+            LOGGER.info("Trading paths file {} is saved from other symbols", file);
+            return Optional.empty();
+        }
+        // Every count is checked against the remaining bytes before allocating, so a corrupted count can't
+        // allocate a negative or a huge array
+        int numCurrencies = buffer.getInt();
+        if (!hasRemaining(buffer, numCurrencies, Short.BYTES)) {
+            LOGGER.warn("Trading paths file {} has an invalid number of currencies {}", file, numCurrencies);
+            return Optional.empty();
+        }
+        Map<Currency, Integer> currencyIds = new HashMap<>();
+        Currency[] currencies = new Currency[numCurrencies];
+        for (int currencyId = 0; currencyId < numCurrencies; ++currencyId) {
+            short nameLength = buffer.getShort();
+            if (!hasRemaining(buffer, nameLength, Byte.BYTES)) {
+                LOGGER.warn("Trading paths file {} has an invalid length of a currency name {}", file, nameLength);
+                return Optional.empty();
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            currencies[currencyId] = new Currency(new String(name, StandardCharsets.UTF_8));
+            currencyIds.put(currencies[currencyId], currencyId);
+        }
+        int numSymbols = buffer.getInt();
+        if (!hasRemaining(buffer, numSymbols, 2 * Integer.BYTES)) {
+            LOGGER.warn("Trading paths file {} has an invalid number of symbols {}", file, numSymbols);
+            return Optional.empty();
+        }
+        Symbol[] symbols = new Symbol[numSymbols];
+        for (int symbolId = 0; symbolId < numSymbols; ++symbolId) {
+            symbols[symbolId] = new Symbol(currencies[buffer.getInt()], currencies[buffer.getInt()]);
+        }
+        if (hash != hashSymbols(Arrays.asList(symbols))) {
+            LOGGER.warn("Hash of the symbols in trading paths file {} doesn't match", file);
+            return Optional.empty();
+        }
+        long numPaths = (long) numCurrencies * numCurrencies;
+        if (!hasRemaining(buffer, numPaths, 2 * Integer.BYTES)) {
+            LOGGER.warn("Trading paths file {} is truncated", file);
+            return Optional.empty();
+        }
+        int[] lengths = new int[(int) numPaths];
+        int[] nextSymbolIds = new int[(int) numPaths];
+        buffer.asIntBuffer().get(lengths);
+        buffer.position(buffer.position() + lengths.length * Integer.BYTES);
+        buffer.asIntBuffer().get(nextSymbolIds);
+        for (int nextSymbolId : nextSymbolIds) {
+            if (nextSymbolId < DenseTradingPaths.NO_PATH || nextSymbolId >= numSymbols) {
+                LOGGER.warn("Trading paths file {} has an invalid symbol id {}", file, nextSymbolId);
+                return Optional.empty();
+            }
+        }
+        LOGGER.debug("Trading paths of {} currencies are loaded from {}", numCurrencies, file);
+        return Optional.of(new DenseTradingPaths(currencyIds, symbols, lengths, nextSymbolIds));
+    }
+
+    /**
+     * Whether a buffer has enough bytes remaining for a number of values.
+     *
+     * @return False if the number is negative, or there aren't enough bytes.
+     */
+    private static boolean hasRemaining(@Nonnull MappedByteBuffer buffer, long count, int bytesPerValue) {
+        return count >= 0 && count <= buffer.remaining() / bytesPerValue;
+    }
+
+    /**
+     * Hashes a set of symbols.
+     * The hash doesn't depend on the order of the symbols.
+     *
+     * @param symbols Symbols.
+     * @return Hash of the symbols.
+     */
+    public static long hashSymbols(@Nonnull Collection<Symbol> symbols) {
+        List<String> names = new ArrayList<>(symbols.size());
+        for (Symbol symbol : symbols) {
+            names.add(symbol.getBaseCurrency().getName() + "/" + symbol.getQuoteCurrency().getName());
+        }
+        Collections.sort(names);
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String name : names) {
+            hasher.putString(name, StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+        }
+        return hasher.hash().asLong();
+    }
+
+    @Nonnull
+    private static Currency[] getCurrenciesById(@Nonnull Map<Currency, Integer> currencyIds) {
+        Currency[] currencies = new Currency[currencyIds.size()];
+        currencyIds.forEach((currency, currencyId) -> currencies[currencyId] = currency);
+        return currencies;
+    }
+}
@@ -0,0 +1,13 @@
+package com.buridantrader.exceptions;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that the exchange rejected an order, so nothing of it is traded.
+ */
+public class OrderRejectedException extends IOException {
+    public OrderRejectedException(@Nullable String message, @Nullable Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -4,36 +4,52 @@ import com.binance.api.client.BinanceApiRestClient;
 import com.binance.api.client.domain.general.SymbolInfo;
 import com.binance.api.client.domain.market.CandlestickInterval;
 import com.binance.api.client.impl.BinanceApiRestClientImpl;
-import com.buridantrader.Candlestick;
+import com.buridantrader.CandleSeries;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-public class CandlestickIterator implements Iterator<Candlestick> {
-    private final BinanceApiRestClient client;
+/**
+ * Iterator of the pages of the candlesticks of a symbol in a time range.
+ * The time range is split into pages of 1000 minutes, which is the max number of candlesticks per call, so
+ * the pages can be requested without waiting for the earlier ones. Up to the prefetch depth of pages are
+ * requested ahead of the page being iterated, so a long range streams without stopping at every page.
+ * The candlesticks of a page are parsed straight into a {@link CandleSeries}.
+ */
+@NotThreadSafe
+public class CandlestickIterator implements Iterator<CandleSeries> {
+    public static final int DEFAULT_PREFETCH_DEPTH = 2;
     private static final CandlestickInterval INTERVAL = CandlestickInterval.ONE_MINUTE;
+    private static final long INTERVAL_MS = 60 * 1000;
     private static final int MAX_CANDLESTICKS_PER_CALL = 1000;
+    private static final long PAGE_DURATION_MS = MAX_CANDLESTICKS_PER_CALL * INTERVAL_MS;
+    private final BinanceApiRestClient client;
     private final String symbol;
-    private Instant startTime;
-    private final Instant endTime;
+    private final long endTimeMs;
+    private final Executor executor;
+    private final int prefetchDepth;
 
-    // Whether the candlesticks for the time range is already fetched.
-    // If the range is updated, it should be updated to false.
-    private boolean timeRangeFetched = false;
-    private Deque<Candlestick> candlesticks = new ArrayDeque<>();
+    // Start time of the next page to request
+    private long nextPageStartTimeMs;
+    // Requested pages that are not iterated yet, in the order of time
+    private final Deque<CompletableFuture<CandleSeries>> pages = new ArrayDeque<>();
+    // Next page that isn't empty, or null if it's not found yet
+    private CandleSeries nextPage = null;
 
     /**
      * Constructs a new iterator that will iterate over the candlesticks with the given start and end time.
-     * It may involves multiple calls of Binance API.
-     * The interval of the candlesticks is 1 minute, and the duration between the open time and epoch 0 of a
-     * candlestick will be a multiple of 1 minute.
+     * The pages are fetched one by one on the calling thread.
      *
      * @param client    The Binance client to use.
      * @param symbol    Symbol name, such as "BTCUSDT".
@@ -45,57 +61,130 @@ public class CandlestickIterator implements Iterator<Candlestick> {
             @Nonnull String symbol,
             @Nonnull Instant startTime,
             @Nonnull Instant endTime) {
+        this(client, symbol, startTime, endTime, MoreExecutors.directExecutor(), 1);
+    }
+
+    /**
+     * Constructs a new iterator that will iterate over the candlesticks with the given start and end time.
+     * It may involves multiple calls of Binance API.
+     * The interval of the candlesticks is 1 minute, and the duration between the open time and epoch 0 of a
+     * candlestick will be a multiple of 1 minute.
+     *
+     * @param client        The Binance client to use.
+     * @param symbol        Symbol name, such as "BTCUSDT".
+     * @param startTime     Starting time (inclusive) of the candlesticks' open time.
+     * @param endTime       Ending time (inclusive) of the candlesticks' open time.
+     * @param executor      Executor to fetch the pages with.
+     * @param prefetchDepth Max number of pages requested ahead of the page being iterated.
+     */
+    public CandlestickIterator(
+            @Nonnull BinanceApiRestClient client,
+            @Nonnull String symbol,
+            @Nonnull Instant startTime,
+            @Nonnull Instant endTime,
+            @Nonnull Executor executor,
+            int prefetchDepth) {
+        if (prefetchDepth <= 0) {
+            throw new IllegalArgumentException("Prefetch depth must be positive");
+        }
         this.client = client;
         this.symbol = symbol;
-        this.startTime = startTime;
-        this.endTime = endTime;
+        this.nextPageStartTimeMs = startTime.toEpochMilli();
+        this.endTimeMs = endTime.toEpochMilli();
+        this.executor = executor;
+        this.prefetchDepth = prefetchDepth;
     }
 
     /**
      * Whether there are more candlesticks.
+     * The pages without any candlestick are skipped.
      *
-     * @return {@code true} if the iteration has more candlesticks.
+     * @return {@code true} if the iteration has more pages of candlesticks.
      * @throws RuntimeException Fails to call Binance API.
      */
     @Override
     public boolean hasNext() throws RuntimeException {
-        fetchCandlesticksIfNeeded();
-        return !candlesticks.isEmpty();
+        while (nextPage == null) {
+            requestPages();
+            CompletableFuture<CandleSeries> page = pages.pollFirst();
+            if (page == null) {
+                return false;
+            }
+            CandleSeries candlesticks = join(page);
+
+            // Request the next page as soon as this page arrives
+            requestPages();
+            if (!candlesticks.isEmpty()) {
+                nextPage = candlesticks;
+            }
+        }
+        return true;
     }
 
     /**
-     * Gets the next candlestick.
+     * Gets the next page of candlesticks.
      *
-     * @return Candlestick.
+     * @return Candlesticks of the page, which isn't empty.
      * @throws NoSuchElementException No more candlesticks.
      * @throws RuntimeException Fails to call Binance API.
      */
     @Override
-    public Candlestick next() throws NoSuchElementException, RuntimeException {
-        fetchCandlesticksIfNeeded();
-        return candlesticks.getFirst();
+    public CandleSeries next() throws NoSuchElementException, RuntimeException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CandleSeries page = nextPage;
+        nextPage = null;
+        return page;
     }
 
-    private void fetchCandlesticksIfNeeded() throws RuntimeException {
-        if (!candlesticks.isEmpty() || timeRangeFetched) {
-            return;
+    /**
+     * Reads the candlesticks of all the remaining pages.
+     *
+     * @param builder Builder to add the candlesticks to.
+     * @throws RuntimeException Fails to call Binance API.
+     */
+    public void readAll(@Nonnull CandleSeries.Builder builder) throws RuntimeException {
+        while (hasNext()) {
+            CandleSeries page = next();
+            builder.addAll(page, 0, page.size());
         }
-        List<Candlestick> newCandlesticks = client.getCandlestickBars(
+    }
+
+    private void requestPages() {
+        while (pages.size() < prefetchDepth && nextPageStartTimeMs <= endTimeMs) {
+            long pageStartTimeMs = nextPageStartTimeMs;
+            long pageEndTimeMs = Math.min(pageStartTimeMs + PAGE_DURATION_MS - 1, endTimeMs);
+            pages.addLast(CompletableFuture.supplyAsync(
+                    () -> fetchPage(pageStartTimeMs, pageEndTimeMs), executor));
+            nextPageStartTimeMs = pageEndTimeMs + 1;
+        }
+    }
+
+    @Nonnull
+    private CandleSeries fetchPage(long startTimeMs, long endTimeMs) throws RuntimeException {
+        List<com.binance.api.client.domain.market.Candlestick> candlesticks = client.getCandlestickBars(
                 symbol,
                 INTERVAL,
                 MAX_CANDLESTICKS_PER_CALL,
-                startTime.toEpochMilli(),
-                endTime.toEpochMilli()).stream()
-                .map(Candlestick::new)
-                .collect(Collectors.toList());
-        if (!newCandlesticks.isEmpty()) {
-            Candlestick lastCandlestick = newCandlesticks.get(newCandlesticks.size() - 1);
-            Instant openTime = lastCandlestick.getOpenTime();
-            startTime = openTime.plusMillis(1);
-            candlesticks.addAll(newCandlesticks);
-            timeRangeFetched = false;
-        } else {
-            timeRangeFetched = true;
+                startTimeMs,
+                endTimeMs);
+        CandleSeries.Builder builder = CandleSeries.builder();
+        for (com.binance.api.client.domain.market.Candlestick candlestick : candlesticks) {
+            builder.add(candlestick);
+        }
+        return builder.build();
+    }
+
+    @Nonnull
+    private static CandleSeries join(@Nonnull CompletableFuture<CandleSeries> page) throws RuntimeException {
+        try {
+            return page.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
         }
     }
 
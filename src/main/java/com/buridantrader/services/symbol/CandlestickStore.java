@@ -0,0 +1,349 @@
+package com.buridantrader.services.symbol;
+
+import com.buridantrader.CandleSeries;
+import com.buridantrader.FixedPointDecimal;
+import com.buridantrader.Symbol;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only store of the closed one-minute candlesticks of the symbols, which keeps the price history across
+ * restarts.
+ * The candlesticks of a symbol are stored in a directory named after the symbol, with one file per column, and
+ * the columns are read through memory-mapped buffers, so a lookup is a binary search over the open time column
+ * without reading the files through a stream.
+ * <p>
+ * Columns, each of which is an array of big endian values in the order of the open time:
+ * <pre>
+ * long   open time, in epoch milliseconds
+ * long   high price, as a mantissa with {@link FixedPointDecimal#SCALE} digits after the point
+ * long   low price, as a mantissa with {@link FixedPointDecimal#SCALE} digits after the point
+ * long   close price, as a mantissa with {@link FixedPointDecimal#SCALE} digits after the point
+ * double volume
+ * </pre>
+ * The number of candlesticks is the length of the shortest column, so an append interrupted between the
+ * columns is rolled back when the columns are opened again.
+ * <p>
+ * Only the columns of the most recently used symbols are kept open, and the columns of the other symbols are
+ * closed until they're used again, so the number of open files is bounded however many symbols are stored.
+ */
+@ThreadSafe
+public class CandlestickStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CandlestickStore.class);
+    private static final long INTERVAL_MS = 60 * 1000;
+    private static final String[] COLUMN_FILE_NAMES = {
+            "open-time.bin", "high.bin", "low.bin", "close.bin", "volume.bin"};
+    private static final int OPEN_TIME = 0;
+    private static final int HIGH = 1;
+    private static final int LOW = 2;
+    private static final int CLOSE = 3;
+    private static final int VOLUME = 4;
+    private static final int VALUE_BYTES = Long.BYTES;
+    public static final int DEFAULT_MAX_OPEN_SYMBOLS = 64;
+
+    private final File directory;
+    private final int maxOpenSymbols;
+    @GuardedBy("this")
+    private final Map<Symbol, Columns> columnsBySymbol = new HashMap<>();
+
+    // Columns which may be open, in the order of their last use
+    @GuardedBy("this")
+    private final LinkedHashMap<Symbol, Columns> openColumns = new LinkedHashMap<>(16, 0.75f, true);
+
+    public CandlestickStore(@Nonnull File directory) {
+        this(directory, DEFAULT_MAX_OPEN_SYMBOLS);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param directory      Directory of the candlesticks.
+     * @param maxOpenSymbols Max number of symbols whose columns are kept open.
+     * @throws IllegalArgumentException The max number of open symbols is less than 1.
+     */
+    public CandlestickStore(@Nonnull File directory, int maxOpenSymbols) throws IllegalArgumentException {
+        Preconditions.checkArgument(maxOpenSymbols >= 1, "Max number of open symbols must be at least 1");
+        this.directory = directory;
+        this.maxOpenSymbols = maxOpenSymbols;
+    }
+
+    /**
+     * Appends the closed candlesticks of a symbol.
+     * The candlesticks that aren't opened after the last stored one are ignored, so the open times stay
+     * increasing.
+     *
+     * @param symbol       Symbol.
+     * @param candlesticks One-minute candlesticks in the order of the open time.
+     * @throws IOException Fail to write the columns.
+     */
+    public void append(
+            @Nonnull Symbol symbol,
+            @Nonnull List<com.binance.api.client.domain.market.Candlestick> candlesticks) throws IOException {
+        Columns columns = getColumns(symbol);
+        synchronized (columns) {
+            columns.append(candlesticks);
+        }
+    }
+
+    /**
+     * Reads the stored candlesticks of a symbol in a time range.
+     *
+     * @param symbol      Symbol.
+     * @param startTimeMs Starting time (inclusive) of the candlesticks' open time.
+     * @param endTimeMs   Ending time (inclusive) of the candlesticks' open time.
+     * @return The candlesticks in the order of the open time. There may be gaps between them.
+     * @throws IOException Fail to read the columns.
+     */
+    @Nonnull
+    public CandleSeries read(@Nonnull Symbol symbol, long startTimeMs, long endTimeMs) throws IOException {
+        Columns columns = getColumns(symbol);
+        synchronized (columns) {
+            return columns.read(startTimeMs, endTimeMs);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Columns columns : columnsBySymbol.values()) {
+            synchronized (columns) {
+                columns.close();
+            }
+        }
+        columnsBySymbol.clear();
+        openColumns.clear();
+    }
+
+    /**
+     * Gets the columns of a symbol, and closes the columns of the least recently used symbol if too many of
+     * them may be open. The columns are opened when they're used.
+     */
+    @Nonnull
+    private synchronized Columns getColumns(@Nonnull Symbol symbol) {
+        Columns columns = columnsBySymbol.get(symbol);
+        if (columns == null) {
+            columns = new Columns(new File(directory, symbol.getName()));
+            columnsBySymbol.put(symbol, columns);
+        }
+        openColumns.put(symbol, columns);
+        if (openColumns.size() > maxOpenSymbols) {
+            Iterator<Columns> iterator = openColumns.values().iterator();
+            Columns idleColumns = iterator.next();
+            iterator.remove();
+            synchronized (idleColumns) {
+                try {
+                    idleColumns.close();
+                } catch (IOException ex) {
+                    LOGGER.warn("Fail to close the idle columns in {}", idleColumns.symbolDirectory, ex);
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Column files of a symbol, which are guarded by the instance itself.
+     * The files are opened when the columns are used, and may be closed and opened again later.
+     */
+    private static class Columns {
+        private final File symbolDirectory;
+        // The channels are null while the columns are closed
+        private final FileChannel[] channels = new FileChannel[COLUMN_FILE_NAMES.length];
+        private int size;
+        private long lastOpenTimeMs;
+        // Buffers of the open time, the high and the low price columns, which are mapped for mappedSize values
+        private MappedByteBuffer openTimes;
+        private MappedByteBuffer highPrices;
+        private MappedByteBuffer lowPrices;
+        private int mappedSize = 0;
+
+        Columns(@Nonnull File symbolDirectory) {
+            this.symbolDirectory = symbolDirectory;
+        }
+
+        /**
+         * Opens the column files if they're closed.
+         */
+        private void open() throws IOException {
+            if (channels[OPEN_TIME] != null) {
+                return;
+            }
+            Files.createDirectories(symbolDirectory.toPath());
+            try {
+                long minLength = Long.MAX_VALUE;
+                for (int column = 0; column < COLUMN_FILE_NAMES.length; ++column) {
+                    File file = new File(symbolDirectory, COLUMN_FILE_NAMES[column]);
+                    channels[column] = FileChannel.open(file.toPath(),
+                            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    minLength = Math.min(channels[column].size(), minLength);
+                }
+                size = (int) (minLength / VALUE_BYTES);
+                for (FileChannel channel : channels) {
+                    if (channel.size() > (long) size * VALUE_BYTES) {
+                        LOGGER.warn("Roll back an incomplete append of the candlesticks in {}", symbolDirectory);
+                        channel.truncate((long) size * VALUE_BYTES);
+                    }
+                }
+                lastOpenTimeMs = size > 0 ? readLastOpenTimeMs() : Long.MIN_VALUE;
+            } catch (IOException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        private long readLastOpenTimeMs() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(VALUE_BYTES);
+            long position = (long) (size - 1) * VALUE_BYTES;
+            while (buffer.hasRemaining()) {
+                if (channels[OPEN_TIME].read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + COLUMN_FILE_NAMES[OPEN_TIME]);
+                }
+            }
+            return buffer.getLong(0);
+        }
+
+        void append(@Nonnull List<com.binance.api.client.domain.market.Candlestick> candlesticks)
+                throws IOException {
+            open();
+            long newLastOpenTimeMs = lastOpenTimeMs;
+            ByteBuffer[] buffers = new ByteBuffer[COLUMN_FILE_NAMES.length];
+            for (int column = 0; column < buffers.length; ++column) {
+                buffers[column] = ByteBuffer.allocate(candlesticks.size() * VALUE_BYTES);
+            }
+            for (com.binance.api.client.domain.market.Candlestick candlestick : candlesticks) {
+                if (candlestick.getOpenTime() <= newLastOpenTimeMs) {
+                    continue;
+                }
+                long highPrice;
+                long lowPrice;
+                long closePrice;
+                double volume;
+                try {
+                    highPrice = FixedPointDecimal.toMantissa(candlestick.getHigh());
+                    lowPrice = FixedPointDecimal.toMantissa(candlestick.getLow());
+                    closePrice = FixedPointDecimal.toMantissa(candlestick.getClose());
+                    volume = Double.parseDouble(candlestick.getVolume());
+                } catch (ArithmeticException | NullPointerException | NumberFormatException ex) {
+                    LOGGER.warn("Skip the candlestick of {} opened at {} in {}",
+                            symbolDirectory.getName(), candlestick.getOpenTime(), symbolDirectory, ex);
+                    continue;
+                }
+                buffers[OPEN_TIME].putLong(candlestick.getOpenTime());
+                buffers[HIGH].putLong(highPrice);
+                buffers[LOW].putLong(lowPrice);
+                buffers[CLOSE].putLong(closePrice);
+                buffers[VOLUME].putDouble(volume);
+                newLastOpenTimeMs = candlestick.getOpenTime();
+            }
+
+            int numAppended = buffers[OPEN_TIME].position() / VALUE_BYTES;
+            if (numAppended == 0) {
+                return;
+            }
+            long position = (long) size * VALUE_BYTES;
+            for (int column = 0; column < buffers.length; ++column) {
+                ByteBuffer buffer = buffers[column];
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channels[column].write(buffer, position + buffer.position());
+                }
+            }
+            size += numAppended;
+            lastOpenTimeMs = newLastOpenTimeMs;
+        }
+
+        @Nonnull
+        CandleSeries read(long startTimeMs, long endTimeMs) throws IOException {
+            open();
+            mapColumns();
+            CandleSeries.Builder candlesticks = CandleSeries.builder();
+            for (int i = indexOf(startTimeMs); i < mappedSize; ++i) {
+                long openTimeMs = getOpenTimeMs(i);
+                if (openTimeMs > endTimeMs) {
+                    break;
+                }
+                long highPrice = highPrices.getLong(i * VALUE_BYTES);
+                long lowPrice = lowPrices.getLong(i * VALUE_BYTES);
+                // Same as the average of the prices with the scale of Binance rounded half up
+                long averagePrice = (highPrice + lowPrice + 1) / 2;
+                candlesticks.add(openTimeMs, openTimeMs + INTERVAL_MS - 1, CandleSeries.toPrice(averagePrice));
+            }
+            return candlesticks.build();
+        }
+
+        /**
+         * Maps the columns again if values are appended after they're mapped.
+         */
+        private void mapColumns() throws IOException {
+            if (mappedSize == size) {
+                return;
+            }
+            long length = (long) size * VALUE_BYTES;
+            openTimes = channels[OPEN_TIME].map(FileChannel.MapMode.READ_ONLY, 0, length);
+            highPrices = channels[HIGH].map(FileChannel.MapMode.READ_ONLY, 0, length);
+            lowPrices = channels[LOW].map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mappedSize = size;
+        }
+
+        private long getOpenTimeMs(int index) {
+            return openTimes.getLong(index * VALUE_BYTES);
+        }
+
+        /**
+         * Gets the index of the first candlestick opened at or after the given time.
+         */
+        private int indexOf(long timeMs) {
+            int low = 0;
+            int high = mappedSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (getOpenTimeMs(mid) < timeMs) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void close() throws IOException {
+            IOException exception = null;
+            for (int column = 0; column < channels.length; ++column) {
+                if (channels[column] == null) {
+                    continue;
+                }
+                try {
+                    channels[column].close();
+                } catch (IOException ex) {
+                    exception = ex;
+                }
+                channels[column] = null;
+            }
+            openTimes = null;
+            highPrices = null;
+            lowPrices = null;
+            mappedSize = 0;
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+}
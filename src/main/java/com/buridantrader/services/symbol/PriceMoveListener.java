@@ -0,0 +1,25 @@
+package com.buridantrader.services.symbol;
+
+import com.buridantrader.Symbol;
+
+import javax.annotation.Nonnull;
+import java.math.BigDecimal;
+
+/**
+ * Listener of the moves of the last prices of the symbols.
+ *
+ * @see SymbolPriceService#subscribePriceMoves(java.util.Collection, BigDecimal, PriceMoveListener)
+ */
+@FunctionalInterface
+public interface PriceMoveListener {
+
+    /**
+     * Called when the last price of a symbol moves by at least the threshold of the subscription.
+     *
+     * @param symbol         Symbol.
+     * @param referencePrice Price the move is measured from, which is the price when the listener was last
+     *                       called for the symbol, or the first price after the subscription.
+     * @param price          New price.
+     */
+    void onPriceMove(@Nonnull Symbol symbol, @Nonnull BigDecimal referencePrice, @Nonnull BigDecimal price);
+}
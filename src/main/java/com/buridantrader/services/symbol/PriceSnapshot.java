@@ -0,0 +1,321 @@
+package com.buridantrader.services.symbol;
+
+import com.buridantrader.BookPrice;
+import com.buridantrader.FixedPointDecimal;
+import com.buridantrader.Symbol;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.buridantrader.FixedPointDecimal.toBigDecimal;
+import static com.buridantrader.FixedPointDecimal.toMantissa;
+
+/**
+ * Last prices and book prices of the symbols published together, so that they're from the same refresh.
+ * The prices are stored in flat arrays indexed by the dense ids of a {@link SymbolIndex}, as mantissas of
+ * fixed-point decimals with {@link FixedPointDecimal#SCALE} digits after the point, which is the precision of
+ * the prices of Binance. The prices are only converted to {@link BigDecimal} when they're read by symbol.
+ */
+@ThreadSafe
+@Immutable
+public class PriceSnapshot {
+
+    // Mantissa of a missing price. A symbol has no book price if either side of its order book is empty.
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final SymbolIndex index;
+    private final long[] prices;
+    private final long[] bidPrices;
+    private final long[] askPrices;
+
+    // Map view of the last prices, created the first time it's needed
+    private volatile Map<Symbol, BigDecimal> priceMap;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param index     Index of the symbols.
+     * @param prices    Mantissas of the last prices, indexed by symbol id. The caller must not modify it
+     *                  afterwards.
+     * @param bidPrices Mantissas of the best bid prices, indexed by symbol id. The caller must not modify it
+     *                  afterwards.
+     * @param askPrices Mantissas of the best ask prices, indexed by symbol id. The caller must not modify it
+     *                  afterwards.
+     */
+    PriceSnapshot(
+            @Nonnull SymbolIndex index,
+            @Nonnull long[] prices,
+            @Nonnull long[] bidPrices,
+            @Nonnull long[] askPrices) {
+        this.index = index;
+        this.prices = prices;
+        this.bidPrices = bidPrices;
+        this.askPrices = askPrices;
+    }
+
+    /**
+     * Constructs a new instance from the maps of the prices, with an index of the symbols in them.
+     *
+     * @param prices     Map from symbol to its last price.
+     * @param bookPrices Map from symbol to its book price.
+     */
+    public PriceSnapshot(@Nonnull Map<Symbol, BigDecimal> prices, @Nonnull Map<Symbol, BookPrice> bookPrices) {
+        Set<Symbol> symbols = new HashSet<>(prices.keySet());
+        symbols.addAll(bookPrices.keySet());
+        Builder builder = builder(new SymbolIndex(symbols));
+        prices.forEach((symbol, price) -> builder.setPrice(builder.index.getId(symbol), toMantissa(price)));
+        bookPrices.forEach((symbol, bookPrice) -> builder.setBookPrice(builder.index.getId(symbol),
+                toMantissa(bookPrice.getBidPrice()), toMantissa(bookPrice.getAskPrice())));
+        this.index = builder.index;
+        this.prices = builder.prices;
+        this.bidPrices = builder.bidPrices;
+        this.askPrices = builder.askPrices;
+    }
+
+    /**
+     * Creates a builder of a snapshot without any price.
+     *
+     * @param index Index of the symbols of the snapshot.
+     * @return The builder.
+     */
+    @Nonnull
+    public static Builder builder(@Nonnull SymbolIndex index) {
+        long[] newPrices = new long[index.size()];
+        Arrays.fill(newPrices, NO_PRICE);
+        return new Builder(null, index, newPrices, newPrices.clone(), newPrices.clone());
+    }
+
+    /**
+     * Creates a builder of a snapshot with the prices of this snapshot.
+     * The prices are only copied when the first of them is changed, so a builder without any change builds
+     * this snapshot again.
+     *
+     * @param newIndex Index of the symbols of the new snapshot. The prices of the symbols not in this snapshot
+     *                 are missing.
+     * @return The builder.
+     */
+    @Nonnull
+    public Builder toBuilder(@Nonnull SymbolIndex newIndex) {
+        if (newIndex == index) {
+            return new Builder(this, index, prices, bidPrices, askPrices);
+        }
+        Builder builder = builder(newIndex);
+        for (int id = 0; id < newIndex.size(); ++id) {
+            int oldId = index.getId(newIndex.getSymbol(id));
+            if (oldId != SymbolIndex.NO_ID) {
+                builder.prices[id] = prices[oldId];
+                builder.bidPrices[id] = bidPrices[oldId];
+                builder.askPrices[id] = askPrices[oldId];
+            }
+        }
+        return builder;
+    }
+
+    @Nonnull
+    public SymbolIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the mantissa of the last price of the symbol.
+     *
+     * @param symbolId Id of the symbol in {@link #getIndex()}.
+     * @return The mantissa, or {@link #NO_PRICE} if there's no price.
+     */
+    public long getPriceMantissa(int symbolId) {
+        return prices[symbolId];
+    }
+
+    /**
+     * Gets the mantissa of the best bid price of the symbol.
+     *
+     * @param symbolId Id of the symbol in {@link #getIndex()}.
+     * @return The mantissa, or {@link #NO_PRICE} if there's no book price.
+     */
+    public long getBidPriceMantissa(int symbolId) {
+        return bidPrices[symbolId];
+    }
+
+    /**
+     * Gets the mantissa of the best ask price of the symbol.
+     *
+     * @param symbolId Id of the symbol in {@link #getIndex()}.
+     * @return The mantissa, or {@link #NO_PRICE} if there's no book price.
+     */
+    public long getAskPriceMantissa(int symbolId) {
+        return askPrices[symbolId];
+    }
+
+    @Nonnull
+    public Optional<BigDecimal> getPrice(@Nonnull Symbol symbol) {
+        int id = index.getId(symbol);
+        if (id == SymbolIndex.NO_ID || prices[id] == NO_PRICE) {
+            return Optional.empty();
+        }
+        return Optional.of(toBigDecimal(prices[id]));
+    }
+
+    @Nonnull
+    public Optional<BookPrice> getBookPrice(@Nonnull Symbol symbol) {
+        int id = index.getId(symbol);
+        if (id == SymbolIndex.NO_ID || bidPrices[id] == NO_PRICE) {
+            return Optional.empty();
+        }
+        return Optional.of(new BookPrice(toBigDecimal(bidPrices[id]), toBigDecimal(askPrices[id])));
+    }
+
+    /**
+     * Gets the last prices of all the symbols.
+     *
+     * @return Unmodifiable map from symbol to its price. The same map is returned for the same snapshot.
+     */
+    @Nonnull
+    public Map<Symbol, BigDecimal> getPrices() {
+        Map<Symbol, BigDecimal> nowPriceMap = priceMap;
+        if (nowPriceMap == null) {
+            ImmutableMap.Builder<Symbol, BigDecimal> builder = ImmutableMap.builder();
+            for (int id = 0; id < prices.length; ++id) {
+                if (prices[id] != NO_PRICE) {
+                    builder.put(index.getSymbol(id), toBigDecimal(prices[id]));
+                }
+            }
+            nowPriceMap = builder.build();
+            priceMap = nowPriceMap;
+        }
+        return nowPriceMap;
+    }
+
+    /**
+     * Checks whether the last prices of the other snapshot are the same as the ones of this snapshot.
+     */
+    public boolean hasSamePrices(@Nonnull PriceSnapshot other) {
+        return index == other.index ? Arrays.equals(prices, other.prices) : getPrices().equals(other.getPrices());
+    }
+
+    /**
+     * Checks whether the book prices of the other snapshot are the same as the ones of this snapshot.
+     */
+    public boolean hasSameBookPrices(@Nonnull PriceSnapshot other) {
+        if (index == other.index) {
+            return Arrays.equals(bidPrices, other.bidPrices) && Arrays.equals(askPrices, other.askPrices);
+        }
+        if (index.size() != other.index.size()) {
+            return false;
+        }
+        for (int id = 0; id < index.size(); ++id) {
+            int otherId = other.index.getId(index.getSymbol(id));
+            if (otherId == SymbolIndex.NO_ID) {
+                return false;
+            }
+            if (bidPrices[id] != other.bidPrices[otherId] || askPrices[id] != other.askPrices[otherId]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builder of a snapshot.
+     * The arrays of the prices are copied on the first change, so the snapshot the builder is created from
+     * is never modified.
+     */
+    @NotThreadSafe
+    public static class Builder {
+        // Null if the arrays are owned by the builder
+        private PriceSnapshot source;
+        private final SymbolIndex index;
+        private long[] prices;
+        private long[] bidPrices;
+        private long[] askPrices;
+        private boolean pricesChanged = false;
+
+        private Builder(
+                @Nullable PriceSnapshot source,
+                @Nonnull SymbolIndex index,
+                @Nonnull long[] prices,
+                @Nonnull long[] bidPrices,
+                @Nonnull long[] askPrices) {
+            this.source = source;
+            this.index = index;
+            this.prices = prices;
+            this.bidPrices = bidPrices;
+            this.askPrices = askPrices;
+        }
+
+        @Nonnull
+        public SymbolIndex getIndex() {
+            return index;
+        }
+
+        /**
+         * Sets the last price of the symbol.
+         *
+         * @param symbolId Id of the symbol.
+         * @param mantissa Mantissa of the price.
+         */
+        public void setPrice(int symbolId, long mantissa) {
+            if (prices[symbolId] != mantissa) {
+                copyOnWrite();
+                prices[symbolId] = mantissa;
+                pricesChanged = true;
+            }
+        }
+
+        /**
+         * Sets the best bid and ask prices of the symbol.
+         * If either of them isn't positive, which means that side of the order book is empty, the symbol has
+         * no book price.
+         *
+         * @param symbolId    Id of the symbol.
+         * @param bidMantissa Mantissa of the best bid price.
+         * @param askMantissa Mantissa of the best ask price.
+         */
+        public void setBookPrice(int symbolId, long bidMantissa, long askMantissa) {
+            if (bidMantissa <= 0 || askMantissa <= 0) {
+                bidMantissa = NO_PRICE;
+                askMantissa = NO_PRICE;
+            }
+            if (bidPrices[symbolId] != bidMantissa || askPrices[symbolId] != askMantissa) {
+                copyOnWrite();
+                bidPrices[symbolId] = bidMantissa;
+                askPrices[symbolId] = askMantissa;
+            }
+        }
+
+        /**
+         * Checks whether any last price is changed since the builder is created.
+         */
+        public boolean isPricesChanged() {
+            return pricesChanged;
+        }
+
+        /**
+         * Builds the snapshot. The builder must not be used afterwards.
+         *
+         * @return The snapshot, which is the snapshot the builder is created from if nothing is changed.
+         */
+        @Nonnull
+        public PriceSnapshot build() {
+            return source != null ? source : new PriceSnapshot(index, prices, bidPrices, askPrices);
+        }
+
+        private void copyOnWrite() {
+            if (source != null) {
+                prices = prices.clone();
+                bidPrices = bidPrices.clone();
+                askPrices = askPrices.clone();
+                source = null;
+            }
+        }
+    }
+}
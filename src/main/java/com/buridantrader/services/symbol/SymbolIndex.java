@@ -0,0 +1,66 @@
+package com.buridantrader.services.symbol;
+
+import com.buridantrader.Symbol;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense ids of a version of the symbols, from 0 to the number of symbols - 1.
+ * The ids are looked up by the names of the symbols, so that the tickers, which only carry the names, are
+ * matched without creating the symbols.
+ */
+@ThreadSafe
+@Immutable
+public class SymbolIndex {
+
+    public static final int NO_ID = -1;
+
+    private final Symbol[] symbols;
+    private final Map<String, Integer> ids;
+
+    public SymbolIndex(@Nonnull Collection<Symbol> symbols) {
+        this.symbols = symbols.toArray(new Symbol[0]);
+        Map<String, Integer> newIds = new HashMap<>();
+        for (int id = 0; id < this.symbols.length; ++id) {
+            newIds.putIfAbsent(this.symbols[id].getName(), id);
+        }
+        this.ids = ImmutableMap.copyOf(newIds);
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    @Nonnull
+    public Symbol getSymbol(int id) {
+        return symbols[id];
+    }
+
+    /**
+     * Gets the id of the symbol with the given name.
+     *
+     * @param name Name of the symbol.
+     * @return The id, or {@link #NO_ID} if there's no such symbol.
+     */
+    public int getId(@Nonnull String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * Gets the id of the symbol.
+     *
+     * @param symbol Symbol.
+     * @return The id, or {@link #NO_ID} if there's no such symbol.
+     */
+    public int getId(@Nonnull Symbol symbol) {
+        int id = getId(symbol.getName());
+        return id != NO_ID && symbols[id].equals(symbol) ? id : NO_ID;
+    }
+}
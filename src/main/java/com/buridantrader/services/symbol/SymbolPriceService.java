@@ -1,59 +1,604 @@
 package com.buridantrader.services.symbol;
 
+import com.binance.api.client.BinanceApiCallback;
 import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.BinanceApiWebSocketClient;
+import com.binance.api.client.domain.event.AllMarketTickersEvent;
+import com.binance.api.client.domain.market.BookTicker;
 import com.binance.api.client.domain.market.TickerPrice;
+import com.buridantrader.BookPrice;
+import com.buridantrader.DaemonThreadFactory;
+import com.buridantrader.FixedPointDecimal;
 import com.buridantrader.Symbol;
-import com.buridantrader.SymbolInfo;
+import com.buridantrader.services.system.SystemService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class SymbolPriceService {
+/**
+ * Latest prices of the symbols, and the best bid and ask prices in their order books.
+ * The prices are published as immutable snapshots, so the readers never see a partially refreshed table and
+ * never wait for a refresh. A snapshot stores the prices as fixed-point mantissas in arrays indexed by the ids
+ * of the symbols, and the tickers are parsed straight into them. Only the first read waits for the prices to be
+ * polled. After that, the prices are kept fresh by a background task.
+ * The last prices and the book prices of all the symbols are polled with one request each. If a websocket
+ * client is given, both are updated by the all-market ticker stream instead, which pushes the changed tickers
+ * every second. The prices are polled with the REST client whenever the stream fails or goes
+ * silent, until it's subscribed again. The streamed tickers are parsed with the index of the symbols of the latest
+ * snapshot, so the stream never waits for the symbols to be fetched. The background task switches the snapshot
+ * to the index of the updated symbols.
+ * Instead of polling the prices, a component can subscribe to the moves of the prices of some symbols, and be
+ * called back on the listener executor when any of them moves by a threshold.
+ * The service stops refreshing the prices and unsubscribes from the stream when it's closed.
+ */
+@ThreadSafe
+public class SymbolPriceService implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(SymbolPriceService.class);
     private static final long REFRESH_MS = 1000 * 60;
+
+    // Delay before polling the prices again after the polling fails
+    private static final long RETRY_MS = 1000 * 5;
+
+    // Interval of the background task to check the stream and poll the prices
+    private static final long MAINTAIN_MS = 1000;
+
+    // The stream is considered dropped if it delivers no tickers for this long
+    private static final long STREAM_TIMEOUT_MS = 1000 * 10;
+
+    // Min interval between the subscriptions to the stream
+    private static final long RESUBSCRIBE_MS = 1000 * 10;
+
     private final BinanceApiRestClient client;
     private final SymbolService symbolService;
-    private Instant lastRefreshTime;
-    private final Map<Symbol, BigDecimal> priceMap = new HashMap<>();
+
+    // Null if the prices should only be polled
+    private final BinanceApiWebSocketClient webSocketClient;
+    private final SystemService system;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService listenerExecutor;
+
+    // Latest prices, or null before they're polled for the first time
+    private volatile PriceSnapshot snapshot;
+    private volatile Instant timeOfVersion;
+
+    // The following fields are guarded by this
+    private long nextRefreshTimeMs;
+    private boolean closed;
+
+    // Callback of the current subscription to the stream, or null if the stream isn't subscribed
+    private TickerCallback tickerCallback;
+    private Closeable subscription;
+    private long lastSubscribeTimeMs;
+    private long lastTickerTimeMs;
+    private final List<PriceMoveSubscription> priceMoveSubscriptions = new ArrayList<>();
 
     public SymbolPriceService(@Nonnull BinanceApiRestClient client,
                               @Nonnull SymbolService symbolService) {
+        this(client, symbolService, null, new SystemService());
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param client          Binance REST client.
+     * @param symbolService   Symbol service.
+     * @param webSocketClient Binance websocket client to stream the tickers with, or null if the prices should
+     *                        only be polled.
+     * @param system          System service.
+     */
+    public SymbolPriceService(@Nonnull BinanceApiRestClient client,
+                              @Nonnull SymbolService symbolService,
+                              @Nullable BinanceApiWebSocketClient webSocketClient,
+                              @Nonnull SystemService system) {
+        this(client,
+                symbolService,
+                webSocketClient,
+                Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory()),
+                system);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param client          Binance REST client.
+     * @param symbolService   Symbol service.
+     * @param webSocketClient Binance websocket client to stream the tickers with, or null if the prices should
+     *                        only be polled.
+     * @param scheduler       Executor of the background task that keeps the prices fresh. The task is
+     *                        scheduled after the prices are polled for the first time. It's shut down when
+     *                        the service is closed.
+     * @param system          System service.
+     */
+    public SymbolPriceService(@Nonnull BinanceApiRestClient client,
+                              @Nonnull SymbolService symbolService,
+                              @Nullable BinanceApiWebSocketClient webSocketClient,
+                              @Nonnull ScheduledExecutorService scheduler,
+                              @Nonnull SystemService system) {
+        this(client,
+                symbolService,
+                webSocketClient,
+                scheduler,
+                Executors.newSingleThreadExecutor(new DaemonThreadFactory()),
+                system);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param client           Binance REST client.
+     * @param symbolService    Symbol service.
+     * @param webSocketClient  Binance websocket client to stream the tickers with, or null if the prices should
+     *                         only be polled.
+     * @param scheduler        Executor of the background task that keeps the prices fresh. The task is
+     *                         scheduled after the prices are polled for the first time.
+     * @param listenerExecutor Executor to call the listeners of the price moves with, so that a slow listener
+     *                         never holds up the tickers. Both executors are shut down when the service is
+     *                         closed.
+     * @param system           System service.
+     */
+    public SymbolPriceService(@Nonnull BinanceApiRestClient client,
+                              @Nonnull SymbolService symbolService,
+                              @Nullable BinanceApiWebSocketClient webSocketClient,
+                              @Nonnull ScheduledExecutorService scheduler,
+                              @Nonnull ExecutorService listenerExecutor,
+                              @Nonnull SystemService system) {
         this.client = client;
         this.symbolService = symbolService;
+        this.webSocketClient = webSocketClient;
+        this.scheduler = scheduler;
+        this.listenerExecutor = listenerExecutor;
+        this.system = system;
     }
 
     @Nonnull
     public Optional<BigDecimal> getPrice(@Nonnull Symbol symbol) throws IOException {
-        checkFreshness();
-        return Optional.ofNullable(priceMap.get(symbol));
+        return getSnapshot().getPrice(symbol);
+    }
+
+    /**
+     * Gets the latest prices of all the symbols.
+     *
+     * @return Unmodifiable map from symbol to its price.
+     * @throws IOException Fail to get the prices for the first time.
+     */
+    @Nonnull
+    public Map<Symbol, BigDecimal> getAllPrices() throws IOException {
+        return getSnapshot().getPrices();
+    }
+
+    /**
+     * Gets the latest best bid and ask prices of the symbol.
+     *
+     * @param symbol Symbol.
+     * @return The prices, or empty if the order book of the symbol is empty on either side.
+     * @throws IOException Fail to get the prices for the first time.
+     */
+    @Nonnull
+    public Optional<BookPrice> getBookPrice(@Nonnull Symbol symbol) throws IOException {
+        return getSnapshot().getBookPrice(symbol);
+    }
+
+    /**
+     * Gets the latest prices and book prices of all the symbols, which are published together.
+     *
+     * @return The prices.
+     * @throws IOException Fail to get the prices for the first time.
+     */
+    @Nonnull
+    public PriceSnapshot getPriceSnapshot() throws IOException {
+        return getSnapshot();
+    }
+
+    /**
+     * Subscribes to the moves of the last prices of the given symbols.
+     * The move of a price is measured from the price when the listener was last called for the symbol, so a
+     * slow drift is reported once it adds up to the threshold. The listener is called with the listener
+     * executor, in the order of the moves.
+     *
+     * @param symbols   Symbols to watch.
+     * @param threshold Min relative change of a price to report, for example 0.01 for 1%. A zero threshold
+     *                  reports every change.
+     * @param listener  Listener of the moves.
+     * @return Subscription, which is cancelled when it's closed.
+     */
+    @Nonnull
+    public synchronized Closeable subscribePriceMoves(
+            @Nonnull Collection<Symbol> symbols,
+            @Nonnull BigDecimal threshold,
+            @Nonnull PriceMoveListener listener) {
+        if (threshold.signum() < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        PriceMoveSubscription priceMoveSubscription =
+                new PriceMoveSubscription(symbols, threshold.doubleValue(), listener);
+        if (snapshot != null) {
+            priceMoveSubscription.checkMoves(snapshot);
+        }
+        priceMoveSubscriptions.add(priceMoveSubscription);
+        return priceMoveSubscription;
+    }
+
+    /**
+     * Stops refreshing the prices, unsubscribes from the stream, and shuts down the executors.
+     * The latest prices can still be read, but they aren't refreshed anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        unsubscribe();
+        scheduler.shutdownNow();
+        listenerExecutor.shutdown();
+    }
+
+    public boolean isUpdatedSince(@Nonnull Instant time) {
+        Instant nowTimeOfVersion = timeOfVersion;
+        return nowTimeOfVersion == null || time.isBefore(nowTimeOfVersion);
+    }
+
+    @Nonnull
+    private PriceSnapshot getSnapshot() throws IOException {
+        PriceSnapshot nowSnapshot = snapshot;
+        return nowSnapshot != null ? nowSnapshot : pollFirstPrices();
+    }
+
+    /**
+     * Polls the prices for the first time, and schedules the background task to keep them fresh.
+     * The callers are blocked until the first prices are polled, because there aren't any earlier prices to
+     * use.
+     */
+    @Nonnull
+    private synchronized PriceSnapshot pollFirstPrices() throws IOException {
+        if (snapshot == null) {
+            long nowMs = system.currentTimeMillis();
+            applyPolledSnapshot(nowMs, poll(symbolService.getSymbolIndex()));
+            if (closed) {
+                return snapshot;
+            }
+            if (webSocketClient != null) {
+                subscribe(nowMs);
+            }
+            try {
+                scheduler.scheduleWithFixedDelay(this::maintain, MAINTAIN_MS, MAINTAIN_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                LOGGER.error("Fail to schedule the refresh of the symbol prices", ex);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks the stream, and polls the prices if they aren't streamed and it's time to refresh them.
+     * The prices are polled without holding the lock, so that the streamed tickers are never held up by the
+     * requests. It must not throw, or the later runs of the task would be cancelled.
+     */
+    private void maintain() {
+        SymbolIndex index;
+        try {
+            // The symbols may be fetched, which shouldn't hold up the streamed tickers
+            index = symbolService.getSymbolIndex();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Fail to get the symbols to refresh the symbol prices", ex);
+            return;
+        }
+        long nowMs = system.currentTimeMillis();
+        if (!maintainStream(nowMs, index)) {
+            return;
+        }
+        try {
+            PriceSnapshot newSnapshot = poll(index);
+            synchronized (this) {
+                // The streamed tickers are newer than the prices polled while the stream is resumed
+                if (!closed && !(isStreaming() && lastTickerTimeMs >= nowMs)) {
+                    applyPolledSnapshot(nowMs, newSnapshot);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Fail to refresh symbol prices. Retry in {} ms", RETRY_MS, ex);
+            synchronized (this) {
+                nextRefreshTimeMs = system.currentTimeMillis() + RETRY_MS;
+            }
+        }
+    }
+
+    /**
+     * Checks the stream, and switches the streamed prices to the index of the updated symbols.
+     *
+     * @return True if the prices should be polled.
+     */
+    private synchronized boolean maintainStream(long nowMs, @Nonnull SymbolIndex index) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (webSocketClient != null) {
+                if (tickerCallback != null
+                        && nowMs > Math.max(lastSubscribeTimeMs, lastTickerTimeMs) + STREAM_TIMEOUT_MS) {
+                    LOGGER.warn("No ticker is streamed for {} ms. Falling back to polling", STREAM_TIMEOUT_MS);
+                    unsubscribe();
+                }
+                if (tickerCallback == null && nowMs >= lastSubscribeTimeMs + RESUBSCRIBE_MS) {
+                    subscribe(nowMs);
+                }
+                if (isStreaming()) {
+                    switchIndex(nowMs, index);
+                    return false;
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.error("Fail to maintain the ticker stream", ex);
+        }
+        return nowMs >= nextRefreshTimeMs;
+    }
+
+    /**
+     * Whether the stream is subscribed and has delivered tickers since.
+     */
+    private boolean isStreaming() {
+        return tickerCallback != null && lastTickerTimeMs >= lastSubscribeTimeMs;
+    }
+
+    /**
+     * Polls the last prices and the book prices of all the symbols.
+     * It doesn't change the state of the service, so it's called without holding the lock.
+     */
+    @Nonnull
+    private PriceSnapshot poll(@Nonnull SymbolIndex index) throws IOException {
+        LOGGER.info("Refreshing symbol prices");
+        PriceSnapshot.Builder builder = PriceSnapshot.builder(index);
+        List<TickerPrice> tickerPrices = client.getAllPrices();
+        for (TickerPrice tickerPrice : tickerPrices) {
+            int symbolId = index.getId(tickerPrice.getSymbol());
+            if (symbolId != SymbolIndex.NO_ID) {
+                builder.setPrice(symbolId, FixedPointDecimal.toMantissa(tickerPrice.getPrice()));
+            }
+        }
+        List<BookTicker> bookTickers = client.getBookTickers();
+        for (BookTicker bookTicker : bookTickers) {
+            int symbolId = index.getId(bookTicker.getSymbol());
+            if (symbolId != SymbolIndex.NO_ID) {
+                setBookPrice(builder, symbolId, bookTicker.getBidPrice(), bookTicker.getAskPrice());
+            }
+        }
+        LOGGER.info("Symbol prices are refreshed");
+        return builder.build();
+    }
+
+    /**
+     * Publishes the polled prices, and schedules the next poll.
+     *
+     * @param nowMs Time the prices are polled at.
+     */
+    private void applyPolledSnapshot(long nowMs, @Nonnull PriceSnapshot newSnapshot) {
+        nextRefreshTimeMs = nowMs + REFRESH_MS;
+        if (snapshot == null || !snapshot.hasSamePrices(newSnapshot)) {
+            publish(newSnapshot);
+            timeOfVersion = Instant.ofEpochMilli(nowMs);
+        } else if (!snapshot.hasSameBookPrices(newSnapshot)) {
+            publish(newSnapshot);
+        }
+    }
+
+    /**
+     * Moves the streamed prices to a snapshot with the index of the updated symbols.
+     * The prices of the added symbols are missing until they're streamed.
+     */
+    private void switchIndex(long nowMs, @Nonnull SymbolIndex index) {
+        if (snapshot.getIndex() != index) {
+            publish(snapshot.toBuilder(index).build());
+            timeOfVersion = Instant.ofEpochMilli(nowMs);
+        }
+    }
+
+    /**
+     * Sets the book price from the best bid and ask prices.
+     * The symbol has no book price if either side of the order book is empty, which is reported as zero.
+     */
+    private static void setBookPrice(
+            @Nonnull PriceSnapshot.Builder builder,
+            int symbolId,
+            @Nullable String bidPrice,
+            @Nullable String askPrice) {
+        if (bidPrice == null || askPrice == null) {
+            builder.setBookPrice(symbolId, PriceSnapshot.NO_PRICE, PriceSnapshot.NO_PRICE);
+        } else {
+            builder.setBookPrice(
+                    symbolId, FixedPointDecimal.toMantissa(bidPrice), FixedPointDecimal.toMantissa(askPrice));
+        }
+    }
+
+    private void publish(@Nonnull PriceSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+        for (PriceMoveSubscription priceMoveSubscription : priceMoveSubscriptions) {
+            priceMoveSubscription.checkMoves(newSnapshot);
+        }
+    }
+
+    private void subscribe(long nowMs) {
+        TickerCallback callback = new TickerCallback();
+        tickerCallback = callback;
+        lastSubscribeTimeMs = nowMs;
+        Closeable newSubscription;
+        try {
+            newSubscription = webSocketClient.onAllMarketTickersEvent(callback);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Fail to subscribe to the ticker stream. Falling back to polling", ex);
+            tickerCallback = null;
+            return;
+        }
+        if (tickerCallback == callback) {
+            subscription = newSubscription;
+            LOGGER.info("Subscribed to the ticker stream");
+        } else {
+            // The stream failed before the subscription is returned
+            closeQuietly(newSubscription);
+        }
+    }
+
+    private void unsubscribe() {
+        tickerCallback = null;
+        if (subscription != null) {
+            closeQuietly(subscription);
+            subscription = null;
+        }
+
+        // Poll the prices right away, because the streamed prices may be stale
+        nextRefreshTimeMs = 0;
+    }
+
+    private static void closeQuietly(@Nonnull Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.debug("Fail to close the ticker stream", ex);
+        }
     }
 
-    private void checkFreshness() throws IOException {
-        if (shouldRefresh()) {
-            LOGGER.info("Refreshing symbol prices");
-            priceMap.clear();
-            List<TickerPrice> tickerPrices = client.getAllPrices();
-            for (TickerPrice tickerPrice : tickerPrices) {
-                BigDecimal price = new BigDecimal(tickerPrice.getPrice());
-                symbolService.getSymbolInfoByName(tickerPrice.getSymbol())
-                        .map(SymbolInfo::getSymbol)
-                        .ifPresent((s) -> priceMap.put(s, price));
+    /**
+     * Applies the streamed tickers to a new snapshot.
+     * The prices are parsed into the arrays of the snapshot, which are only copied if any price is changed.
+     * The tickers of the symbols not in the index of the snapshot are ignored.
+     */
+    private synchronized void applyTickers(
+            @Nonnull TickerCallback callback,
+            @Nonnull List<AllMarketTickersEvent> events) {
+        if (tickerCallback != callback || snapshot == null) {
+            return;
+        }
+        long nowMs = system.currentTimeMillis();
+        lastTickerTimeMs = nowMs;
+        SymbolIndex index = snapshot.getIndex();
+        PriceSnapshot.Builder builder = snapshot.toBuilder(index);
+        for (AllMarketTickersEvent event : events) {
+            int symbolId = index.getId(event.getSymbol());
+            if (symbolId == SymbolIndex.NO_ID) {
+                continue;
+            }
+            builder.setPrice(symbolId, FixedPointDecimal.toMantissa(event.getCurrentDaysClosePrice()));
+            setBookPrice(builder, symbolId, event.getBestBidPrice(), event.getBestAskPrice());
+        }
+        PriceSnapshot newSnapshot = builder.build();
+        if (newSnapshot != snapshot) {
+            publish(newSnapshot);
+            if (builder.isPricesChanged()) {
+                timeOfVersion = Instant.ofEpochMilli(nowMs);
             }
-            lastRefreshTime = Instant.now();
-            LOGGER.info("Symbol prices are refreshed");
         }
     }
 
-    private boolean shouldRefresh() {
-        return lastRefreshTime == null
-                || Instant.now().toEpochMilli() > lastRefreshTime.toEpochMilli() + REFRESH_MS;
+    private synchronized void failStream(@Nonnull TickerCallback callback, @Nonnull Throwable cause) {
+        if (tickerCallback == callback) {
+            LOGGER.warn("Ticker stream failed. Falling back to polling", cause);
+            unsubscribe();
+        }
+    }
+
+    /**
+     * Callback of a subscription to the ticker stream.
+     * The tickers are ignored after the subscription is dropped.
+     */
+    private class TickerCallback implements BinanceApiCallback<List<AllMarketTickersEvent>> {
+
+        @Override
+        public void onResponse(@Nonnull List<AllMarketTickersEvent> events) {
+            try {
+                applyTickers(this, events);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Fail to apply the streamed tickers", ex);
+            }
+        }
+
+        @Override
+        public void onFailure(@Nonnull Throwable cause) {
+            failStream(this, cause);
+        }
+    }
+
+    /**
+     * Subscription to the moves of the prices of some symbols.
+     * The reference prices are guarded by the service.
+     */
+    private class PriceMoveSubscription implements Closeable {
+        private final Symbol[] symbols;
+        private final double threshold;
+        private final PriceMoveListener listener;
+
+        // Mantissas of the prices the moves are measured from, or NO_PRICE before the first price
+        private final long[] referencePrices;
+
+        PriceMoveSubscription(
+                @Nonnull Collection<Symbol> symbols,
+                double threshold,
+                @Nonnull PriceMoveListener listener) {
+            this.symbols = symbols.toArray(new Symbol[0]);
+            this.threshold = threshold;
+            this.listener = listener;
+            this.referencePrices = new long[this.symbols.length];
+            Arrays.fill(referencePrices, PriceSnapshot.NO_PRICE);
+        }
+
+        /**
+         * Checks the prices of the new snapshot against the reference prices, and dispatches the moves.
+         */
+        void checkMoves(@Nonnull PriceSnapshot newSnapshot) {
+            SymbolIndex index = newSnapshot.getIndex();
+            for (int i = 0; i < symbols.length; ++i) {
+                int symbolId = index.getId(symbols[i]);
+                long price = symbolId != SymbolIndex.NO_ID
+                        ? newSnapshot.getPriceMantissa(symbolId) : PriceSnapshot.NO_PRICE;
+                long referencePrice = referencePrices[i];
+                if (price == PriceSnapshot.NO_PRICE || price == referencePrice) {
+                    continue;
+                }
+                if (referencePrice == PriceSnapshot.NO_PRICE) {
+                    referencePrices[i] = price;
+                } else if (Math.abs((double) price - referencePrice) >= threshold * Math.abs((double) referencePrice)) {
+                    referencePrices[i] = price;
+                    dispatch(symbols[i], referencePrice, price);
+                }
+            }
+        }
+
+        private void dispatch(@Nonnull Symbol symbol, long referencePrice, long price) {
+            try {
+                listenerExecutor.execute(() -> {
+                    try {
+                        listener.onPriceMove(symbol,
+                                FixedPointDecimal.toBigDecimal(referencePrice), FixedPointDecimal.toBigDecimal(price));
+                    } catch (RuntimeException ex) {
+                        LOGGER.warn("Listener of the price moves of {} failed", symbol, ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                LOGGER.error("Fail to dispatch the price move of {}", symbol, ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (SymbolPriceService.this) {
+                priceMoveSubscriptions.remove(this);
+            }
+        }
     }
 }
@@ -2,35 +2,299 @@ package com.buridantrader.services.symbol;
 
 import com.binance.api.client.BinanceApiRestClient;
 import com.binance.api.client.domain.market.CandlestickInterval;
-import com.buridantrader.Candlestick;
+import com.buridantrader.CandleSeries;
 import com.buridantrader.Symbol;
 import com.buridantrader.services.binance.CandlestickIterator;
+import com.buridantrader.services.system.SystemService;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
 import java.time.Instant;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
+/**
+ * Viewer of the price history of the symbols.
+ * The closed candlesticks of the recent minutes are cached per symbol in a bounded ring buffer, so a reader
+ * that asks for a sliding window, such as the last hour at every planning cycle, only fetches the candlesticks
+ * after the last cached one, and the still open last candlestick. Windows wider than the cache are read
+ * straight from Binance, with the pages prefetched ahead of the reader.
+ * If there's a candlestick store, the closed candlesticks are read from the store first, and the ones fetched
+ * for the cache are appended to it, so the history survives restarts.
+ */
+@ThreadSafe
 public class SymbolPriceViewer {
 
+    public static final int DEFAULT_MAX_CACHED_CANDLESTICKS = 24 * 60;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SymbolPriceViewer.class);
+    private static final CandlestickInterval INTERVAL = CandlestickInterval.ONE_MINUTE;
+    private static final long INTERVAL_MS = 60 * 1000;
+    private static final int MAX_CANDLESTICKS_PER_CALL = 1000;
+
     private final BinanceApiRestClient client;
+    private final int maxCachedCandlesticks;
+    private final Executor prefetchExecutor;
+    private final int prefetchDepth;
+    private final CandlestickStore store;
+    private final SystemService system;
+    private final ConcurrentMap<Symbol, CandlestickCache> caches = new ConcurrentHashMap<>();
 
     public SymbolPriceViewer(@Nonnull BinanceApiRestClient client) {
+        this(client, DEFAULT_MAX_CACHED_CANDLESTICKS, new SystemService());
+    }
+
+    public SymbolPriceViewer(
+            @Nonnull BinanceApiRestClient client,
+            int maxCachedCandlesticks,
+            @Nonnull SystemService system) {
+        this(client, maxCachedCandlesticks, MoreExecutors.directExecutor(), 1, system);
+    }
+
+    public SymbolPriceViewer(
+            @Nonnull BinanceApiRestClient client,
+            int maxCachedCandlesticks,
+            @Nonnull Executor prefetchExecutor,
+            int prefetchDepth,
+            @Nonnull SystemService system) {
+        this(client, maxCachedCandlesticks, prefetchExecutor, prefetchDepth, null, system);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param client                Binance REST client.
+     * @param maxCachedCandlesticks Max number of candlesticks cached per symbol.
+     * @param prefetchExecutor      Bounded executor to fetch the pages of the windows wider than the cache with.
+     *                              The fetches never wait for each other, so a few threads are enough.
+     * @param prefetchDepth         Max number of pages fetched ahead of the reader of a wide window.
+     * @param store                 Store of the candlesticks, or null if they shouldn't be persisted.
+     * @param system                System service.
+     */
+    public SymbolPriceViewer(
+            @Nonnull BinanceApiRestClient client,
+            int maxCachedCandlesticks,
+            @Nonnull Executor prefetchExecutor,
+            int prefetchDepth,
+            @Nullable CandlestickStore store,
+            @Nonnull SystemService system) {
+        if (maxCachedCandlesticks <= 0) {
+            throw new IllegalArgumentException("Max number of cached candlesticks must be positive");
+        }
+        if (prefetchDepth <= 0) {
+            throw new IllegalArgumentException("Prefetch depth must be positive");
+        }
         this.client = client;
+        this.maxCachedCandlesticks = maxCachedCandlesticks;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchDepth = prefetchDepth;
+        this.store = store;
+        this.system = system;
     }
 
+    /**
+     * Gets the candlesticks of a symbol per minute.
+     *
+     * @param symbol    Symbol.
+     * @param startTime Starting time (inclusive) of the candlesticks' open time.
+     * @param endTime   Ending time (inclusive) of the candlesticks' open time.
+     * @return The candlesticks in the order of the open time.
+     * @throws RuntimeException Fails to call Binance API.
+     */
     @Nonnull
-    public Iterator<Candlestick> getPriceHistoryPerMinute(
+    public CandleSeries getPriceHistoryPerMinute(
             @Nonnull Symbol symbol,
             @Nonnull Instant startTime,
-            @Nonnull Instant endTime) {
-        return new CandlestickIterator(client, symbol.getName(), startTime, endTime);
+            @Nonnull Instant endTime) throws RuntimeException {
+        long startMs = startTime.toEpochMilli();
+        long endMs = endTime.toEpochMilli();
+        if (endMs < startMs) {
+            return CandleSeries.empty();
+        }
+        if ((endMs - startMs) / INTERVAL_MS >= maxCachedCandlesticks) {
+            CandleSeries.Builder builder = CandleSeries.builder();
+            long fetchStartMs = readStoredCandlesticks(symbol, startMs, endMs, builder);
+            if (fetchStartMs <= endMs) {
+                new CandlestickIterator(
+                        client,
+                        symbol.getName(),
+                        Instant.ofEpochMilli(fetchStartMs),
+                        endTime,
+                        prefetchExecutor,
+                        prefetchDepth).readAll(builder);
+            }
+            return builder.build();
+        }
+
+        CandlestickCache cache = caches.computeIfAbsent(symbol, CandlestickCache::new);
+        synchronized (cache) {
+            return cache.get(startMs, endMs, system.currentTimeMillis());
+        }
     }
 
+    /**
+     * Reads the stored candlesticks that are consecutive from the start time.
+     * The stored candlesticks after a gap aren't read, because the gap may be a time when nothing was stored.
+     *
+     * @param builder Builder to add the stored candlesticks to.
+     * @return The time after the open time of the last read candlestick, or the start time if nothing is read.
+     */
+    private long readStoredCandlesticks(
+            @Nonnull Symbol symbol,
+            long startMs,
+            long endMs,
+            @Nonnull CandleSeries.Builder builder) {
+        if (store == null) {
+            return startMs;
+        }
+        CandleSeries storedCandlesticks;
+        try {
+            storedCandlesticks = store.read(symbol, startMs, endMs);
+        } catch (IOException ex) {
+            LOGGER.warn("Fail to read the stored candlesticks of {}", symbol, ex);
+            return startMs;
+        }
+        long nextOpenTimeMs = startMs;
+        for (int i = 0; i < storedCandlesticks.size(); ++i) {
+            long openTimeMs = storedCandlesticks.getOpenTimeMs(i);
+            if (openTimeMs >= nextOpenTimeMs + INTERVAL_MS) {
+                break;
+            }
+            builder.add(openTimeMs, storedCandlesticks.getCloseTimeMs(i), storedCandlesticks.getAveragePrice(i));
+            nextOpenTimeMs = openTimeMs + 1;
+        }
+        return nextOpenTimeMs;
+    }
+
+    /**
+     * Ring buffer of the closed candlesticks of a symbol, which are consecutive in the open time.
+     * All the closed candlesticks with the open time from {@code coveredStartMs} (inclusive) to
+     * {@code coveredEndMs} (exclusive) are cached.
+     */
+    @NotThreadSafe
+    private class CandlestickCache {
+        private final Symbol symbol;
+        private final long[] openTimes = new long[maxCachedCandlesticks];
+        private final long[] closeTimes = new long[maxCachedCandlesticks];
+        private final double[] averagePrices = new double[maxCachedCandlesticks];
+        private int head = 0;
+        private int size = 0;
+        private long coveredStartMs = 0;
+        private long coveredEndMs = 0;
+
+        CandlestickCache(@Nonnull Symbol symbol) {
+            this.symbol = symbol;
+        }
+
+        @Nonnull
+        CandleSeries get(long startMs, long endMs, long nowMs) throws RuntimeException {
+            if (startMs < coveredStartMs || startMs > coveredEndMs) {
+                clear(startMs);
+                CandleSeries.Builder storedCandlesticks = CandleSeries.builder();
+                readStoredCandlesticks(symbol, startMs, endMs, storedCandlesticks);
+                addAll(storedCandlesticks.build());
+            }
+
+            // The candlesticks that are still open are returned, but not cached
+            CandleSeries openCandlesticks = CandleSeries.empty();
+            List<com.binance.api.client.domain.market.Candlestick> closedCandlesticks = new ArrayList<>();
+            long fetchStartMs = coveredEndMs;
+            while (fetchStartMs <= endMs) {
+                List<com.binance.api.client.domain.market.Candlestick> page = client.getCandlestickBars(
+                        symbol.getName(), INTERVAL, MAX_CANDLESTICKS_PER_CALL, fetchStartMs, endMs);
+                CandleSeries.Builder pageBuilder = CandleSeries.builder();
+                page.forEach(pageBuilder::add);
+                CandleSeries pageCandlesticks = pageBuilder.build();
+                int numClosed = 0;
+                while (numClosed < pageCandlesticks.size()
+                        && openCandlesticks.isEmpty()
+                        && pageCandlesticks.getCloseTimeMs(numClosed) < nowMs) {
+                    closedCandlesticks.add(page.get(numClosed));
+                    ++numClosed;
+                }
+                addAll(pageCandlesticks.head(numClosed));
+                if (numClosed < pageCandlesticks.size()) {
+                    openCandlesticks = CandleSeries.builder()
+                            .addAll(openCandlesticks, 0, openCandlesticks.size())
+                            .addAll(pageCandlesticks, numClosed, pageCandlesticks.size())
+                            .build();
+                }
+                if (page.size() < MAX_CANDLESTICKS_PER_CALL) {
+                    break;
+                }
+                fetchStartMs = page.get(page.size() - 1).getOpenTime() + 1;
+            }
+            if (store != null && !closedCandlesticks.isEmpty()) {
+                try {
+                    store.append(symbol, closedCandlesticks);
+                } catch (IOException ex) {
+                    LOGGER.warn("Fail to store the candlesticks of {}", symbol, ex);
+                }
+            }
+
+            CandleSeries.Builder result = CandleSeries.builder();
+            for (int i = indexOf(startMs); i < size; ++i) {
+                int index = (head + i) % openTimes.length;
+                if (openTimes[index] > endMs) {
+                    break;
+                }
+                result.add(openTimes[index], closeTimes[index], averagePrices[index]);
+            }
+            return result.addAll(openCandlesticks, 0, openCandlesticks.size()).build();
+        }
+
+        private void clear(long startMs) {
+            head = 0;
+            size = 0;
+            coveredStartMs = startMs;
+            coveredEndMs = startMs;
+        }
+
+        private void addAll(@Nonnull CandleSeries candlesticks) {
+            for (int i = 0; i < candlesticks.size(); ++i) {
+                add(candlesticks.getOpenTimeMs(i), candlesticks.getCloseTimeMs(i), candlesticks.getAveragePrice(i));
+            }
+        }
+
+        private void add(long openTimeMs, long closeTimeMs, double averagePrice) {
+            if (size == openTimes.length) {
+                // Evict the oldest one, and the range after it is still covered
+                coveredStartMs = openTimes[head] + 1;
+                head = (head + 1) % openTimes.length;
+                --size;
+            }
+            int index = (head + size) % openTimes.length;
+            openTimes[index] = openTimeMs;
+            closeTimes[index] = closeTimeMs;
+            averagePrices[index] = averagePrice;
+            ++size;
+            coveredEndMs = openTimeMs + 1;
+        }
+
+        /**
+         * Gets the index, from the oldest one, of the first cached candlestick opened at or after the given time.
+         */
+        private int indexOf(long timeMs) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (openTimes[(head + mid) % openTimes.length] < timeMs) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 }
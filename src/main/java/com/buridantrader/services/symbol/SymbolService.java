@@ -12,6 +12,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @ThreadSafe
 public class SymbolService {
@@ -20,6 +21,9 @@ public class SymbolService {
     private final SystemService system;
     private final SymbolFetcher symbolFetcher;
     private Map<String, SymbolInfo> symbolMap;
+
+    // Ids of the symbols of the same version as symbolMap
+    private SymbolIndex symbolIndex;
     private Instant lastRefreshTime;
     private Instant timeOfVersion;
 
@@ -51,6 +55,19 @@ public class SymbolService {
         return ImmutableList.copyOf(symbolMap.values());
     }
 
+    /**
+     * Gets the dense ids of the symbols.
+     * The same index is returned until the symbols are changed.
+     *
+     * @return The index.
+     * @throws IOException Fail to get the symbols.
+     */
+    @Nonnull
+    public synchronized SymbolIndex getSymbolIndex() throws IOException {
+        checkFreshness();
+        return symbolIndex;
+    }
+
     public boolean isUpdatedSince(@Nonnull Instant time) {
         return timeOfVersion == null || time.isBefore(timeOfVersion);
     }
@@ -70,6 +87,9 @@ public class SymbolService {
                 return;
             }
             symbolMap = newSymbolMap;
+            symbolIndex = new SymbolIndex(newSymbolMap.values().stream()
+                    .map(SymbolInfo::getSymbol)
+                    .collect(Collectors.toList()));
             timeOfVersion = lastRefreshTime;
         }
     }
@@ -0,0 +1,75 @@
+package com.buridantrader
+
+import spock.lang.Specification
+
+/**
+ * Test class for {@link AlternativeRoutes}.
+ */
+class AlternativeRoutesTest extends Specification {
+
+    def usdt = new Currency("USDT")
+    def btc = new Currency("BTC")
+    def eth = new Currency("ETH")
+    def bnb = new Currency("BNB")
+    def ada = new Currency("ADA")
+    def ont = new Currency("ONT")
+    def ethUsdt = new Symbol(eth, usdt)
+    def ethBtc = new Symbol(eth, btc)
+    def btcUsdt = new Symbol(btc, usdt)
+    def ethBnb = new Symbol(eth, bnb)
+    def bnbUsdt = new Symbol(bnb, usdt)
+    def bnbBtc = new Symbol(bnb, btc)
+    def ontAda = new Symbol(ont, ada)
+    def symbols = [ethUsdt, ethBtc, btcUsdt, ethBnb, bnbUsdt, bnbBtc, ontAda]
+
+    def "get the routes with the fewest steps"() {
+        given:
+        def alternativeRoutes = new AlternativeRoutes(symbols, 3)
+
+        when:
+        def routes = alternativeRoutes.getRoutes(eth, usdt)
+
+        then:
+        routes.size() == 3
+        routes[0] == [new OrderSpec(ethUsdt, OrderSide.SELL)]
+        routes.subList(1, 3) as Set == [
+                [new OrderSpec(ethBtc, OrderSide.SELL), new OrderSpec(btcUsdt, OrderSide.SELL)],
+                [new OrderSpec(ethBnb, OrderSide.SELL), new OrderSpec(bnbUsdt, OrderSide.SELL)]
+        ] as Set
+        alternativeRoutes.getRoutes(eth, usdt).is(routes)
+    }
+
+    def "get all the loop-free routes"() {
+        given:
+        def alternativeRoutes = new AlternativeRoutes(symbols, 10)
+
+        when:
+        def routes = alternativeRoutes.getRoutes(usdt, eth)
+
+        then:
+        routes.collect { it.size() } == [1, 2, 2, 3, 3]
+        routes.toSet().size() == 5
+        routes.every { route ->
+            def currencies = [usdt] + route.collect { it.targetCurrency }
+            currencies.toSet().size() == currencies.size() && currencies.last() == eth
+        }
+        routes[3..4] as Set == [
+                [new OrderSpec(btcUsdt, OrderSide.BUY), new OrderSpec(bnbBtc, OrderSide.BUY), new OrderSpec(ethBnb, OrderSide.BUY)],
+                [new OrderSpec(bnbUsdt, OrderSide.BUY), new OrderSpec(bnbBtc, OrderSide.SELL), new OrderSpec(ethBtc, OrderSide.BUY)]
+        ] as Set
+    }
+
+    def "no route"() {
+        given:
+        def alternativeRoutes = new AlternativeRoutes(symbols, 3)
+
+        expect:
+        alternativeRoutes.getRoutes(source, target).isEmpty()
+
+        where:
+        source               | target
+        new Currency("ETH")  | new Currency("ADA")
+        new Currency("ETH")  | new Currency("ETH")
+        new Currency("XRP")  | new Currency("ETH")
+    }
+}
@@ -0,0 +1,286 @@
+package com.buridantrader
+
+import com.buridantrader.services.symbol.PriceSnapshot
+import com.buridantrader.services.symbol.SymbolPriceService
+import com.buridantrader.services.system.SystemService
+import spock.lang.Specification
+
+import java.time.Instant
+
+/**
+ * Test class for {@link BestRatePathsResolver}.
+ */
+class BestRatePathsResolverTest extends Specification {
+
+    static final BigDecimal FEE_RATE = new BigDecimal("0.001")
+
+    def symbolPriceService = Mock(SymbolPriceService)
+    def system = Mock(SystemService)
+    def resolver = new BestRatePathsResolver(FEE_RATE, BigDecimal.ZERO, symbolPriceService, system)
+    def usdt = new Currency("USDT")
+    def btc = new Currency("BTC")
+    def eth = new Currency("ETH")
+    def bnb = new Currency("BNB")
+    def btcUsdt = new Symbol(btc, usdt)
+    def ethUsdt = new Symbol(eth, usdt)
+    def ethBtc = new Symbol(eth, btc)
+    def bnbUsdt = new Symbol(bnb, usdt)
+    def bnbEth = new Symbol(bnb, eth)
+    def symbols = [btcUsdt, ethUsdt, ethBtc, bnbUsdt, bnbEth]
+
+    def "invalid fee rate"() {
+        when:
+        new BestRatePathsResolver(feeRate, BigDecimal.ZERO, symbolPriceService, system)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        feeRate << [new BigDecimal("-0.001"), BigDecimal.ONE]
+    }
+
+    def "invalid tolerance"() {
+        when:
+        new BestRatePathsResolver(FEE_RATE, new BigDecimal("-0.001"), symbolPriceService, system)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "resolve paths at the latest prices, and resolve them again when the prices are updated"() {
+        given:
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03")]
+
+        when:
+        def paths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], null)
+
+        then:
+        1 * symbolPriceService.getPriceSnapshot() >> new PriceSnapshot(prices, [:])
+        paths.getNextStep(eth, usdt) == Optional.of(new PathStep(ethUsdt, 1))
+
+        when:
+        def outdated = resolver.isOutdated(Instant.ofEpochMilli(1000))
+
+        then:
+        1 * symbolPriceService.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        outdated
+    }
+
+    def "sell at the bid prices and buy at the ask prices"() {
+        given:
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03")]
+        // The spread of ETH/USDT is wide, so ETH -> BTC -> USDT gives 0.02999 * 3999 * 0.999 * 0.999 = 119.69
+        // USDT, more than the 119 * 0.999 = 118.88 USDT of selling ETH for USDT directly
+        def bookPrices = [
+                (btcUsdt): new BookPrice(new BigDecimal("3999"), new BigDecimal("4001")),
+                (ethUsdt): new BookPrice(new BigDecimal("119"), new BigDecimal("121")),
+                (ethBtc): new BookPrice(new BigDecimal("0.02999"), new BigDecimal("0.03001"))]
+
+        when:
+        def lastPricePaths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], prices)
+
+        then:
+        lastPricePaths.getNextStep(eth, usdt) == Optional.of(new PathStep(ethUsdt, 1))
+
+        when:
+        def paths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], new PriceSnapshot(prices, bookPrices))
+
+        then:
+        paths.getNextStep(eth, usdt) == Optional.of(new PathStep(ethBtc, 2))
+        paths.getNextStep(usdt, eth) == Optional.of(new PathStep(btcUsdt, 2))
+    }
+
+    def "keep the paths until the prices move past the tolerance"() {
+        given:
+        def resolver = new BestRatePathsResolver(FEE_RATE, new BigDecimal("0.002"), symbolPriceService, system)
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03")]
+        def paths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], prices)
+
+        when: "ETH/BTC moves by 0.15%, and selling ETH for BTC and then USDT gets better"
+        prices[ethBtc] = new BigDecimal("0.030045")
+        def movedPaths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], prices)
+
+        then:
+        movedPaths.is(paths)
+        movedPaths.getNextStep(eth, usdt) == Optional.of(new PathStep(ethUsdt, 1))
+
+        when: "ETH/BTC has moved by 0.23% since the paths are resolved"
+        prices[ethBtc] = new BigDecimal("0.03007")
+        movedPaths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc], prices)
+
+        then:
+        movedPaths.getNextStep(eth, usdt) == Optional.of(new PathStep(ethBtc, 2))
+    }
+
+    def "choose the path with the best rate among the paths with the same number of steps"() {
+        given:
+        // BNB -> USDT -> BTC gives 20 / 4000 = 0.005 BTC
+        // BNB -> ETH -> BTC gives 0.1668 * 0.03 = 0.005004 BTC
+        // BTC -> USDT -> BNB gives 4000 / 20 = 200 BNB
+        // BTC -> ETH -> BNB gives 1 / 0.03 / 0.1668 = 199.84 BNB
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03"),
+                (bnbUsdt): new BigDecimal("20"),
+                (bnbEth): new BigDecimal("0.1668"),
+        ]
+
+        when:
+        def paths = resolver.resolvePaths(symbols, prices)
+
+        then:
+        paths.getNextStep(bnb, btc).get().symbolToNext == bnbEth
+        paths.getNextStep(bnb, btc).get().length == 2
+        paths.getNextStep(btc, bnb).get().symbolToNext == btcUsdt
+        paths.getNextStep(btc, bnb).get().length == 2
+        paths.getNextStep(usdt, btc).get().symbolToNext == btcUsdt
+        paths.getNextStep(usdt, btc).get().length == 1
+    }
+
+    def "take more steps if the rate is better"() {
+        given:
+        // BNB -> ETH gives 0.1663 * 0.999 = 0.16613 ETH, but BNB -> USDT -> ETH gives
+        // 20 / 120 * 0.999 * 0.999 = 0.16633 ETH
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03"),
+                (bnbUsdt): new BigDecimal("20"),
+                (bnbEth): new BigDecimal("0.1663"),
+        ]
+
+        when:
+        def paths = resolver.resolvePaths(symbols, prices)
+
+        then:
+        paths.getNextStep(bnb, eth).get().symbolToNext == bnbUsdt
+        paths.getNextStep(bnb, eth).get().length == 2
+        paths.getNextStep(eth, bnb).get().symbolToNext == bnbEth
+        paths.getNextStep(eth, bnb).get().length == 1
+    }
+
+    def "return the same paths if the prices aren't changed"() {
+        given:
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.03"),
+                (bnbUsdt): new BigDecimal("20"),
+                (bnbEth): new BigDecimal("0.1"),
+        ]
+        def paths = resolver.resolvePaths(symbols, prices)
+
+        expect:
+        resolver.resolvePaths(symbols.reverse(), new HashMap<>(prices)).is(paths)
+    }
+
+    def "symbol without price isn't traded"() {
+        given:
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (bnbEth): new BigDecimal("0.1"),
+        ]
+
+        when:
+        def paths = resolver.resolvePaths([btcUsdt, ethUsdt, ethBtc, bnbEth, new Symbol(bnb, btc)], prices)
+
+        then:
+        paths.getNextStep(eth, btc).get().symbolToNext == ethUsdt
+        paths.getNextStep(eth, btc).get().length == 2
+        paths.getNextStep(bnb, btc).get().symbolToNext == bnbEth
+        paths.getNextStep(bnb, btc).get().length == 3
+    }
+
+    def "resolve the paths with the fewest steps if a cycle of trades is profitable"() {
+        given:
+        // USDT -> BTC -> ETH -> USDT gives 1 / 4000 / 0.02 * 120 = 1.5 USDT
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120"),
+                (ethBtc): new BigDecimal("0.02"),
+                (bnbUsdt): new BigDecimal("20"),
+                (bnbEth): new BigDecimal("0.1"),
+        ]
+
+        when:
+        def paths = resolver.resolvePaths(symbols, prices)
+
+        then:
+        paths.getNextStep(usdt, eth).get().symbolToNext == ethUsdt
+        paths.getNextStep(usdt, eth).get().length == 1
+        paths.getNextStep(btc, bnb).get().length == 2
+        paths.getNextStep(usdt, usdt).get().length == 2
+    }
+
+    def "repair the paths after the prices are changed"() {
+        given:
+        def random = new Random(1234)
+        def currencies = (0..<40).collect { new Currency("C" + it) }
+        def values = currencies.collect { Math.exp(random.nextDouble() * 10 - 5) }
+        def randomSymbols = new LinkedHashSet<Symbol>()
+        while (randomSymbols.size() < 100) {
+            int baseId = random.nextInt(currencies.size())
+            int quoteId = random.nextInt(currencies.size())
+            if (baseId != quoteId && !randomSymbols.contains(new Symbol(currencies[quoteId], currencies[baseId]))) {
+                randomSymbols << new Symbol(currencies[baseId], currencies[quoteId])
+            }
+        }
+        // The prices deviate from the values of the currencies by less than the fee, so no cycle of trades is
+        // profitable
+        def createPrice = { Symbol symbol ->
+            double value = values[currencies.indexOf(symbol.baseCurrency)] / values[currencies.indexOf(symbol.quoteCurrency)]
+            new BigDecimal(value * (1 + (random.nextDouble() - 0.5) * 0.0009))
+        }
+        def prices = randomSymbols.collectEntries { [(it): createPrice(it)] }
+        def paths = resolver.resolvePaths(randomSymbols, prices)
+
+        expect:
+        30.times {
+            def changedSymbols = randomSymbols.findAll { random.nextInt(20) == 0 }
+            prices = new HashMap<>(prices)
+            changedSymbols.each { prices[it] = createPrice(it) }
+            paths = resolver.resolvePaths(randomSymbols, prices)
+            def expected = new BestRatePathsResolver(FEE_RATE, BigDecimal.ZERO, symbolPriceService, system)
+                    .resolvePaths(randomSymbols, prices)
+            currencies.each { source ->
+                currencies.each { target ->
+                    if (source != target) {
+                        assert getRate(paths, prices, source, target) ==
+                                getRate(expected, prices, source, target)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the rate of trading along the path, rounded to avoid the error of floating point numbers.
+     */
+    private static BigDecimal getRate(
+            TradingPaths paths, Map<Symbol, BigDecimal> prices, Currency source, Currency target) {
+        double rate = 1
+        def nowCurrency = source
+        def step = paths.getNextStep(source, target)
+        int length = step.get().length
+        while (nowCurrency != target) {
+            assert step.get().length == length--
+            def symbol = step.get().symbolToNext
+            def price = prices[symbol].doubleValue()
+            rate *= (symbol.baseCurrency == nowCurrency ? price : 1 / price) * (1 - FEE_RATE.doubleValue())
+            nowCurrency = step.get().getNextCurrency(nowCurrency)
+            step = paths.getNextStep(nowCurrency, target)
+        }
+        return new BigDecimal(rate).round(new java.math.MathContext(10))
+    }
+}
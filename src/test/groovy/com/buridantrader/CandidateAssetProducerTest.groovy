@@ -3,7 +3,6 @@ package com.buridantrader
 import com.buridantrader.config.AssetConfig
 import com.buridantrader.config.TradingConfig
 import com.buridantrader.exceptions.NoSuchPathException
-import com.buridantrader.exceptions.ValueLimitException
 import spock.lang.Specification
 
 /**
@@ -15,6 +14,7 @@ class CandidateAssetProducerTest extends Specification {
     def assetViewer = Mock(AssetViewer)
     def pricePredicator = Mock(PricePredictor)
     def priceConverter = Mock(PriceConverter)
+    def market = Mock(MarketSnapshot)
     def candidateAssetProducer = new CandidateAssetProducer(config, assetViewer, pricePredicator, priceConverter)
 
     def "Get candidates"() {
@@ -35,7 +35,7 @@ class CandidateAssetProducerTest extends Specification {
         def hohoAsset = new Asset(hohoCurrency, BigDecimal.ZERO)
 
         when:
-        def result = candidateAssetProducer.getCandidates()
+        def result = candidateAssetProducer.getCandidates(market)
 
 
         then:
@@ -63,15 +63,24 @@ class CandidateAssetProducerTest extends Specification {
         }
         (1 .. _) * config.getQuoteCurrency() >> usdtCurrency
         (1 .. _) * config.getMinTradingValue() >> new BigDecimal("0.01")
-        1 * priceConverter.getRelativePrice(btcCurrency, usdtCurrency, new BigDecimal("0.09999")) >> new BigDecimal("100")
-        1 * priceConverter.getRelativePrice(ethCurrency, usdtCurrency, BigDecimal.ZERO) >> BigDecimal.ZERO
-        1 * priceConverter.getRelativePrice(hahaCurrency, usdtCurrency, new BigDecimal("0.3")) >> {throw new NoSuchPathException("")}
-        1 * priceConverter.getRelativePrice(heheCurrency, usdtCurrency, new BigDecimal("0.0000001")) >> {throw new ValueLimitException("")}
-        1 * priceConverter.getRelativePrice(hohoCurrency, usdtCurrency, BigDecimal.ZERO) >> BigDecimal.ZERO
-        1 * pricePredicator.getPrediction(btcCurrency, usdtCurrency) >> btcPrediction
-        1 * pricePredicator.getPrediction(ethCurrency, usdtCurrency) >> ethPrediction
-        1 * pricePredicator.getPrediction(heheCurrency, usdtCurrency) >> hehePrediction
-        1 * pricePredicator.getPrediction(hohoCurrency, usdtCurrency) >> {throw new NoSuchPathException("")}
+        1 * priceConverter.getRelativePrices(market, [
+                (btcCurrency): new BigDecimal("0.09999"),
+                (ethCurrency): BigDecimal.ZERO,
+                (hahaCurrency): new BigDecimal("0.3"),
+                (heheCurrency): new BigDecimal("0.0000001"),
+                (hohoCurrency): BigDecimal.ZERO,
+        ], usdtCurrency) >> [
+                (btcCurrency): new BigDecimal("100"),
+                (ethCurrency): BigDecimal.ZERO,
+                // No path for HAHA, and a price out of limits for HEHE
+                (heheCurrency): BigDecimal.ZERO,
+                (hohoCurrency): BigDecimal.ZERO,
+        ]
+        0 * priceConverter.getRelativePrice(*_)
+        1 * pricePredicator.getPrediction(market, btcCurrency, usdtCurrency) >> btcPrediction
+        1 * pricePredicator.getPrediction(market, ethCurrency, usdtCurrency) >> ethPrediction
+        1 * pricePredicator.getPrediction(market, heheCurrency, usdtCurrency) >> hehePrediction
+        1 * pricePredicator.getPrediction(market, hohoCurrency, usdtCurrency) >> {throw new NoSuchPathException("")}
         result.size() == 3
         result[0].asset == btcAsset
         result[0].pricePrediction == btcPrediction
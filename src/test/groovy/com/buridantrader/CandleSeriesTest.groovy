@@ -0,0 +1,61 @@
+package com.buridantrader
+
+import spock.lang.Specification
+
+class CandleSeriesTest extends Specification {
+
+    def "build a series larger than the initial capacity"() {
+        given:
+        def builder = CandleSeries.builder()
+
+        when:
+        (0..<100).each { builder.add(it * 60000L, it * 60000L + 59999, it * 1.5d) }
+        def series = builder.build()
+
+        then:
+        series.size() == 100
+        builder.getLastOpenTimeMs() == 99 * 60000L
+        series.getOpenTimeMs(99) == 99 * 60000L
+        series.getCloseTimeMs(99) == 99 * 60000L + 59999
+        series.getAveragePrice(99) == 148.5d
+    }
+
+    def "average the high and the low price of a Binance candlestick"() {
+        given:
+        def candlestick = new com.binance.api.client.domain.market.Candlestick()
+        candlestick.openTime = 0
+        candlestick.closeTime = 59999
+        candlestick.high = "0.00000003"
+        candlestick.low = "0.00000000"
+
+        when:
+        def series = CandleSeries.builder().add(candlestick).build()
+
+        then:
+        series == CandleSeries.builder().add(0, 59999, 0.00000002d).build()
+    }
+
+    def "head shares the candlesticks"() {
+        given:
+        def series = CandleSeries.builder()
+                .add(0, 99, 1.0d)
+                .add(100, 199, 2.0d)
+                .build()
+
+        when:
+        def head = series.head(1)
+
+        then:
+        head == CandleSeries.builder().add(0, 99, 1.0d).build()
+        series.head(2).is(series)
+        series.head(0).isEmpty()
+    }
+
+    def "index out of the series"() {
+        when:
+        CandleSeries.builder().add(0, 99, 1.0d).build().head(1).getAveragePrice(1)
+
+        then:
+        thrown(IndexOutOfBoundsException)
+    }
+}
@@ -1,11 +1,17 @@
 package com.buridantrader
 
+import com.binance.api.client.BinanceApiRestClient
 import com.buridantrader.exceptions.NoSuchPathException
 import com.buridantrader.exceptions.ValueLimitException
 import com.buridantrader.services.symbol.SymbolPriceViewer
+import com.google.common.util.concurrent.MoreExecutors
 import spock.lang.Specification
+import spock.lang.Unroll
 
 import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 /**
  * Test class for {@link CurrencyPriceViewer}.
@@ -14,6 +20,7 @@ class CurrencyPriceViewerTest extends Specification {
 
     def symbolPriceViewer = Mock(SymbolPriceViewer)
     def tradingPathFinder = Mock(TradingPathFinder)
+    def market = Mock(MarketSnapshot)
     def currencyPriceViewer = new CurrencyPriceViewer(symbolPriceViewer, tradingPathFinder)
 
     def "get price history per minute"() {
@@ -31,44 +38,64 @@ class CurrencyPriceViewerTest extends Specification {
         ]
 
         when:
-        def result = currencyPriceViewer.getPriceHistoryPerMinute(baseCurrency, quoteCurrency, startTime, endTime)
+        def result = currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
 
         then:
-        1 * tradingPathFinder.findPathOfOrderSpecs(baseCurrency, quoteCurrency) >> orderSpecs
-        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol1, startTime, endTime) >> [
-                new Candlestick(
-                        Instant.ofEpochMilli(100),
-                        Instant.ofEpochMilli(199),
-                        new BigDecimal("100.01")),
-                new Candlestick(
-                        Instant.ofEpochMilli(200),
-                        Instant.ofEpochMilli(299),
-                        new BigDecimal("200.01")),
-                new Candlestick(
-                        Instant.ofEpochMilli(300),
-                        Instant.ofEpochMilli(399),
-                        new BigDecimal("300.01"))
-        ].iterator()
-        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol2, startTime, endTime) >> [
-                new Candlestick(
-                        Instant.ofEpochMilli(101),
-                        Instant.ofEpochMilli(200),
-                        new BigDecimal("400.01")),
-                new Candlestick(
-                        Instant.ofEpochMilli(201),
-                        Instant.ofEpochMilli(300),
-                        new BigDecimal("500.01"))
-        ].iterator()
-        result == [
-                new Candlestick(
-                        Instant.ofEpochMilli(100),
-                        Instant.ofEpochMilli(199),
-                        new BigDecimal("0.25001879938")),
-                new Candlestick(
-                        Instant.ofEpochMilli(200),
-                        Instant.ofEpochMilli(299),
-                        new BigDecimal("0.40001199960"))
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> orderSpecs
+        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol1, startTime, endTime) >> series(
+                [100, 199, 100.01d],
+                [200, 299, 200.01d],
+                [300, 399, 300.01d])
+        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol2, startTime, endTime) >> series(
+                [100, 199, 400.01d],
+                [200, 299, 500.01d],
+                [300, 399, 600.01d])
+        result == series(
+                [100, 199, 100.01d * (1 / 400.01d)],
+                [200, 299, 200.01d * (1 / 500.01d)],
+                [300, 399, 300.01d * (1 / 600.01d)])
+        Math.abs(result.getAveragePrice(0) - 0.2500187495d) < 1e-10d
+        Math.abs(result.getAveragePrice(1) - 0.4000119998d) < 1e-10d
+    }
+
+    @Unroll
+    def "join the candlesticks of the steps on the open time with #gapHandling"() {
+        given:
+        def baseCurrency = new Currency("BTC")
+        def middleCurrency1 = new Currency("USDT")
+        def quoteCurrency = new Currency("ETH")
+        def startTime = Instant.ofEpochMilli(100)
+        def endTime = Instant.ofEpochMilli(500)
+        def symbol1 = new Symbol(baseCurrency, middleCurrency1)
+        def symbol2 = new Symbol(middleCurrency1, quoteCurrency)
+        def orderSpecs = [
+                new OrderSpec(symbol1, OrderSide.SELL),
+                new OrderSpec(symbol2, OrderSide.SELL),
         ]
+        currencyPriceViewer = new CurrencyPriceViewer(
+                symbolPriceViewer, tradingPathFinder, MoreExecutors.directExecutor(), gapHandling)
+
+        when:
+        def result = currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
+
+        then:
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> orderSpecs
+        // The first step misses the minute 300, and the second one misses the minutes 100 and 500
+        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol1, startTime, endTime) >> series(
+                [100, 199, 2d],
+                [200, 299, 3d],
+                [400, 499, 5d],
+                [500, 599, 7d])
+        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol2, startTime, endTime) >> series(
+                [200, 299, 10d],
+                [300, 399, 20d],
+                [400, 499, 30d])
+        result == series(*expected)
+
+        where:
+        gapHandling                     | expected
+        PriceGapHandling.SKIP           | [[200, 299, 30d], [400, 499, 150d]]
+        PriceGapHandling.FORWARD_FILL   | [[200, 299, 30d], [300, 399, 60d], [400, 499, 150d], [500, 599, 210d]]
     }
 
     def "when getting price history per minute, get 0 order spec"() {
@@ -79,11 +106,11 @@ class CurrencyPriceViewerTest extends Specification {
         def endTime = Instant.ofEpochMilli(101)
 
         when:
-        currencyPriceViewer.getPriceHistoryPerMinute(baseCurrency, quoteCurrency, startTime, endTime)
+        currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
 
         then:
         thrown(IOException)
-        1 * tradingPathFinder.findPathOfOrderSpecs(baseCurrency, quoteCurrency) >> []
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> []
     }
 
     def "when getting price history per minute, unable to get order spec"() {
@@ -94,11 +121,11 @@ class CurrencyPriceViewerTest extends Specification {
         def endTime = Instant.ofEpochMilli(101)
 
         when:
-        currencyPriceViewer.getPriceHistoryPerMinute(baseCurrency, quoteCurrency, startTime, endTime)
+        currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
 
         then:
         thrown(NoSuchPathException)
-        1 * tradingPathFinder.findPathOfOrderSpecs(baseCurrency, quoteCurrency) >> {throw new NoSuchPathException("")}
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> {throw new NoSuchPathException("")}
     }
 
     def "when getting price history per minute, price is 0"() {
@@ -113,18 +140,59 @@ class CurrencyPriceViewerTest extends Specification {
         ]
 
         when:
-        currencyPriceViewer.getPriceHistoryPerMinute(baseCurrency, quoteCurrency, startTime, endTime)
+        currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
 
         then:
         thrown(ValueLimitException)
-        1 * tradingPathFinder.findPathOfOrderSpecs(baseCurrency, quoteCurrency) >> orderSpecs
-        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol1, startTime, endTime) >> [
-                new Candlestick(
-                        Instant.ofEpochMilli(100),
-                        Instant.ofEpochMilli(199),
-                        new BigDecimal("0"))
-        ].iterator()
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> orderSpecs
+        1 * symbolPriceViewer.getPriceHistoryPerMinute(symbol1, startTime, endTime) >> series([100, 199, 0d])
     }
-}
 
+    def "fetch the price history of the steps concurrently"() {
+        given:
+        def executor = Executors.newFixedThreadPool(2)
+        def baseCurrency = new Currency("BTC")
+        def middleCurrency1 = new Currency("USDT")
+        def quoteCurrency = new Currency("ETH")
+        def startTime = Instant.ofEpochMilli(100)
+        def endTime = Instant.ofEpochMilli(101)
+        def symbol1 = new Symbol(baseCurrency, middleCurrency1)
+        def symbol2 = new Symbol(middleCurrency1, quoteCurrency)
+        def orderSpecs = [
+                new OrderSpec(symbol1, OrderSide.SELL),
+                new OrderSpec(symbol2, OrderSide.SELL),
+        ]
+
+        // Each fetch only returns when both of them are in flight. The calls of a mock are serialized, so the
+        // viewer is stubbed with a subclass
+        def inFlight = new CountDownLatch(2)
+        def prices = [(symbol1): 2d, (symbol2): 3d]
+        def concurrentViewer = new SymbolPriceViewer(Mock(BinanceApiRestClient)) {
+            @Override
+            CandleSeries getPriceHistoryPerMinute(Symbol symbol, Instant start, Instant end) {
+                inFlight.countDown()
+                if (!inFlight.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("The steps are fetched one by one")
+                }
+                series([100, 199, prices[symbol]])
+            }
+        }
+        currencyPriceViewer = new CurrencyPriceViewer(concurrentViewer, tradingPathFinder, executor)
 
+        when:
+        def result = currencyPriceViewer.getPriceHistoryPerMinute(market, baseCurrency, quoteCurrency, startTime, endTime)
+
+        then:
+        1 * tradingPathFinder.findPathOfOrderSpecs(market, baseCurrency, quoteCurrency) >> orderSpecs
+        result == series([100, 199, 6d])
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    private static CandleSeries series(List... candlesticks) {
+        def builder = CandleSeries.builder()
+        candlesticks.each { builder.add(it[0] as long, it[1] as long, it[2] as double) }
+        builder.build()
+    }
+}
@@ -0,0 +1,149 @@
+package com.buridantrader
+
+import com.buridantrader.services.system.SystemService
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Test class for {@link DensePathsResolver}.
+ */
+class DensePathsResolverTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def shortestPathsResolver = Mock(ShortestPathsResolver)
+    def incrementalPathsResolver = Mock(IncrementalPathsResolver)
+    def pathsStore = Mock(TradingPathsStore)
+    def resolver = new DensePathsResolver(shortestPathsResolver, incrementalPathsResolver, pathsStore)
+    def currencies = (0..<40).collect { new Currency("C" + it) }
+    def oldSymbols = (1..<40).collect { new Symbol(currencies[0], currencies[it]) }
+    def oldPaths = new ShortestPathsResolver(Mock(SystemService)).resolveAllShortestPaths(oldSymbols)
+
+    def "resolve all the paths when there aren't old paths"() {
+        given:
+        def tradingPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolvePaths(oldSymbols, null)
+
+        then:
+        1 * shortestPathsResolver.resolveAllShortestPaths(oldSymbols) >> tradingPaths
+        1 * pathsStore.save(tradingPaths)
+        result.is(tradingPaths)
+    }
+
+    def "repair paths incrementally when a few symbols are changed"() {
+        given:
+        // The currencies of the removed symbol are still in other symbols
+        def addedSymbol = new Symbol(currencies[6], currencies[2])
+        def removedSymbol = oldSymbols[5]
+        def tradingPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolvePaths(oldSymbols - removedSymbol + addedSymbol, oldPaths)
+
+        then:
+        0 * shortestPathsResolver.resolveAllShortestPaths(_)
+        1 * incrementalPathsResolver.resolveChanges(oldPaths, [addedSymbol], [removedSymbol]) >> tradingPaths
+        1 * pathsStore.save(tradingPaths)
+        result.is(tradingPaths)
+    }
+
+    def "resolve all the paths again when many symbols are changed"() {
+        given:
+        def tradingPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolvePaths(oldSymbols[0..10], oldPaths)
+
+        then:
+        0 * incrementalPathsResolver.resolveChanges(*_)
+        1 * shortestPathsResolver.resolveAllShortestPaths(oldSymbols[0..10]) >> tradingPaths
+        result.is(tradingPaths)
+    }
+
+    def "resolve all the paths again when a currency is gone"() {
+        given:
+        def removedSymbol = oldSymbols[5]
+        def tradingPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolvePaths(oldSymbols - removedSymbol, oldPaths)
+
+        then:
+        0 * incrementalPathsResolver.resolveChanges(*_)
+        1 * shortestPathsResolver.resolveAllShortestPaths(oldSymbols - removedSymbol) >> tradingPaths
+        result.is(tradingPaths)
+    }
+
+    def "don't save the paths again if they aren't changed"() {
+        when:
+        def result = resolver.resolvePaths(oldSymbols, oldPaths)
+
+        then:
+        1 * incrementalPathsResolver.resolveChanges(oldPaths, [], []) >> oldPaths
+        0 * pathsStore.save(_)
+        result.is(oldPaths)
+    }
+
+    def "return the paths even if they fail to be saved"() {
+        given:
+        def tradingPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolvePaths(oldSymbols, null)
+
+        then:
+        1 * shortestPathsResolver.resolveAllShortestPaths(oldSymbols) >> tradingPaths
+        1 * pathsStore.save(tradingPaths) >> { throw new IOException() }
+        result.is(tradingPaths)
+    }
+
+    def "load saved paths"() {
+        when:
+        def result = resolver.loadSavedPaths(oldSymbols)
+
+        then:
+        1 * pathsStore.load(TradingPathsStore.hashSymbols(oldSymbols)) >> Optional.of(oldPaths)
+        result == Optional.of(oldPaths)
+    }
+
+    def "no saved paths if they're saved from other symbols"() {
+        given:
+        def resolver = new DensePathsResolver(new ShortestPathsResolver(), incrementalPathsResolver,
+                new TradingPathsStore(temporaryFolder.newFile()))
+        resolver.resolvePaths(oldSymbols, null)
+
+        expect:
+        resolver.loadSavedPaths(oldSymbols).isPresent()
+        !resolver.loadSavedPaths(oldSymbols - oldSymbols[5]).isPresent()
+        !resolver.loadSavedPaths(oldSymbols + new Symbol(currencies[1], currencies[2])).isPresent()
+    }
+
+    def "no saved paths if they fail to load"() {
+        when:
+        def result = resolver.loadSavedPaths(oldSymbols)
+
+        then:
+        1 * pathsStore.load(_) >> { throw exception }
+        result == Optional.empty()
+
+        where:
+        exception << [new IOException(), new NegativeArraySizeException()]
+    }
+
+    def "neither load nor save paths without a store"() {
+        given:
+        def resolver = new DensePathsResolver(shortestPathsResolver, incrementalPathsResolver)
+
+        when:
+        def loadedPaths = resolver.loadSavedPaths(oldSymbols)
+        resolver.resolvePaths(oldSymbols, null)
+
+        then:
+        1 * shortestPathsResolver.resolveAllShortestPaths(oldSymbols) >> Mock(DenseTradingPaths)
+        loadedPaths == Optional.empty()
+    }
+}
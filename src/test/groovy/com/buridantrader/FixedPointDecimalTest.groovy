@@ -0,0 +1,54 @@
+package com.buridantrader
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Test class for {@link FixedPointDecimal}.
+ */
+class FixedPointDecimalTest extends Specification {
+
+    @Unroll
+    def "convert #value to mantissa"() {
+        expect:
+        FixedPointDecimal.toMantissa(value) == mantissa
+        FixedPointDecimal.toMantissa(new BigDecimal(value)) == mantissa
+
+        where:
+        value               | mantissa
+        "4000"              | 400000000000L
+        "4000.00000000"     | 400000000000L
+        "0.00000001"        | 1L
+        "0.000000015"       | 2L
+        "0.000000014999"    | 1L
+        "3.1415927"         | 314159270L
+        "-1.5"              | -150000000L
+        ".5"                | 50000000L
+        "1E+3"              | 100000000000L
+    }
+
+    @Unroll
+    def "fail to convert #value to mantissa"() {
+        when:
+        FixedPointDecimal.toMantissa(value)
+
+        then:
+        thrown(exception)
+
+        where:
+        value                 | exception
+        ""                    | NumberFormatException
+        "."                   | NumberFormatException
+        "1.2.3"               | NumberFormatException
+        "abc"                 | NumberFormatException
+        "100000000000000000"  | ArithmeticException
+    }
+
+    def "convert mantissa to decimal without trailing zeros"() {
+        expect:
+        FixedPointDecimal.toBigDecimal(400000000000L) == new BigDecimal("4000")
+        FixedPointDecimal.toBigDecimal(400000000000L).scale() == 0
+        FixedPointDecimal.toBigDecimal(314159270L).toPlainString() == "3.1415927"
+        FixedPointDecimal.toBigDecimal(1L).toPlainString() == "0.00000001"
+    }
+}
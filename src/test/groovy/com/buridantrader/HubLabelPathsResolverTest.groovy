@@ -0,0 +1,136 @@
+package com.buridantrader
+
+import com.buridantrader.services.system.SystemService
+import spock.lang.Specification
+
+/**
+ * Test class for {@link HubLabelPathsResolver}.
+ */
+class HubLabelPathsResolverTest extends Specification {
+
+    def system = Mock(SystemService)
+    def resolver = new HubLabelPathsResolver(system)
+
+    def "resolve paths through the hubs"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def eos = new Currency("EOS")
+        def neo = new Currency("NEO")
+        def ont = new Currency("ONT")
+        def ada = new Currency("ADA")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethUsdt = new Symbol(eth, usdt)
+        def eosEth = new Symbol(eos, eth)
+        def neoBtc = new Symbol(neo, btc)
+        def ontAda = new Symbol(ont, ada)
+
+        when:
+        def paths = resolver.resolvePaths([ethBtc, btcUsdt, ethUsdt, eosEth, neoBtc, ontAda])
+
+        then:
+        paths.getNextStep(eos, neo).get().symbolToNext == eosEth
+        paths.getNextStep(eos, neo).get().length == 3
+        paths.getNextStep(neo, eos).get().symbolToNext == neoBtc
+        paths.getNextStep(neo, eos).get().length == 3
+        paths.getNextStep(btc, eos).get().symbolToNext == ethBtc
+        paths.getNextStep(btc, eos).get().length == 2
+        paths.getNextStep(eos, usdt).get().symbolToNext == eosEth
+        paths.getNextStep(eos, usdt).get().length == 2
+        paths.getNextStep(usdt, eth).get().symbolToNext == ethUsdt
+        paths.getNextStep(usdt, eth).get().length == 1
+        paths.getNextStep(neo, neo).get().symbolToNext == neoBtc
+        paths.getNextStep(neo, neo).get().length == 2
+        !paths.getNextStep(eos, ada).isPresent()
+        !paths.getNextStep(eos, new Currency("XRP")).isPresent()
+    }
+
+    def "paths with the same first step share the step"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def eos = new Currency("EOS")
+        def usdt = new Currency("USDT")
+        def btcUsdt = new Symbol(btc, usdt)
+        def symbols = [btcUsdt, new Symbol(eth, btc), new Symbol(eos, btc)]
+
+        when:
+        def paths = resolver.resolvePaths(symbols)
+        def step1 = paths.getNextStep(usdt, eth)
+        def step2 = paths.getNextStep(usdt, eos)
+        def step3 = paths.getNextStep(usdt, eth)
+        def cycleStep1 = paths.getNextStep(usdt, usdt)
+        def cycleStep2 = paths.getNextStep(usdt, usdt)
+
+        then:
+        step1.get() == new PathStep(btcUsdt, 2)
+        step1.is(step2)
+        step1.is(step3)
+        !paths.getNextStep(usdt, btc).is(step1)
+        cycleStep1.get() == new PathStep(btcUsdt, 2)
+        cycleStep1.is(cycleStep2)
+    }
+
+    def "labels of currencies around a few hubs are small"() {
+        given:
+        def hubs = ["BTC", "ETH", "BNB", "USDT"].collect { new Currency(it) }
+        def symbols = [
+                new Symbol(hubs[1], hubs[0]),
+                new Symbol(hubs[2], hubs[0]),
+                new Symbol(hubs[0], hubs[3]),
+                new Symbol(hubs[2], hubs[1]),
+        ]
+        (0..<2000).each { id ->
+            def currency = new Currency("C" + id)
+            symbols << new Symbol(currency, hubs[id % hubs.size()])
+            symbols << new Symbol(currency, hubs[(id + 1) % hubs.size()])
+        }
+
+        when:
+        def paths = resolver.resolvePaths(symbols)
+
+        then:
+        paths.getNumLabels() <= 2004 * hubs.size()
+        paths.getNextStep(new Currency("C0"), new Currency("C2")).get().length == 3
+        paths.getNextStep(new Currency("C0"), new Currency("C5")).get().length == 2
+    }
+
+    def "resolve the same lengths as the paths between all pairs of currencies"() {
+        given:
+        def random = new Random(4321)
+        def currencies = (0..<80).collect { new Currency("C" + it) }
+        def symbols = new LinkedHashSet<Symbol>()
+        while (symbols.size() < 140) {
+            // Lower ids are picked more often, so that there are a few hubs
+            def base = currencies[(int) (currencies.size() * Math.pow(random.nextDouble(), 3))]
+            def quote = currencies[random.nextInt(currencies.size())]
+            if (base != quote && !symbols.contains(new Symbol(quote, base))) {
+                symbols << new Symbol(base, quote)
+            }
+        }
+
+        when:
+        def paths = resolver.resolvePaths(symbols)
+        def expected = new ShortestPathsResolver(system).resolveAllShortestPaths(symbols)
+
+        then:
+        currencies.each { source ->
+            currencies.each { target ->
+                def expectedStep = expected.getNextStep(source, target)
+                def step = paths.getNextStep(source, target)
+                assert expectedStep.isPresent() == step.isPresent()
+                if (step.isPresent()) {
+                    assert step.get().length == expectedStep.get().length
+                    def nextCurrency = step.get().getNextCurrency(source)
+                    if (step.get().length == 1) {
+                        assert nextCurrency == target
+                    } else {
+                        assert paths.getNextStep(nextCurrency, target).get().length == step.get().length - 1
+                    }
+                }
+            }
+        }
+    }
+}
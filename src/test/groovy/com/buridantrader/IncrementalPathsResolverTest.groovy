@@ -0,0 +1,125 @@
+package com.buridantrader
+
+import com.buridantrader.services.system.SystemService
+import spock.lang.Specification
+
+/**
+ * Test class for {@link IncrementalPathsResolver}.
+ */
+class IncrementalPathsResolverTest extends Specification {
+
+    def system = Mock(SystemService)
+    def shortestPathsResolver = new ShortestPathsResolver(system)
+    def resolver = new IncrementalPathsResolver(system)
+
+    def "resolve changes of symbols"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def eos = new Currency("EOS")
+        def neo = new Currency("NEO")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def eosEth = new Symbol(eos, eth)
+        def ethUsdt = new Symbol(eth, usdt)
+        def neoEos = new Symbol(neo, eos)
+        def oldPaths = shortestPathsResolver.resolveAllShortestPaths([ethBtc, btcUsdt, eosEth])
+
+        when:
+        def result = resolver.resolveChanges(oldPaths, [ethUsdt, neoEos], [ethBtc])
+
+        then:
+        result.getNextStep(eos, usdt).get().symbolToNext == eosEth
+        result.getNextStep(eos, usdt).get().length == 2
+        result.getNextStep(eth, usdt).get().symbolToNext == ethUsdt
+        result.getNextStep(eth, usdt).get().length == 1
+        result.getNextStep(neo, btc).get().symbolToNext == neoEos
+        result.getNextStep(neo, btc).get().length == 4
+        result.getNextStep(btc, neo).get().symbolToNext == btcUsdt
+        result.getNextStep(btc, neo).get().length == 4
+        result.getNextStep(neo, neo).get().symbolToNext == neoEos
+        result.getNextStep(neo, neo).get().length == 2
+
+        // The original paths are not changed
+        oldPaths.getNextStep(eth, usdt).get().symbolToNext == ethBtc
+        oldPaths.getNextStep(eth, usdt).get().length == 2
+        !oldPaths.getNextStep(neo, btc).isPresent()
+    }
+
+    def "resolve removal of the only symbol of a currency"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def oldPaths = shortestPathsResolver.resolveAllShortestPaths([ethBtc, btcUsdt])
+
+        when:
+        def result = resolver.resolveChanges(oldPaths, [], [btcUsdt])
+
+        then:
+        !result.getNextStep(eth, usdt).isPresent()
+        !result.getNextStep(usdt, eth).isPresent()
+        !result.getNextStep(usdt, usdt).isPresent()
+        result.getNextStep(btc, eth).get().symbolToNext == ethBtc
+    }
+
+    def "resolve no change"() {
+        given:
+        def oldPaths = Mock(DenseTradingPaths)
+
+        when:
+        def result = resolver.resolveChanges(oldPaths, [], [])
+
+        then:
+        result.is(oldPaths)
+        0 * _
+    }
+
+    def "resolve random changes of symbols"() {
+        given:
+        def random = new Random(5678)
+        def currencies = (0..<80).collect { new Currency("C" + it) }
+        def createSymbol = {
+            new Symbol(currencies[random.nextInt(currencies.size())], currencies[random.nextInt(currencies.size())])
+        }
+        def symbols = new LinkedHashSet<Symbol>()
+        while (symbols.size() < 120) {
+            def symbol = createSymbol()
+            if (symbol.baseCurrency != symbol.quoteCurrency) {
+                symbols << symbol
+            }
+        }
+        def paths = shortestPathsResolver.resolveAllShortestPaths(symbols)
+
+        expect:
+        50.times {
+            def removedSymbols = symbols.findAll { random.nextInt(40) == 0 }
+            def addedSymbols = (0..<random.nextInt(4)).collect { createSymbol() }
+                    .findAll { it.baseCurrency != it.quoteCurrency && !symbols.contains(it) }
+            symbols.removeAll(removedSymbols)
+            symbols.addAll(addedSymbols)
+            paths = resolver.resolveChanges(paths, addedSymbols, removedSymbols)
+            def expected = shortestPathsResolver.resolveAllShortestPaths(symbols)
+            currencies.each { source ->
+                currencies.each { target ->
+                    def expectedStep = expected.getNextStep(source, target)
+                    def step = paths.getNextStep(source, target)
+                    assert expectedStep.isPresent() == step.isPresent()
+                    if (step.isPresent()) {
+                        assert step.get().length == expectedStep.get().length
+                        assert symbols.contains(step.get().symbolToNext)
+                        def nextCurrency = step.get().getNextCurrency(source)
+                        if (step.get().length == 1) {
+                            assert nextCurrency == target
+                        } else {
+                            assert paths.getNextStep(nextCurrency, target).get().length == step.get().length - 1
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.buridantrader
+
+import spock.lang.Specification
+
+/**
+ * Test class for {@link LazyPathsResolver} and {@link LazyTradingPaths}.
+ */
+class LazyPathsResolverTest extends Specification {
+
+    def "resolve paths"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def eos = new Currency("EOS")
+        def neo = new Currency("NEO")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def eosEth = new Symbol(eos, eth)
+        def resolver = new LazyPathsResolver()
+
+        when:
+        def paths = resolver.resolvePaths([ethBtc, btcUsdt, eosEth])
+
+        then:
+        paths.getNextStep(eos, usdt).get().symbolToNext == eosEth
+        paths.getNextStep(eos, usdt).get().length == 3
+        paths.getNextStep(usdt, eos).get().symbolToNext == btcUsdt
+        paths.getNextStep(usdt, eos).get().length == 3
+        paths.getNextStep(eth, btc).get().symbolToNext == ethBtc
+        paths.getNextStep(eth, btc).get().length == 1
+        paths.getNextStep(usdt, usdt).get().symbolToNext == btcUsdt
+        paths.getNextStep(usdt, usdt).get().length == 2
+        !paths.getNextStep(neo, usdt).isPresent()
+        !paths.getNextStep(usdt, neo).isPresent()
+    }
+
+    def "paths with the same first step share the step"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def eos = new Currency("EOS")
+        def usdt = new Currency("USDT")
+        def btcUsdt = new Symbol(btc, usdt)
+        def resolver = new LazyPathsResolver()
+
+        when:
+        def paths = resolver.resolvePaths([btcUsdt, new Symbol(eth, btc), new Symbol(eos, btc)])
+        def step1 = paths.getNextStep(usdt, eth)
+        def step2 = paths.getNextStep(usdt, eos)
+        def step3 = paths.getNextStep(usdt, eth)
+
+        then:
+        step1.get() == new PathStep(btcUsdt, 2)
+        step1.is(step2)
+        step1.is(step3)
+        paths.getNextStep(btc, usdt).get() == new PathStep(btcUsdt, 1)
+    }
+
+    def "resolve paths without path"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def eos = new Currency("EOS")
+        def resolver = new LazyPathsResolver()
+
+        when:
+        def paths = resolver.resolvePaths([new Symbol(eth, btc), new Symbol(eos, usdt)])
+
+        then:
+        !paths.getNextStep(eth, usdt).isPresent()
+        !paths.getNextStep(usdt, btc).isPresent()
+    }
+
+    def "paths of earlier symbols are still usable"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethUsdt = new Symbol(eth, usdt)
+        def resolver = new LazyPathsResolver(1)
+
+        when:
+        def oldPaths = resolver.resolvePaths([ethBtc, btcUsdt])
+        def oldStep = oldPaths.getNextStep(eth, usdt).get()
+        def newPaths = resolver.resolvePaths([ethBtc, btcUsdt, ethUsdt])
+
+        then:
+        oldStep.symbolToNext == ethBtc
+        oldStep.length == 2
+        newPaths.getNextStep(eth, usdt).get().symbolToNext == ethUsdt
+        newPaths.getNextStep(eth, usdt).get().length == 1
+        newPaths.getNextStep(btc, eth).get().length == 1
+        oldPaths.getNextStep(eth, usdt).get().symbolToNext == ethBtc
+        oldPaths.getNextStep(eth, usdt).get().length == 2
+    }
+
+    def "paths of earlier symbols don't evict the cached paths of the latest symbols"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def resolver = new LazyPathsResolver(1)
+        def oldPaths = resolver.resolvePaths([ethBtc, btcUsdt])
+        def newPaths = resolver.resolvePaths([ethBtc, btcUsdt])
+
+        when:
+        def newStep = newPaths.getNextStep(eth, usdt).get()
+        def oldStep = oldPaths.getNextStep(btc, usdt).get()
+
+        then:
+        newStep.symbolToNext == ethBtc
+        oldStep.symbolToNext == btcUsdt
+        // Only the paths from ETH of the latest symbols are cached
+        resolver.cache.asMap().keySet()*.version == [2L]
+    }
+
+    def "resolve paths as the paths between all pairs of currencies"() {
+        given:
+        def random = new Random(1234)
+        def currencies = (0..<60).collect { new Currency("C" + it) }
+        def symbols = new LinkedHashSet<Symbol>()
+        while (symbols.size() < 90) {
+            def symbol = new Symbol(
+                    currencies[random.nextInt(currencies.size())],
+                    currencies[random.nextInt(currencies.size())])
+            if (symbol.baseCurrency != symbol.quoteCurrency) {
+                symbols << symbol
+            }
+        }
+        def expected = new ShortestPathsResolver().resolveAllShortestPaths(symbols)
+
+        when:
+        // Fewer sources are cached than the currencies, so some of them are evicted and searched again
+        def paths = new LazyPathsResolver(8).resolvePaths(symbols)
+
+        then:
+        currencies.each { source ->
+            currencies.each { target ->
+                def expectedStep = expected.getNextStep(source, target)
+                def step = paths.getNextStep(source, target)
+                assert expectedStep.isPresent() == step.isPresent()
+                if (step.isPresent()) {
+                    assert step.get().length == expectedStep.get().length
+                    def nextCurrency = step.get().getNextCurrency(source)
+                    if (step.get().length == 1) {
+                        assert nextCurrency == target
+                    } else {
+                        assert paths.getNextStep(nextCurrency, target).get().length == step.get().length - 1
+                    }
+                }
+            }
+        }
+    }
+
+    def "max number of cached sources is less than 1"() {
+        when:
+        new LazyPathsResolver(0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -1,8 +1,6 @@
 package com.buridantrader
 
 import com.buridantrader.config.TradingConfig
-import com.buridantrader.exceptions.NoSuchPathException
-import com.buridantrader.exceptions.ValueLimitException
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -12,7 +10,10 @@ import spock.lang.Unroll
 class PlanProducerTest extends Specification {
 
     def tradingConfig = Mock(TradingConfig)
-    def tradingPathFinder = Mock(TradingPathFinder)
+    def market = Mock(MarketSnapshot)
+    def tradingPathFinder = Mock(TradingPathFinder) {
+        captureMarketSnapshot() >> market
+    }
     def candidateAssetProducer = Mock(CandidateAssetProducer)
     def planProducer = new PlanProducer(
             tradingConfig,
@@ -25,7 +26,7 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
         plan.getOrders().isEmpty()
 
         where:
@@ -65,7 +66,8 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        1 * tradingPathFinder.captureMarketSnapshot() >> market
         0 * tradingPathFinder._
         plan.getOrders().isEmpty()
     }
@@ -105,13 +107,14 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
-        1 * tradingPathFinder.findPathOfOrders(
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        1 * tradingPathFinder.findPathsOfOrders(
+            market,
             new Currency("USDT"),
-            new Currency("ETH"),
+            [new Currency("ETH")],
             new BigDecimal("20.1")
-        ) >> usdtToEthOrders
-        1 * tradingPathFinder.getOrderTargetQuantity(usdtToEthOrders[1]) >> new BigDecimal("19.1")
+        ) >> [(new Currency("ETH")): usdtToEthOrders]
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdtToEthOrders[1]) >> new BigDecimal("19.1")
         (1 .. _) * tradingConfig.getMeasuringSec() >> 600
         (1 .. _) * tradingConfig.getTradingFeeRate() >> new BigDecimal("0.001")
         plan.getOrders().isEmpty()
@@ -152,13 +155,14 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
-        1 * tradingPathFinder.findPathOfOrders(
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        1 * tradingPathFinder.findPathsOfOrders(
+                market,
                 new Currency("USDT"),
-                new Currency("ETH"),
+                [new Currency("ETH")],
                 new BigDecimal("20.1")
-        ) >> usdtToEthOrders
-        1 * tradingPathFinder.getOrderTargetQuantity(usdtToEthOrders[1]) >> new BigDecimal("0.01")
+        ) >> [(new Currency("ETH")): usdtToEthOrders]
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdtToEthOrders[1]) >> new BigDecimal("0.01")
         (1 .. _) * tradingConfig.getMeasuringSec() >> 600
         0 * tradingConfig.getTradingFeeRate()
         plan.getOrders() == usdtToEthOrders
@@ -210,19 +214,18 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
-        1 * tradingPathFinder.findPathOfOrders(
-                new Currency("USDT"),
-                new Currency("ETH"),
-                new BigDecimal("20.1")
-        ) >> usdtToEthOrders
-        1 * tradingPathFinder.findPathOfOrders(
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        1 * tradingPathFinder.findPathsOfOrders(
+                market,
                 new Currency("USDT"),
-                new Currency("ETH2"),
+                [new Currency("ETH"), new Currency("ETH2")],
                 new BigDecimal("20.1")
-        ) >> usdtToEth2Orders
-        1 * tradingPathFinder.getOrderTargetQuantity(usdtToEthOrders[2]) >> new BigDecimal("19.1")
-        1 * tradingPathFinder.getOrderTargetQuantity(usdtToEth2Orders[1]) >> new BigDecimal("19.1")
+        ) >> [
+                (new Currency("ETH")): usdtToEthOrders,
+                (new Currency("ETH2")): usdtToEth2Orders
+        ]
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdtToEthOrders[2]) >> new BigDecimal("19.1")
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdtToEth2Orders[1]) >> new BigDecimal("19.1")
         (1 .. _) * tradingConfig.getMeasuringSec() >> 600
         (1 .. _) * tradingConfig.getTradingFeeRate() >> new BigDecimal("0.001")
         plan.getOrders() == usdtToEth2Orders
@@ -276,29 +279,22 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
-        1 * tradingPathFinder.findPathOfOrders(
-                new Currency("USDT"),
-                new Currency("ETH"),
-                new BigDecimal("20.1")
-        ) >> usdtToEthOrders
-        1 * tradingPathFinder.findPathOfOrders(
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        // USDT2 isn't in the result because its orders are out of limits, and USDT because there's no path
+        1 * tradingPathFinder.findPathsOfOrders(
+                market,
                 new Currency("USDT"),
-                new Currency("USDT2"),
+                [new Currency("USDT2"), new Currency("ETH")],
                 new BigDecimal("20.1")
-        ) >> {throw new ValueLimitException("")}
-        1 * tradingPathFinder.findPathOfOrders(
-                new Currency("USDT2"),
-                new Currency("USDT"),
-                new BigDecimal("21.1")
-        ) >> {throw new NoSuchPathException("")}
-        1 * tradingPathFinder.findPathOfOrders(
+        ) >> [(new Currency("ETH")): usdtToEthOrders]
+        1 * tradingPathFinder.findPathsOfOrders(
+                market,
                 new Currency("USDT2"),
-                new Currency("ETH"),
+                [new Currency("USDT"), new Currency("ETH")],
                 new BigDecimal("21.1")
-        ) >> usdt2ToEthOrders
-        1 * tradingPathFinder.getOrderTargetQuantity(usdtToEthOrders[0]) >> new BigDecimal("19.1")
-        1 * tradingPathFinder.getOrderTargetQuantity(usdt2ToEthOrders[1]) >> new BigDecimal("19.1")
+        ) >> [(new Currency("ETH")): usdt2ToEthOrders]
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdtToEthOrders[0]) >> new BigDecimal("19.1")
+        1 * tradingPathFinder.getOrderTargetQuantity(market, usdt2ToEthOrders[1]) >> new BigDecimal("19.1")
         (1 .. _) * tradingConfig.getMeasuringSec() >> 600
         (1 .. _) * tradingConfig.getTradingFeeRate() >> new BigDecimal("0.001")
         plan.getOrders() == usdtToEthOrders + usdt2ToEthOrders
@@ -338,12 +334,13 @@ class PlanProducerTest extends Specification {
         def plan = planProducer.get()
 
         then:
-        1 * candidateAssetProducer.getCandidates() >> candidates
-        1 * tradingPathFinder.findPathOfOrders(
+        1 * candidateAssetProducer.getCandidates(market) >> candidates
+        1 * tradingPathFinder.findPathsOfOrders(
+                market,
                 new Currency("USDT"),
-                new Currency("ETH"),
+                [new Currency("ETH")],
                 new BigDecimal("20.1")
-        ) >> {throw new ValueLimitException("")}
+        ) >> [:]
         plan.getOrders().isEmpty()
     }
 }
@@ -1,8 +1,13 @@
 package com.buridantrader
 
+import com.binance.api.client.BinanceApiError
 import com.binance.api.client.BinanceApiRestClient
+import com.binance.api.client.domain.OrderStatus
 import com.binance.api.client.domain.OrderType
 import com.binance.api.client.domain.account.NewOrder
+import com.binance.api.client.domain.account.request.OrderStatusRequest
+import com.binance.api.client.exception.BinanceApiException
+import com.buridantrader.exceptions.NoSuchPathException
 import com.buridantrader.services.system.SystemService
 import spock.lang.Specification
 
@@ -86,6 +91,7 @@ class PlanWorkerTest extends Specification {
         2 * currentThread.isInterrupted() >>> [false, true]
         1 * tradingPlanner.nextPlan() >> plan
         1 * client.newOrder(_ as NewOrder) >> {throw new RuntimeException()}
+        1 * client.getOrderStatus({ OrderStatusRequest it -> it.symbol == "BTCUSDT" } as OrderStatusRequest)
         1 * system.sleep(3000)
         1 * tradingPlanner.markLastPlanAsFailed()
         0 * _._
@@ -105,4 +111,147 @@ class PlanWorkerTest extends Specification {
         1 * system.sleep(3000)
         0 * _._
     }
+
+    def "reroute the rest of the plan when an order fails"() {
+        given:
+        def tradingPathFinder = Mock(TradingPathFinder)
+        planWorker = new PlanWorker(tradingPlanner, client, tradingPathFinder, system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def bnb = new Currency("BNB")
+        def plan = new TradingPlan()
+        def order1 = new Order(new OrderSpec(new Symbol(btc, usdt), OrderSide.SELL), new BigDecimal("2"))
+        def order2 = new Order(new OrderSpec(new Symbol(eth, usdt), OrderSide.BUY), new BigDecimal("60"))
+        plan.addOrder(order1)
+        plan.addOrder(order2)
+        def order3 = new Order(new OrderSpec(new Symbol(bnb, usdt), OrderSide.BUY), new BigDecimal("400"))
+        def order4 = new Order(new OrderSpec(new Symbol(bnb, eth), OrderSide.SELL), new BigDecimal("400"))
+        def market = Mock(MarketSnapshot)
+
+        def currentThread = Mock(Thread)
+
+        when:
+        planWorker.run()
+
+        then:
+        (1.._) * system.currentThread() >> currentThread
+        2 * currentThread.isInterrupted() >>> [false, true]
+        1 * tradingPlanner.nextPlan() >> plan
+        1 * client.newOrder({ NewOrder it -> it.symbol == "BTCUSDT" } as NewOrder)
+        1 * client.newOrder({ NewOrder it -> it.symbol == "ETHUSDT" } as NewOrder) >> {throw rejection()}
+        1 * tradingPathFinder.captureMarketSnapshot() >> market
+        1 * tradingPathFinder.getOrderSourceQuantity(market, order2) >> new BigDecimal("8000")
+        1 * tradingPathFinder.findAlternativePathOfOrders(
+                market, usdt, eth, new BigDecimal("8000"), { it as Set == [new Symbol(eth, usdt)] as Set }) >> [order3, order4]
+        1 * client.newOrder({ NewOrder it -> it.symbol == "BNBUSDT" && it.quantity == "400" } as NewOrder)
+        1 * client.newOrder({ NewOrder it -> it.symbol == "BNBETH" && it.quantity == "400" } as NewOrder)
+        0 * _._
+    }
+
+    def "plan fails when there's no other route"() {
+        given:
+        def tradingPathFinder = Mock(TradingPathFinder)
+        planWorker = new PlanWorker(tradingPlanner, client, tradingPathFinder, system)
+        def plan = new TradingPlan()
+        def order = new Order(
+                new OrderSpec(new Symbol(new Currency("BTC"), new Currency("USDT")), OrderSide.SELL),
+                new BigDecimal("2"))
+        plan.addOrder(order)
+        def market = Mock(MarketSnapshot)
+
+        def currentThread = Mock(Thread)
+
+        when:
+        planWorker.run()
+
+        then:
+        (1.._) * system.currentThread() >> currentThread
+        2 * currentThread.isInterrupted() >>> [false, true]
+        1 * tradingPlanner.nextPlan() >> plan
+        1 * client.newOrder(_ as NewOrder) >> {throw rejection()}
+        1 * tradingPathFinder.captureMarketSnapshot() >> market
+        1 * tradingPathFinder.getOrderSourceQuantity(market, order) >> new BigDecimal("2")
+        1 * tradingPathFinder.findAlternativePathOfOrders(market, _, _, _, _) >> {
+            throw new NoSuchPathException("No path")
+        }
+        1 * system.sleep(3000)
+        1 * tradingPlanner.markLastPlanAsFailed()
+        0 * _._
+    }
+
+    def "do not reroute the plan when placing an order times out"() {
+        given:
+        def tradingPathFinder = Mock(TradingPathFinder)
+        planWorker = new PlanWorker(tradingPlanner, client, tradingPathFinder, system)
+        def plan = new TradingPlan()
+        plan.addOrder(new Order(
+                new OrderSpec(new Symbol(new Currency("BTC"), new Currency("USDT")), OrderSide.SELL),
+                new BigDecimal("2")))
+        plan.addOrder(new Order(
+                new OrderSpec(new Symbol(new Currency("ETH"), new Currency("USDT")), OrderSide.BUY),
+                new BigDecimal("60")))
+        String clientOrderId = null
+
+        def currentThread = Mock(Thread)
+
+        when:
+        planWorker.run()
+
+        then:
+        (1.._) * system.currentThread() >> currentThread
+        2 * currentThread.isInterrupted() >>> [false, true]
+        1 * tradingPlanner.nextPlan() >> plan
+        1 * client.newOrder({ NewOrder it -> it.symbol == "BTCUSDT" } as NewOrder) >> { NewOrder it ->
+            clientOrderId = it.newClientOrderId
+            throw new BinanceApiException(new SocketTimeoutException("Read timed out"))
+        }
+        1 * client.getOrderStatus({ OrderStatusRequest it ->
+            it.symbol == "BTCUSDT" && it.origClientOrderId == clientOrderId
+        } as OrderStatusRequest) >> { throw new BinanceApiException(new SocketTimeoutException("Read timed out")) }
+        1 * system.sleep(3000)
+        1 * tradingPlanner.markLastPlanAsFailed()
+        0 * tradingPathFinder._
+        0 * _._
+    }
+
+    def "continue the plan when the order is filled although placing it times out"() {
+        given:
+        def tradingPathFinder = Mock(TradingPathFinder)
+        planWorker = new PlanWorker(tradingPlanner, client, tradingPathFinder, system)
+        def plan = new TradingPlan()
+        plan.addOrder(new Order(
+                new OrderSpec(new Symbol(new Currency("BTC"), new Currency("USDT")), OrderSide.SELL),
+                new BigDecimal("2")))
+        plan.addOrder(new Order(
+                new OrderSpec(new Symbol(new Currency("ETH"), new Currency("USDT")), OrderSide.BUY),
+                new BigDecimal("60")))
+        def filledOrder = new com.binance.api.client.domain.account.Order()
+        filledOrder.status = OrderStatus.FILLED
+
+        def currentThread = Mock(Thread)
+
+        when:
+        planWorker.run()
+
+        then:
+        (1.._) * system.currentThread() >> currentThread
+        2 * currentThread.isInterrupted() >>> [false, true]
+        1 * tradingPlanner.nextPlan() >> plan
+        1 * client.newOrder({ NewOrder it -> it.symbol == "BTCUSDT" } as NewOrder) >> {
+            throw new BinanceApiException(new SocketTimeoutException("Read timed out"))
+        }
+        1 * client.getOrderStatus({ OrderStatusRequest it -> it.symbol == "BTCUSDT" } as OrderStatusRequest) >>
+                filledOrder
+        1 * client.newOrder({ NewOrder it -> it.symbol == "ETHUSDT" && it.quantity == "60" } as NewOrder)
+        0 * tradingPathFinder._
+        0 * _._
+    }
+
+    private static BinanceApiException rejection() {
+        def error = new BinanceApiError()
+        error.code = -2010
+        error.msg = "Account has insufficient balance for requested action."
+        new BinanceApiException(error)
+    }
 }
@@ -23,31 +23,23 @@ class PredictionCalculatorTest extends Specification {
     }
 
     @Unroll
-    def "Calculate prediction, and profitable = #profitable"() {
+    def "Calculate prediction of the arrays, and profitable = #profitable"() {
         given:
         def longTermRegressionLine = Mock(RegressionLine)
         def shortTermRegressionLine = Mock(RegressionLine)
-        def longTermPoints = [
-                new Point(new BigDecimal("1.23"), new BigDecimal("2.34")),
-                new Point(new BigDecimal("2.23"), new BigDecimal("4.34")),
-                new Point(new BigDecimal("3.23"), new BigDecimal("5.34")),
-        ]
-        def shortTermPoints = [
-                new Point(new BigDecimal("2.23"), new BigDecimal("4.34")),
-                new Point(new BigDecimal("3.23"), new BigDecimal("5.34")),
-        ]
-
+        double[] xs = [1.23, 2.23, 3.23]
+        double[] ys = [2.34, 4.34, 5.34]
 
         when:
-        def result = predictionCalculator.calPrediction(longTermPoints)
+        def result = predictionCalculator.calPrediction(xs, ys)
 
         then:
-        1 * linearRegressionFinder.findLinearRegression(longTermPoints) >> longTermRegressionLine
-        1 * linearRegressionFinder.findLinearRegression(shortTermPoints) >> shortTermRegressionLine
+        1 * linearRegressionFinder.findLinearRegression(xs, ys, 0, 3) >> longTermRegressionLine
+        1 * linearRegressionFinder.findLinearRegression(xs, ys, 1, 3) >> shortTermRegressionLine
         (1.._) * longTermRegressionLine.getSlope() >> new BigDecimal(longTermSlope)
         (1.._) * shortTermRegressionLine.getSlope() >> new BigDecimal(shortTermSlope)
-        1 * longTermRegressionLine.getVolatilityForPoints(longTermPoints) >> new BigDecimal(longTermVolatility)
-        1 * shortTermRegressionLine.getVolatilityForPoints(shortTermPoints) >> new BigDecimal(shortTermVolatility)
+        1 * longTermRegressionLine.getVolatility(xs, ys, 0, 3) >> new BigDecimal(longTermVolatility)
+        1 * shortTermRegressionLine.getVolatility(xs, ys, 1, 3) >> new BigDecimal(shortTermVolatility)
         result.profitable == profitable
         result.growthPerSec == new BigDecimal(shortTermSlope)
 
@@ -61,4 +53,12 @@ class PredictionCalculatorTest extends Specification {
         "1.0"           | "1.5"             | "0.021"            | "0.01"              | false
         "1.0"           | "1.5"             | "0.02"             | "0.011"             | false
     }
+
+    def "Calculate prediction of the arrays with different lengths isn't allowed"() {
+        when:
+        predictionCalculator.calPrediction([1.0] as double[], [1.0, 2.0] as double[])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
 }
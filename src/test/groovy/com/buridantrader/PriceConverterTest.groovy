@@ -0,0 +1,44 @@
+package com.buridantrader
+
+import spock.lang.Specification
+
+/**
+ * Test class for {@link PriceConverter}.
+ */
+class PriceConverterTest extends Specification {
+
+    def tradingPathFinder = Mock(TradingPathFinder)
+    def market = Mock(MarketSnapshot)
+    def priceConverter = new PriceConverter(tradingPathFinder)
+    def usdt = new Currency("USDT")
+    def btc = new Currency("BTC")
+    def eth = new Currency("ETH")
+
+    def "get the relative prices of the quantities"() {
+        given:
+        def quantities = [
+                (usdt): new BigDecimal("100"),
+                (btc): new BigDecimal("0.5"),
+                (eth): new BigDecimal("0.0001"),
+                (new Currency("ONT")): BigDecimal.ONE,
+        ]
+
+        when:
+        def values = priceConverter.getRelativePrices(market, quantities, usdt)
+
+        then:
+        1 * tradingPathFinder.getUnitValues(market, quantities.keySet(), usdt) >> [
+                (usdt): BigDecimal.ONE,
+                (btc): new BigDecimal("4000"),
+                (eth): new BigDecimal("120"),
+        ]
+        tradingPathFinder.isTradable(market, btc, usdt, new BigDecimal("0.5")) >> true
+        tradingPathFinder.isTradable(market, eth, usdt, new BigDecimal("0.0001")) >> false
+        values == [
+                (usdt): new BigDecimal("100"),
+                (btc): new BigDecimal("2000.0"),
+                // Dust is worth nothing, because it can't be traded
+                (eth): BigDecimal.ZERO,
+        ]
+    }
+}
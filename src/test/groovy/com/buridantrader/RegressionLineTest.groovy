@@ -44,21 +44,19 @@ class RegressionLineTest extends Specification {
         y == new BigDecimal("8.1128")
     }
 
-    def "Get volatility for points"() {
+    def "Get volatility for the arrays of points"() {
         given:
         line = new RegressionLine(
                 new BigDecimal("1.26"),
                 new BigDecimal("2.3571"),
                 new MathContext(6, RoundingMode.HALF_UP))
+        double[] xs = [99, 10.1, 0, 4.12, 8.97]
+        double[] ys = [99, 15.083, 4, 6.10, 10.16]
 
         when:
         // https://www.desmos.com/calculator/2drliyh10t
-        def result = line.getVolatilityForPoints([
-            new Point(new BigDecimal("10.1"), new BigDecimal("15.083")),
-            new Point(new BigDecimal("0"), new BigDecimal("4")),
-            new Point(new BigDecimal("4.12"), new BigDecimal("6.10")),
-            new Point(new BigDecimal("8.97"), new BigDecimal("10.16")),
-        ])
+        // The first point is out of the range
+        def result = line.getVolatility(xs, ys, 1, 5)
 
         then:
         // residuals:
@@ -77,20 +75,18 @@ class RegressionLineTest extends Specification {
         result == new BigDecimal("0.370302")
     }
 
-    def "Get volatility for points with mean of points on Y being 0"() {
+    def "Get volatility for the arrays of points with mean of points on Y being 0"() {
         given:
         line = new RegressionLine(
                 new BigDecimal("3.27"),
                 new BigDecimal("0"),
                 new MathContext(6, RoundingMode.HALF_UP))
+        double[] xs = [-10, 5, 5]
+        double[] ys = [-21, 15, 16]
 
         when:
         // https://www.desmos.com/calculator/ulaxkcjht8
-        line.getVolatilityForPoints([
-                new Point(new BigDecimal("-10"), new BigDecimal("-21")),
-                new Point(new BigDecimal("5"), new BigDecimal("15")),
-                new Point(new BigDecimal("5"), new BigDecimal("16"))
-        ])
+        line.getVolatility(xs, ys, 0, 3)
 
         then:
         thrown(ArithmeticException)
@@ -3,6 +3,8 @@ package com.buridantrader
 import com.buridantrader.services.system.SystemService
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
+
 class ShortestPathsResolverTest extends Specification {
 
     def system = Mock(SystemService)
@@ -54,4 +56,90 @@ class ShortestPathsResolverTest extends Specification {
         2 * system.currentTimeMillis() >>> [100, 200]
     }
 
+    def "paths with the same first step share the step"() {
+        given:
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def eos = new Currency("EOS")
+        def usdt = new Currency("USDT")
+        def btcUsdt = new Symbol(btc, usdt)
+        def symbols = [btcUsdt, new Symbol(eth, btc), new Symbol(eos, btc)]
+
+        when:
+        def result = resolver.resolveAllShortestPaths(symbols)
+        def step1 = result.getNextStep(usdt, eth)
+        def step2 = result.getNextStep(usdt, eos)
+        def step3 = result.getNextStep(usdt, eth)
+
+        then:
+        step1.get() == new PathStep(btcUsdt, 2)
+        step1.is(step2)
+        step1.is(step3)
+        !result.getNextStep(usdt, btc).is(step1)
+    }
+
+    def "resolve all shortest paths without symbols"() {
+        when:
+        def result = resolver.resolveAllShortestPaths([])
+
+        then:
+        !result.getNextStep(new Currency("BTC"), new Currency("USDT")).isPresent()
+        2 * system.currentTimeMillis() >>> [100, 200]
+    }
+
+    def "later symbol of the same currency pair wins"() {
+        given:
+        def symbols = [
+            new Symbol(new Currency("BTC"), new Currency("USDT")),
+            new Symbol(new Currency("USDT"), new Currency("BTC")),
+        ]
+
+        when:
+        def result = resolver.resolveAllShortestPaths(symbols)
+        def step1 = result.getNextStep(new Currency("BTC"), new Currency("USDT"))
+        def step2 = result.getNextStep(new Currency("USDT"), new Currency("BTC"))
+
+        then:
+        step1.get().length == 1
+        step1.get().symbolToNext.name == "USDTBTC"
+        step2.get().length == 1
+        step2.get().symbolToNext.name == "USDTBTC"
+    }
+
+    def "resolve all shortest paths in parallel"() {
+        given:
+        def random = new Random(1234)
+        def currencies = (0..<300).collect { new Currency("C" + it) }
+        def symbols = (0..<900).collect {
+            new Symbol(currencies[random.nextInt(currencies.size())], currencies[random.nextInt(currencies.size())])
+        }
+        def pool = new ForkJoinPool(4)
+        def parallelResolver = new ShortestPathsResolver(system, pool)
+
+        when:
+        def expected = resolver.resolveAllShortestPaths(symbols)
+        def result = parallelResolver.resolveAllShortestPaths(symbols)
+
+        then:
+        currencies.each { source ->
+            currencies.each { target ->
+                def expectedStep = expected.getNextStep(source, target)
+                def step = result.getNextStep(source, target)
+                assert expectedStep.isPresent() == step.isPresent()
+                if (step.isPresent()) {
+                    assert step.get().length == expectedStep.get().length
+                    def nextCurrency = step.get().getNextCurrency(source)
+                    if (step.get().length == 1) {
+                        assert nextCurrency == target
+                    } else {
+                        assert result.getNextStep(nextCurrency, target).get().length == step.get().length - 1
+                    }
+                }
+            }
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
 }
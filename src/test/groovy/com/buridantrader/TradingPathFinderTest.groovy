@@ -2,29 +2,28 @@ package com.buridantrader
 
 import com.buridantrader.exceptions.NoSuchPathException
 import com.buridantrader.exceptions.ValueLimitException
+import com.buridantrader.services.symbol.PriceSnapshot
 import com.buridantrader.services.symbol.SymbolService
 import com.buridantrader.services.symbol.SymbolPriceService
 import com.buridantrader.services.system.SystemService
+import com.google.common.util.concurrent.MoreExecutors
 import spock.lang.Specification
 
 import java.math.RoundingMode
 import java.time.Instant
+import java.util.concurrent.Executor
 
 class TradingPathFinderTest extends Specification {
 
     def symbolProvider = Mock(SymbolService)
     def symbolPriceProvider = Mock(SymbolPriceService)
-    def shortestPathsResolver = Mock(ShortestPathsResolver)
-    def system = Mock(SystemService)
-    def tradingPathFinder = new TradingPathFinder(symbolProvider, symbolPriceProvider, shortestPathsResolver, system)
-
-    def "constructor"() {
-        when:
-        new TradingPathFinder(symbolProvider, symbolPriceProvider)
-
-        then:
-        noExceptionThrown()
+    def pathsResolver = Mock(PathsResolver) {
+        loadSavedPaths(_) >> Optional.empty()
     }
+    def system = Mock(SystemService)
+    // Rebuild the paths in the calling thread, so that the rebuilt paths are used right away
+    def tradingPathFinder = new TradingPathFinder(
+            symbolProvider, symbolPriceProvider, pathsResolver, MoreExecutors.directExecutor(), system)
 
     def "find path of order specs"() {
         given:
@@ -52,7 +51,7 @@ class TradingPathFinderTest extends Specification {
 
         then:
         1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
-        1 * shortestPathsResolver.resolveAllShortestPaths([symbol1, symbol2]) >> tradingPaths
+        1 * pathsResolver.resolvePaths([symbol1, symbol2], null) >> tradingPaths
         1 * system.currentTimeMillis() >> 1536931586123
         1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.of(pathStep1)
         1 * tradingPaths.getNextStep(middleCurrency, targetCurrency) >> Optional.of(pathStep2)
@@ -68,7 +67,7 @@ class TradingPathFinderTest extends Specification {
         thrown(NoSuchPathException)
         symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1536931586123)) >> true
         1 * symbolProvider.getAllSymbolInfos() >> []
-        1 * shortestPathsResolver.resolveAllShortestPaths([]) >> tradingPaths
+        1 * pathsResolver.resolvePaths([], tradingPaths) >> tradingPaths
         1 * system.currentTimeMillis() >> 1536931586124
         1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.empty()
 
@@ -78,9 +77,595 @@ class TradingPathFinderTest extends Specification {
         then:
         thrown(NoSuchPathException)
         symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1536931586124)) >> false
-        0 * shortestPathsResolver.resolveAllShortestPaths([] as Collection)
+        0 * pathsResolver.resolvePaths(*_)
         0 * symbolProvider.getAllSymbolInfos()
-        1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.empty()
+        // The missing route is cached
+        0 * tradingPaths.getNextStep(_, _)
+    }
+
+    def "cache routes until paths are rebuilt"() {
+        given:
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def tradingPaths1 = Mock(TradingPaths)
+        def tradingPaths2 = Mock(TradingPaths)
+
+        when:
+        def path1 = tradingPathFinder.findPathOfOrderSpecs(eth, usdt)
+        def path2 = tradingPathFinder.findPathOfOrderSpecs(eth, usdt)
+        def path3 = tradingPathFinder.findPathOfOrderSpecs(btc, usdt)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> false
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, btcUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        1 * pathsResolver.resolvePaths([ethBtc, btcUsdt], null) >> tradingPaths1
+        1 * tradingPaths1.getNextStep(eth, usdt) >> Optional.of(new PathStep(ethBtc, 2))
+        2 * tradingPaths1.getNextStep(btc, usdt) >> Optional.of(new PathStep(btcUsdt, 1))
+        path1 == [new OrderSpec(ethBtc, OrderSide.SELL), new OrderSpec(btcUsdt, OrderSide.SELL)]
+        path2.is(path1)
+        path3 == [new OrderSpec(btcUsdt, OrderSide.SELL)]
+
+        when:
+        path1.add(new OrderSpec(btcUsdt, OrderSide.BUY))
+
+        then:
+        thrown(UnsupportedOperationException)
+
+        when:
+        def path4 = tradingPathFinder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        1 * system.currentTimeMillis() >> 2000
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, btcUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        1 * pathsResolver.resolvePaths([ethBtc, btcUsdt], tradingPaths1) >> tradingPaths2
+        1 * tradingPaths2.getNextStep(eth, usdt) >> Optional.of(new PathStep(ethBtc, 2))
+        1 * tradingPaths2.getNextStep(btc, usdt) >> Optional.of(new PathStep(btcUsdt, 1))
+        path4 == path1
+        !path4.is(path1)
+
+        when: "the paths aren't changed after rebuilt"
+        def path5 = tradingPathFinder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(2000)) >> true
+        1 * system.currentTimeMillis() >> 3000
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, btcUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        1 * pathsResolver.resolvePaths([ethBtc, btcUsdt], tradingPaths2) >> tradingPaths2
+        0 * tradingPaths2.getNextStep(_, _)
+        path5.is(path4)
+    }
+
+    def "rebuild paths when the resolver finds them outdated"() {
+        given:
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def ethBtc = new Symbol(eth, btc)
+        def tradingPaths1 = Mock(TradingPaths)
+        def tradingPaths2 = Mock(TradingPaths)
+
+        when:
+        tradingPathFinder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }]
+        1 * pathsResolver.resolvePaths([ethBtc], null) >> tradingPaths1
+        1 * tradingPaths1.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+
+        when:
+        def path = tradingPathFinder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> false
+        1 * pathsResolver.isOutdated(Instant.ofEpochMilli(1000)) >> true
+        1 * system.currentTimeMillis() >> 2000
+        1 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }]
+        1 * pathsResolver.resolvePaths([ethBtc], tradingPaths1) >> tradingPaths2
+        1 * tradingPaths2.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+        path == [new OrderSpec(ethBtc, OrderSide.SELL)]
+    }
+
+    def "rebuild paths in background"() {
+        given:
+        def executor = Mock(Executor)
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, pathsResolver, executor, system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def ethUsdt = new Symbol(eth, usdt)
+        def tradingPaths1 = Mock(TradingPaths)
+        def tradingPaths2 = Mock(TradingPaths)
+        Runnable rebuild = null
+
+        when:
+        finder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }]
+        1 * pathsResolver.resolvePaths([ethBtc], null) >> tradingPaths1
+        1 * tradingPaths1.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+
+        when: "the symbols are updated"
+        finder.findPathOfOrderSpecs(eth, btc)
+        finder.findPathOfOrderSpecs(eth, btc)
+
+        then: "only one rebuild is submitted, and the earlier paths are used until it's done"
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        1 * executor.execute(_) >> { args -> rebuild = args[0] }
+        0 * symbolProvider.getAllSymbolInfos()
+        0 * tradingPaths1.getNextStep(_, _)
+
+        when:
+        rebuild.run()
+        def path = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        1 * system.currentTimeMillis() >> 2000
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, ethUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        1 * pathsResolver.resolvePaths([ethBtc, ethUsdt], tradingPaths1) >> tradingPaths2
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(2000)) >> false
+        0 * executor.execute(_)
+        1 * tradingPaths2.getNextStep(eth, usdt) >> Optional.of(new PathStep(ethUsdt, 1))
+        path == [new OrderSpec(ethUsdt, OrderSide.SELL)]
+    }
+
+    def "keep earlier paths if rebuild fails"() {
+        given:
+        def finder = tradingPathFinder
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def ethBtc = new Symbol(eth, btc)
+        def tradingPaths = Mock(TradingPaths)
+
+        when:
+        finder.findPathOfOrderSpecs(eth, btc)
+        def path = finder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        2 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }] >> { throw new IOException() }
+        1 * pathsResolver.resolvePaths([ethBtc], null) >> tradingPaths
+        1 * tradingPaths.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+        path == [new OrderSpec(ethBtc, OrderSide.SELL)]
+    }
+
+    def "use saved paths at startup and revalidate them in background"() {
+        given:
+        def executor = Mock(Executor)
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, pathsResolver, executor, system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def ethBtc = new Symbol(eth, btc)
+        def savedPaths = Mock(TradingPaths)
+        Runnable rebuild = null
+
+        when:
+        def path = finder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }]
+        1 * pathsResolver.loadSavedPaths({ it == [ethBtc] as Set }) >> Optional.of(savedPaths)
+        0 * pathsResolver.resolvePaths(*_)
+        1 * executor.execute(_) >> { args -> rebuild = args[0] }
+        1 * savedPaths.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+        path == [new OrderSpec(ethBtc, OrderSide.SELL)]
+
+        when:
+        rebuild.run()
+        path = finder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [Mock(SymbolInfo) { getSymbol() >> ethBtc }]
+        1 * pathsResolver.resolvePaths([ethBtc], savedPaths) >> savedPaths
+        0 * executor.execute(_)
+        // The routes are still valid
+        0 * savedPaths.getNextStep(_, _)
+        path == [new OrderSpec(ethBtc, OrderSide.SELL)]
+    }
+
+    def "find path of order specs with lazy paths"() {
+        given:
+        def finder = new TradingPathFinder(
+                symbolProvider, symbolPriceProvider, new LazyPathsResolver(), MoreExecutors.directExecutor(), system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+
+        when:
+        def path = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, btcUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        path == [
+                new OrderSpec(ethBtc, OrderSide.SELL),
+                new OrderSpec(btcUsdt, OrderSide.SELL)
+        ]
+    }
+
+    def "find path of order specs with hub labels"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, new HubLabelPathsResolver(system),
+                MoreExecutors.directExecutor(), system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+
+        when:
+        def path = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        (1.._) * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [ethBtc, btcUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+        path == [
+                new OrderSpec(ethBtc, OrderSide.SELL),
+                new OrderSpec(btcUsdt, OrderSide.SELL)
+        ]
+    }
+
+    def "resolve paths with best rates again when prices are updated"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider,
+                new BestRatePathsResolver(new BigDecimal("0.001"), BestRatePathsResolver.DEFAULT_TOLERANCE,
+                        symbolPriceProvider, system),
+                MoreExecutors.directExecutor(), system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def usdt = new Currency("USDT")
+        def ethBtc = new Symbol(eth, btc)
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethUsdt = new Symbol(eth, usdt)
+        def symbolInfos = [ethBtc, btcUsdt, ethUsdt].collect { symbol -> Mock(SymbolInfo) { getSymbol() >> symbol } }
+
+        when:
+        def path1 = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        _ * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (ethBtc): new BigDecimal("0.03"),
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("120")], [:])
+        path1 == [new OrderSpec(ethUsdt, OrderSide.SELL)]
+
+        when:
+        def path2 = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        _ * system.currentTimeMillis() >> 2000
+        1 * symbolPriceProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
+        // ETH -> BTC -> USDT gives 0.031 * 4000 * 0.999 * 0.999 = 123.75 USDT
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (ethBtc): new BigDecimal("0.031"),
+                (btcUsdt): new BigDecimal("4000"),
+                (ethUsdt): new BigDecimal("123.7")], [:])
+        path2 == [
+                new OrderSpec(ethBtc, OrderSide.SELL),
+                new OrderSpec(btcUsdt, OrderSide.SELL)
+        ]
+
+        when:
+        def path3 = finder.findPathOfOrderSpecs(eth, usdt)
+
+        then:
+        1 * symbolPriceProvider.isUpdatedSince(Instant.ofEpochMilli(2000)) >> false
+        0 * symbolPriceProvider.getPriceSnapshot()
+        path3.is(path2)
+    }
+
+    def "get unit values along the paths to the target currency"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def eos = new Currency("EOS")
+        def neo = new Currency("NEO")
+        def ont = new Currency("ONT")
+        def ada = new Currency("ADA")
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def btcEos = new Symbol(btc, eos)
+        def neoEth = new Symbol(neo, eth)
+        def ontAda = new Symbol(ont, ada)
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethBtc): new BigDecimal("0.03"),
+                (btcEos): new BigDecimal("2000"),
+                (neoEth): new BigDecimal("6000"),
+                (ontAda): new BigDecimal("1"),
+        ]
+        def symbolInfos = prices.keySet().collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.01"), new BigDecimal("5000"), new BigDecimal("0.01"))
+            }]
+        }
+
+        when:
+        def unitValues = finder.getUnitValues([btc, eth, eos, neo, usdt, ont], usdt)
+
+        then:
+        1 * symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+        // The symbols and the prices are captured only once
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot(prices, [:])
+        0 * symbolProvider.getSymbolInfo(_)
+        0 * symbolPriceProvider.getPrice(_)
+        unitValues.keySet() == [btc, eth, eos, neo, usdt] as Set
+        unitValues[usdt] == BigDecimal.ONE
+        unitValues[btc] == new BigDecimal("4000")
+        unitValues[eth] == new BigDecimal("120")
+        unitValues[eos] == new BigDecimal("2")
+        // The price of NEO/ETH is out of the limits
+        unitValues[neo] == BigDecimal.ZERO
+    }
+
+    def "dust below the min quantity of the first order isn't tradable"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def symbolInfos = [btcUsdt, ethBtc].collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.01"), new BigDecimal("5000"), new BigDecimal("0.01"))
+                getQuantityFormalizer() >> new DecimalFormalizer(new BigDecimal("0.001"), new BigDecimal("1000000"), new BigDecimal("0.001"))
+                getQuantityStepSize() >> new BigDecimal("0.001")
+            }]
+        }
+        symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+        symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (btcUsdt): new BigDecimal("4000"),
+                (ethBtc): new BigDecimal("0.03"),
+        ], [:])
+        def market = finder.captureMarketSnapshot()
+
+        expect:
+        finder.isTradable(market, eth, usdt, new BigDecimal("0.001"))
+        !finder.isTradable(market, eth, usdt, new BigDecimal("0.0009"))
+        !finder.isTradable(market, new Currency("ONT"), usdt, BigDecimal.ONE)
+        finder.isTradable(market, usdt, usdt, new BigDecimal("0.0009"))
+    }
+
+    def "find paths of orders to many targets"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def eos = new Currency("EOS")
+        def neo = new Currency("NEO")
+        def ont = new Currency("ONT")
+        def ada = new Currency("ADA")
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def btcEos = new Symbol(btc, eos)
+        def neoEth = new Symbol(neo, eth)
+        def ontAda = new Symbol(ont, ada)
+        def prices = [
+                (btcUsdt): new BigDecimal("4000"),
+                (ethBtc): new BigDecimal("0.03"),
+                (btcEos): new BigDecimal("2000"),
+                (neoEth): new BigDecimal("6000"),
+                (ontAda): new BigDecimal("1"),
+        ]
+        def symbolInfos = prices.keySet().collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.01"), new BigDecimal("5000"), new BigDecimal("0.01"))
+                getQuantityFormalizer() >> new DecimalFormalizer(new BigDecimal("0.000001"), new BigDecimal("1000000"), new BigDecimal("0.000001"))
+                getQuantityStepSize() >> new BigDecimal("0.000001")
+            }]
+        }
+
+        when:
+        def result = finder.findPathsOfOrders(usdt, [eth, eos, neo, ont, btc], new BigDecimal("100"))
+
+        then:
+        1 * symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+        // The symbols and the prices are captured only once
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot(prices, [:])
+        0 * symbolProvider.getSymbolInfo(_)
+        0 * symbolPriceProvider.getPrice(_)
+        // There's no path to ONT, and the price of NEO/ETH is out of the limits
+        result.keySet() as List == [eth, eos, btc]
+        result[btc] == [new Order(new OrderSpec(btcUsdt, OrderSide.BUY), new BigDecimal("0.025"))]
+        result[eth] == [
+                new Order(new OrderSpec(btcUsdt, OrderSide.BUY), new BigDecimal("0.025")),
+                new Order(new OrderSpec(ethBtc, OrderSide.BUY), new BigDecimal("0.833333"))
+        ]
+        result[eos] == [
+                new Order(new OrderSpec(btcUsdt, OrderSide.BUY), new BigDecimal("0.025")),
+                new Order(new OrderSpec(btcEos, OrderSide.SELL), new BigDecimal("0.025"))
+        ]
+        result[eth][0].is(result[eos][0])
+        result[eth][0].is(result[btc][0])
+    }
+
+    def "find orders and values with a captured market snapshot"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def symbolInfos = [btcUsdt, ethBtc].collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.01"), new BigDecimal("5000"), new BigDecimal("0.01"))
+                getQuantityFormalizer() >> new DecimalFormalizer(new BigDecimal("0.000001"), new BigDecimal("1000000"), new BigDecimal("0.000001"))
+                getQuantityStepSize() >> new BigDecimal("0.000001")
+            }]
+        }
+        symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+
+        when:
+        def market = finder.captureMarketSnapshot()
+
+        then:
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (btcUsdt): new BigDecimal("4000"),
+                (ethBtc): new BigDecimal("0.03"),
+        ], [:])
+
+        when:
+        def ordersOfTargets = finder.findPathsOfOrders(market, usdt, [eth], new BigDecimal("100"))
+        def unitValues = finder.getUnitValues(market, [eth], usdt)
+        def targetQuantity = finder.getOrderTargetQuantity(
+                market, new Order(new OrderSpec(btcUsdt, OrderSide.SELL), new BigDecimal("0.5")))
+
+        then:
+        // Nothing is looked up from the services again, even if they're refreshed in the meantime
+        0 * symbolProvider._
+        0 * symbolPriceProvider._
+        ordersOfTargets[eth] == [
+                new Order(new OrderSpec(btcUsdt, OrderSide.BUY), new BigDecimal("0.025")),
+                new Order(new OrderSpec(ethBtc, OrderSide.BUY), new BigDecimal("0.833333"))
+        ]
+        unitValues[eth] == new BigDecimal("120")
+        targetQuantity == new BigDecimal("2000.00")
+    }
+
+    def "capture the symbol infos the paths are resolved from"() {
+        given:
+        def executor = Mock(Executor)
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, pathsResolver, executor, system)
+        def eth = new Currency("ETH")
+        def btc = new Currency("BTC")
+        def ethBtc = new Symbol(eth, btc)
+        def symbolInfo = Mock(SymbolInfo) { getSymbol() >> ethBtc }
+        def tradingPaths = Mock(TradingPaths)
+
+        when:
+        finder.findPathOfOrderSpecs(eth, btc)
+
+        then:
+        1 * system.currentTimeMillis() >> 1000
+        1 * symbolProvider.getAllSymbolInfos() >> [symbolInfo]
+        1 * pathsResolver.resolvePaths([ethBtc], null) >> tradingPaths
+        1 * tradingPaths.getNextStep(eth, btc) >> Optional.of(new PathStep(ethBtc, 1))
+
+        when: "the symbols are refreshed, and the paths aren't rebuilt yet"
+        def market = finder.captureMarketSnapshot()
+
+        then:
+        symbolProvider.isUpdatedSince(Instant.ofEpochMilli(1000)) >> true
+        1 * executor.execute(_)
+        0 * symbolProvider.getAllSymbolInfos()
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([:], [:])
+        market.getSymbolInfo(ethBtc) == Optional.of(symbolInfo)
+        market.getPaths().getTradingPaths().is(tradingPaths)
+    }
+
+    def "find alternative path of orders without the excluded symbols"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def ethUsdt = new Symbol(eth, usdt)
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def symbolInfos = [ethUsdt, btcUsdt, ethBtc].collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.01"), new BigDecimal("5000"), new BigDecimal("0.01"))
+                getQuantityFormalizer() >> new DecimalFormalizer(new BigDecimal("0.000001"), new BigDecimal("1000000"), new BigDecimal("0.000001"))
+                getQuantityStepSize() >> new BigDecimal("0.000001")
+            }]
+        }
+        symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+        symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (ethUsdt): new BigDecimal("120"),
+                (btcUsdt): new BigDecimal("4000"),
+                (ethBtc): new BigDecimal("0.03"),
+        ], [:])
+
+        expect:
+        finder.findAlternativePathsOfOrderSpecs(usdt, eth) == [
+                [new OrderSpec(ethUsdt, OrderSide.BUY)],
+                [new OrderSpec(btcUsdt, OrderSide.BUY), new OrderSpec(ethBtc, OrderSide.BUY)]
+        ]
+        finder.findAlternativePathOfOrders(usdt, eth, new BigDecimal("100"), []) ==
+                [new Order(new OrderSpec(ethUsdt, OrderSide.BUY), new BigDecimal("0.833333"))]
+        finder.findAlternativePathOfOrders(usdt, eth, new BigDecimal("100"), [ethUsdt]) == [
+                new Order(new OrderSpec(btcUsdt, OrderSide.BUY), new BigDecimal("0.025")),
+                new Order(new OrderSpec(ethBtc, OrderSide.BUY), new BigDecimal("0.833333"))
+        ]
+
+        when:
+        finder.findAlternativePathOfOrders(usdt, eth, new BigDecimal("100"), [ethUsdt, ethBtc])
+
+        then:
+        thrown(NoSuchPathException)
+    }
+
+    def "price the orders by side with the book prices"() {
+        given:
+        def finder = new TradingPathFinder(symbolProvider, symbolPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+        def usdt = new Currency("USDT")
+        def btc = new Currency("BTC")
+        def eth = new Currency("ETH")
+        def btcUsdt = new Symbol(btc, usdt)
+        def ethBtc = new Symbol(eth, btc)
+        def symbolInfos = [btcUsdt, ethBtc].collectEntries { symbol ->
+            [(symbol): Mock(SymbolInfo) {
+                getSymbol() >> symbol
+                getPriceFormalizer() >> new DecimalFormalizer(new BigDecimal("0.0001"), new BigDecimal("100000"), new BigDecimal("0.0001"))
+                getQuantityFormalizer() >> new DecimalFormalizer(new BigDecimal("0.000001"), new BigDecimal("1000000"), new BigDecimal("0.000001"))
+                getQuantityStepSize() >> new BigDecimal("0.000001")
+            }]
+        }
+        symbolProvider.getAllSymbolInfos() >> symbolInfos.values()
+        def bookPriceProvider = Mock(SymbolPriceService) {
+            getPriceSnapshot() >> new PriceSnapshot([
+                    (btcUsdt): new BigDecimal("4000"),
+                    (ethBtc): new BigDecimal("0.03"),
+            ], [
+                    (btcUsdt): new BookPrice(new BigDecimal("3990"), new BigDecimal("4010")),
+                    (ethBtc): new BookPrice(new BigDecimal("0.0299"), new BigDecimal("0.0301")),
+            ])
+        }
+        finder = new TradingPathFinder(symbolProvider, bookPriceProvider, createDensePathsResolver(),
+                MoreExecutors.directExecutor(), system)
+
+        when:
+        def sellOrders = finder.findPathOfOrders(eth, usdt, new BigDecimal("2"))
+        def buyOrders = finder.findPathOfOrders(usdt, eth, new BigDecimal("100"))
+
+        then:
+        0 * bookPriceProvider.getPrice(_)
+        // Sold at the bid prices
+        sellOrders*.orderSpec == [new OrderSpec(ethBtc, OrderSide.SELL), new OrderSpec(btcUsdt, OrderSide.SELL)]
+        sellOrders*.quantity == [new BigDecimal("2"), new BigDecimal("0.0598")]
+        // Bought at the ask prices
+        buyOrders*.orderSpec == [new OrderSpec(btcUsdt, OrderSide.BUY), new OrderSpec(ethBtc, OrderSide.BUY)]
+        buyOrders*.quantity == [new BigDecimal("0.024937"), new BigDecimal("0.828471")]
     }
 
     def "find path of orders"() {
@@ -128,17 +713,16 @@ class TradingPathFinderTest extends Specification {
         (1 .. _) * symbolInfo2.getQuantityFormalizer() >> quantityFormalizer2
         (1 .. _) * symbolInfo3.getQuantityFormalizer() >> quantityFormalizer3
         1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
-        1 * shortestPathsResolver.resolveAllShortestPaths([symbol1, symbol2, symbol3]) >> tradingPaths
+        1 * pathsResolver.resolvePaths([symbol1, symbol2, symbol3], null) >> tradingPaths
         1 * system.currentTimeMillis() >> 1536931586123
         1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.of(pathStep1)
         1 * tradingPaths.getNextStep(middleCurrency1, targetCurrency) >> Optional.of(pathStep2)
         1 * tradingPaths.getNextStep(middleCurrency2, targetCurrency) >> Optional.of(pathStep3)
-        1 * symbolProvider.getSymbolInfo(symbol1) >> Optional.of(symbolInfos[0])
-        1 * symbolProvider.getSymbolInfo(symbol2) >> Optional.of(symbolInfos[1])
-        1 * symbolProvider.getSymbolInfo(symbol3) >> Optional.of(symbolInfos[2])
-        1 * symbolPriceProvider.getPrice(symbol1) >> Optional.of(new BigDecimal("2.15"))
-        1 * symbolPriceProvider.getPrice(symbol2) >> Optional.of(new BigDecimal("3.1415927"))
-        1 * symbolPriceProvider.getPrice(symbol3) >> Optional.of(new BigDecimal("0.0122"))
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([
+                (symbol1): new BigDecimal("2.15"),
+                (symbol2): new BigDecimal("3.1415927"),
+                (symbol3): new BigDecimal("0.0122"),
+        ], [:])
         1 * quantityFormalizer1.formalize(new BigDecimal("46.2962"), RoundingMode.DOWN) >> new BigDecimal("46.2961")
         1 * quantityFormalizer2.formalize(new BigDecimal("46.2961"), RoundingMode.DOWN) >> new BigDecimal("46.2960")
         1 * quantityFormalizer3.formalize(new BigDecimal("11824.648"), RoundingMode.DOWN) >> new BigDecimal("11824.647")
@@ -177,7 +761,7 @@ class TradingPathFinderTest extends Specification {
         thrown(NoSuchPathException)
         (1 .. _) * symbolInfo1.getSymbol() >> symbol1
         1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
-        1 * shortestPathsResolver.resolveAllShortestPaths([symbol1]) >> tradingPaths
+        1 * pathsResolver.resolvePaths([symbol1], null) >> tradingPaths
         1 * system.currentTimeMillis() >> 1536931586123
         1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.empty()
     }
@@ -203,14 +787,17 @@ class TradingPathFinderTest extends Specification {
         (1 .. _) * symbolInfo1.getSymbol() >> symbol1
         (1 .. _) * symbolInfo1.getQuantityFormalizer() >> quantityFormalizer1
         1 * symbolProvider.getAllSymbolInfos() >> symbolInfos
-        1 * shortestPathsResolver.resolveAllShortestPaths([symbol1]) >> tradingPaths
+        1 * pathsResolver.resolvePaths([symbol1], null) >> tradingPaths
         1 * system.currentTimeMillis() >> 1536931586123
         1 * tradingPaths.getNextStep(sourceCurrency, targetCurrency) >> Optional.of(pathStep1)
-        1 * symbolProvider.getSymbolInfo(symbol1) >> Optional.of(symbolInfos[0])
-        1 * symbolPriceProvider.getPrice(symbol1) >> Optional.of(new BigDecimal("2.16"))
+        1 * symbolPriceProvider.getPriceSnapshot() >> new PriceSnapshot([(symbol1): new BigDecimal("2.16")], [:])
         1 * quantityFormalizer1.formalize(new BigDecimal("100.0"), RoundingMode.DOWN) >> {
             throw new ValueLimitException("")
         }
     }
 
+    private DensePathsResolver createDensePathsResolver() {
+        return new DensePathsResolver(new ShortestPathsResolver(system), new IncrementalPathsResolver(system))
+    }
+
 }
@@ -0,0 +1,128 @@
+package com.buridantrader
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Test class for {@link TradingPathsStore}.
+ */
+class TradingPathsStoreTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def btc = new Currency("BTC")
+    def eth = new Currency("ETH")
+    def usdt = new Currency("USDT")
+    def eos = new Currency("EOS")
+    def ethBtc = new Symbol(eth, btc)
+    def btcUsdt = new Symbol(btc, usdt)
+    def eosUsdt = new Symbol(eos, usdt)
+
+    def hash = TradingPathsStore.hashSymbols([ethBtc, btcUsdt, eosUsdt])
+
+    def "save and load trading paths"() {
+        given:
+        def file = new File(temporaryFolder.root, "data/paths.bin")
+        def store = new TradingPathsStore(file)
+        def tradingPaths = new ShortestPathsResolver().resolveAllShortestPaths([ethBtc, btcUsdt, eosUsdt])
+
+        when:
+        store.save(tradingPaths)
+        def loaded = store.load(hash).get()
+
+        then:
+        loaded.currencyIds == tradingPaths.currencyIds
+        loaded.symbols == tradingPaths.symbols
+        loaded.lengths == tradingPaths.lengths
+        loaded.nextSymbolIds == tradingPaths.nextSymbolIds
+        loaded.getNextStep(eth, eos).get() == new PathStep(ethBtc, 3)
+        temporaryFolder.root.toPath().resolve("data").toFile().list() == ["paths.bin"] as String[]
+    }
+
+    def "save replaces earlier trading paths"() {
+        given:
+        def store = new TradingPathsStore(temporaryFolder.newFile())
+        def resolver = new ShortestPathsResolver()
+
+        when:
+        store.save(resolver.resolveAllShortestPaths([ethBtc, btcUsdt, eosUsdt]))
+        store.save(resolver.resolveAllShortestPaths([ethBtc]))
+        def loaded = store.load(TradingPathsStore.hashSymbols([ethBtc])).get()
+
+        then:
+        loaded.symbols == [ethBtc] as Symbol[]
+        !loaded.getNextStep(eth, usdt).isPresent()
+    }
+
+    def "load without saved trading paths"() {
+        expect:
+        !new TradingPathsStore(new File(temporaryFolder.root, "paths.bin")).load(0L).isPresent()
+    }
+
+    def "don't load trading paths saved from other symbols"() {
+        given:
+        def store = new TradingPathsStore(temporaryFolder.newFile())
+        store.save(new ShortestPathsResolver().resolveAllShortestPaths([ethBtc, btcUsdt, eosUsdt]))
+
+        expect:
+        !store.load(TradingPathsStore.hashSymbols([ethBtc, btcUsdt])).isPresent()
+        !store.load(TradingPathsStore.hashSymbols([ethBtc, btcUsdt, eosUsdt, new Symbol(eos, btc)])).isPresent()
+    }
+
+    def "load corrupted trading paths"() {
+        given:
+        def file = temporaryFolder.newFile()
+        def store = new TradingPathsStore(file)
+        store.save(new ShortestPathsResolver().resolveAllShortestPaths([ethBtc, btcUsdt, eosUsdt]))
+        def bytes = Files.readAllBytes(file.toPath())
+        modify(bytes)
+        Files.write(file.toPath(), bytes)
+
+        expect:
+        !store.load(hash).isPresent()
+
+        where:
+        modify << [
+                // Magic
+                { byte[] content -> content[0] = 0 },
+                // Hash
+                { byte[] content -> content[8]++ },
+                // Name of a currency
+                { byte[] content -> content[22]++ },
+                // Negative number of currencies
+                { byte[] content -> content[16] = (byte) 0x80 },
+                // Huge number of currencies
+                { byte[] content -> content[16] = (byte) 0x7f },
+                // Negative length of a currency name
+                { byte[] content -> content[20] = (byte) 0x80 },
+                // Length of a currency name longer than the file
+                { byte[] content -> content[20] = (byte) 0x7f },
+                // Id of the symbol of a first step
+                { byte[] content -> Arrays.fill(content, content.length - 4, content.length, (byte) 0x7f) },
+        ]
+    }
+
+    def "load truncated trading paths"() {
+        given:
+        def file = temporaryFolder.newFile()
+        def store = new TradingPathsStore(file)
+        store.save(new ShortestPathsResolver().resolveAllShortestPaths([ethBtc, btcUsdt, eosUsdt]))
+        def bytes = Files.readAllBytes(file.toPath())
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 10))
+
+        expect:
+        !store.load(hash).isPresent()
+    }
+
+    def "hash of symbols doesn't depend on the order"() {
+        expect:
+        TradingPathsStore.hashSymbols([ethBtc, btcUsdt]) == TradingPathsStore.hashSymbols([btcUsdt, ethBtc])
+        TradingPathsStore.hashSymbols([ethBtc, btcUsdt]) != TradingPathsStore.hashSymbols([ethBtc, eosUsdt])
+        TradingPathsStore.hashSymbols([new Symbol(new Currency("AB"), new Currency("C"))]) !=
+                TradingPathsStore.hashSymbols([new Symbol(new Currency("A"), new Currency("BC"))])
+    }
+}
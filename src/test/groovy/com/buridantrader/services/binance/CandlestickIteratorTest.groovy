@@ -1,10 +1,119 @@
 package com.buridantrader.services.binance
 
+import com.binance.api.client.BinanceApiRestClient
+import com.binance.api.client.domain.market.CandlestickInterval
+import com.buridantrader.CandleSeries
+import com.google.common.util.concurrent.MoreExecutors
 import spock.lang.Specification
 
+import java.time.Instant
+
 class CandlestickIteratorTest extends Specification {
 
-    def ""() {
+    static final long MINUTE_MS = 60 * 1000
+    static final long PAGE_MS = 1000 * MINUTE_MS
+
+    def client = Mock(BinanceApiRestClient)
+
+    def "iterate over the pages that have candlesticks"() {
+        given:
+        def iterator = new CandlestickIterator(client, "BTCUSDT", minute(0), minute(2500))
+
+        when:
+        def pages = iterator.collect()
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", CandlestickInterval.ONE_MINUTE, 1000, 0, PAGE_MS - 1) >>
+                [createCandlestick(0), createCandlestick(999)]
+        1 * client.getCandlestickBars("BTCUSDT", CandlestickInterval.ONE_MINUTE, 1000, PAGE_MS, 2 * PAGE_MS - 1) >>
+                []
+        1 * client.getCandlestickBars("BTCUSDT", CandlestickInterval.ONE_MINUTE, 1000, 2 * PAGE_MS,
+                minute(2500).toEpochMilli()) >> [createCandlestick(2000)]
+        pages == [series(0, 999), series(2000)]
+        !iterator.hasNext()
+    }
+
+    def "read the candlesticks of all the pages"() {
+        given:
+        def iterator = new CandlestickIterator(client, "BTCUSDT", minute(0), minute(1500))
+        def builder = CandleSeries.builder().add(-MINUTE_MS, -1, 1.0d)
+
+        when:
+        iterator.readAll(builder)
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, 0, PAGE_MS - 1) >> [createCandlestick(0), createCandlestick(1)]
+        1 * client.getCandlestickBars("BTCUSDT", _, _, PAGE_MS, minute(1500).toEpochMilli()) >>
+                [createCandlestick(1000)]
+        builder.build() == CandleSeries.builder()
+                .add(-MINUTE_MS, -1, 1.0d)
+                .addAll(series(0, 1, 1000), 0, 3)
+                .build()
+        !iterator.hasNext()
+    }
+
+    def "request the pages ahead of the page being iterated"() {
+        given:
+        def iterator = new CandlestickIterator(
+                client, "BTCUSDT", minute(0), minute(3999), MoreExecutors.directExecutor(), 2)
+
+        when:
+        def first = iterator.next()
+
+        then:
+        3 * client.getCandlestickBars("BTCUSDT", _, _, _, _) >> { args -> [createCandlestick(((long) args[3]).intdiv(MINUTE_MS))] }
+        first == series(0)
+
+        when:
+        def second = iterator.next()
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, 3 * PAGE_MS, minute(3999).toEpochMilli()) >> [createCandlestick(3000)]
+        second == series(1000)
+    }
+
+    def "no more candlesticks"() {
+        given:
+        def iterator = new CandlestickIterator(client, "BTCUSDT", minute(0), minute(10))
+
+        when:
+        iterator.next()
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, 0, minute(10).toEpochMilli()) >> []
+        thrown(NoSuchElementException)
+    }
+
+    def "fail to fetch a page"() {
+        given:
+        def iterator = new CandlestickIterator(
+                client, "BTCUSDT", minute(0), minute(10), MoreExecutors.directExecutor(), 2)
+
+        when:
+        iterator.hasNext()
+
+        then:
+        1 * client.getCandlestickBars(*_) >> { throw new IllegalStateException("Unavailable") }
+        def ex = thrown(IllegalStateException)
+        ex.message == "Unavailable"
+    }
+
+    private static CandleSeries series(long... minutes) {
+        def builder = CandleSeries.builder()
+        minutes.each { builder.add(it * MINUTE_MS, (it + 1) * MINUTE_MS - 1, 4000.0d) }
+        builder.build()
+    }
+
+    private static Instant minute(long minute) {
+        Instant.ofEpochMilli(minute * MINUTE_MS)
+    }
 
+    private static com.binance.api.client.domain.market.Candlestick createCandlestick(long minute) {
+        def candlestick = new com.binance.api.client.domain.market.Candlestick()
+        candlestick.openTime = minute * MINUTE_MS
+        candlestick.closeTime = (minute + 1) * MINUTE_MS - 1
+        candlestick.high = "4001"
+        candlestick.low = "3999"
+        candlestick
     }
 }
@@ -0,0 +1,133 @@
+package com.buridantrader.services.symbol
+
+import com.buridantrader.CandleSeries
+import com.buridantrader.Currency
+import com.buridantrader.Symbol
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+
+/**
+ * Test class for {@link CandlestickStore}.
+ */
+class CandlestickStoreTest extends Specification {
+
+    static final long MINUTE_MS = 60 * 1000
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def btcUsdt = new Symbol(new Currency("BTC"), new Currency("USDT"))
+    def ethUsdt = new Symbol(new Currency("ETH"), new Currency("USDT"))
+
+    def "append and read the candlesticks in a time range"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root)
+
+        when:
+        store.append(btcUsdt, (0..9).collect { createCandlestick(it) })
+        store.append(btcUsdt, (8..11).collect { createCandlestick(it) })
+        store.append(ethUsdt, [createCandlestick(5)])
+
+        then:
+        store.read(btcUsdt, 3 * MINUTE_MS, 5 * MINUTE_MS) == series((3..5).collect { createCandlestick(it) })
+        store.read(btcUsdt, 3 * MINUTE_MS - 1, 3 * MINUTE_MS + 1) == series([createCandlestick(3)])
+        store.read(btcUsdt, 0, 100 * MINUTE_MS).size() == 12
+        store.read(btcUsdt, 12 * MINUTE_MS, 100 * MINUTE_MS).isEmpty()
+        store.read(ethUsdt, 0, 100 * MINUTE_MS) == series([createCandlestick(5)])
+
+        cleanup:
+        store.close()
+    }
+
+    def "keep the candlesticks after a restart"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root)
+        store.append(btcUsdt, (0..2).collect { createCandlestick(it) })
+        store.close()
+
+        when:
+        store = new CandlestickStore(temporaryFolder.root)
+        store.append(btcUsdt, [createCandlestick(3)])
+
+        then:
+        store.read(btcUsdt, 0, 100 * MINUTE_MS) == series((0..3).collect { createCandlestick(it) })
+
+        cleanup:
+        store.close()
+    }
+
+    def "roll back an incomplete append"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root)
+        store.append(btcUsdt, (0..2).collect { createCandlestick(it) })
+        store.close()
+        new File(temporaryFolder.root, "BTCUSDT/open-time.bin").append(new byte[Long.BYTES])
+
+        when:
+        store = new CandlestickStore(temporaryFolder.root)
+        def candlesticks = store.read(btcUsdt, 0, 100 * MINUTE_MS)
+
+        then:
+        candlesticks == series((0..2).collect { createCandlestick(it) })
+        new File(temporaryFolder.root, "BTCUSDT/open-time.bin").length() == 3 * Long.BYTES
+
+        cleanup:
+        store.close()
+    }
+
+    def "close the columns of the least recently used symbols"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root, 1)
+
+        when:
+        store.append(btcUsdt, (0..2).collect { createCandlestick(it) })
+        store.append(ethUsdt, (0..1).collect { createCandlestick(it) })
+        // The columns of BTCUSDT are opened again, and the last open time is read from the files
+        store.append(btcUsdt, (2..3).collect { createCandlestick(it) })
+
+        then:
+        store.read(ethUsdt, 0, 100 * MINUTE_MS) == series((0..1).collect { createCandlestick(it) })
+        store.read(btcUsdt, 0, 100 * MINUTE_MS) == series((0..3).collect { createCandlestick(it) })
+
+        cleanup:
+        store.close()
+    }
+
+    def "the average price is the same as the one of the fetched candlestick"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root)
+        def candlestick = createCandlestick(0)
+        candlestick.high = "0.00000003"
+        candlestick.low = "0.00000000"
+
+        when:
+        store.append(btcUsdt, [candlestick])
+
+        then:
+        store.read(btcUsdt, 0, 0) == series([candlestick])
+        store.read(btcUsdt, 0, 0).getCloseTimeMs(0) == MINUTE_MS - 1
+        store.read(btcUsdt, 0, 0).getAveragePrice(0) == 0.00000002d
+
+        cleanup:
+        store.close()
+    }
+
+    static CandleSeries series(List<com.binance.api.client.domain.market.Candlestick> candlesticks) {
+        def builder = CandleSeries.builder()
+        candlesticks.each { builder.add(it) }
+        builder.build()
+    }
+
+    static com.binance.api.client.domain.market.Candlestick createCandlestick(long minute) {
+        def candlestick = new com.binance.api.client.domain.market.Candlestick()
+        candlestick.openTime = minute * MINUTE_MS
+        candlestick.closeTime = (minute + 1) * MINUTE_MS - 1
+        candlestick.high = String.format("%d.50000000", 4000 + minute)
+        candlestick.low = String.format("%d.00000000", 3990 + minute)
+        candlestick.close = String.format("%d.00000000", 3995 + minute)
+        candlestick.volume = "12.34500000"
+        candlestick
+    }
+}
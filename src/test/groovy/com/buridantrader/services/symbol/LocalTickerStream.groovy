@@ -0,0 +1,84 @@
+package com.buridantrader.services.symbol
+
+import com.binance.api.client.BinanceApiCallback
+import com.binance.api.client.BinanceApiWebSocketClient
+import com.binance.api.client.domain.event.AllMarketTickersEvent
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Local stand-in for the all-market ticker stream of Binance.
+ * Like the real stream, the tickers are delivered to the subscribers on a thread of the stream. A push
+ * returns after the tickers are delivered.
+ */
+class LocalTickerStream implements BinanceApiWebSocketClient {
+
+    private final ExecutorService deliveryThread = Executors.newSingleThreadExecutor()
+    private final List<BinanceApiCallback<List<AllMarketTickersEvent>>> subscribers = []
+    int numSubscriptions = 0
+    boolean failOnSubscribe = false
+
+    @Override
+    synchronized Closeable onAllMarketTickersEvent(BinanceApiCallback<List<AllMarketTickersEvent>> callback) {
+        if (failOnSubscribe) {
+            throw new RuntimeException("Connection refused")
+        }
+        ++numSubscriptions
+        subscribers << callback
+        return { -> unsubscribe(callback) } as Closeable
+    }
+
+    synchronized boolean isSubscribed() {
+        !subscribers.isEmpty()
+    }
+
+    /**
+     * Pushes the tickers of the given symbols to all the subscribers.
+     *
+     * @param prices Close prices, or lists of the close, best bid and best ask prices, indexed by the names of
+     *               the symbols. The best bid and ask prices are zero if they aren't given.
+     */
+    void push(Map<String, Object> prices) {
+        def events = prices.collect { name, price ->
+            def tickerPrices = price instanceof List ? price : [price, "0", "0"]
+            def event = new AllMarketTickersEvent()
+            event.eventType = "24hrTicker"
+            event.eventTime = System.currentTimeMillis()
+            event.symbol = name
+            event.currentDaysClosePrice = tickerPrices[0]
+            event.bestBidPrice = tickerPrices[1]
+            event.bestAskPrice = tickerPrices[2]
+            event
+        }
+        deliver { it.onResponse(events) }
+    }
+
+    /**
+     * Drops the connections of all the subscribers.
+     */
+    void drop() {
+        def cause = new IOException("Connection reset")
+        deliver { it.onFailure(cause) }
+        synchronized (this) {
+            subscribers.clear()
+        }
+    }
+
+    @Override
+    void close() {
+        deliveryThread.shutdownNow()
+    }
+
+    private synchronized void unsubscribe(BinanceApiCallback<List<AllMarketTickersEvent>> callback) {
+        subscribers.remove(callback)
+    }
+
+    private void deliver(Closure action) {
+        List<BinanceApiCallback<List<AllMarketTickersEvent>>> nowSubscribers
+        synchronized (this) {
+            nowSubscribers = new ArrayList<>(subscribers)
+        }
+        deliveryThread.submit({ nowSubscribers.each(action) } as Runnable).get()
+    }
+}
@@ -0,0 +1,77 @@
+package com.buridantrader.services.symbol
+
+import com.buridantrader.BookPrice
+import com.buridantrader.Currency
+import com.buridantrader.Symbol
+import spock.lang.Specification
+
+class PriceSnapshotTest extends Specification {
+
+    def btcUsdt = new Symbol(new Currency("BTC"), new Currency("USDT"))
+    def ethUsdt = new Symbol(new Currency("ETH"), new Currency("USDT"))
+    def ethBtc = new Symbol(new Currency("ETH"), new Currency("BTC"))
+
+    def "get the prices by symbol"() {
+        given:
+        def snapshot = new PriceSnapshot(
+                [(btcUsdt): new BigDecimal("4000"), (ethUsdt): new BigDecimal("120")],
+                [(btcUsdt): new BookPrice(new BigDecimal("3999"), new BigDecimal("4001"))])
+
+        expect:
+        snapshot.getPrice(btcUsdt) == Optional.of(new BigDecimal("4000"))
+        !snapshot.getPrice(ethBtc).isPresent()
+        snapshot.getBookPrice(btcUsdt) == Optional.of(new BookPrice(new BigDecimal("3999"), new BigDecimal("4001")))
+        !snapshot.getBookPrice(ethUsdt).isPresent()
+        snapshot.getPrices() == [(btcUsdt): new BigDecimal("4000"), (ethUsdt): new BigDecimal("120")]
+        snapshot.getPrices().is(snapshot.getPrices())
+        snapshot.getPriceMantissa(snapshot.index.getId(btcUsdt)) == 400000000000L
+    }
+
+    def "copy the prices only when they're changed"() {
+        given:
+        def index = new SymbolIndex([btcUsdt, ethUsdt])
+        def builder = PriceSnapshot.builder(index)
+        builder.setPrice(0, 400000000000L)
+        builder.setBookPrice(1, 11900000000L, 12100000000L)
+        def snapshot = builder.build()
+
+        when:
+        def sameBuilder = snapshot.toBuilder(index)
+        sameBuilder.setPrice(0, 400000000000L)
+        sameBuilder.setBookPrice(1, 11900000000L, 12100000000L)
+        def bookBuilder = snapshot.toBuilder(index)
+        // Either side of the order book is empty
+        bookBuilder.setBookPrice(1, 0L, 12100000000L)
+        def priceBuilder = snapshot.toBuilder(index)
+        priceBuilder.setPrice(1, 12000000000L)
+
+        then:
+        sameBuilder.build().is(snapshot)
+        !sameBuilder.pricesChanged
+        def bookSnapshot = bookBuilder.build()
+        !bookBuilder.pricesChanged
+        bookSnapshot.hasSamePrices(snapshot)
+        !bookSnapshot.hasSameBookPrices(snapshot)
+        !bookSnapshot.getBookPrice(ethUsdt).isPresent()
+        def priceSnapshot = priceBuilder.build()
+        priceBuilder.pricesChanged
+        !priceSnapshot.hasSamePrices(snapshot)
+        priceSnapshot.getPrice(ethUsdt) == Optional.of(new BigDecimal("120"))
+        // The earlier snapshot isn't modified
+        !snapshot.getPrice(ethUsdt).isPresent()
+        snapshot.getBookPrice(ethUsdt) == Optional.of(new BookPrice(new BigDecimal("119"), new BigDecimal("121")))
+    }
+
+    def "move the prices to the ids of the new symbols"() {
+        given:
+        def snapshot = new PriceSnapshot([(btcUsdt): new BigDecimal("4000"), (ethUsdt): new BigDecimal("120")], [:])
+        def newIndex = new SymbolIndex([ethBtc, ethUsdt])
+
+        when:
+        def newSnapshot = snapshot.toBuilder(newIndex).build()
+
+        then:
+        newSnapshot.index.is(newIndex)
+        newSnapshot.getPrices() == [(ethUsdt): new BigDecimal("120")]
+    }
+}
@@ -0,0 +1,420 @@
+package com.buridantrader.services.symbol
+
+import com.binance.api.client.BinanceApiRestClient
+import com.binance.api.client.domain.market.BookTicker
+import com.binance.api.client.domain.market.TickerPrice
+import com.buridantrader.BookPrice
+import com.buridantrader.Currency
+import com.buridantrader.Symbol
+import com.buridantrader.services.system.SystemService
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.time.Instant
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+class SymbolPriceServiceTest extends Specification {
+
+    def client = Mock(BinanceApiRestClient)
+    def symbolService = Mock(SymbolService)
+    def scheduler = Mock(ScheduledExecutorService)
+    def system = Mock(SystemService)
+    def stream = new LocalTickerStream()
+    def btcUsdt = new Symbol(new Currency("BTC"), new Currency("USDT"))
+    def ethUsdt = new Symbol(new Currency("ETH"), new Currency("USDT"))
+    def symbolIndex = new SymbolIndex([btcUsdt, ethUsdt])
+    long nowMs = 1000
+    Runnable maintainTask
+    SymbolPriceService service = new SymbolPriceService(client, symbolService, stream, scheduler, system)
+
+    def setup() {
+        system.currentTimeMillis() >> { nowMs }
+        client.getBookTickers() >> []
+        symbolService.getSymbolIndex() >> symbolIndex
+        scheduler.scheduleWithFixedDelay(_, 1000, 1000, TimeUnit.MILLISECONDS) >> { args ->
+            maintainTask = args[0]
+            Mock(ScheduledFuture)
+        }
+    }
+
+    def cleanup() {
+        stream.close()
+    }
+
+    /**
+     * Runs the background task as if the given time has passed.
+     */
+    private void tick(long elapsedMs) {
+        nowMs += elapsedMs
+        maintainTask.run()
+    }
+
+    def "poll the prices every minute in background without the stream"() {
+        given:
+        service = new SymbolPriceService(client, symbolService, null, scheduler, system)
+
+        when:
+        def price1 = service.getPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000")]
+        price1.get() == new BigDecimal("4000")
+
+        when:
+        tick(1000 * 59)
+        def price2 = service.getPrice(btcUsdt)
+
+        then:
+        0 * client.getAllPrices()
+        price2.get() == new BigDecimal("4000")
+
+        when:
+        tick(1000)
+        def price3 = service.getPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4100")]
+        price3.get() == new BigDecimal("4100")
+    }
+
+    def "readers keep the earlier prices while a refresh is in progress or fails"() {
+        given:
+        service = new SymbolPriceService(client, symbolService, null, scheduler, system)
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        def prices = service.getAllPrices()
+        def pricesDuringRefresh = null
+
+        when:
+        tick(1000 * 60)
+
+        then:
+        1 * client.getAllPrices() >> {
+            pricesDuringRefresh = service.getAllPrices()
+            throw new RuntimeException()
+        }
+        pricesDuringRefresh.is(prices)
+        service.getAllPrices().is(prices)
+
+        when:
+        tick(1000 * 4)
+
+        then:
+        0 * client.getAllPrices()
+
+        when:
+        tick(1000)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4100"), createTickerPrice("ETHUSDT", "120")]
+        prices == [(btcUsdt): new BigDecimal("4000"), (ethUsdt): new BigDecimal("120")]
+        service.getAllPrices() == [(btcUsdt): new BigDecimal("4100"), (ethUsdt): new BigDecimal("120")]
+    }
+
+    def "get the book prices"() {
+        given:
+        service = new SymbolPriceService(client, symbolService, null, scheduler, system)
+
+        when:
+        def bookPrice = service.getBookPrice(btcUsdt)
+        def emptyBookPrice = service.getBookPrice(ethUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        1 * client.getBookTickers() >> [
+                createBookTicker("BTCUSDT", "3999", "4001"),
+                // The order book is empty on one side
+                createBookTicker("ETHUSDT", "0.00000000", "121")
+        ]
+        bookPrice.get() == new BookPrice(new BigDecimal("3999"), new BigDecimal("4001"))
+        !emptyBookPrice.isPresent()
+
+        when:
+        def prices = service.getAllPrices()
+        def updated = service.isUpdatedSince(Instant.ofEpochMilli(nowMs))
+        tick(1000 * 60)
+
+        then:
+        // The book prices are changed, but the last prices aren't
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        1 * client.getBookTickers() >> [createBookTicker("BTCUSDT", "3998", "4000")]
+        !updated
+        !service.isUpdatedSince(Instant.ofEpochMilli(nowMs - 1000 * 60))
+        service.getAllPrices() == prices
+        service.getBookPrice(btcUsdt).get() == new BookPrice(new BigDecimal("3998"), new BigDecimal("4000"))
+    }
+
+    def "stream the book prices"() {
+        when:
+        def bookPrice = service.getBookPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000")]
+        1 * client.getBookTickers() >> [createBookTicker("BTCUSDT", "3999", "4001")]
+        bookPrice.get() == new BookPrice(new BigDecimal("3999"), new BigDecimal("4001"))
+
+        when:
+        nowMs += 1000
+        stream.push(["BTCUSDT": ["4000", "4002", "4003"]])
+
+        then:
+        service.getBookPrice(btcUsdt).get() == new BookPrice(new BigDecimal("4002"), new BigDecimal("4003"))
+        service.getPrice(btcUsdt).get() == new BigDecimal("4000")
+        !service.isUpdatedSince(Instant.ofEpochMilli(nowMs - 1))
+    }
+
+    def "stream the prices after polling them once"() {
+        when:
+        def price1 = service.getPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        price1.get() == new BigDecimal("4000")
+        stream.subscribed
+
+        when:
+        def allPrices1 = service.getAllPrices()
+        nowMs += 1000
+        stream.push(["BTCUSDT": "4001.5", "XRPUSDT": "0.5"])
+        def updated = service.isUpdatedSince(Instant.ofEpochMilli(nowMs - 1))
+        def allPrices2 = service.getAllPrices()
+
+        // Keep streaming for minutes
+        def prices = (1..120).collect {
+            stream.push(["ETHUSDT": (120 + it).toString()])
+            tick(1000)
+            service.getPrice(ethUsdt).get()
+        }
+
+        then:
+        0 * client.getAllPrices()
+        updated
+        allPrices1 == [(btcUsdt): new BigDecimal("4000"), (ethUsdt): new BigDecimal("120")]
+        allPrices2 == [(btcUsdt): new BigDecimal("4001.5"), (ethUsdt): new BigDecimal("120")]
+        service.getAllPrices().is(service.getAllPrices())
+        prices == (1..120).collect { new BigDecimal(120 + it) }
+        stream.numSubscriptions == 1
+    }
+
+    def "keep the streamed prices when the symbols are changed"() {
+        given:
+        def bnbUsdt = new Symbol(new Currency("BNB"), new Currency("USDT"))
+        def newSymbolIndex = new SymbolIndex([bnbUsdt, btcUsdt])
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        service.getPrice(btcUsdt)
+
+        stream.push(["ETHUSDT": "121"])
+
+        when:
+        tick(1000)
+        def allPrices = service.getAllPrices()
+        def updated = service.isUpdatedSince(Instant.ofEpochMilli(nowMs - 1))
+
+        then:
+        1 * symbolService.getSymbolIndex() >> newSymbolIndex
+        0 * client.getAllPrices()
+        allPrices == [(btcUsdt): new BigDecimal("4000")]
+        updated
+
+        when:
+        stream.push(["BNBUSDT": "15.12345678", "ETHUSDT": "122"])
+
+        then:
+        0 * symbolService.getSymbolIndex()
+        service.getAllPrices() == [(bnbUsdt): new BigDecimal("15.12345678"), (btcUsdt): new BigDecimal("4000")]
+        !service.getPrice(ethUsdt).isPresent()
+    }
+
+    def "parse the streamed tickers without getting the symbols"() {
+        given:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        service.getPrice(btcUsdt)
+
+        when:
+        stream.push(["BTCUSDT": "4001", "BNBUSDT": "15"])
+
+        then:
+        0 * symbolService.getSymbolIndex()
+        service.getAllPrices() == [(btcUsdt): new BigDecimal("4001"), (ethUsdt): new BigDecimal("120")]
+    }
+
+    def "notify the listeners when the prices move by the threshold"() {
+        given:
+        def dispatched = []
+        def listenerExecutor = Mock(ExecutorService) {
+            execute(_) >> { Runnable task -> dispatched << task }
+        }
+        service = new SymbolPriceService(client, symbolService, stream, scheduler, listenerExecutor, system)
+        def moves = []
+        def listener = { symbol, referencePrice, price -> moves << [symbol, referencePrice, price] } as PriceMoveListener
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000"), createTickerPrice("ETHUSDT", "120")]
+        service.getPrice(btcUsdt)
+        def subscription = service.subscribePriceMoves([btcUsdt], new BigDecimal("0.01"), listener)
+
+        when:
+        stream.push(["BTCUSDT": "4030", "ETHUSDT": "150"])
+        stream.push(["BTCUSDT": "4041"])
+        def numDispatchedBeforeRun = dispatched.size()
+        dispatched.each { it.run() }
+        dispatched.clear()
+
+        then:
+        numDispatchedBeforeRun == 1
+        moves == [[btcUsdt, new BigDecimal("4000"), new BigDecimal("4041")]]
+
+        when: "the move is measured from the last reported price"
+        stream.push(["BTCUSDT": "4010"])
+        stream.push(["BTCUSDT": "3999"])
+        dispatched.each { it.run() }
+        dispatched.clear()
+
+        then:
+        moves.size() == 2
+        moves[1] == [btcUsdt, new BigDecimal("4041"), new BigDecimal("3999")]
+
+        when:
+        subscription.close()
+        stream.push(["BTCUSDT": "3000"])
+
+        then:
+        dispatched.isEmpty()
+    }
+
+    def "fall back to polling when the stream drops"() {
+        given:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000")]
+        service.getPrice(btcUsdt)
+        stream.push(["BTCUSDT": "4001"])
+
+        when:
+        stream.drop()
+        tick(1000)
+        def price1 = service.getPrice(btcUsdt)
+        tick(1000)
+        def price2 = service.getPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "3900")]
+        price1.get() == new BigDecimal("3900")
+        price2.get() == new BigDecimal("3900")
+        !stream.subscribed
+
+        when:
+        // Subscribe again a while later
+        tick(1000 * 8)
+        stream.push(["BTCUSDT": "3950"])
+        tick(1000)
+        def price3 = service.getPrice(btcUsdt)
+
+        then:
+        0 * client.getAllPrices()
+        stream.subscribed
+        stream.numSubscriptions == 2
+        price3.get() == new BigDecimal("3950")
+    }
+
+    def "fall back to polling when the stream goes silent"() {
+        given:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000")]
+        service.getPrice(btcUsdt)
+        stream.push(["BTCUSDT": "4001"])
+
+        when:
+        tick(1000 * 10 + 1)
+        def price = service.getPrice(btcUsdt)
+
+        then:
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "3900")]
+        price.get() == new BigDecimal("3900")
+
+        // The stream is subscribed again right away, because the last subscription is long ago
+        stream.numSubscriptions == 2
+    }
+
+    // A poll holding the lock would deadlock with the delivery of the tickers
+    @Timeout(10)
+    def "apply the streamed tickers while the prices are polled"() {
+        given:
+        // Not a mock, because the tickers would wait for the calls to the mocks to return
+        def polledPrices = [[createTickerPrice("BTCUSDT", "4000")], [createTickerPrice("BTCUSDT", "3900")]]
+        def client = [
+                getAllPrices  : { ->
+                    if (polledPrices.size() == 1) {
+                        // The tickers would wait for the poll if it held the lock
+                        stream.push(["BTCUSDT": "3950"])
+                    }
+                    polledPrices.remove(0)
+                },
+                getBookTickers: { -> [] }
+        ] as BinanceApiRestClient
+        service = new SymbolPriceService(client, symbolService, stream, scheduler, system)
+        service.getPrice(btcUsdt)
+        stream.push(["BTCUSDT": "4001"])
+
+        when:
+        // The stream goes silent, and it's subscribed again while the prices are polled
+        tick(1000 * 10 + 1)
+        def price = service.getPrice(btcUsdt)
+
+        then:
+        polledPrices.isEmpty()
+        // The polled prices are older than the streamed ones
+        price.get() == new BigDecimal("3950")
+        stream.numSubscriptions == 2
+    }
+
+    def "poll the prices when fail to subscribe to the stream"() {
+        given:
+        stream.failOnSubscribe = true
+
+        when:
+        def price1 = service.getPrice(btcUsdt)
+        tick(1000 * 60)
+        def price2 = service.getPrice(btcUsdt)
+
+        then:
+        2 * client.getAllPrices() >>> [
+                [createTickerPrice("BTCUSDT", "4000")],
+                [createTickerPrice("BTCUSDT", "4100")]
+        ]
+        price1.get() == new BigDecimal("4000")
+        price2.get() == new BigDecimal("4100")
+        !stream.subscribed
+    }
+
+    def "stop refreshing the prices when closed"() {
+        given:
+        def listenerExecutor = Mock(ExecutorService)
+        service = new SymbolPriceService(client, symbolService, stream, scheduler, listenerExecutor, system)
+        1 * client.getAllPrices() >> [createTickerPrice("BTCUSDT", "4000")]
+        service.getPrice(btcUsdt)
+
+        when:
+        service.close()
+        tick(1000 * 60)
+
+        then:
+        1 * scheduler.shutdownNow()
+        1 * listenerExecutor.shutdown()
+        0 * client.getAllPrices()
+        !stream.subscribed
+        service.getPrice(btcUsdt).get() == new BigDecimal("4000")
+    }
+
+    private static BookTicker createBookTicker(String symbol, String bidPrice, String askPrice) {
+        def bookTicker = new BookTicker()
+        bookTicker.symbol = symbol
+        bookTicker.bidPrice = bidPrice
+        bookTicker.askPrice = askPrice
+        bookTicker
+    }
+
+    private static TickerPrice createTickerPrice(String symbol, String price) {
+        def tickerPrice = new TickerPrice()
+        tickerPrice.symbol = symbol
+        tickerPrice.price = price
+        tickerPrice
+    }
+}
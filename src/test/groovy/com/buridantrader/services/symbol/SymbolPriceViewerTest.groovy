@@ -0,0 +1,138 @@
+package com.buridantrader.services.symbol
+
+import com.binance.api.client.BinanceApiRestClient
+import com.binance.api.client.domain.market.CandlestickInterval
+import com.buridantrader.CandleSeries
+import com.buridantrader.Currency
+import com.buridantrader.Symbol
+import com.buridantrader.services.system.SystemService
+import com.google.common.util.concurrent.MoreExecutors
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.time.Instant
+
+class SymbolPriceViewerTest extends Specification {
+
+    static final long MINUTE_MS = 60 * 1000
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def client = Mock(BinanceApiRestClient)
+    def system = Mock(SystemService)
+    def btcUsdt = new Symbol(new Currency("BTC"), new Currency("USDT"))
+    long nowMs = 100 * MINUTE_MS + 30 * 1000
+    def viewer = new SymbolPriceViewer(client, 5, system)
+
+    def setup() {
+        system.currentTimeMillis() >> { nowMs }
+    }
+
+    def "only fetch the candlesticks after the cached ones"() {
+        when:
+        def candlesticks1 = viewer.getPriceHistoryPerMinute(btcUsdt, minute(97), minute(100))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", CandlestickInterval.ONE_MINUTE, 1000, minute(97).toEpochMilli(),
+                minute(100).toEpochMilli()) >> (97..100).collect { createCandlestick(it) }
+        candlesticks1 == series((97..100).collect { createCandlestick(it) })
+
+        when: "the window slides by a minute"
+        nowMs += MINUTE_MS
+        def candlesticks2 = viewer.getPriceHistoryPerMinute(btcUsdt, minute(98), minute(101))
+
+        then: "the candlestick that was open is fetched again"
+        1 * client.getCandlestickBars("BTCUSDT", CandlestickInterval.ONE_MINUTE, 1000,
+                minute(99).toEpochMilli() + 1, minute(101).toEpochMilli()) >> (100..101).collect { createCandlestick(it) }
+        candlesticks2 == series((98..101).collect { createCandlestick(it) })
+
+        when: "a window inside the closed candlesticks"
+        def candlesticks3 = viewer.getPriceHistoryPerMinute(btcUsdt, minute(98), minute(99))
+
+        then:
+        0 * client.getCandlestickBars(*_)
+        candlesticks3 == series((98..99).collect { createCandlestick(it) })
+    }
+
+    def "fetch the whole window again when it's out of the cached range"() {
+        given:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(97).toEpochMilli(), _) >>
+                (97..100).collect { createCandlestick(it) }
+        viewer.getPriceHistoryPerMinute(btcUsdt, minute(97), minute(100))
+
+        when: "the oldest candlestick is evicted"
+        nowMs += 3 * MINUTE_MS
+        viewer.getPriceHistoryPerMinute(btcUsdt, minute(99), minute(103))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(99).toEpochMilli() + 1, _) >>
+                (100..103).collect { createCandlestick(it) }
+
+        when:
+        def candlesticks = viewer.getPriceHistoryPerMinute(btcUsdt, minute(97), minute(99))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(97).toEpochMilli(), minute(99).toEpochMilli()) >>
+                (97..99).collect { createCandlestick(it) }
+        candlesticks == series((97..99).collect { createCandlestick(it) })
+    }
+
+    def "do not cache windows wider than the cache"() {
+        when:
+        viewer.getPriceHistoryPerMinute(btcUsdt, minute(90), minute(100))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(90).toEpochMilli(), minute(100).toEpochMilli()) >> []
+    }
+
+    def "read the stored candlesticks first and store the fetched ones"() {
+        given:
+        def store = new CandlestickStore(temporaryFolder.root)
+        store.append(btcUsdt, (90..98).collect { createCandlestick(it) })
+        viewer = new SymbolPriceViewer(client, 5, MoreExecutors.directExecutor(), 1, store, system)
+
+        when:
+        def candlesticks = viewer.getPriceHistoryPerMinute(btcUsdt, minute(97), minute(100))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(98).toEpochMilli() + 1, minute(100).toEpochMilli()) >>
+                (99..100).collect { createCandlestick(it) }
+        candlesticks == series((97..100).collect { createCandlestick(it) })
+        store.read(btcUsdt, 0, minute(200).toEpochMilli()) == series((90..99).collect { createCandlestick(it) })
+
+        when: "a window wider than the cache"
+        def wideCandlesticks = viewer.getPriceHistoryPerMinute(btcUsdt, minute(90), minute(100))
+
+        then:
+        1 * client.getCandlestickBars("BTCUSDT", _, _, minute(99).toEpochMilli() + 1, minute(100).toEpochMilli()) >>
+                [createCandlestick(100)]
+        wideCandlesticks == series((90..100).collect { createCandlestick(it) })
+
+        cleanup:
+        store.close()
+    }
+
+    private static Instant minute(long minute) {
+        Instant.ofEpochMilli(minute * MINUTE_MS)
+    }
+
+    private static CandleSeries series(List<com.binance.api.client.domain.market.Candlestick> candlesticks) {
+        def builder = CandleSeries.builder()
+        candlesticks.each { builder.add(it) }
+        builder.build()
+    }
+
+    private static com.binance.api.client.domain.market.Candlestick createCandlestick(long minute) {
+        def candlestick = new com.binance.api.client.domain.market.Candlestick()
+        candlestick.openTime = minute * MINUTE_MS
+        candlestick.closeTime = (minute + 1) * MINUTE_MS - 1
+        // Binance returns the prices with 8 digits after the point
+        candlestick.high = String.format("%d.00000000", 4000 + minute + 1)
+        candlestick.low = String.format("%d.00000000", 4000 + minute - 1)
+        candlestick.close = String.format("%d.00000000", 4000 + minute)
+        candlestick.volume = "1.00000000"
+        candlestick
+    }
+}